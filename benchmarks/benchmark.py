@@ -16,6 +16,8 @@ ns = range(1, 101)
 ms = range(1, 101)
 # Amount of solver runs for each (n, m)
 runs_per_pair = 5
+# Additional arguments for the solver, e.g. ["--carving", "--symmetry-breaking"]
+solver_arguments = []
 # Amount of simultaneous threads
 simultaneous_threads = os.cpu_count() + 5
 # Paths (don't have to be changed if project structure is not changed)
@@ -78,9 +80,14 @@ def write_formula(formula, path, variables, clauses, comments):
             string += " 0\n"
             file.write(string)
 
+# Converts a time string "HH:MM:SS.mmm" (as output by the solver) to seconds
+def timestr_to_seconds(string):
+    units = [float(x) for x in string.split(":")]
+    return 3600*units[0] + 60*units[1] + units[2]
+
 # Runs the solver, parses the output
 def run_solver(input_path):
-    command = '"{}" "{}" --verbose --timeout 3600'.format(solver_path, input_path)
+    command = '"{}" "{}" --verbose --timeout 3600 {}'.format(solver_path, input_path, ' '.join(solver_arguments))
     process = subprocess.Popen(command, shell = True, stdout = subprocess.PIPE, stderr = subprocess.PIPE)
     stdout, stderr = process.communicate()
     # Raise exception if solver reported error
@@ -108,11 +115,15 @@ def run_solver(input_path):
     time = ""
     width = -1
     memory = -1
+    # Total time of the SAT calls for widths that are too small
+    unsat_time = 0.0
     lines = stdout.splitlines()
     for line in lines:
         trimmed = line.decode("UTF-8")[5:-4]
         if trimmed.startswith("[psw] Time elapsed:"):
             time = trimmed.split()[-1]
+        elif trimmed.startswith("[sat]") and ": UNSAT," in trimmed:
+            unsat_time += timestr_to_seconds(trimmed.split()[-1])
         elif trimmed.startswith("ps-width of the decomposition is"):
             width = int(trimmed.split()[-1])
         elif trimmed.startswith("[psw] Memory usage:"):
@@ -121,7 +132,7 @@ def run_solver(input_path):
     models = int(lines[-1].decode("UTF-8"))
     if memory == -1:
         memory = "unknown"
-    return [time, width, models, memory]
+    return [time, width, models, memory, "{:.3f}".format(unsat_time)]
 
 # Perform all the actions for the pair (n, m), thread safe
 def perform(n, m, runs):
@@ -129,15 +140,16 @@ def perform(n, m, runs):
     # Create a temporary file, and run solver on it
     temp_file = temp_path/("temp-{}-{}.cnf".format(n, m))
     write_formula(formula, temp_file, n, m, [])
-    times, widths, answers, memories, errors = [], [], [], [], []
+    times, widths, answers, memories, unsat_times, errors = [], [], [], [], [], []
     for i in range(runs):
         try:
-            time, width, answer, memory = run_solver(temp_file)
+            time, width, answer, memory, unsat_time = run_solver(temp_file)
             print("n = {}, m = {}, i = {}: decomposition had ps-width {}, elapsed time was {}".format(n, m, i, width, time))
             times.append(time)
             widths.append(width)
             answers.append(answer)
             memories.append(memory)
+            unsat_times.append(unsat_time)
             errors.append(None)
         except RuntimeError as error:
             print("n = {}, m = {}, i = {}: runtime = {}, solver reported error: {}".format(n, m, i, error.args[1], error.args[0]))
@@ -145,6 +157,7 @@ def perform(n, m, runs):
             widths.append(error.args[2])
             answers.append("unknown")
             memories.append(error.args[3])
+            unsat_times.append("unknown")
             errors.append(error.args[0])
     print("n = {}, m = {}: ran solver {} times".format(n, m, runs))
     # Update progress
@@ -163,6 +176,7 @@ def perform(n, m, runs):
     results[n][m]['ps-width'] = [str(x) for x in widths]
     results[n][m]['models'] = [str(x) for x in answers]
     results[n][m]['memory'] = [str(x) for x in memories]
+    results[n][m]['unsat-time'] = [str(x) for x in unsat_times]
     results[n][m]['errors'] = errors
     results_lock.release()
     # Save formula to instances folder
@@ -197,6 +211,7 @@ def write_report(n):
             file.write("decomposition ps-width: {}\n".format(' '.join(results[n][m]['ps-width'])))
             file.write("models: {}\n".format(' '.join(results[n][m]['models'])))
             file.write("peak memory: {}\n".format(' '.join(results[n][m]['memory'])))
+            file.write("unsat time: {}\n".format(' '.join(results[n][m]['unsat-time'])))
             # Only write the errors part if they occurred
             runs_with_error = []
             for i in range(len(results[n][m]['errors'])):
@@ -21,7 +21,7 @@ class SolverRun:
     def __init__(self, n, m):
         self.n = n
         self.m = m
-        self.runtime, self.memory = None, None
+        self.runtime, self.memory, self.unsat_time = None, None, None
         self.width, self.models, self.error = None, None, None
 
 def timestr_to_seconds(string):
@@ -71,6 +71,13 @@ def parse_reports(reports_path, action):
                         if memory != "unknown":
                             runs[i].memory = float(memory)
                         i += 1
+                elif line.startswith("unsat time"):
+                    # Time of the unsatisfiable SAT calls line (seconds)
+                    i = 0
+                    for unsat_time in items[2:]:
+                        if unsat_time != "unknown":
+                            runs[i].unsat_time = float(unsat_time)
+                        i += 1
                 elif line.startswith("\trun "):
                     # Error message line
                     run_number = int(items[1][:-1])
@@ -1,6 +1,8 @@
 package at.ac.tuwien.student.e11843614;
 
 import at.ac.tuwien.student.e11843614.counting.ModelCounting;
+import at.ac.tuwien.student.e11843614.sat.SATBackend;
+import at.ac.tuwien.student.e11843614.sat.cardinality.CardinalityEncoding;
 import net.sourceforge.argparse4j.ArgumentParsers;
 import net.sourceforge.argparse4j.impl.Arguments;
 import net.sourceforge.argparse4j.inf.ArgumentParser;
@@ -18,7 +20,7 @@ public abstract class ArgumentParserFactory {
             .description("Accepts a CNF formula in DIMACS CNF format, and counts the number of its models.");
         parser.addArgument("input")
             .type(String.class)
-            .help("the input path for the DIMACS CNF file");
+            .help("the input path for the DIMACS CNF file, which may be compressed with gzip, xz or bzip2, or - for the standard input");
         parser.addArgument("--version")
             .action(Arguments.version())
             .help("output the version and exit");
@@ -32,6 +34,68 @@ public abstract class ArgumentParserFactory {
             .type(boolean.class)
             .action(Arguments.storeTrue())
             .help("use a carving decomposition as input for the psw algorithm. By default computes a quick, non-optimal decomposition");
+        parser.addArgument("--anytime")
+            .metavar("SECONDS")
+            .type(int.class)
+            .setDefault(0)
+            .help("with --carving, improve a quick carving decomposition by re-solving small parts exactly for this many seconds instead of computing an optimal one");
+        parser.addArgument("--cache")
+            .metavar("DIRECTORY")
+            .type(String.class)
+            .help("cache decompositions for the psw algorithm in this directory, reusing them for formulas with the same incidence graph");
+        parser.addArgument("--cache-limit")
+            .metavar("MEGABYTES")
+            .type(int.class)
+            .setDefault(100)
+            .help("the maximum size of the decomposition cache; least recently used decompositions are evicted");
+        parser.addArgument("--cardinality")
+            .type(CardinalityEncoding.Type.class)
+            .setDefault(CardinalityEncoding.Type.seq)
+            .help("with --carving, the encoding of the cardinality constraints that bound the loads in the SAT encoding (sequential counter, totalizer, modulo totalizer or cardinality network)");
+        parser.addArgument("--decomposition-in")
+            .metavar("FILE")
+            .type(String.class)
+            .help("read the decomposition for the psw algorithm from a file (PACE tree decomposition if the file ends with .td, branch decomposition otherwise) instead of computing it");
+        parser.addArgument("--decomposition-out")
+            .metavar("FILE")
+            .type(String.class)
+            .help("write the decomposition used by the psw algorithm to a file (PACE tree decomposition if the file ends with .td, branch decomposition otherwise)");
+        parser.addArgument("--lazy-transitivity")
+            .type(boolean.class)
+            .action(Arguments.storeTrue())
+            .help("with --carving, leave the transitivity clauses out of the SAT encoding and add them only when a solution violates them");
+        parser.addArgument("--portfolio-size")
+            .metavar("SOLVERS")
+            .type(int.class)
+            .setDefault(4)
+            .help("with --sat-backend=portfolio, the amount of differently configured Sat4j solvers that are raced");
+        parser.addArgument("--refine-iterations")
+            .metavar("ITERATIONS")
+            .type(int.class)
+            .setDefault(0)
+            .help("improve the decomposition for the psw algorithm by local search, evaluating at most this many moves");
+        parser.addArgument("--refine-time")
+            .metavar("SECONDS")
+            .type(int.class)
+            .setDefault(0)
+            .help("improve the decomposition for the psw algorithm by local search for at most this many seconds");
+        parser.addArgument("--sat-backend")
+            .type(SATBackend.Type.class)
+            .setDefault(SATBackend.Type.sat4j)
+            .help("the SAT solver for the SAT encodings: Sat4j in this process, the external solver given by --sat-command, or a portfolio racing several Sat4j configurations and the external solver");
+        parser.addArgument("--sat-arg")
+            .metavar("ARGUMENT")
+            .type(String.class)
+            .action(Arguments.append())
+            .help("an argument of the external SAT solver, taken as is; repeat it for several arguments, and write arguments that start with '-' as --sat-arg=-q");
+        parser.addArgument("--sat-command")
+            .metavar("COMMAND")
+            .type(String.class)
+            .help("the path of an external SAT solver that reads DIMACS CNF from standard input and answers in SAT competition format, taken as is");
+        parser.addArgument("--symmetry-breaking")
+            .type(boolean.class)
+            .action(Arguments.storeTrue())
+            .help("add symmetry-breaking clauses to the SAT encodings for carving- and clique-width");
         parser.addArgument("-t", "--timeout")
             .metavar("SECONDS")
             .type(int.class)
@@ -1,20 +1,58 @@
 package at.ac.tuwien.student.e11843614;
 
 import at.ac.tuwien.student.e11843614.counting.ModelCounting;
+import at.ac.tuwien.student.e11843614.sat.SATBackend;
+import at.ac.tuwien.student.e11843614.sat.cardinality.CardinalityEncoding;
 import net.sourceforge.argparse4j.inf.Namespace;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public abstract class Arguments {
 
     private static ModelCounting.Algorithm algorithm = ModelCounting.Algorithm.psw;
+    private static int anytime = 0;
+    private static String cache = null;
+    private static int cacheLimit = 0;
+    private static CardinalityEncoding.Type cardinality = CardinalityEncoding.Type.seq;
     private static boolean carving = false;
+    private static String decompositionIn = null;
+    private static String decompositionOut = null;
+    private static boolean lazyTransitivity = false;
     private static String path = "";
+    private static int portfolioSize = 4;
+    private static int refineIterations = 0;
+    private static int refineTime = 0;
+    private static SATBackend.Type satBackend = SATBackend.Type.sat4j;
+    private static List<String> satCommand = null;
+    private static boolean symmetryBreaking = false;
     private static int timeout = 0;
     private static boolean verbose = false;
 
     public static void set(Namespace namespace) {
         algorithm = namespace.get("alg");
+        anytime = namespace.getInt("anytime");
+        cache = namespace.getString("cache");
+        cacheLimit = namespace.getInt("cache_limit");
+        cardinality = namespace.get("cardinality");
         carving = namespace.getBoolean("carving");
+        decompositionIn = namespace.getString("decomposition_in");
+        decompositionOut = namespace.getString("decomposition_out");
+        lazyTransitivity = namespace.getBoolean("lazy_transitivity");
         path = namespace.getString("input");
+        portfolioSize = namespace.getInt("portfolio_size");
+        refineIterations = namespace.getInt("refine_iterations");
+        refineTime = namespace.getInt("refine_time");
+        satBackend = namespace.get("sat_backend");
+        satCommand = null;
+        if (namespace.getString("sat_command") != null) {
+            satCommand = new ArrayList<>();
+            satCommand.add(namespace.getString("sat_command"));
+            if (namespace.getList("sat_arg") != null) {
+                satCommand.addAll(namespace.<String>getList("sat_arg"));
+            }
+        }
+        symmetryBreaking = namespace.getBoolean("symmetry_breaking");
         timeout = namespace.getInt("timeout");
         verbose = namespace.getBoolean("verbose");
     }
@@ -23,14 +61,66 @@ public abstract class Arguments {
         return algorithm;
     }
 
+    public static int anytime() {
+        return anytime;
+    }
+
+    public static String cache() {
+        return cache;
+    }
+
+    public static int cacheLimit() {
+        return cacheLimit;
+    }
+
+    public static CardinalityEncoding.Type cardinality() {
+        return cardinality;
+    }
+
     public static boolean carving() {
         return carving;
     }
 
+    public static String decompositionIn() {
+        return decompositionIn;
+    }
+
+    public static String decompositionOut() {
+        return decompositionOut;
+    }
+
+    public static boolean lazyTransitivity() {
+        return lazyTransitivity;
+    }
+
     public static String path() {
         return path;
     }
 
+    public static int portfolioSize() {
+        return portfolioSize;
+    }
+
+    public static int refineIterations() {
+        return refineIterations;
+    }
+
+    public static int refineTime() {
+        return refineTime;
+    }
+
+    public static SATBackend.Type satBackend() {
+        return satBackend;
+    }
+
+    public static List<String> satCommand() {
+        return satCommand;
+    }
+
+    public static boolean symmetryBreaking() {
+        return symmetryBreaking;
+    }
+
     public static int timeout() {
         return timeout;
     }
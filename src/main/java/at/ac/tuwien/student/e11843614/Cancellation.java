@@ -0,0 +1,106 @@
+package at.ac.tuwien.student.e11843614;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * A cancellation token with an optional deadline. Long-running loops call {@link #check()} so that they stop within
+ * milliseconds once the deadline has passed or the token has been cancelled, instead of running on in a worker thread
+ * whose result is no longer awaited. The token of a model count is installed in its worker thread and inherited by
+ * the threads that the worker creates, e.g. the pools of parallel phases; threads without a token are never cancelled.
+ */
+public class Cancellation {
+
+    // A token that is never cancelled, for threads outside a model count
+    private static final Cancellation NONE = new Cancellation(0);
+
+    private static final InheritableThreadLocal<Cancellation> current = new InheritableThreadLocal<>() {
+        @Override
+        protected Cancellation initialValue() {
+            return NONE;
+        }
+    };
+
+    private final boolean hasDeadline;
+    private final long deadline;
+    private volatile boolean cancelled = false;
+
+    /**
+     * Constructs a token.
+     * @param timeout the time budget in seconds, starting now. If zero or negative, there is no deadline.
+     */
+    public Cancellation(long timeout) {
+        this.hasDeadline = timeout > 0;
+        this.deadline = System.nanoTime() + timeout * 1_000_000_000L;
+    }
+
+    /**
+     * Cancels this token.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Checks whether this token is cancelled or its deadline has passed.
+     * @return true if the phases observing this token should stop.
+     */
+    public boolean isCancelled() {
+        return cancelled || (hasDeadline && System.nanoTime() - deadline >= 0);
+    }
+
+    /**
+     * Stops the calling phase if this token is cancelled. Used in tasks that run on shared pools, whose threads do not
+     * inherit the token of the current thread.
+     * @throws CancellationException if this token is cancelled or its deadline has passed.
+     */
+    public void throwIfCancelled() {
+        if (isCancelled()) {
+            throw new CancellationException("Cancelled");
+        }
+    }
+
+    /**
+     * Returns the token of the current thread.
+     * @return the token, which is never cancelled if none was installed.
+     */
+    public static Cancellation current() {
+        return current.get();
+    }
+
+    /**
+     * Installs a token in the current thread. Threads created by the current thread afterwards inherit it.
+     * @param token the token.
+     */
+    public static void install(Cancellation token) {
+        current.set(token);
+    }
+
+    /**
+     * Stops the calling phase if the token of the current thread is cancelled.
+     * @throws CancellationException if the token is cancelled, its deadline has passed, or the current thread is
+     *                               interrupted.
+     */
+    public static void check() {
+        current.get().throwIfCancelled();
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Interrupted");
+        }
+    }
+
+    /**
+     * Returns the remaining time budget of the token of the current thread, e.g. to pass it on as a timeout to a SAT
+     * solver.
+     * @return the remaining time in milliseconds (at least 1 if there is a deadline), or 0 if there is no deadline.
+     */
+    public static long remainingMillis() {
+        Cancellation token = current.get();
+        if (!token.hasDeadline) {
+            return 0;
+        }
+        if (token.cancelled) {
+            return 1;
+        }
+        return Math.max(1, (token.deadline - System.nanoTime()) / 1_000_000L);
+    }
+
+}
@@ -1,9 +1,15 @@
 package at.ac.tuwien.student.e11843614.counting;
 
 import at.ac.tuwien.student.e11843614.Arguments;
+import at.ac.tuwien.student.e11843614.Cancellation;
 import at.ac.tuwien.student.e11843614.Logger;
 import at.ac.tuwien.student.e11843614.decomposition.DecompositionFactory;
 import at.ac.tuwien.student.e11843614.decomposition.clique.operation.CliqueOperation;
+import at.ac.tuwien.student.e11843614.decomposition.io.DecompositionCache;
+import at.ac.tuwien.student.e11843614.decomposition.io.DecompositionReader;
+import at.ac.tuwien.student.e11843614.decomposition.io.DecompositionWriter;
+import at.ac.tuwien.student.e11843614.decomposition.psw.PSLocalSearch;
+import at.ac.tuwien.student.e11843614.exception.DecompositionParseException;
 import at.ac.tuwien.student.e11843614.exception.MemoryError;
 import at.ac.tuwien.student.e11843614.exception.OverflowException;
 import at.ac.tuwien.student.e11843614.exception.TimeoutException;
@@ -15,8 +21,10 @@ import at.ac.tuwien.student.e11843614.struct.graph.GraphFactory;
 import at.ac.tuwien.student.e11843614.struct.tree.TreeNode;
 import org.apache.commons.lang3.time.StopWatch;
 
+import java.io.IOException;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -36,14 +44,18 @@ public abstract class ModelCounting {
 
         private final Formula formula;
         private final Algorithm algorithm;
+        private final Cancellation cancellation;
 
-        public CountCallable(Formula formula, Algorithm algorithm) {
+        public CountCallable(Formula formula, Algorithm algorithm, Cancellation cancellation) {
             this.formula = formula;
             this.algorithm = algorithm;
+            this.cancellation = cancellation;
         }
 
         @Override
         public Long call() throws Exception {
+            // Installed before any pool is created, so that the threads of parallel phases inherit it
+            Cancellation.install(cancellation);
             if (formula.hasEmptyClauses()) {
                 Logger.debug("Formula contains an empty (unsatisfiable) clause");
                 return 0L;
@@ -64,7 +76,8 @@ public abstract class ModelCounting {
     }
 
     /**
-     * Returns the amount of models of a propositional formula.
+     * Returns the amount of models of a propositional formula. The count runs in a worker thread; on timeout, its
+     * phases are cancelled and stop shortly after, see {@link Cancellation}.
      * @param formula the formula to count models of.
      * @param algorithm the algorithm to use for the computation.
      * @param timeout the timeout in seconds. If zero or negative, timeout is infinite.
@@ -73,7 +86,8 @@ public abstract class ModelCounting {
      */
     public static long count(Formula formula, Algorithm algorithm, long timeout) throws TimeoutException {
         ExecutorService executor = Executors.newSingleThreadExecutor();
-        Future<Long> models = executor.submit(new CountCallable(formula, algorithm));
+        Cancellation cancellation = new Cancellation(timeout);
+        Future<Long> models = executor.submit(new CountCallable(formula, algorithm, cancellation));
         try {
             if (timeout <= 0) {
                 return models.get();
@@ -83,11 +97,16 @@ public abstract class ModelCounting {
                 return result;
             }
         } catch (java.util.concurrent.TimeoutException exception) {
+            cancellation.cancel();
             executor.shutdownNow();
             throw new TimeoutException("Timeout (" + timeout + " s) exceeded", exception);
         } catch (ExecutionException exception) {
             executor.shutdownNow();
-            if (exception.getCause() instanceof ArithmeticException) {
+            if (exception.getCause() instanceof CancellationException
+                || exception.getCause() instanceof TimeoutException) {
+                // A phase reached the deadline before the wait for the result did
+                throw new TimeoutException("Timeout (" + timeout + " s) exceeded", exception);
+            } else if (exception.getCause() instanceof ArithmeticException) {
                 throw new OverflowException("Long overflow", exception);
             } else if (exception.getCause() instanceof OutOfMemoryError) {
                 throw new MemoryError("Ran out of memory", exception);
@@ -106,16 +125,25 @@ public abstract class ModelCounting {
      * @param formula the formula.
      * @return the amount of the formula's models.
      * @throws TimeoutException if the SAT solver takes too long while computing a carving derivation.
+     * @throws IOException if the decomposition cannot be read from or written to a file.
+     * @throws DecompositionParseException if the decomposition read from a file is malformed or not valid.
      */
-    private static long psw(Formula formula) throws TimeoutException {
+    private static long psw(Formula formula) throws TimeoutException, IOException, DecompositionParseException {
         Graph incidenceGraph = GraphFactory.incidenceGraph(formula);
         // Compute a branch decomposition (as defined in the psw paper)
         StopWatch stopwatch = StopWatch.createStarted();
         TreeNode<Set<Integer>> decomposition;
-        if (Arguments.carving()) {
-            decomposition = DecompositionFactory.pswBranchFromCarving(incidenceGraph);
+        if (Arguments.decompositionIn() != null) {
+            decomposition = new DecompositionReader(Arguments.decompositionIn())
+                .parseDecomposition(formula, incidenceGraph);
         } else {
-            decomposition = DecompositionFactory.pswBranch(incidenceGraph);
+            decomposition = pswBranch(formula, incidenceGraph);
+        }
+        if (decomposition != null && (Arguments.refineIterations() > 0 || Arguments.refineTime() > 0)) {
+            PSLocalSearch.refine(formula, decomposition, Arguments.refineIterations(), Arguments.refineTime());
+        }
+        if (decomposition != null && Arguments.decompositionOut() != null) {
+            DecompositionWriter.write(Arguments.decompositionOut(), decomposition, formula, incidenceGraph);
         }
         stopwatch.split();
         Logger.debug("[psw] Time elapsed: " + stopwatch.formatSplitTime());
@@ -126,6 +154,40 @@ public abstract class ModelCounting {
         return models;
     }
 
+    /**
+     * Computes a branch decomposition for the psw algorithm, or looks it up in the decomposition cache if enabled.
+     * @param formula the formula.
+     * @param incidenceGraph the incidence graph of the formula.
+     * @return a branch decomposition (psw) of the incidence graph.
+     * @throws TimeoutException if the SAT solver takes too long while computing a carving derivation.
+     * @throws IOException if the decomposition cannot be written to the cache.
+     */
+    private static TreeNode<Set<Integer>> pswBranch(Formula formula, Graph incidenceGraph)
+        throws TimeoutException, IOException {
+        DecompositionCache cache = null;
+        String method = "quick";
+        if (Arguments.carving()) {
+            method = (Arguments.anytime() > 0) ? "carving-anytime-" + Arguments.anytime() : "carving";
+        }
+        if (Arguments.cache() != null) {
+            cache = new DecompositionCache(Arguments.cache(), Arguments.cacheLimit() * 1024L * 1024L);
+            TreeNode<Set<Integer>> decomposition = cache.get(formula, incidenceGraph, method);
+            if (decomposition != null) {
+                return decomposition;
+            }
+        }
+        TreeNode<Set<Integer>> decomposition;
+        if (Arguments.carving()) {
+            decomposition = DecompositionFactory.pswBranchFromCarving(incidenceGraph, Arguments.anytime());
+        } else {
+            decomposition = DecompositionFactory.pswBranch(incidenceGraph);
+        }
+        if (cache != null && decomposition != null) {
+            cache.put(formula, incidenceGraph, method, decomposition);
+        }
+        return decomposition;
+    }
+
     /**
      * Counts the amount of models of a propositional formula with a dynamic algorithm utilizing the clique-width of the
      * formula.
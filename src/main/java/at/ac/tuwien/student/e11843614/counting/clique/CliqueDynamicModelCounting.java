@@ -1,5 +1,6 @@
 package at.ac.tuwien.student.e11843614.counting.clique;
 
+import at.ac.tuwien.student.e11843614.Cancellation;
 import at.ac.tuwien.student.e11843614.Logger;
 import at.ac.tuwien.student.e11843614.decomposition.clique.operation.CliqueEdgeCreation;
 import at.ac.tuwien.student.e11843614.decomposition.clique.operation.CliqueOperation;
@@ -47,6 +48,7 @@ public abstract class CliqueDynamicModelCounting {
         Iterator<TreeNode<CliqueOperation>> iterator = decomposition.depthIterator();
         while (iterator.hasNext()) {
             TreeNode<CliqueOperation> node = iterator.next();
+            Cancellation.check();
             Logger.debug("v = " + node.object() + ": computing the clique table");
             CliqueTable table = null;
             if (node.object() instanceof CliqueSingleton) {
@@ -222,6 +224,7 @@ public abstract class CliqueDynamicModelCounting {
             Set<Integer> a = new HashSet<>(aIterator.next());
             Iterator<List<Integer>> bIterator = new SubsetIterator<>(set);
             while (bIterator.hasNext()) {
+                Cancellation.check();
                 Set<Integer> b = new HashSet<>(bIterator.next());
                 Iterator<List<Integer>> cIterator = new SubsetIterator<>(set);
                 while (cIterator.hasNext()) {
@@ -1,6 +1,7 @@
 package at.ac.tuwien.student.e11843614.counting.psw;
 
 import at.ac.tuwien.student.e11843614.Arguments;
+import at.ac.tuwien.student.e11843614.Cancellation;
 import at.ac.tuwien.student.e11843614.Logger;
 import at.ac.tuwien.student.e11843614.formula.Clause;
 import at.ac.tuwien.student.e11843614.formula.Formula;
@@ -41,6 +42,7 @@ public abstract class PSDynamicModelCounting {
         Iterator<TreeNode<Set<Integer>>> iterator = decomposition.depthIterator();
         while (iterator.hasNext()) {
             TreeNode<Set<Integer>> node = iterator.next();
+            Cancellation.check();
             Logger.debug("v = " + node.object() + ": computing the PS table");
             PSTable table = new PSTable();
             if (node.children().isEmpty()) {
@@ -95,6 +97,7 @@ public abstract class PSDynamicModelCounting {
         TreeNode<Set<Integer>> child1 = childIterator.next();
         TreeNode<Set<Integer>> child2 = childIterator.next();
         for (Set<Integer> c1 : psMap.getPositive(child1)) {
+            Cancellation.check();
             for (Set<Integer> c2 : psMap.getPositive(child2)) {
                 for (Set<Integer> cv : psMap.getNegative(node)) {
                     Set<Integer> first = new HashSet<>(c2);
@@ -230,6 +233,7 @@ public abstract class PSDynamicModelCounting {
                 Set<Integer> deltaClauses = deltaClauses(node);
                 Set<Set<Integer>> l = new HashSet<>();
                 for (Set<Integer> clauses1 : map.getPositive(c1)) {
+                    Cancellation.check();
                     for (Set<Integer> clauses2 : map.getPositive(c2)) {
                         Set<Integer> newClauses = new HashSet<>(clauses1);
                         newClauses.addAll(clauses2);
@@ -260,6 +264,7 @@ public abstract class PSDynamicModelCounting {
                 Set<Integer> deltaClauses = deltaClauses(node);
                 Set<Set<Integer>> l = new HashSet<>();
                 for (Set<Integer> clauses1 : map.getPositive(s)) {
+                    Cancellation.check();
                     for (Set<Integer> clauses2 : map.getNegative(p)) {
                         Set<Integer> newClauses = new HashSet<>(clauses1);
                         newClauses.addAll(clauses2);
@@ -0,0 +1,287 @@
+package at.ac.tuwien.student.e11843614.counting.psw;
+
+import at.ac.tuwien.student.e11843614.formula.Clause;
+import at.ac.tuwien.student.e11843614.formula.Formula;
+import at.ac.tuwien.student.e11843614.struct.tree.TreeNode;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An object that evaluates candidate branch decompositions of a formula by the sizes of their precisely satisfiable
+ * families, without computing the tables of the dynamic algorithm. The evaluation is aborted as soon as a node exceeds
+ * a given threshold, which makes it cheap to reject bad decompositions.
+ */
+public class PSWidthEvaluator {
+
+    // variable -> positions of clauses in which the variable occurs positively/negatively
+    private final Map<Integer, Set<Integer>> positiveOccurrences = new HashMap<>();
+    private final Map<Integer, Set<Integer>> negativeOccurrences = new HashMap<>();
+
+    private PSSetMap map = new PSSetMap();
+    private PSWidthProfile profile = new PSWidthProfile();
+
+    // families of the nodes changed by the last update, to be restored on revert
+    private final Map<TreeNode<Set<Integer>>, Set<Set<Integer>>> previousPositives = new HashMap<>();
+    private final Map<TreeNode<Set<Integer>>, Set<Set<Integer>>> previousNegatives = new HashMap<>();
+
+    public PSWidthEvaluator(Formula formula) {
+        for (Clause clause : formula.clauses()) {
+            for (int literal : clause.literals()) {
+                Map<Integer, Set<Integer>> occurrences = (literal > 0) ? positiveOccurrences : negativeOccurrences;
+                occurrences.computeIfAbsent(Math.abs(literal), x -> new HashSet<>()).add(clause.position());
+            }
+        }
+    }
+
+    /**
+     * Evaluates a decomposition completely.
+     * @param decomposition a branch decomposition (psw) of the formula.
+     * @return the profile of the decomposition.
+     */
+    public PSWidthProfile evaluate(TreeNode<Set<Integer>> decomposition) {
+        return evaluate(decomposition, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Evaluates a decomposition, computing the PS families bottom-up (PS(F_v)) and then top-down (PS(F_-v)). Stops as
+     * soon as a family of some node has more than threshold elements.
+     * @param decomposition a branch decomposition (psw) of the formula.
+     * @param threshold the maximum allowed size of a PS family.
+     * @return the profile of the decomposition. If a node exceeded the threshold, the profile is marked as aborted and
+     *         only contains the nodes evaluated so far.
+     */
+    public PSWidthProfile evaluate(TreeNode<Set<Integer>> decomposition, int threshold) {
+        map = new PSSetMap();
+        profile = new PSWidthProfile();
+        previousPositives.clear();
+        previousNegatives.clear();
+        // Bottom-up: PS(F_v)
+        Iterator<TreeNode<Set<Integer>>> iterator = decomposition.depthIterator();
+        while (iterator.hasNext()) {
+            TreeNode<Set<Integer>> node = iterator.next();
+            Set<Set<Integer>> family = computePositive(node, threshold);
+            map.setPositive(node, family);
+            profile.setPositive(node, family.size());
+            if (family.size() > threshold) {
+                profile.abort(node);
+                return profile;
+            }
+        }
+        // Top-down: PS(F_-v)
+        iterator = decomposition.breadthIterator();
+        while (iterator.hasNext()) {
+            TreeNode<Set<Integer>> node = iterator.next();
+            Set<Set<Integer>> family = computeNegative(node, threshold);
+            map.setNegative(node, family);
+            profile.setNegative(node, family.size());
+            if (family.size() > threshold) {
+                profile.abort(node);
+                return profile;
+            }
+        }
+        return profile;
+    }
+
+    /**
+     * Re-evaluates a decomposition after a local change, recomputing only the families of the specified nodes. Since
+     * the PS families of a node only depend on the set of vertices stored in the node, the families of every other node
+     * are kept. The changes can be undone with {@link #revert()}.
+     * @param changed the nodes whose sets of vertices have changed since the last evaluation or update. They must be
+     *                internal nodes, and each of them must still be part of the evaluated decomposition.
+     * @param threshold the maximum allowed size of a PS family.
+     * @return the updated profile. If a node exceeded the threshold, the profile is marked as aborted.
+     */
+    public PSWidthProfile update(Collection<TreeNode<Set<Integer>>> changed, int threshold) {
+        previousPositives.clear();
+        previousNegatives.clear();
+        profile.abort(null);
+        // Sort by depth: PS(F_v) is computed bottom-up, PS(F_-v) top-down.
+        Map<TreeNode<Set<Integer>>, Integer> depths = new HashMap<>();
+        for (TreeNode<Set<Integer>> node : changed) {
+            depths.put(node, depth(node));
+        }
+        List<TreeNode<Set<Integer>>> nodes = new ArrayList<>(changed);
+        nodes.sort(Comparator.comparing(depths::get));
+        for (int i = nodes.size() - 1; i >= 0; i--) {
+            TreeNode<Set<Integer>> node = nodes.get(i);
+            previousPositives.put(node, map.getPositive(node));
+            Set<Set<Integer>> family = computePositive(node, threshold);
+            map.setPositive(node, family);
+            profile.setPositive(node, family.size());
+            if (family.size() > threshold) {
+                profile.abort(node);
+                return profile;
+            }
+        }
+        for (TreeNode<Set<Integer>> node : nodes) {
+            previousNegatives.put(node, map.getNegative(node));
+            Set<Set<Integer>> family = computeNegative(node, threshold);
+            map.setNegative(node, family);
+            profile.setNegative(node, family.size());
+            if (family.size() > threshold) {
+                profile.abort(node);
+                return profile;
+            }
+        }
+        return profile;
+    }
+
+    /**
+     * Restores the families and the profile to the state before the last update.
+     */
+    public void revert() {
+        for (Map.Entry<TreeNode<Set<Integer>>, Set<Set<Integer>>> entry : previousPositives.entrySet()) {
+            map.setPositive(entry.getKey(), entry.getValue());
+            profile.setPositive(entry.getKey(), entry.getValue().size());
+        }
+        for (Map.Entry<TreeNode<Set<Integer>>, Set<Set<Integer>>> entry : previousNegatives.entrySet()) {
+            map.setNegative(entry.getKey(), entry.getValue());
+            profile.setNegative(entry.getKey(), entry.getValue().size());
+        }
+        previousPositives.clear();
+        previousNegatives.clear();
+        profile.abort(null);
+    }
+
+    /**
+     * Returns the profile of the last evaluation, including subsequent updates.
+     * @return the current profile.
+     */
+    public PSWidthProfile profile() {
+        return profile;
+    }
+
+    /**
+     * Returns the PS families computed in the last evaluation, including subsequent updates.
+     * @return a map from nodes of the last evaluated decomposition to PS sets.
+     */
+    public PSSetMap families() {
+        return map;
+    }
+
+    // ----- Families --------------------------------------------------------------------------------------------------
+
+    /**
+     * Computes PS(F_v) for a node, assuming that the families of its children have been computed.
+     * @param node the node v.
+     * @param threshold the threshold; computation stops as soon as the family exceeds it.
+     * @return PS(F_v), or a partial family with more than threshold elements.
+     */
+    private Set<Set<Integer>> computePositive(TreeNode<Set<Integer>> node, int threshold) {
+        Set<Set<Integer>> family = new HashSet<>();
+        if (node.children().isEmpty()) {
+            int vertex = node.object().iterator().next();
+            if (vertex % 10 == 1) {
+                // variable vertex: PS(F_v) = {clauses with x, clauses with -x}
+                int variable = vertex / 10;
+                family.add(positiveOccurrences.getOrDefault(variable, Set.of()));
+                family.add(negativeOccurrences.getOrDefault(variable, Set.of()));
+            } else {
+                // clause vertex: PS(F_v) = {{}}
+                family.add(Set.of());
+            }
+        } else if (node.parent() == null) {
+            // root: F_v is an empty formula
+            family.add(Set.of());
+        } else {
+            Iterator<TreeNode<Set<Integer>>> childIterator = node.children().iterator();
+            TreeNode<Set<Integer>> c1 = childIterator.next();
+            TreeNode<Set<Integer>> c2 = childIterator.next();
+            Set<Integer> deltaClauses = deltaClauses(node);
+            for (Set<Integer> clauses1 : map.getPositive(c1)) {
+                for (Set<Integer> clauses2 : map.getPositive(c2)) {
+                    Set<Integer> newClauses = new HashSet<>(clauses1);
+                    newClauses.addAll(clauses2);
+                    newClauses.removeAll(deltaClauses);
+                    family.add(newClauses);
+                    if (family.size() > threshold) {
+                        return family;
+                    }
+                }
+            }
+        }
+        return family;
+    }
+
+    /**
+     * Computes PS(F_-v) for a node, assuming that PS(F_-p) of its parent p and PS(F_s) of its sibling s have been
+     * computed.
+     * @param node the node v.
+     * @param threshold the threshold; computation stops as soon as the family exceeds it.
+     * @return PS(F_-v), or a partial family with more than threshold elements.
+     */
+    private Set<Set<Integer>> computeNegative(TreeNode<Set<Integer>> node, int threshold) {
+        Set<Set<Integer>> family = new HashSet<>();
+        if (node.children().isEmpty()) {
+            int vertex = node.object().iterator().next();
+            family.add(Set.of());
+            if (vertex % 10 == 2) {
+                // clause vertex: PS(F_-v) = {{}, {c}}
+                family.add(Set.of(vertex / 10));
+            }
+        } else if (node.parent() == null) {
+            // root: F_-v consists of empty clauses
+            family.add(Set.of());
+        } else {
+            TreeNode<Set<Integer>> p = node.parent();
+            TreeNode<Set<Integer>> s = null;
+            for (TreeNode<Set<Integer>> pChild : p.children()) {
+                if (pChild != node) {
+                    s = pChild;
+                }
+            }
+            Set<Integer> deltaClauses = deltaClauses(node);
+            for (Set<Integer> clauses1 : map.getPositive(s)) {
+                for (Set<Integer> clauses2 : map.getNegative(p)) {
+                    Set<Integer> newClauses = new HashSet<>(clauses1);
+                    newClauses.addAll(clauses2);
+                    newClauses.retainAll(deltaClauses);
+                    family.add(newClauses);
+                    if (family.size() > threshold) {
+                        return family;
+                    }
+                }
+            }
+        }
+        return family;
+    }
+
+    // ----- Helpers ---------------------------------------------------------------------------------------------------
+
+    /**
+     * Computes the depth of a node, i.e. the distance to the root.
+     * @param node the node.
+     * @return the depth.
+     */
+    private static int depth(TreeNode<Set<Integer>> node) {
+        int depth = 0;
+        for (TreeNode<Set<Integer>> current = node.parent(); current != null; current = current.parent()) {
+            depth++;
+        }
+        return depth;
+    }
+
+    /**
+     * Computes the set of clauses in delta.
+     * @param node the node.
+     * @return the set cla(delta(node)).
+     */
+    private static Set<Integer> deltaClauses(TreeNode<Set<Integer>> node) {
+        Set<Integer> clauses = new HashSet<>();
+        for (int vertex : node.object()) {
+            if (vertex % 10 == 2) {
+                clauses.add(vertex / 10);
+            }
+        }
+        return clauses;
+    }
+
+}
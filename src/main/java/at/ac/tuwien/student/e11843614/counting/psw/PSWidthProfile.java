@@ -0,0 +1,105 @@
+package at.ac.tuwien.student.e11843614.counting.psw;
+
+import at.ac.tuwien.student.e11843614.struct.tree.TreeNode;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An object that stores the sizes of the precisely satisfiable families PS(F_v) and PS(F_-v) for each node v of a
+ * branch decomposition, as computed by a {@link PSWidthEvaluator}.
+ */
+public class PSWidthProfile {
+
+    private final Map<TreeNode<Set<Integer>>, Integer> positives = new HashMap<>();
+    private final Map<TreeNode<Set<Integer>>, Integer> negatives = new HashMap<>();
+
+    private TreeNode<Set<Integer>> abortedAt = null;
+
+    /**
+     * Returns the size of PS(F_v) for a node v.
+     * @param node the node v.
+     * @return |PS(F_v)|, or 0 if it has not been computed (because the evaluation was aborted).
+     */
+    public int getPositive(TreeNode<Set<Integer>> node) {
+        return positives.getOrDefault(node, 0);
+    }
+
+    /**
+     * Returns the size of PS(F_-v) for a node v.
+     * @param node the node v.
+     * @return |PS(F_-v)|, or 0 if it has not been computed (because the evaluation was aborted).
+     */
+    public int getNegative(TreeNode<Set<Integer>> node) {
+        return negatives.getOrDefault(node, 0);
+    }
+
+    /**
+     * Returns the ps-value of a node v, i.e. max(|PS(F_v)|, |PS(F_-v)|).
+     * @param node the node v.
+     * @return the ps-value of the node.
+     */
+    public int get(TreeNode<Set<Integer>> node) {
+        return Math.max(getPositive(node), getNegative(node));
+    }
+
+    /**
+     * Returns the ps-width of the decomposition, i.e. the maximum ps-value over all nodes. If the evaluation was
+     * aborted, this is a lower bound exceeding the threshold.
+     * @return the ps-width.
+     */
+    public int width() {
+        int width = 0;
+        for (int size : positives.values()) {
+            width = Math.max(width, size);
+        }
+        for (int size : negatives.values()) {
+            width = Math.max(width, size);
+        }
+        return width;
+    }
+
+    /**
+     * Returns a boolean value indicating whether the evaluation was aborted because a node exceeded the threshold.
+     * @return true, if the evaluation was aborted, and false otherwise.
+     */
+    public boolean isAborted() {
+        return abortedAt != null;
+    }
+
+    /**
+     * Returns the node at which the evaluation was aborted.
+     * @return the first node whose ps-value exceeded the threshold, or null if the evaluation was not aborted.
+     */
+    public TreeNode<Set<Integer>> abortedAt() {
+        return abortedAt;
+    }
+
+    /**
+     * Records the size of PS(F_v) for a node v.
+     * @param node the node v.
+     * @param size |PS(F_v)|.
+     */
+    void setPositive(TreeNode<Set<Integer>> node, int size) {
+        positives.put(node, size);
+    }
+
+    /**
+     * Records the size of PS(F_-v) for a node v.
+     * @param node the node v.
+     * @param size |PS(F_-v)|.
+     */
+    void setNegative(TreeNode<Set<Integer>> node, int size) {
+        negatives.put(node, size);
+    }
+
+    /**
+     * Marks the evaluation as aborted.
+     * @param node the node whose ps-value exceeded the threshold, or null to clear the mark.
+     */
+    void abort(TreeNode<Set<Integer>> node) {
+        this.abortedAt = node;
+    }
+
+}
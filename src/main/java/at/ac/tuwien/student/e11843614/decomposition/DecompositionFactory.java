@@ -1,37 +1,68 @@
 package at.ac.tuwien.student.e11843614.decomposition;
 
 import at.ac.tuwien.student.e11843614.Logger;
-import at.ac.tuwien.student.e11843614.decomposition.carving.CarvingDecompositionFactory;
-import at.ac.tuwien.student.e11843614.decomposition.carving.CarvingDerivation;
+import at.ac.tuwien.student.e11843614.decomposition.carving.CarvingLocalImprovement;
+import at.ac.tuwien.student.e11843614.decomposition.carving.CarvingReduction;
 import at.ac.tuwien.student.e11843614.decomposition.clique.CliqueDecompositionFactory;
 import at.ac.tuwien.student.e11843614.decomposition.clique.CliqueDerivation;
 import at.ac.tuwien.student.e11843614.decomposition.clique.operation.CliqueOperation;
 import at.ac.tuwien.student.e11843614.decomposition.clique.operation.CliqueSingleton;
 import at.ac.tuwien.student.e11843614.decomposition.clique.operation.CliqueUnion;
+import at.ac.tuwien.student.e11843614.decomposition.psw.Binarization;
 import at.ac.tuwien.student.e11843614.exception.TimeoutException;
+import at.ac.tuwien.student.e11843614.struct.RangeSet;
 import at.ac.tuwien.student.e11843614.struct.tree.TreeNode;
 import at.ac.tuwien.student.e11843614.struct.graph.Graph;
 
-import java.util.HashSet;
-import java.util.Iterator;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
 import java.util.Set;
 
 public abstract class DecompositionFactory {
 
+    /**
+     * The shape of a quick branch decomposition.
+     */
+    public enum Shape {
+        // leaves have depth about log n
+        BALANCED,
+        // every internal node has a leaf as child (a caterpillar)
+        LINEAR
+    }
+
+    // Seed for shuffling the vertices of quick branch decompositions, for reproducible shapes.
+    private static final long SEED = 11843614;
+
     // TODO: Compute signed parse tree (signed clique decomposition)
 
     /**
-     * Constructs a carving decomposition of a graph.
+     * Constructs an optimal carving decomposition of a graph. The graph is reduced and split into biconnected blocks
+     * first, see {@link CarvingReduction}; only the blocks are solved with the SAT encoding.
      * @param graph the graph.
      * @return a carving decomposition, or null if it does not exist.
      */
     public static TreeNode<Set<Integer>> carving(Graph graph) throws TimeoutException {
-        CarvingDerivation derivation = DerivationFactory.carving(graph);
-        if (derivation != null) {
-            return CarvingDecompositionFactory.from(derivation);
-        } else {
-            return null;
+        return CarvingReduction.decompose(graph);
+    }
+
+    /**
+     * Constructs a carving decomposition of a graph within a time budget. A quick decomposition is improved locally
+     * by re-solving small parts exactly until the budget is spent; the result is not necessarily optimal.
+     * @param graph the graph.
+     * @param seconds the time budget in seconds. If zero or negative, an optimal decomposition is computed instead.
+     * @return a carving decomposition, or null if it does not exist.
+     */
+    public static TreeNode<Set<Integer>> carving(Graph graph, int seconds) throws TimeoutException {
+        if (seconds <= 0 || graph.vertices().size() <= 3) {
+            return carving(graph);
         }
+        return CarvingLocalImprovement.improve(graph, pswBranch(graph), seconds);
     }
 
     /**
@@ -42,112 +73,107 @@ public abstract class DecompositionFactory {
      * not exist.
      */
     public static TreeNode<Set<Integer>> pswBranchFromCarving(Graph graph) throws TimeoutException {
+        return pswBranchFromCarving(graph, 0);
+    }
+
+    /**
+     * Constructs a branch decomposition for ps-width (binary tree containing vertices of the graph) from a carving
+     * decomposition. The resulting branch decomposition is not optimal in terms of ps-width.
+     * @param graph the graph. For ps-width applications an incidence graph of the formula.
+     * @param seconds the time budget for the carving decomposition in seconds, see {@link #carving(Graph, int)}. If
+     *                zero or negative, an optimal carving decomposition is used.
+     * @return a branch decomposition for ps-width (a binary tree containing vertices of the graph), or null if it does
+     * not exist.
+     */
+    public static TreeNode<Set<Integer>> pswBranchFromCarving(Graph graph, int seconds) throws TimeoutException {
         // We construct a carving decomposition and then transform it into a binary tree. But, if there is only one
         // vertex, a carving decomposition does not exist, while a branch decomposition does.
         if (graph.vertices().size() == 1) {
             return new TreeNode<>(Set.of(graph.vertices().iterator().next()));
         }
         // Next, determine a carving decomposition.
-        TreeNode<Set<Integer>> carving = carving(graph);
+        TreeNode<Set<Integer>> carving = carving(graph, seconds);
         if (carving == null) {
             return null;
-        } else if (carving.children().size() < 3) {
-            // No need to transform into binary tree
-            return carving;
-        }
-        // Transform into binary tree. First determine the 'nodeToMove', which will be the subtree with minimum height.
-        int minHeight = Integer.MAX_VALUE;
-        TreeNode<Set<Integer>> nodeToMove = null;
-        for (TreeNode<Set<Integer>> child : carving.children()) {
-            int height = child.getHeight();
-            if (height < minHeight) {
-                minHeight = height;
-                nodeToMove = child;
-            }
-        }
-        // Remove 'nodeToMove' from children of the root.
-        carving.removeChild(nodeToMove);
-        // Go in breadth-first order through the carving. The first leaf we find will have the smallest distance to root.
-        // This will be our target where we will move 'nodeToMove'.
-        TreeNode<Set<Integer>> target = null;
-        for (TreeNode<Set<Integer>> node : carving) {
-            if (node.children().isEmpty()) {
-                target = node;
-                break;
-            }
         }
-        // Now, 'target' is a leaf. Insert a union node above that will have as children the 'target' and 'nodeToMove'.
-        if (target != null && nodeToMove != null) {
-            Set<Integer> set = new HashSet<>(target.object());
-            set.addAll(nodeToMove.object());
-            TreeNode<Set<Integer>> internal = target.insertAbove(set);
-            internal.addChild(nodeToMove);
-            // Update sets above
-            TreeNode<Set<Integer>> current = internal.parent();
-            while (current != null) {
-                current.object().addAll(set);
-                current = current.parent();
-            }
-        }
-        return carving;
+        // Transform into binary tree: group the children of every node with three or more children.
+        return Binarization.binarize(graph, carving);
     }
 
     /**
-     * Constructs a branch decomposition for ps-width (binary tree containing vertices of the graph) quickly. The
-     * resulting branch decomposition is not optimal in terms of ps-width.
+     * Constructs a balanced branch decomposition for ps-width (binary tree containing vertices of the graph) quickly.
+     * The resulting branch decomposition is not optimal in terms of ps-width.
      * @param graph the graph. For ps-width applications an incidence graph of the formula.
      * @return a branch decomposition for ps-width (a binary tree containing vertices of the graph), or null if it does
      * not exist.
      */
     public static TreeNode<Set<Integer>> pswBranch(Graph graph) {
+        return pswBranch(graph, Shape.BALANCED);
+    }
+
+    /**
+     * Constructs a branch decomposition for ps-width (binary tree containing vertices of the graph) quickly, in
+     * O(n log n) time for a balanced shape. The vertices are shuffled with a fixed seed and assigned to the leaves in
+     * this order, so that every node stores a contiguous range of the shuffled vertices. The sets of internal nodes
+     * are unmodifiable views of the ranges and share one array. The resulting branch decomposition is not optimal in
+     * terms of ps-width.
+     * @param graph the graph. For ps-width applications an incidence graph of the formula.
+     * @param shape the shape of the tree.
+     * @return a branch decomposition for ps-width (a binary tree containing vertices of the graph), or null if it does
+     * not exist.
+     */
+    public static TreeNode<Set<Integer>> pswBranch(Graph graph, Shape shape) {
         if (graph.vertices().isEmpty()) {
             return null;
-        } else if (graph.vertices().size() == 1) {
-            int vertex = graph.vertices().iterator().next();
-            return new TreeNode<>(Set.of(vertex));
         }
-        // >= 2 vertices at this point
-        Iterator<Integer> vertexIterator = graph.vertices().iterator();
-        TreeNode<Set<Integer>> root = new TreeNode<>(new HashSet<>());
-        root.addChild(new TreeNode<>(Set.of(vertexIterator.next())));
-        root.addChild(new TreeNode<>(Set.of(vertexIterator.next())));
-        // Suppose we have a binary tree/decomposition that contains some vertices of the graph. Choose some leaf,
-        // transform it into an internal node with two children: one stores the value previously stored in the leaf,
-        // the other a new value.
-        while (vertexIterator.hasNext()) {
-            int vertex = vertexIterator.next();
-            for (TreeNode<Set<Integer>> node : root) {
-                if (!node.children().isEmpty()) {
-                    continue;
-                }
-                // Found a leaf
-                TreeNode<Set<Integer>> parent = node.parent();
-                TreeNode<Set<Integer>> internal = new TreeNode<>(new HashSet<>());
-                node.detach();
-                internal.addChild(node);
-                internal.addChild(new TreeNode<>(Set.of(vertex)));
-                parent.addChild(internal);
-                break;
-            }
+        List<Integer> vertexList = new ArrayList<>(graph.vertices());
+        Collections.sort(vertexList);
+        Collections.shuffle(vertexList, new Random(SEED));
+        Integer[] vertices = vertexList.toArray(new Integer[0]);
+        Map<Integer, Integer> positions = new HashMap<>();
+        for (int i = 0; i < vertices.length; i++) {
+            positions.put(vertices[i], i);
         }
-        // Propagate sets
-        Iterator<TreeNode<Set<Integer>>> nodeIterator = root.depthIterator();
-        while (nodeIterator.hasNext()) {
-            TreeNode<Set<Integer>> node = nodeIterator.next();
-            if (!node.children().isEmpty()) {
+        // Each node stores the range [from, to) of the vertices. Split ranges top-down with an explicit stack, since
+        // a linear tree is as deep as there are vertices.
+        TreeNode<Set<Integer>> root = node(vertices, positions, 0, vertices.length);
+        Deque<TreeNode<Set<Integer>>> stack = new ArrayDeque<>();
+        Deque<int[]> ranges = new ArrayDeque<>();
+        stack.push(root);
+        ranges.push(new int[]{0, vertices.length});
+        while (!stack.isEmpty()) {
+            TreeNode<Set<Integer>> node = stack.pop();
+            int[] range = ranges.pop();
+            if (range[1] - range[0] < 2) {
                 continue;
             }
-            // 'node' is a leaf
-            TreeNode<Set<Integer>> current = node.parent();
-            while (current != null) {
-                current.object().addAll(node.object());
-                current = current.parent();
+            int split = (shape == Shape.BALANCED) ? (range[0] + range[1]) / 2 : range[1] - 1;
+            for (int[] childRange : new int[][]{{range[0], split}, {split, range[1]}}) {
+                TreeNode<Set<Integer>> child = node(vertices, positions, childRange[0], childRange[1]);
+                node.addChild(child);
+                stack.push(child);
+                ranges.push(childRange);
             }
         }
         Logger.debug("Computed a quick branch decomposition of the formula");
         return root;
     }
 
+    /**
+     * Creates a node of a branch decomposition that stores a range of vertices.
+     * @param vertices the array of vertices.
+     * @param positions a map from vertices to their indices in the array.
+     * @param from the first index (inclusive).
+     * @param to the last index (exclusive).
+     * @return a node storing a singleton set (if the range has one vertex), or a view of the range.
+     */
+    private static TreeNode<Set<Integer>> node(Integer[] vertices, Map<Integer, Integer> positions, int from, int to) {
+        if (to - from == 1) {
+            return new TreeNode<>(Set.of(vertices[from]));
+        }
+        return new TreeNode<>(new RangeSet<>(vertices, positions, from, to));
+    }
+
     /**
      * Construct a clique decomposition (parse tree for clique-width) of a graph.
      * @param graph the graph.
@@ -1,71 +1,159 @@
 package at.ac.tuwien.student.e11843614.decomposition;
 
+import at.ac.tuwien.student.e11843614.Arguments;
+import at.ac.tuwien.student.e11843614.Cancellation;
 import at.ac.tuwien.student.e11843614.Logger;
 import at.ac.tuwien.student.e11843614.decomposition.carving.CarvingDerivation;
 import at.ac.tuwien.student.e11843614.decomposition.clique.CliqueDerivation;
 import at.ac.tuwien.student.e11843614.exception.TimeoutException;
+import at.ac.tuwien.student.e11843614.sat.CarvingSATEncoding;
+import at.ac.tuwien.student.e11843614.sat.CliqueSATEncoding;
+import at.ac.tuwien.student.e11843614.sat.IncrementalSATSolver;
 import at.ac.tuwien.student.e11843614.sat.SATEncoding;
-import at.ac.tuwien.student.e11843614.sat.SATSolver;
-import at.ac.tuwien.student.e11843614.sat.Variable;
 import at.ac.tuwien.student.e11843614.sat.factory.SATEncodingFactory;
 import at.ac.tuwien.student.e11843614.struct.graph.Graph;
-
-import java.util.Set;
+import org.apache.commons.lang3.time.StopWatch;
 
 public abstract class DerivationFactory {
 
     /**
-     * Computes a carving derivation of a graph.
+     * Computes a carving derivation of a graph. The widths between a lower and an upper bound are checked by binary
+     * search. Transitivity constraints are added lazily and symmetries are broken if requested on the command line.
      * @param graph the graph.
      * @return an optimal carving derivation of the graph, or null if such doesn't exist.
      * @throws TimeoutException if the SAT solver takes too long.
      */
     public static CarvingDerivation carving(Graph graph) throws TimeoutException {
+        return carving(graph, Arguments.lazyTransitivity(), Arguments.symmetryBreaking());
+    }
+
+    /**
+     * Computes a carving derivation of a graph. The widths between a lower and an upper bound are checked by binary
+     * search.
+     * @param graph the graph.
+     * @param lazy whether the transitivity constraints are left out of the encoding and only added when a model of
+     *             the solver violates them.
+     * @param symmetryBreaking whether clauses that break the symmetry between derivations are added to the encoding.
+     * @return an optimal carving derivation of the graph, or null if such doesn't exist.
+     * @throws TimeoutException if the SAT solver takes too long.
+     */
+    public static CarvingDerivation carving(Graph graph, boolean lazy, boolean symmetryBreaking)
+        throws TimeoutException {
         if (graph.vertices().size() <= 1) {
             // graph has no carving
             return null;
         }
-        CarvingDerivation derivation = null;
-        for (int w = 1; w <= graph.edges().size(); w++) {
-            SATEncoding encoding = SATEncodingFactory.forCarvingWidth(graph, w);
-            Set<Variable> truths = SATSolver.getSatisfyingAssignment(encoding);
-            if (!truths.isEmpty()) {
-                Logger.debug("Carving-width is " + w);
-                derivation = new CarvingDerivation(truths, encoding);
-                break;
-            }
-        }
-        if (derivation == null) {
+        int lower = WidthBounds.carvingLower(graph);
+        int upper = WidthBounds.carvingUpper(graph);
+        Logger.debug("Carving-width is between " + lower + " and " + upper);
+        // One encoding for all widths, streamed into one solver; learned clauses are kept between iterations
+        IncrementalSATSolver solver = new IncrementalSATSolver();
+        CarvingSATEncoding encoding = SATEncodingFactory.forCarvingWidth(graph, lower, upper, solver, lazy,
+            symmetryBreaking);
+        boolean[] assignment = search(solver, encoding, lower, upper, "Carving-width");
+        if (assignment == null) {
             throw new Error("Could not determine carving-width");
         }
-        return derivation;
+        return new CarvingDerivation(assignment, encoding);
     }
 
     /**
-     * Computes a clique derivation of a graph. This method checks for clique-width starting with 2. If the graph
-     * has clique-width 1, this method returns null.
+     * Computes a clique derivation of a graph. This method checks for clique-width starting with a lower bound of at
+     * least 2. If the graph has clique-width 1, this method returns null. Symmetries are broken if requested on the
+     * command line.
      * @param graph the graph.
      * @return an optimal clique derivation of the graph, or null if such doesn't exis or cw(graph) = 1.
      * @throws TimeoutException if the SAT solver takes too long.
      */
     public static CliqueDerivation clique(Graph graph) throws TimeoutException {
+        return clique(graph, Arguments.symmetryBreaking());
+    }
+
+    /**
+     * Computes a clique derivation of a graph. This method checks for clique-width starting with a lower bound of at
+     * least 2. If the graph has clique-width 1, this method returns null.
+     * @param graph the graph.
+     * @param symmetryBreaking whether clauses that break the symmetry between derivations are added to the encoding.
+     * @return an optimal clique derivation of the graph, or null if such doesn't exis or cw(graph) = 1.
+     * @throws TimeoutException if the SAT solver takes too long.
+     */
+    public static CliqueDerivation clique(Graph graph, boolean symmetryBreaking) throws TimeoutException {
         if (graph.vertices().isEmpty() || graph.edges().isEmpty()) {
             return null;
         }
-        CliqueDerivation derivation = null;
-        for (int w = 2; w <= graph.vertices().size(); w++) {
-            SATEncoding encoding = SATEncodingFactory.forCliqueWidth(graph, w);
-            Set<Variable> truths = SATSolver.getSatisfyingAssignment(encoding);
-            if (!truths.isEmpty()) {
-                Logger.debug("Clique-width is " + w);
-                derivation = new CliqueDerivation(truths, encoding);
-                break;
+        int lower = WidthBounds.cliqueLower(graph);
+        int upper = WidthBounds.cliqueUpper(graph);
+        Logger.debug("Clique-width is between " + lower + " and " + upper);
+        // One encoding for all widths, streamed into one solver; learned clauses are kept between iterations
+        IncrementalSATSolver solver = new IncrementalSATSolver();
+        CliqueSATEncoding encoding = SATEncodingFactory.forCliqueWidthFrom(graph, lower, solver, symmetryBreaking);
+        boolean[] assignment = search(solver, encoding, lower, upper, "Clique-width");
+        if (assignment == null) {
+            throw new Error("Could not determine clique-width");
+        }
+        return new CliqueDerivation(assignment, encoding);
+    }
+
+    /**
+     * Searches for the smallest width in an interval for which the encoding is satisfiable, by binary search.
+     * @param solver the incremental SAT solver, the clause sink of the encoding.
+     * @param encoding the SAT encoding, which supports selecting the width.
+     * @param lower a lower bound on the width.
+     * @param upper an upper bound on the width.
+     * @param parameter the name of the width parameter, for logging.
+     * @return the satisfying assignment for the smallest width, or null if the encoding is unsatisfiable for all
+     *         widths in the interval.
+     * @throws TimeoutException if the SAT solver takes too long.
+     */
+    private static boolean[] search(IncrementalSATSolver solver, SATEncoding encoding, int lower, int upper,
+                                    String parameter) throws TimeoutException {
+        boolean[] truths = null;
+        int satisfiable = upper + 1;
+        while (lower < upper) {
+            int w = (lower + upper) / 2;
+            boolean[] assignment = solve(solver, encoding, w, parameter);
+            if (assignment != null) {
+                truths = assignment;
+                satisfiable = w;
+                upper = w;
+            } else {
+                lower = w + 1;
             }
         }
-        if (derivation == null) {
-            throw new Error("Could not determine clique-width");
+        // The upper bound has not been checked if all checks were unsatisfiable
+        if (satisfiable != lower) {
+            truths = solve(solver, encoding, lower, parameter);
+        }
+        if (truths != null) {
+            Logger.debug(parameter + " is " + lower);
+        }
+        return truths;
+    }
+
+    /**
+     * Solves an encoding for a width. Encodings that add constraints lazily are refined with the models of the solver
+     * and solved again, until a model satisfies all constraints; the solver keeps its learned clauses in between.
+     * The time spent is logged, separately for satisfiable and unsatisfiable widths.
+     * @param solver the incremental SAT solver, the clause sink of the encoding.
+     * @param encoding the SAT encoding, which supports selecting the width.
+     * @param width the width.
+     * @param parameter the name of the width parameter, for logging.
+     * @return a satisfying assignment of the encoding, or null if it is unsatisfiable for this width.
+     * @throws TimeoutException if the SAT solver takes too long.
+     */
+    private static boolean[] solve(IncrementalSATSolver solver, SATEncoding encoding, int width, String parameter)
+        throws TimeoutException {
+        StopWatch stopwatch = StopWatch.createStarted();
+        int selector = encoding.selector(width);
+        boolean[] assignment = solver.getSatisfyingAssignment(encoding, selector);
+        while (assignment != null && encoding.refine(assignment) > 0) {
+            Cancellation.check();
+            assignment = solver.getSatisfyingAssignment(encoding, selector);
         }
-        return derivation;
+        stopwatch.stop();
+        Logger.debug("[sat] " + parameter + " <= " + width + ": " + (assignment != null ? "SAT" : "UNSAT")
+            + ", time elapsed: " + stopwatch.formatTime());
+        return assignment;
     }
 
 }
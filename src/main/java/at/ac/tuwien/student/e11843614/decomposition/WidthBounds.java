@@ -0,0 +1,185 @@
+package at.ac.tuwien.student.e11843614.decomposition;
+
+import at.ac.tuwien.student.e11843614.Logger;
+import at.ac.tuwien.student.e11843614.struct.graph.Edge;
+import at.ac.tuwien.student.e11843614.struct.graph.Graph;
+import at.ac.tuwien.student.e11843614.struct.tree.TreeNode;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A class that computes cheap lower and upper bounds on carving-width and clique-width, which narrow the interval of
+ * widths that has to be checked by the SAT solver.
+ */
+public abstract class WidthBounds {
+
+    /**
+     * Computes a lower bound on the carving-width of a graph: the maximum degree (counting parallel edges), since the
+     * edge of a carving decomposition at the leaf of a vertex cuts all edges incident to it.
+     * @param graph the graph.
+     * @return a lower bound (>= 1) on the carving-width.
+     */
+    public static int carvingLower(Graph graph) {
+        Map<Integer, Integer> degrees = new HashMap<>();
+        int degree = 1;
+        for (Edge edge : graph.edges()) {
+            for (int vertex : edge.endpoints()) {
+                degree = Math.max(degree, degrees.merge(vertex, 1, Integer::sum));
+            }
+        }
+        return degree;
+    }
+
+    /**
+     * Computes an upper bound on the carving-width of a graph: the width of the better of the quick branch
+     * decompositions of the graph. A binary tree whose leaves are the vertices is a carving decomposition once its
+     * root is suppressed, which does not change the cuts.
+     * @param graph the graph.
+     * @return an upper bound on the carving-width, at least the lower bound and at most the amount of edges.
+     */
+    public static int carvingUpper(Graph graph) {
+        Map<Integer, List<Integer>> adjacency = adjacency(graph);
+        int upper = graph.edges().size();
+        for (DecompositionFactory.Shape shape : DecompositionFactory.Shape.values()) {
+            TreeNode<Set<Integer>> decomposition = DecompositionFactory.pswBranch(graph, shape);
+            if (decomposition == null) {
+                continue;
+            }
+            int width = 0;
+            for (TreeNode<Set<Integer>> node : decomposition) {
+                if (node.parent() != null) {
+                    width = Math.max(width, cut(node.object(), adjacency));
+                }
+            }
+            upper = Math.min(upper, width);
+        }
+        return Math.max(carvingLower(graph), upper);
+    }
+
+    /**
+     * Computes a lower bound on the clique-width of a graph with at least one edge: 3 if the graph contains an
+     * induced path on four vertices (i.e. it is not a cograph), and 2 otherwise.
+     * @param graph the graph.
+     * @return a lower bound (>= 2) on the clique-width.
+     */
+    public static int cliqueLower(Graph graph) {
+        Map<Integer, Set<Integer>> neighbors = new HashMap<>();
+        for (int vertex : graph.vertices()) {
+            neighbors.put(vertex, new HashSet<>());
+        }
+        for (Edge edge : graph.edges()) {
+            int u = edge.endpoints().get(0);
+            int v = edge.endpoints().get(1);
+            if (u != v) {
+                neighbors.get(u).add(v);
+                neighbors.get(v).add(u);
+            }
+        }
+        // Look for an induced path a - b - c - d, with b - c as the middle edge
+        for (int b : graph.vertices()) {
+            for (int c : neighbors.get(b)) {
+                for (int a : neighbors.get(b)) {
+                    if (a == c || neighbors.get(c).contains(a)) {
+                        continue;
+                    }
+                    for (int d : neighbors.get(c)) {
+                        if (d != b && d != a && !neighbors.get(b).contains(d) && !neighbors.get(a).contains(d)) {
+                            Logger.debug("Found an induced P4, clique-width is at least 3");
+                            return 3;
+                        }
+                    }
+                }
+            }
+        }
+        return 2;
+    }
+
+    /**
+     * Computes an upper bound on the clique-width of a graph: the width of the better of the clique decompositions
+     * that follow the quick branch decompositions of the graph. The vertices of a node that have the same neighbors
+     * outside of it can share a label, as no later edge creation distinguishes them. A node is therefore built from
+     * its children with as many labels as there are such classes in both children together: the edges between the
+     * children are created between classes, and the classes are merged by recoloring afterwards.
+     * @param graph the graph.
+     * @return an upper bound on the clique-width, at least the lower bound and at most the amount of vertices.
+     */
+    public static int cliqueUpper(Graph graph) {
+        int upper = graph.vertices().size();
+        for (DecompositionFactory.Shape shape : DecompositionFactory.Shape.values()) {
+            TreeNode<Set<Integer>> decomposition = DecompositionFactory.pswBranch(graph, shape);
+            if (decomposition == null) {
+                continue;
+            }
+            int width = 1;
+            for (TreeNode<Set<Integer>> node : decomposition) {
+                int labels = 0;
+                for (TreeNode<Set<Integer>> child : node.children()) {
+                    labels += classes(child.object(), graph);
+                }
+                width = Math.max(width, labels);
+            }
+            upper = Math.min(upper, width);
+        }
+        return Math.max(cliqueLower(graph), upper);
+    }
+
+    /**
+     * Computes the adjacency lists of a graph (with multiplicities).
+     * @param graph the graph.
+     * @return a map from each vertex with edges to its list of neighbors.
+     */
+    private static Map<Integer, List<Integer>> adjacency(Graph graph) {
+        Map<Integer, List<Integer>> adjacency = new HashMap<>();
+        for (Edge edge : graph.edges()) {
+            int u = edge.endpoints().get(0);
+            int v = edge.endpoints().get(1);
+            adjacency.computeIfAbsent(u, x -> new ArrayList<>()).add(v);
+            adjacency.computeIfAbsent(v, x -> new ArrayList<>()).add(u);
+        }
+        return adjacency;
+    }
+
+    /**
+     * Computes the amount of classes of vertices in a set that have the same neighbors outside of the set.
+     * @param vertices the set of vertices.
+     * @param graph the graph.
+     * @return the amount of classes.
+     */
+    private static int classes(Set<Integer> vertices, Graph graph) {
+        Set<Set<Integer>> classes = new HashSet<>();
+        for (int vertex : vertices) {
+            Set<Integer> outside = new HashSet<>();
+            for (int neighbor : graph.getNeighbors(vertex)) {
+                if (!vertices.contains(neighbor)) {
+                    outside.add(neighbor);
+                }
+            }
+            classes.add(outside);
+        }
+        return classes.size();
+    }
+
+    /**
+     * Computes the amount of edges with exactly one endpoint in a set of vertices.
+     * @param vertices the set of vertices.
+     * @param adjacency the adjacency lists of the graph.
+     * @return the size of the cut.
+     */
+    private static int cut(Set<Integer> vertices, Map<Integer, List<Integer>> adjacency) {
+        int cut = 0;
+        for (int vertex : vertices) {
+            for (int neighbor : adjacency.getOrDefault(vertex, List.of())) {
+                if (!vertices.contains(neighbor)) {
+                    cut++;
+                }
+            }
+        }
+        return cut;
+    }
+
+}
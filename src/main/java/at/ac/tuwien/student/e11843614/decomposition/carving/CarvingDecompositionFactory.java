@@ -1,14 +1,21 @@
 package at.ac.tuwien.student.e11843614.decomposition.carving;
 
+import at.ac.tuwien.student.e11843614.Cancellation;
 import at.ac.tuwien.student.e11843614.struct.tree.TreeNode;
 
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 
 public abstract class CarvingDecompositionFactory {
 
     /**
-     * Constructs a carving decomposition from a derivation.
+     * Constructs a carving decomposition from a derivation. The levels are swept once from the coarsest to the finest,
+     * while a list maps each vertex to the node of its equivalence class at the previous level. The vertices are
+     * numbered densely by their rank in the sorted array of all vertices. Since every level refines the previous one,
+     * the class of any vertex of an equivalence class points to its smallest superset.
      * @param derivation the derivation.
      * @return a carving decomposition.
      */
@@ -16,25 +23,27 @@ public abstract class CarvingDecompositionFactory {
         // First create a tree that stores the corresponding eq. classes.
         Set<Integer> firstEC = derivation.getLevel(derivation.size()).iterator().next();
         TreeNode<Set<Integer>> root = new TreeNode<>(firstEC);
-        // Each equivalence class corresponds to a node.
-        Set<Set<Integer>> added = new HashSet<>();
-        added.add(firstEC);
+        // Number the vertices densely by their rank, and map each one to the node of its class
+        int[] vertices = new int[firstEC.size()];
+        int n = 0;
+        for (int vertex : firstEC) {
+            vertices[n++] = vertex;
+        }
+        Arrays.sort(vertices);
+        List<TreeNode<Set<Integer>>> nodeOf = new ArrayList<>(Collections.nCopies(vertices.length, root));
         for (int i = derivation.size() - 1; i >= 1; i--) {
             for (Set<Integer> ec : derivation.getLevel(i)) {
-                // Look for the node in the current tree that contains the smallest, strict superset of ec.
-                // Traverse in breadth first order, then the smallest superset will be the last superset.
-                TreeNode<Set<Integer>> target = null;
-                for (TreeNode<Set<Integer>> node : root) {
-                    if (node.object().containsAll(ec) && node.object().size() > ec.size()) {
-                        target = node;
+                Cancellation.check();
+                TreeNode<Set<Integer>> target = nodeOf.get(Arrays.binarySearch(vertices, ec.iterator().next()));
+                // Each equivalence class corresponds to a node; a class that is also at the previous level has one
+                // already (avoids duplicate nodes)
+                if (target.object().size() > ec.size()) {
+                    TreeNode<Set<Integer>> node = new TreeNode<>(ec);
+                    target.addChild(node);
+                    for (int vertex : ec) {
+                        nodeOf.set(Arrays.binarySearch(vertices, vertex), node);
                     }
                 }
-                // Don't add node if this ec was added already (avoids duplicate nodes)
-                if (target != null && !added.contains(ec)) {
-                    // Add child to target.
-                    target.addChild(new TreeNode<>(ec));
-                    added.add(ec);
-                }
             }
         }
         return root;
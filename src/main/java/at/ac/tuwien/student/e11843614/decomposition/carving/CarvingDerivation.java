@@ -1,26 +1,26 @@
 package at.ac.tuwien.student.e11843614.decomposition.carving;
 
 import at.ac.tuwien.student.e11843614.Logger;
-import at.ac.tuwien.student.e11843614.sat.SATEncoding;
-import at.ac.tuwien.student.e11843614.sat.Variable;
+import at.ac.tuwien.student.e11843614.sat.CarvingSATEncoding;
+import at.ac.tuwien.student.e11843614.struct.IntPartition;
 import at.ac.tuwien.student.e11843614.struct.Partition;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
 
 /**
  * An object that represents a derivation for carving decompositions.
  */
 public class CarvingDerivation {
 
-    private final List<Partition<Integer>> derivation = new ArrayList<>();
+    private final List<IntPartition> derivation = new ArrayList<>();
 
     /**
      * Constructs a derivation from the set and leader variables of the assignment.
-     * @param assignment a set of variables set to true by the SAT solver.
+     * @param assignment the truth values of the variables, as returned by the SAT solver.
+     * @param sat the SAT encoding for the graph.
      */
-    public CarvingDerivation(Set<Variable> assignment, SATEncoding sat) {
+    public CarvingDerivation(boolean[] assignment, CarvingSATEncoding sat) {
         construct(assignment, sat);
     }
 
@@ -29,7 +29,7 @@ public class CarvingDerivation {
      * @param level the level, a number between one and the size.
      * @return the partition at the specified level.
      */
-    public Partition<Integer> getLevel(int level) {
+    public IntPartition getLevel(int level) {
         return derivation.get(level - 1);
     }
 
@@ -43,33 +43,30 @@ public class CarvingDerivation {
 
     /**
      * Fills the derivation's partitions.
-     * @param assignment the satisfying assignment, the set of variables set to true.
+     * @param assignment the satisfying assignment, the truth values of the variables.
      * @param sat the SAT encoding.
      */
-    private void construct(Set<Variable> assignment, SATEncoding sat) {
-        int levels = 0;
-        for (Variable variable : assignment) {
-            if (variable.type() == Variable.Type.LEADER) {
-                levels = Math.max(levels, variable.args().get(1));
-            }
-        }
+    private void construct(boolean[] assignment, CarvingSATEncoding sat) {
+        int n = sat.vertexMap().size();
         // Create a partition for each level.
-        for (int i = 0; i < levels; i++) {
-            derivation.add(new Partition<>());
+        for (int i = 1; i <= sat.d(); i++) {
+            derivation.add(new IntPartition());
         }
         // Go through leader and set variables
-        for (Variable variable : assignment) {
-            if (variable.type() == Variable.Type.LEADER) {
-                Integer vertex = sat.vertexMap().getFromDomain(variable.args().get(0));
-                int level = variable.args().get(1);
-                Partition<Integer> partition = getLevel(level);
-                partition.add(vertex);
-            } else if (variable.type() == Variable.Type.SET) {
-                Integer vertex1 = sat.vertexMap().getFromDomain(variable.args().get(0));
-                Integer vertex2 = sat.vertexMap().getFromDomain(variable.args().get(1));
-                int level = variable.args().get(2);
-                Partition<Integer> partition = getLevel(level);
-                partition.add(vertex1, vertex2);
+        for (int e = 1; e <= n; e++) {
+            int vertex1 = sat.vertexMap().getFromDomain(e);
+            for (int i = 1; i <= sat.d(); i++) {
+                if (assignment[sat.leader(e, i)]) {
+                    getLevel(i).add(vertex1);
+                }
+            }
+            for (int f = e + 1; f <= n; f++) {
+                int vertex2 = sat.vertexMap().getFromDomain(f);
+                for (int i = 1; i <= sat.d(); i++) {
+                    if (assignment[sat.set(e, f, i)]) {
+                        getLevel(i).add(vertex1, vertex2);
+                    }
+                }
             }
         }
         Logger.debug("Constructed a derivation for carving-width with l = " + size());
@@ -0,0 +1,210 @@
+package at.ac.tuwien.student.e11843614.decomposition.carving;
+
+import at.ac.tuwien.student.e11843614.Cancellation;
+import at.ac.tuwien.student.e11843614.Logger;
+import at.ac.tuwien.student.e11843614.exception.TimeoutException;
+import at.ac.tuwien.student.e11843614.sat.CarvingSATEncoding;
+import at.ac.tuwien.student.e11843614.sat.IncrementalSATSolver;
+import at.ac.tuwien.student.e11843614.sat.factory.SATEncodingFactory;
+import at.ac.tuwien.student.e11843614.struct.graph.Edge;
+import at.ac.tuwien.student.e11843614.struct.graph.Graph;
+import at.ac.tuwien.student.e11843614.struct.tree.TreeNode;
+import org.apache.commons.lang3.time.StopWatch;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+/**
+ * An anytime improvement of carving decompositions by SAT-based local improvement. Starting from a heuristic
+ * decomposition, a bounded region of the tree around a widest edge is cut out. Every subtree hanging off the region is
+ * contracted into a single vertex, which keeps the widths of the edges at the boundary fixed, and the resulting small
+ * (multi-)graph is re-solved exactly with the carving-width encoding. If the local solution is narrower, it is spliced
+ * back into the tree.
+ */
+public abstract class CarvingLocalImprovement {
+
+    // The maximum amount of vertices of a contracted local instance, i.e. of subtrees hanging off a region.
+    private static final int REGION_SIZE = 8;
+
+    /**
+     * Improves a decomposition until the time budget is spent or no widest edge can be improved locally.
+     * @param graph the graph.
+     * @param decomposition a tree whose leaves store the single vertices of the graph, and whose internal nodes have
+     *                      two or three children, e.g. a carving decomposition or a branch decomposition (psw). The
+     *                      graph must have at least three vertices.
+     * @param seconds the time budget in seconds. If zero or negative, the time is unbounded.
+     * @return a carving decomposition that is at most as wide as the specified decomposition.
+     * @throws TimeoutException if the SAT solver takes too long.
+     */
+    public static TreeNode<Set<Integer>> improve(Graph graph, TreeNode<Set<Integer>> decomposition, int seconds)
+        throws TimeoutException {
+        StopWatch stopwatch = StopWatch.createStarted();
+        UnrootedTree tree = UnrootedTree.of(decomposition);
+        Map<Integer, Integer> widths = tree.widths(graph);
+        int initialWidth = max(widths);
+        int calls = 0, accepted = 0;
+        // Sides (not containing the reference vertex) of edges that could not be improved since the last change.
+        Set<Set<Integer>> exhausted = new HashSet<>();
+        int reference = graph.vertices().iterator().next();
+        while (seconds <= 0 || stopwatch.getTime() < seconds * 1000L) {
+            Cancellation.check();
+            // Find the widest edge between two internal nodes that was not tried yet
+            int target = -1;
+            Set<Integer> targetSide = null;
+            for (int node : tree.byWidth(widths)) {
+                int width = widths.get(node);
+                if (width < 2) {
+                    break;
+                }
+                Set<Integer> side = tree.side(tree.parent(node), node);
+                if (side.contains(reference)) {
+                    side = tree.side(node, tree.parent(node));
+                }
+                if (!exhausted.contains(side)) {
+                    target = node;
+                    targetSide = side;
+                    break;
+                }
+            }
+            if (target == -1) {
+                // Local optimum
+                break;
+            }
+            calls++;
+            if (improveRegion(graph, tree, target, widths.get(target))) {
+                widths = tree.widths(graph);
+                exhausted.clear();
+                accepted++;
+            } else {
+                exhausted.add(targetSide);
+            }
+        }
+        stopwatch.stop();
+        Logger.debug("Improved the carving decomposition with " + accepted + " of " + calls + " local SAT calls, "
+            + "carving-width " + initialWidth + " -> " + max(widths) + ", in time: " + stopwatch.formatTime());
+        return tree.toTreeNode();
+    }
+
+    /**
+     * Cuts out a region around an edge, re-solves it exactly and splices the solution back if it is narrower.
+     * @param graph the graph.
+     * @param tree the current decomposition.
+     * @param target a node that is, together with its parent, internal. The region is grown around the edge between
+     *               these two nodes.
+     * @param width the width of this edge.
+     * @return true, if the region was replaced by a narrower one, and false otherwise.
+     * @throws TimeoutException if the SAT solver takes too long.
+     */
+    private static boolean improveRegion(Graph graph, UnrootedTree tree, int target, int width)
+        throws TimeoutException {
+        // Grow the region in breadth-first order, only over internal nodes. A region of r internal nodes of degree 3
+        // has r + 2 outgoing edges.
+        List<Integer> region = new ArrayList<>();
+        Queue<Integer> queue = new LinkedList<>();
+        queue.add(target);
+        queue.add(tree.parent(target));
+        while (!queue.isEmpty() && region.size() < REGION_SIZE - 2) {
+            int node = queue.remove();
+            if (region.contains(node)) {
+                continue;
+            }
+            region.add(node);
+            for (int neighbor : tree.neighbors(node)) {
+                if (!tree.isLeaf(neighbor) && !region.contains(neighbor)) {
+                    queue.add(neighbor);
+                }
+            }
+        }
+        // Contract each subtree hanging off the region into one vertex, numbered from 1.
+        List<Integer> outside = new ArrayList<>();
+        Map<Integer, Integer> component = new HashMap<>();
+        for (int node : region) {
+            for (int neighbor : tree.neighbors(node)) {
+                if (!region.contains(neighbor)) {
+                    outside.add(neighbor);
+                    for (int vertex : tree.side(node, neighbor)) {
+                        component.put(vertex, outside.size());
+                    }
+                }
+            }
+        }
+        Graph local = new Graph();
+        for (int i = 1; i <= outside.size(); i++) {
+            local.addVertex(i);
+        }
+        for (Edge edge : graph.edges()) {
+            int u = component.get(edge.endpoints().get(0));
+            int v = component.get(edge.endpoints().get(1));
+            if (u != v) {
+                local.addEdge(u, v);
+            }
+        }
+        // Solve exactly: is there a local decomposition that is narrower than the target edge?
+        IncrementalSATSolver solver = new IncrementalSATSolver();
+        CarvingSATEncoding encoding = SATEncodingFactory.forCarvingWidth(local, width - 1, solver);
+        boolean[] assignment = solver.getSatisfyingAssignment(encoding);
+        if (assignment == null) {
+            return false;
+        }
+        TreeNode<Set<Integer>> solution = CarvingDecompositionFactory.from(new CarvingDerivation(assignment, encoding));
+        if (!isValid(solution, outside.size())) {
+            return false;
+        }
+        // Splice: internal nodes of the solution replace the region, leaves are the subtrees hanging off it.
+        for (int node : region) {
+            tree.remove(node);
+        }
+        Map<TreeNode<Set<Integer>>, Integer> ids = new HashMap<>();
+        for (TreeNode<Set<Integer>> node : solution) {
+            if (node.children().isEmpty()) {
+                ids.put(node, outside.get(node.object().iterator().next() - 1));
+            } else {
+                ids.put(node, tree.addNode());
+            }
+        }
+        for (TreeNode<Set<Integer>> node : solution) {
+            if (node.parent() != null) {
+                tree.connect(ids.get(node), ids.get(node.parent()));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if a local solution is a carving decomposition with the expected amount of leaves.
+     * @param solution the root of the local decomposition.
+     * @param leaves the amount of vertices of the local instance.
+     * @return true, if every internal node has degree 3 and there are as many leaves as vertices, and false otherwise.
+     */
+    private static boolean isValid(TreeNode<Set<Integer>> solution, int leaves) {
+        int count = 0;
+        for (TreeNode<Set<Integer>> node : solution) {
+            if (node.children().isEmpty()) {
+                count++;
+            } else if (node.degree() != 3) {
+                return false;
+            }
+        }
+        return count == leaves;
+    }
+
+    /**
+     * Returns the maximum value of a map.
+     * @param widths a map from nodes to the widths of the edges to their parents.
+     * @return the largest width, or 0 if the map is empty.
+     */
+    private static int max(Map<Integer, Integer> widths) {
+        int max = 0;
+        for (int width : widths.values()) {
+            max = Math.max(max, width);
+        }
+        return max;
+    }
+
+}
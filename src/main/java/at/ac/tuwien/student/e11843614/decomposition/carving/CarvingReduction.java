@@ -0,0 +1,408 @@
+package at.ac.tuwien.student.e11843614.decomposition.carving;
+
+import at.ac.tuwien.student.e11843614.Cancellation;
+import at.ac.tuwien.student.e11843614.Logger;
+import at.ac.tuwien.student.e11843614.decomposition.DerivationFactory;
+import at.ac.tuwien.student.e11843614.exception.TimeoutException;
+import at.ac.tuwien.student.e11843614.struct.graph.Edge;
+import at.ac.tuwien.student.e11843614.struct.graph.Graph;
+import at.ac.tuwien.student.e11843614.struct.tree.TreeNode;
+import org.apache.commons.lang3.time.StopWatch;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Computes optimal carving decompositions of graphs that are reduced before they are encoded. All reductions are safe,
+ * i.e. an optimal decomposition of the original graph is reassembled from optimal decompositions of the parts:
+ * <ul>
+ *     <li>A vertex v of degree 1 with neighbor u is removed. It is put back as a sibling of the leaf of u, which adds
+ *     edges of width 1 and deg(u).</li>
+ *     <li>A vertex v of degree 2 with non-adjacent neighbors a and b is removed, and the path a - v - b is replaced by
+ *     an edge ab (series contraction). It is put back as a sibling of the leaf of a, which adds edges of width 2 and
+ *     deg(a); the widths of all other edges stay the same.</li>
+ *     <li>The reduced graph is split into its biconnected blocks, which are solved exactly with the SAT encoding, in
+ *     parallel. The decomposition of a block is attached to the leaf of a cut vertex c in the decompositions of the
+ *     other blocks: the leaf of c is removed from it, and the freed edge is connected to a new sibling of the leaf of
+ *     c. This adds edges whose width is at most deg(c).</li>
+ * </ul>
+ * Since the maximum degree is a lower bound on carving-width, and the reduced graph and the blocks are not wider than
+ * the graph, the reassembled decomposition is optimal.
+ */
+public abstract class CarvingReduction {
+
+    /**
+     * Constructs an optimal carving decomposition of a graph, solving only the blocks of the reduced graph exactly.
+     * @param graph the graph.
+     * @return a carving decomposition, or null if it does not exist.
+     * @throws TimeoutException if the SAT solver takes too long.
+     */
+    public static TreeNode<Set<Integer>> decompose(Graph graph) throws TimeoutException {
+        if (graph.vertices().size() < 3) {
+            return exact(graph);
+        }
+        StopWatch stopwatch = StopWatch.createStarted();
+        Map<Integer, List<Integer>> adjacency = adjacency(graph);
+        Deque<int[]> reductions = reduce(adjacency);
+        List<Set<Integer>> blocks = blocks(adjacency);
+        int largest = 0;
+        for (Set<Integer> block : blocks) {
+            largest = Math.max(largest, block.size());
+        }
+        Logger.debug("Reduced the graph from " + graph.vertices().size() + " to " + adjacency.size() + " vertices, "
+            + "split into " + blocks.size() + " blocks with at most " + largest + " vertices");
+        UnrootedTree tree = new UnrootedTree();
+        List<Map<Integer, Integer>> leaves = solve(tree, adjacency, blocks);
+        Map<Integer, Integer> leafOf = assemble(tree, blocks, leaves);
+        // Undo the reductions in reverse order
+        while (!reductions.isEmpty()) {
+            int[] reduction = reductions.pop();
+            int leaf = tree.addLeaf(reduction[0]);
+            addSibling(tree, leafOf.get(reduction[1]), leaf);
+            leafOf.put(reduction[0], leaf);
+        }
+        stopwatch.stop();
+        Logger.debug("Reassembled the carving decomposition, time elapsed: " + stopwatch.formatTime());
+        return tree.toTreeNode();
+    }
+
+    /**
+     * Constructs an optimal carving decomposition of a graph with the SAT encoding.
+     * @param graph the graph.
+     * @return a carving decomposition, or null if it does not exist.
+     * @throws TimeoutException if the SAT solver takes too long.
+     */
+    private static TreeNode<Set<Integer>> exact(Graph graph) throws TimeoutException {
+        CarvingDerivation derivation = DerivationFactory.carving(graph);
+        if (derivation != null) {
+            return CarvingDecompositionFactory.from(derivation);
+        } else {
+            return null;
+        }
+    }
+
+    // ----- Reductions ------------------------------------------------------------------------------------------------
+
+    /**
+     * Computes the adjacency lists of a graph, in which a neighbor occurs once for each parallel edge.
+     * @param graph the graph.
+     * @return the adjacency lists.
+     */
+    private static Map<Integer, List<Integer>> adjacency(Graph graph) {
+        Map<Integer, List<Integer>> adjacency = new HashMap<>();
+        for (int vertex : graph.vertices()) {
+            adjacency.put(vertex, new ArrayList<>());
+        }
+        for (Edge edge : graph.edges()) {
+            int u = edge.endpoints().get(0);
+            int v = edge.endpoints().get(1);
+            adjacency.get(u).add(v);
+            adjacency.get(v).add(u);
+        }
+        return adjacency;
+    }
+
+    /**
+     * Removes vertices of degree 1 and contracts vertices of degree 2 until neither is possible.
+     * @param adjacency the adjacency lists of the graph, which are reduced in place.
+     * @return the reductions in the order they were applied, each as a pair of the removed vertex and the vertex whose
+     *         leaf it is attached to when the reduction is undone.
+     */
+    private static Deque<int[]> reduce(Map<Integer, List<Integer>> adjacency) {
+        Deque<int[]> reductions = new ArrayDeque<>();
+        Deque<Integer> queue = new ArrayDeque<>(adjacency.keySet());
+        while (!queue.isEmpty()) {
+            Cancellation.check();
+            int v = queue.remove();
+            List<Integer> neighbors = adjacency.get(v);
+            if (neighbors == null) {
+                continue;
+            }
+            if (neighbors.size() == 1) {
+                int u = neighbors.get(0);
+                adjacency.remove(v);
+                adjacency.get(u).remove(Integer.valueOf(v));
+                reductions.push(new int[]{v, u});
+                queue.add(u);
+            } else if (neighbors.size() == 2) {
+                int a = neighbors.get(0);
+                int b = neighbors.get(1);
+                // Keep the graph simple, since the length of derivations is chosen by the amount of neighbors
+                if (a != b && !adjacency.get(a).contains(b)) {
+                    adjacency.remove(v);
+                    adjacency.get(a).set(adjacency.get(a).indexOf(v), b);
+                    adjacency.get(b).set(adjacency.get(b).indexOf(v), a);
+                    reductions.push(new int[]{v, a});
+                    // a and b may have become contractible
+                    queue.add(a);
+                    queue.add(b);
+                }
+            }
+        }
+        return reductions;
+    }
+
+    /**
+     * Computes the biconnected blocks of a graph by an iterative depth-first search (Hopcroft and Tarjan). A block is
+     * complete when the search returns from a vertex whose subtree does not reach above its parent. Isolated vertices
+     * form blocks on their own.
+     * @param adjacency the adjacency lists of the graph.
+     * @return the vertex sets of the blocks; an edge belongs to the block that contains both of its endpoints.
+     */
+    private static List<Set<Integer>> blocks(Map<Integer, List<Integer>> adjacency) {
+        List<Set<Integer>> blocks = new ArrayList<>();
+        Map<Integer, Integer> discovery = new HashMap<>();
+        Map<Integer, Integer> low = new HashMap<>();
+        Deque<Integer> visited = new ArrayDeque<>();
+        for (int root : adjacency.keySet()) {
+            if (discovery.containsKey(root)) {
+                continue;
+            }
+            if (adjacency.get(root).isEmpty()) {
+                Set<Integer> block = new HashSet<>();
+                block.add(root);
+                blocks.add(block);
+                discovery.put(root, discovery.size());
+                continue;
+            }
+            // Each frame is a vertex, its parent (or -1), the index of its next neighbor, and whether the edge to the
+            // parent was skipped already (parallel edges to the parent are back edges)
+            Deque<int[]> frames = new ArrayDeque<>();
+            frames.push(new int[]{root, -1, 0, 0});
+            discovery.put(root, discovery.size());
+            low.put(root, discovery.get(root));
+            visited.push(root);
+            while (!frames.isEmpty()) {
+                int[] frame = frames.peek();
+                int v = frame[0];
+                List<Integer> neighbors = adjacency.get(v);
+                if (frame[2] < neighbors.size()) {
+                    int w = neighbors.get(frame[2]++);
+                    if (w == frame[1] && frame[3] == 0) {
+                        frame[3] = 1;
+                    } else if (discovery.containsKey(w)) {
+                        low.put(v, Math.min(low.get(v), discovery.get(w)));
+                    } else {
+                        discovery.put(w, discovery.size());
+                        low.put(w, discovery.get(w));
+                        visited.push(w);
+                        frames.push(new int[]{w, v, 0, 0});
+                    }
+                } else {
+                    frames.pop();
+                    int parent = frame[1];
+                    if (parent != -1) {
+                        low.put(parent, Math.min(low.get(parent), low.get(v)));
+                        if (low.get(v) >= discovery.get(parent)) {
+                            Set<Integer> block = new HashSet<>();
+                            int w;
+                            do {
+                                w = visited.pop();
+                                block.add(w);
+                            } while (w != v);
+                            block.add(parent);
+                            blocks.add(block);
+                        }
+                    }
+                }
+            }
+            visited.clear();
+        }
+        return blocks;
+    }
+
+    // ----- Assembly --------------------------------------------------------------------------------------------------
+
+    /**
+     * Decomposes each block and adds its decomposition to a forest. Blocks with at least three vertices are solved
+     * exactly with the SAT encoding, in parallel; the decompositions of the others are a single leaf or two adjacent
+     * leaves.
+     * @param tree the forest.
+     * @param adjacency the adjacency lists of the graph.
+     * @param blocks the blocks of the graph.
+     * @return for each block, a map from its vertices to the nodes of their leaves in the forest.
+     * @throws TimeoutException if the SAT solver takes too long.
+     */
+    private static List<Map<Integer, Integer>> solve(UnrootedTree tree, Map<Integer, List<Integer>> adjacency,
+                                                     List<Set<Integer>> blocks) throws TimeoutException {
+        List<Future<TreeNode<Set<Integer>>>> decompositions = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try {
+            for (Set<Integer> block : blocks) {
+                if (block.size() >= 3) {
+                    Graph graph = subgraph(adjacency, block);
+                    decompositions.add(executor.submit(() -> exact(graph)));
+                } else {
+                    decompositions.add(null);
+                }
+            }
+            List<Map<Integer, Integer>> leaves = new ArrayList<>();
+            for (int i = 0; i < blocks.size(); i++) {
+                Map<Integer, Integer> leafOf = new HashMap<>();
+                if (decompositions.get(i) != null) {
+                    leafOf = tree.add(decompositions.get(i).get());
+                } else {
+                    for (int vertex : blocks.get(i)) {
+                        leafOf.put(vertex, tree.addLeaf(vertex));
+                    }
+                    if (leafOf.size() == 2) {
+                        List<Integer> pair = new ArrayList<>(leafOf.values());
+                        tree.connect(pair.get(0), pair.get(1));
+                    }
+                }
+                leaves.add(leafOf);
+            }
+            return leaves;
+        } catch (ExecutionException exception) {
+            if (exception.getCause() instanceof TimeoutException) {
+                throw (TimeoutException) exception.getCause();
+            } else if (exception.getCause() instanceof CancellationException) {
+                throw (CancellationException) exception.getCause();
+            }
+            throw new RuntimeException(exception);
+        } catch (InterruptedException exception) {
+            throw new RuntimeException(exception);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Constructs the subgraph induced by a block.
+     * @param adjacency the adjacency lists of the graph.
+     * @param block the vertices of the block.
+     * @return the subgraph, including parallel edges.
+     */
+    private static Graph subgraph(Map<Integer, List<Integer>> adjacency, Set<Integer> block) {
+        Graph graph = new Graph();
+        for (int u : block) {
+            graph.addVertex(u);
+            for (int v : adjacency.get(u)) {
+                if (u < v && block.contains(v)) {
+                    graph.addEdge(u, v);
+                }
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * Assembles the decompositions of the blocks into one tree. Starting from one block of each connected component,
+     * the blocks are visited in breadth-first order of the block-cut tree; the decomposition of each block is attached
+     * to the leaf of the cut vertex through which it is reached, which removes the leaf of this vertex from the block.
+     * Finally, the connected components are joined by edges of width 0.
+     * @param tree the forest of the decompositions of the blocks.
+     * @param blocks the blocks.
+     * @param leaves for each block, a map from its vertices to the nodes of their leaves.
+     * @return a map from the vertices to the nodes of their leaves in the assembled tree.
+     */
+    private static Map<Integer, Integer> assemble(UnrootedTree tree, List<Set<Integer>> blocks,
+                                                  List<Map<Integer, Integer>> leaves) {
+        Map<Integer, List<Integer>> blocksOf = new HashMap<>();
+        for (int i = 0; i < blocks.size(); i++) {
+            for (int vertex : blocks.get(i)) {
+                blocksOf.computeIfAbsent(vertex, vertex1 -> new ArrayList<>()).add(i);
+            }
+        }
+        Map<Integer, Integer> leafOf = new HashMap<>();
+        Set<Integer> attached = new HashSet<>();
+        Integer component = null;
+        for (int first = 0; first < blocks.size(); first++) {
+            if (!attached.add(first)) {
+                continue;
+            }
+            leafOf.putAll(leaves.get(first));
+            Deque<Integer> queue = new ArrayDeque<>(blocks.get(first));
+            while (!queue.isEmpty()) {
+                int c = queue.remove();
+                for (int i : blocksOf.get(c)) {
+                    if (attached.add(i)) {
+                        Map<Integer, Integer> block = leaves.get(i);
+                        attach(tree, leafOf.get(c), block.get(c));
+                        for (int vertex : blocks.get(i)) {
+                            if (vertex != c) {
+                                leafOf.put(vertex, block.get(vertex));
+                                queue.add(vertex);
+                            }
+                        }
+                    }
+                }
+            }
+            int leaf = leaves.get(first).values().iterator().next();
+            component = component == null ? leaf : join(tree, component, leaf);
+        }
+        return leafOf;
+    }
+
+    /**
+     * Attaches the decomposition of a block to the leaf of a cut vertex. The leaf of the cut vertex in the block is
+     * removed, and its neighbor becomes a sibling of the other leaf of the cut vertex.
+     * @param tree the forest.
+     * @param leaf the leaf of the cut vertex in the assembled part.
+     * @param removed the leaf of the cut vertex in the block.
+     */
+    private static void attach(UnrootedTree tree, int leaf, int removed) {
+        if (tree.neighbors(removed).isEmpty()) {
+            tree.remove(removed);
+            return;
+        }
+        int neighbor = tree.neighbors(removed).iterator().next();
+        tree.remove(removed);
+        addSibling(tree, leaf, neighbor);
+    }
+
+    /**
+     * Connects a node of another part of the forest to a leaf, through a new node that subdivides the edge of the leaf.
+     * If the leaf has no neighbor, the node is connected to it directly.
+     * @param tree the forest.
+     * @param leaf a leaf.
+     * @param node a node of another part of the forest, with degree 0 or 2.
+     */
+    private static void addSibling(UnrootedTree tree, int leaf, int node) {
+        if (tree.neighbors(leaf).isEmpty()) {
+            tree.connect(leaf, node);
+        } else {
+            int parent = tree.neighbors(leaf).iterator().next();
+            tree.connect(tree.subdivide(parent, leaf), node);
+        }
+    }
+
+    /**
+     * Joins two parts of the forest. If both of them have an edge, the edges are subdivided and the new nodes are
+     * connected; otherwise, a single leaf is connected to a subdivided edge or to the other leaf.
+     * @param tree the forest.
+     * @param a a node of a part.
+     * @param b a node of another part.
+     * @return a node of the joined part.
+     */
+    private static int join(UnrootedTree tree, int a, int b) {
+        if (tree.neighbors(a).isEmpty()) {
+            int temp = a;
+            a = b;
+            b = temp;
+        }
+        if (tree.neighbors(a).isEmpty()) {
+            tree.connect(a, b);
+            return a;
+        }
+        int x = tree.subdivide(a, tree.neighbors(a).iterator().next());
+        if (tree.neighbors(b).isEmpty()) {
+            tree.connect(x, b);
+        } else {
+            tree.connect(x, tree.subdivide(b, tree.neighbors(b).iterator().next()));
+        }
+        return a;
+    }
+
+}
@@ -0,0 +1,267 @@
+package at.ac.tuwien.student.e11843614.decomposition.carving;
+
+import at.ac.tuwien.student.e11843614.struct.graph.Edge;
+import at.ac.tuwien.student.e11843614.struct.graph.Graph;
+import at.ac.tuwien.student.e11843614.struct.tree.TreeNode;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+/**
+ * An unrooted tree whose leaves store vertices of a graph. For convenience, the tree is rooted at an arbitrary
+ * internal node whenever widths are computed, and each non-root node then identifies the edge to its parent. While a
+ * tree is assembled from parts, it may temporarily be a forest.
+ */
+class UnrootedTree {
+
+    private final Map<Integer, Set<Integer>> adjacency = new HashMap<>();
+    private final Map<Integer, Integer> leaves = new HashMap<>(); // node -> vertex
+    private final Map<Integer, Integer> parents = new HashMap<>();
+    private final Map<Integer, Integer> depths = new HashMap<>();
+    private int nextId = 0;
+
+    /**
+     * Constructs an unrooted tree from a rooted one, suppressing nodes with degree 2 (such as the root of a binary
+     * tree).
+     * @param root the root of the tree.
+     * @return the unrooted tree.
+     */
+    public static UnrootedTree of(TreeNode<Set<Integer>> root) {
+        UnrootedTree tree = new UnrootedTree();
+        tree.add(root);
+        return tree;
+    }
+
+    /**
+     * Adds a rooted tree as a new part of this forest, suppressing nodes with degree 2 (such as the root of a binary
+     * tree).
+     * @param root the root of the tree.
+     * @return a map from the vertices of the tree to the nodes of their leaves.
+     */
+    public Map<Integer, Integer> add(TreeNode<Set<Integer>> root) {
+        Map<TreeNode<Set<Integer>>, Integer> ids = new HashMap<>();
+        Map<Integer, Integer> leafOf = new HashMap<>();
+        for (TreeNode<Set<Integer>> node : root) {
+            int id;
+            if (node.children().isEmpty()) {
+                id = addLeaf(node.object().iterator().next());
+                leafOf.put(leaves.get(id), id);
+            } else {
+                id = addNode();
+            }
+            ids.put(node, id);
+            if (node.parent() != null) {
+                connect(id, ids.get(node.parent()));
+            }
+        }
+        for (int id : ids.values()) {
+            Set<Integer> neighbors = adjacency.get(id);
+            if (neighbors.size() == 2) {
+                List<Integer> pair = new ArrayList<>(neighbors);
+                remove(id);
+                connect(pair.get(0), pair.get(1));
+            }
+        }
+        return leafOf;
+    }
+
+    public int addNode() {
+        adjacency.put(nextId, new HashSet<>());
+        return nextId++;
+    }
+
+    public int addLeaf(int vertex) {
+        int id = addNode();
+        leaves.put(id, vertex);
+        return id;
+    }
+
+    public void connect(int a, int b) {
+        adjacency.get(a).add(b);
+        adjacency.get(b).add(a);
+    }
+
+    public void disconnect(int a, int b) {
+        adjacency.get(a).remove(b);
+        adjacency.get(b).remove(a);
+    }
+
+    public void remove(int node) {
+        for (int neighbor : adjacency.remove(node)) {
+            adjacency.get(neighbor).remove(node);
+        }
+        leaves.remove(node);
+    }
+
+    /**
+     * Inserts a node into the edge between a node and one of its neighbors.
+     * @param a a node.
+     * @param b a neighbor of a.
+     * @return the inserted node, which has degree 2.
+     */
+    public int subdivide(int a, int b) {
+        int node = addNode();
+        disconnect(a, b);
+        connect(a, node);
+        connect(node, b);
+        return node;
+    }
+
+    public Set<Integer> neighbors(int node) {
+        return adjacency.get(node);
+    }
+
+    public boolean isLeaf(int node) {
+        return leaves.containsKey(node);
+    }
+
+    public int parent(int node) {
+        return parents.get(node);
+    }
+
+    /**
+     * Computes the vertices stored in the leaves on one side of an edge.
+     * @param from a node.
+     * @param to a neighbor of the node.
+     * @return the vertices of the leaves that are reachable from 'to' without passing 'from'.
+     */
+    public Set<Integer> side(int from, int to) {
+        Set<Integer> vertices = new HashSet<>();
+        Set<Integer> visited = new HashSet<>();
+        visited.add(from);
+        Queue<Integer> queue = new LinkedList<>();
+        queue.add(to);
+        visited.add(to);
+        while (!queue.isEmpty()) {
+            int node = queue.remove();
+            if (isLeaf(node)) {
+                vertices.add(leaves.get(node));
+            }
+            for (int neighbor : adjacency.get(node)) {
+                if (visited.add(neighbor)) {
+                    queue.add(neighbor);
+                }
+            }
+        }
+        return vertices;
+    }
+
+    /**
+     * Roots the tree at an internal node and computes the width of every edge, i.e. the amount of graph edges
+     * with exactly one endpoint on either side. A graph edge crosses exactly the edges on the path between the
+     * leaves of its endpoints.
+     * @param graph the graph.
+     * @return a map from non-root nodes to the widths of the edges to their parents.
+     */
+    public Map<Integer, Integer> widths(Graph graph) {
+        root();
+        Map<Integer, Integer> nodeOf = new HashMap<>();
+        Map<Integer, Integer> widths = new HashMap<>();
+        for (int node : adjacency.keySet()) {
+            if (isLeaf(node)) {
+                nodeOf.put(leaves.get(node), node);
+            }
+            if (parents.containsKey(node)) {
+                widths.put(node, 0);
+            }
+        }
+        for (Edge edge : graph.edges()) {
+            int a = nodeOf.get(edge.endpoints().get(0));
+            int b = nodeOf.get(edge.endpoints().get(1));
+            while (a != b) {
+                if (depths.get(a) < depths.get(b)) {
+                    int temp = a;
+                    a = b;
+                    b = temp;
+                }
+                widths.merge(a, 1, Integer::sum);
+                a = parents.get(a);
+            }
+        }
+        return widths;
+    }
+
+    /**
+     * Returns the non-root nodes whose edge to the parent lies between two internal nodes, sorted by decreasing
+     * width.
+     * @param widths the widths, as computed by {@link #widths(Graph)}.
+     * @return the list of nodes.
+     */
+    public List<Integer> byWidth(Map<Integer, Integer> widths) {
+        List<Integer> nodes = new ArrayList<>();
+        for (int node : widths.keySet()) {
+            if (!isLeaf(node) && !isLeaf(parents.get(node))) {
+                nodes.add(node);
+            }
+        }
+        nodes.sort((node1, node2) -> Integer.compare(widths.get(node2), widths.get(node1)));
+        return nodes;
+    }
+
+    /**
+     * Converts this tree into a carving decomposition, rooted at an internal node.
+     * @return the root of the decomposition.
+     */
+    public TreeNode<Set<Integer>> toTreeNode() {
+        root();
+        Map<Integer, TreeNode<Set<Integer>>> nodes = new HashMap<>();
+        List<Integer> order = new ArrayList<>(adjacency.keySet());
+        order.sort((node1, node2) -> Integer.compare(depths.get(node2), depths.get(node1)));
+        TreeNode<Set<Integer>> root = null;
+        for (int id : order) {
+            Set<Integer> set = new HashSet<>();
+            if (isLeaf(id)) {
+                set.add(leaves.get(id));
+            }
+            TreeNode<Set<Integer>> node = new TreeNode<>(set);
+            Integer parent = parents.get(id);
+            for (int neighbor : adjacency.get(id)) {
+                if (parent == null || neighbor != parent) {
+                    TreeNode<Set<Integer>> child = nodes.get(neighbor);
+                    node.addChild(child);
+                    set.addAll(child.object());
+                }
+            }
+            nodes.put(id, node);
+            if (!parents.containsKey(id)) {
+                root = node;
+            }
+        }
+        return root;
+    }
+
+    /**
+     * Roots the tree at an internal node, computing parents and depths.
+     */
+    private void root() {
+        parents.clear();
+        depths.clear();
+        int root = -1;
+        for (int node : adjacency.keySet()) {
+            if (!isLeaf(node)) {
+                root = node;
+                break;
+            }
+        }
+        Queue<Integer> queue = new LinkedList<>();
+        queue.add(root);
+        depths.put(root, 0);
+        while (!queue.isEmpty()) {
+            int node = queue.remove();
+            for (int neighbor : adjacency.get(node)) {
+                if (!depths.containsKey(neighbor)) {
+                    parents.put(neighbor, node);
+                    depths.put(neighbor, depths.get(node) + 1);
+                    queue.add(neighbor);
+                }
+            }
+        }
+    }
+
+}
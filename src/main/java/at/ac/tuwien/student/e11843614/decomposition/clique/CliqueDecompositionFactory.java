@@ -1,5 +1,6 @@
 package at.ac.tuwien.student.e11843614.decomposition.clique;
 
+import at.ac.tuwien.student.e11843614.Cancellation;
 import at.ac.tuwien.student.e11843614.Logger;
 import at.ac.tuwien.student.e11843614.decomposition.clique.operation.CliqueOperation;
 import at.ac.tuwien.student.e11843614.decomposition.clique.operation.CliqueEdgeCreation;
@@ -38,6 +39,7 @@ public abstract class CliqueDecompositionFactory {
         TreeNode<CliqueOperation> root = createTreeWithLeavesAndUnion(derivation);
         addRecoloringNodes(root, derivation);
         for (Edge edge : graph.edges()) {
+            Cancellation.check();
             addEdgeCreationNode(root, edge);
             // A node might have been inserted above root
             while (root.parent() != null) {
@@ -272,6 +274,7 @@ public abstract class CliqueDecompositionFactory {
             for (int amount = 1; amount <= width; amount++) {
                 Iterator<List<CliqueRecoloring>> recoloringIterator = new EdgeRecoloringIterator(amount, width);
                 while (recoloringIterator.hasNext()) {
+                    Cancellation.check();
                     List<CliqueRecoloring> recolorings = recoloringIterator.next();
                     Set<TreeNode<CliqueOperation>> addedRecoloringNodes = new HashSet<>();
                     for (CliqueRecoloring recoloring : recolorings) {
@@ -319,6 +322,7 @@ public abstract class CliqueDecompositionFactory {
             }
             Iterator<List<List<CliqueRecoloring>>> recoloringIterator = new ChildrenRecoloringIterator(childSubset.size(), width);
             while (recoloringIterator.hasNext()) {
+                Cancellation.check();
                 List<List<CliqueRecoloring>> recolorings = recoloringIterator.next();
                 // Add recoloring nodes specified in 'recolorings'
                 Set<TreeNode<CliqueOperation>> addedRecoloringNodes = new HashSet<>();
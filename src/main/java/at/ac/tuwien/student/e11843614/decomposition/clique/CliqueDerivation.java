@@ -1,9 +1,8 @@
 package at.ac.tuwien.student.e11843614.decomposition.clique;
 
 import at.ac.tuwien.student.e11843614.Logger;
-import at.ac.tuwien.student.e11843614.sat.SATEncoding;
-import at.ac.tuwien.student.e11843614.sat.Variable;
-import at.ac.tuwien.student.e11843614.struct.Partition;
+import at.ac.tuwien.student.e11843614.sat.CliqueSATEncoding;
+import at.ac.tuwien.student.e11843614.struct.IntPartition;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -18,10 +17,10 @@ public class CliqueDerivation {
 
     /**
      * Constructs a strict derivation from the component and group variables of the assignment.
-     * @param assignment a set of variables set to true by the SAT solver.
+     * @param assignment the truth values of the variables, as returned by the SAT solver.
      * @param sat the SAT encoding for the graph.
      */
-    public CliqueDerivation(Set<Variable> assignment, SATEncoding sat) {
+    public CliqueDerivation(boolean[] assignment, CliqueSATEncoding sat) {
         construct(assignment, sat);
         makeStrict();
     }
@@ -40,7 +39,7 @@ public class CliqueDerivation {
      * @param level the level.
      * @return the components (a Partition).
      */
-    public Partition<Integer> cmp(int level) {
+    public IntPartition cmp(int level) {
         return template(level).getComponents();
     }
 
@@ -49,7 +48,7 @@ public class CliqueDerivation {
      * @param level the level.
      * @return the groups (a Partition).
      */
-    public Partition<Integer> grp(int level) {
+    public IntPartition grp(int level) {
         return template(level).getGroups();
     }
 
@@ -88,38 +87,34 @@ public class CliqueDerivation {
 
     /**
      * Fills the derivation's templates.
-     * @param assignment the satisfying assignment, the set of variables set to true.
+     * @param assignment the satisfying assignment, the truth values of the variables.
      * @param sat the SAT encoding.
      */
-    private void construct(Set<Variable> assignment, SATEncoding sat) {
-        // Create enough templates. Look at component/group variables and their levels.
-        int levels = 0;
-        for (Variable variable : assignment) {
-            if (variable.type() == Variable.Type.COMPONENT || variable.type() == Variable.Type.GROUP) {
-                int level = variable.args().get(2);
-                levels = Math.max(levels, level);
-            }
-        }
-        for (int i = 0; i <= levels; i++) {
+    private void construct(boolean[] assignment, CliqueSATEncoding sat) {
+        int n = sat.vertexMap().size();
+        for (int i = 0; i <= sat.t(); i++) {
             Template template = new Template();
             templates.add(template);
         }
-        // Look at component and group variables and fill the derivation.
-        for (Variable variable : assignment) {
-            if (variable.type() == Variable.Type.COMPONENT || variable.type() == Variable.Type.GROUP) {
-                int u = sat.vertexMap().getFromDomain(variable.args().get(0));
-                int v = sat.vertexMap().getFromDomain(variable.args().get(1));
-                int level = variable.args().get(2);
-                if (variable.type() == Variable.Type.COMPONENT) {
-                    cmp(level).add(u, v);
-                } else if (variable.type() == Variable.Type.GROUP) {
-                    grp(level).add(u, v);
+        // Look at component, group and representative variables and fill the derivation.
+        for (int u = 1; u <= n; u++) {
+            int uVertex = sat.vertexMap().getFromDomain(u);
+            for (int i = 0; i <= sat.t(); i++) {
+                if (assignment[sat.representative(u, i)]) {
+                    grp(i).add(uVertex);
+                    cmp(i).add(uVertex);
+                }
+            }
+            for (int v = u + 1; v <= n; v++) {
+                int vVertex = sat.vertexMap().getFromDomain(v);
+                for (int i = 0; i <= sat.t(); i++) {
+                    if (assignment[sat.component(u, v, i)]) {
+                        cmp(i).add(uVertex, vVertex);
+                    }
+                    if (assignment[sat.group(u, v, i)]) {
+                        grp(i).add(uVertex, vVertex);
+                    }
                 }
-            } else if (variable.type() == Variable.Type.REPRESENTATIVE) {
-                int u = sat.vertexMap().getFromDomain(variable.args().get(0));
-                int level = variable.args().get(1);
-                grp(level).add(u);
-                cmp(level).add(u);
             }
         }
         Logger.debug("Constructed a derivation for clique-width with t = " + (size() - 1));
@@ -1,17 +1,17 @@
 package at.ac.tuwien.student.e11843614.decomposition.clique;
 
-import at.ac.tuwien.student.e11843614.struct.Partition;
+import at.ac.tuwien.student.e11843614.struct.IntPartition;
 
 public class Template {
 
-    private final Partition<Integer> components = new Partition<>();
-    private final Partition<Integer> groups = new Partition<>();
+    private final IntPartition components = new IntPartition();
+    private final IntPartition groups = new IntPartition();
 
-    public Partition<Integer> getComponents() {
+    public IntPartition getComponents() {
         return components;
     }
 
-    public Partition<Integer> getGroups() {
+    public IntPartition getGroups() {
         return groups;
     }
 
@@ -0,0 +1,177 @@
+package at.ac.tuwien.student.e11843614.decomposition.io;
+
+import at.ac.tuwien.student.e11843614.Logger;
+import at.ac.tuwien.student.e11843614.exception.DecompositionParseException;
+import at.ac.tuwien.student.e11843614.formula.Formula;
+import at.ac.tuwien.student.e11843614.struct.graph.Edge;
+import at.ac.tuwien.student.e11843614.struct.graph.Graph;
+import at.ac.tuwien.student.e11843614.struct.tree.TreeNode;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * An on-disk cache of branch decompositions (psw). Decompositions only depend on the incidence graph, not on the signs
+ * of the literals, so the cache is keyed by a hash of the incidence graph's structure and the method used to compute
+ * the decomposition. Entries are stored in the branch decomposition format of {@link DecompositionWriter}, and the
+ * least recently used entries are evicted once the total size exceeds a limit.
+ */
+public class DecompositionCache {
+
+    private static final String EXTENSION = ".bd";
+
+    private final Path directory;
+    private final long limit;
+
+    /**
+     * Constructs a cache.
+     * @param directory the directory of the cache, created if it does not exist.
+     * @param limit the maximum total size of the entries in bytes.
+     */
+    public DecompositionCache(String directory, long limit) {
+        this.directory = Paths.get(directory);
+        this.limit = limit;
+    }
+
+    /**
+     * Looks up the decomposition of an incidence graph.
+     * @param formula the formula.
+     * @param graph the incidence graph of the formula.
+     * @param method the method used to compute decompositions, e.g. "quick" or "carving".
+     * @return the cached branch decomposition, or null if there is none.
+     */
+    public TreeNode<Set<Integer>> get(Formula formula, Graph graph, String method) {
+        File file = entry(graph, method).toFile();
+        if (!file.isFile()) {
+            Logger.debug("Decomposition cache miss: " + file.getName());
+            return null;
+        }
+        try {
+            TreeNode<Set<Integer>> decomposition = new DecompositionReader(file.getPath())
+                .parseDecomposition(formula, graph);
+            // Mark as recently used
+            if (!file.setLastModified(System.currentTimeMillis())) {
+                Logger.warn("Could not update the modification time of " + file);
+            }
+            Logger.debug("Decomposition cache hit: " + file.getName());
+            return decomposition;
+        } catch (IOException | DecompositionParseException exception) {
+            Logger.warn("Removing invalid cache entry " + file + ": " + exception.getMessage());
+            if (!file.delete()) {
+                Logger.warn("Could not delete " + file);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Stores the decomposition of an incidence graph, and evicts the least recently used entries if the cache exceeds
+     * its size limit.
+     * @param formula the formula.
+     * @param graph the incidence graph of the formula.
+     * @param method the method used to compute the decomposition.
+     * @param decomposition the branch decomposition.
+     * @throws IOException if the entry cannot be written.
+     */
+    public void put(Formula formula, Graph graph, String method, TreeNode<Set<Integer>> decomposition)
+        throws IOException {
+        Files.createDirectories(directory);
+        Path entry = entry(graph, method);
+        // Write to a temporary file first, so that concurrent readers never see partial entries
+        Path temporary = Files.createTempFile(directory, "entry", ".tmp");
+        DecompositionWriter.write(temporary.toString(), decomposition, formula, graph);
+        Files.move(temporary, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        evict();
+    }
+
+    /**
+     * Deletes the least recently used entries until the total size is within the limit.
+     */
+    private void evict() {
+        File[] files = directory.toFile().listFiles((dir, name) -> name.endsWith(EXTENSION));
+        if (files == null) {
+            return;
+        }
+        List<File> entries = new ArrayList<>(Arrays.asList(files));
+        entries.sort(Comparator.comparingLong(File::lastModified));
+        long size = 0;
+        for (File file : entries) {
+            size += file.length();
+        }
+        for (File file : entries) {
+            if (size <= limit) {
+                break;
+            }
+            long length = file.length();
+            if (file.delete()) {
+                size -= length;
+                Logger.debug("Evicted " + file.getName() + " from the decomposition cache");
+            }
+        }
+    }
+
+    /**
+     * Computes the path of the entry for an incidence graph.
+     * @param graph the incidence graph.
+     * @param method the method used to compute decompositions.
+     * @return the path of the entry.
+     */
+    private Path entry(Graph graph, String method) {
+        return directory.resolve(key(graph, method) + EXTENSION);
+    }
+
+    /**
+     * Computes the key of an incidence graph: the SHA-256 hash of the method, the sorted vertices and the sorted list
+     * of edges (with multiplicities). Literal signs do not affect the incidence graph, and thus the key.
+     * @param graph the incidence graph.
+     * @param method the method used to compute decompositions.
+     * @return the key as a hexadecimal string.
+     */
+    private static String key(Graph graph, String method) {
+        int[] vertices = graph.vertices().stream().mapToInt(Integer::intValue).sorted().toArray();
+        long[] edges = new long[graph.edges().size()];
+        int i = 0;
+        for (Edge edge : graph.edges()) {
+            long u = edge.endpoints().get(0);
+            long v = edge.endpoints().get(1);
+            edges[i++] = (Math.min(u, v) << 32) | Math.max(u, v);
+        }
+        Arrays.sort(edges);
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(method.getBytes(StandardCharsets.UTF_8));
+            ByteBuffer buffer = ByteBuffer.allocate(8 * (2 + vertices.length + edges.length));
+            buffer.putLong(vertices.length);
+            for (int vertex : vertices) {
+                buffer.putLong(vertex);
+            }
+            buffer.putLong(edges.length);
+            for (long edge : edges) {
+                buffer.putLong(edge);
+            }
+            byte[] hash = digest.digest(buffer.array());
+            StringBuilder hex = new StringBuilder();
+            for (byte b : hash) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException exception) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(exception);
+        }
+    }
+
+}
@@ -0,0 +1,404 @@
+package at.ac.tuwien.student.e11843614.decomposition.io;
+
+import at.ac.tuwien.student.e11843614.Logger;
+import at.ac.tuwien.student.e11843614.decomposition.psw.Binarization;
+import at.ac.tuwien.student.e11843614.exception.DecompositionParseException;
+import at.ac.tuwien.student.e11843614.formula.Formula;
+import at.ac.tuwien.student.e11843614.struct.graph.Edge;
+import at.ac.tuwien.student.e11843614.struct.graph.Graph;
+import at.ac.tuwien.student.e11843614.struct.tree.TreeNode;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Scanner;
+import java.util.Set;
+
+/**
+ * An object responsible for reading a branch decomposition (psw) of a formula's incidence graph from a file. Two
+ * formats are supported, both numbering the variables x as x = 1..n and the clauses j as n + j = n+1..n+m:
+ * <ul>
+ *     <li>PACE tree decompositions: a header line {@code s td <bags> <max bag size> <vertices>}, bag lines
+ *     {@code b <bag> <vertex>...} and edge lines {@code <bag> <bag>}. The tree decomposition is converted into a branch
+ *     decomposition by attaching every vertex as a leaf to the bag closest to bag 1 that contains it.</li>
+ *     <li>Branch decompositions: a header line {@code s bd <nodes> <vertices>}, leaf lines {@code l <node> <vertex>}
+ *     and edge lines {@code <node> <node>}. Node 1 is the root, and the set of a node consists of the vertices stored
+ *     in the leaves below it.</li>
+ * </ul>
+ * Lines starting with {@code c} are comments. The decomposition is checked against the incidence graph.
+ */
+public class DecompositionReader {
+
+    private final String path;
+
+    private String type = null;
+    private int nodes = 0;
+    private int vertices = 0;
+    private final Map<Integer, List<Integer>> contents = new HashMap<>(); // node -> bag or leaf vertex
+    private final Map<Integer, List<Integer>> adjacency = new HashMap<>();
+    private int edges = 0;
+
+    public DecompositionReader(String path) {
+        this.path = path;
+    }
+
+    /**
+     * Reads the file and returns the respective branch decomposition.
+     * @param formula the formula.
+     * @param graph the incidence graph of the formula.
+     * @return a branch decomposition (psw) of the incidence graph, i.e. a binary tree.
+     * @throws FileNotFoundException if the file is not found.
+     * @throws DecompositionParseException if an error occurs during parsing, or the decomposition is not valid for
+     *                                     the incidence graph.
+     */
+    @SuppressWarnings("StatementWithEmptyBody")
+    public TreeNode<Set<Integer>> parseDecomposition(Formula formula, Graph graph)
+        throws FileNotFoundException, DecompositionParseException {
+        try (Scanner scanner = new Scanner(new File(path))) {
+            int line = 0;
+            while (scanner.hasNextLine()) {
+                line++;
+                String[] items = scanner.nextLine().trim().split("\\s+");
+                String prefix = path + ":" + line + ": "; // for error messages
+                if (items[0].isEmpty() || items[0].equals("c")) {
+                    // empty or comment line, skip
+                } else if (items[0].equals("s")) {
+                    parseHeaderLine(items, prefix);
+                } else if (type == null) {
+                    throw new DecompositionParseException(prefix + "expected a header line 's td ...' or 's bd ...'");
+                } else if (items[0].equals("b") || items[0].equals("l")) {
+                    parseContentLine(items, prefix);
+                } else {
+                    parseEdgeLine(items, prefix);
+                }
+            }
+        }
+        if (type == null) {
+            throw new DecompositionParseException(path + ": missing header line");
+        }
+        // n = N - m, so that the clause vertices are numbered n+1..N
+        int clauses = formula.clauseCount();
+        VertexNumbering numbering = new VertexNumbering(vertices - clauses, clauses);
+        int variables = formula.variableCount();
+        if (variables > vertices - clauses) {
+            throw new DecompositionParseException(path + ": header specifies " + vertices + " vertices, but the "
+                + "formula needs at least " + (variables + clauses) + " (" + variables + " variables and " + clauses
+                + " clauses)");
+        }
+        checkTree();
+        TreeNode<Set<Integer>> decomposition;
+        if (type.equals("td")) {
+            checkTreeDecomposition(numbering, graph);
+            decomposition = fromTreeDecomposition(numbering, graph);
+        } else {
+            decomposition = fromBranchDecomposition(numbering, graph);
+        }
+        Logger.debug("Read a decomposition from " + path);
+        return Binarization.binarize(graph, decomposition);
+    }
+
+    // ----- Parsing ---------------------------------------------------------------------------------------------------
+
+    private void parseHeaderLine(String[] items, String prefix) throws DecompositionParseException {
+        // s td <bags> <max bag size> <vertices>   or   s bd <nodes> <vertices>
+        if (type != null) {
+            throw new DecompositionParseException(prefix + "duplicate header line");
+        }
+        if (items.length == 5 && items[1].equals("td")) {
+            nodes = parseNumber(items[2], prefix);
+            vertices = parseNumber(items[4], prefix);
+        } else if (items.length == 4 && items[1].equals("bd")) {
+            nodes = parseNumber(items[2], prefix);
+            vertices = parseNumber(items[3], prefix);
+        } else {
+            throw new DecompositionParseException(prefix + "expected 's td <bags> <max bag size> <vertices>' or "
+                + "'s bd <nodes> <vertices>'");
+        }
+        type = items[1];
+    }
+
+    private void parseContentLine(String[] items, String prefix) throws DecompositionParseException {
+        // b <bag> <vertex>...   or   l <node> <vertex>
+        String expected = type.equals("td") ? "b" : "l";
+        if (!items[0].equals(expected)) {
+            throw new DecompositionParseException(prefix + "'" + items[0] + "' lines are not allowed in a '" + type
+                + "' file");
+        }
+        if (items.length < 2 || (type.equals("bd") && items.length != 3)) {
+            throw new DecompositionParseException(prefix + "malformed '" + items[0] + "' line");
+        }
+        int node = parseNode(items[1], prefix);
+        if (contents.containsKey(node)) {
+            throw new DecompositionParseException(prefix + "node " + node + " is specified twice");
+        }
+        List<Integer> content = new ArrayList<>();
+        for (int i = 2; i < items.length; i++) {
+            int vertex = parseNumber(items[i], prefix);
+            if (vertex < 1 || vertex > vertices) {
+                throw new DecompositionParseException(prefix + "vertex " + vertex + " is not between 1 and "
+                    + vertices);
+            }
+            content.add(vertex);
+        }
+        contents.put(node, content);
+    }
+
+    private void parseEdgeLine(String[] items, String prefix) throws DecompositionParseException {
+        // <node> <node>
+        if (items.length != 2) {
+            throw new DecompositionParseException(prefix + "expected an edge '<node> <node>'");
+        }
+        int a = parseNode(items[0], prefix);
+        int b = parseNode(items[1], prefix);
+        adjacency.computeIfAbsent(a, x -> new ArrayList<>()).add(b);
+        adjacency.computeIfAbsent(b, x -> new ArrayList<>()).add(a);
+        edges++;
+    }
+
+    private int parseNode(String item, String prefix) throws DecompositionParseException {
+        int node = parseNumber(item, prefix);
+        if (node < 1 || node > nodes) {
+            throw new DecompositionParseException(prefix + "node " + node + " is not between 1 and " + nodes);
+        }
+        return node;
+    }
+
+    private static int parseNumber(String item, String prefix) throws DecompositionParseException {
+        try {
+            return Integer.parseInt(item);
+        } catch (NumberFormatException exception) {
+            throw new DecompositionParseException(prefix + "expected a number, got \"" + item + "\"", exception);
+        }
+    }
+
+    // ----- Validation ------------------------------------------------------------------------------------------------
+
+    /**
+     * Checks that the edges form a tree on all nodes.
+     * @throws DecompositionParseException if the nodes and edges do not form a tree.
+     */
+    private void checkTree() throws DecompositionParseException {
+        if (edges != nodes - 1) {
+            throw new DecompositionParseException(path + ": a tree with " + nodes + " nodes must have " + (nodes - 1)
+                + " edges, found " + edges);
+        }
+        if (nodes > 0 && order().size() != nodes) {
+            throw new DecompositionParseException(path + ": the decomposition is not connected");
+        }
+    }
+
+    /**
+     * Checks the properties of a tree decomposition: every vertex and every edge of the graph is contained in some
+     * bag, and the bags containing a vertex induce a subtree.
+     * @param numbering the numbering of the vertices.
+     * @param graph the incidence graph.
+     * @throws DecompositionParseException if the tree decomposition is not valid for the graph.
+     */
+    private void checkTreeDecomposition(VertexNumbering numbering, Graph graph) throws DecompositionParseException {
+        Map<Integer, Set<Integer>> bags = new HashMap<>();
+        Map<Integer, List<Integer>> occurrences = new HashMap<>(); // vertex -> ascending bags containing it
+        for (int node = 1; node <= nodes; node++) {
+            Set<Integer> bag = new HashSet<>(contents.getOrDefault(node, List.of()));
+            bags.put(node, bag);
+            for (int vertex : bag) {
+                occurrences.computeIfAbsent(vertex, x -> new ArrayList<>()).add(node);
+            }
+        }
+        for (int vertex : graph.vertices()) {
+            if (!occurrences.containsKey(numbering.toExternal(vertex))) {
+                throw new DecompositionParseException(path + ": vertex " + numbering.toExternal(vertex)
+                    + " is not contained in any bag");
+            }
+        }
+        for (Edge edge : graph.edges()) {
+            int u = numbering.toExternal(edge.endpoints().get(0));
+            int v = numbering.toExternal(edge.endpoints().get(1));
+            if (!intersect(occurrences.get(u), occurrences.get(v))) {
+                throw new DecompositionParseException(path + ": edge " + u + " " + v + " is not contained in any bag");
+            }
+        }
+        // In a tree, the bags containing a vertex are connected iff they are joined by (amount of bags - 1) edges.
+        Map<Integer, Integer> joins = new HashMap<>();
+        for (Map.Entry<Integer, List<Integer>> entry : adjacency.entrySet()) {
+            for (int neighbor : entry.getValue()) {
+                if (entry.getKey() < neighbor) {
+                    for (int vertex : bags.get(entry.getKey())) {
+                        if (bags.get(neighbor).contains(vertex)) {
+                            joins.merge(vertex, 1, Integer::sum);
+                        }
+                    }
+                }
+            }
+        }
+        for (Map.Entry<Integer, List<Integer>> entry : occurrences.entrySet()) {
+            if (joins.getOrDefault(entry.getKey(), 0) != entry.getValue().size() - 1) {
+                throw new DecompositionParseException(path + ": the bags containing vertex " + entry.getKey()
+                    + " are not connected");
+            }
+        }
+    }
+
+    /**
+     * Checks whether two ascending lists of bags have a bag in common, by merging them.
+     * @param first the bags containing one vertex.
+     * @param second the bags containing another vertex.
+     * @return true if some bag is in both lists, and false otherwise.
+     */
+    private static boolean intersect(List<Integer> first, List<Integer> second) {
+        int i = 0;
+        int j = 0;
+        while (i < first.size() && j < second.size()) {
+            int comparison = Integer.compare(first.get(i), second.get(j));
+            if (comparison == 0) {
+                return true;
+            }
+            if (comparison < 0) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return false;
+    }
+
+    // ----- Conversion ------------------------------------------------------------------------------------------------
+
+    /**
+     * Converts the tree decomposition into a tree whose leaves store the vertices of the graph. Every vertex is
+     * attached to the bag closest to the first bag that contains it, and bags without vertices below are removed.
+     * @param numbering the numbering of the vertices.
+     * @param graph the incidence graph.
+     * @return the root of the tree (not necessarily binary).
+     */
+    private TreeNode<Set<Integer>> fromTreeDecomposition(VertexNumbering numbering, Graph graph) {
+        Map<Integer, TreeNode<Set<Integer>>> treeNodes = buildTree();
+        Set<Integer> attached = new HashSet<>();
+        for (int node : order()) {
+            for (int external : contents.getOrDefault(node, List.of())) {
+                int vertex = numbering.toInternal(external);
+                // Vertices of unused variables are not part of the incidence graph
+                if (graph.vertices().contains(vertex) && attached.add(vertex)) {
+                    treeNodes.get(node).addChild(new TreeNode<>(Set.of(vertex)));
+                }
+            }
+        }
+        TreeNode<Set<Integer>> root = treeNodes.get(1);
+        // Remove bags without vertices below and compute the sets bottom-up
+        Iterator<TreeNode<Set<Integer>>> iterator = root.depthIterator();
+        List<TreeNode<Set<Integer>>> postOrder = new ArrayList<>();
+        iterator.forEachRemaining(postOrder::add);
+        for (TreeNode<Set<Integer>> node : postOrder) {
+            if (node.object() != null) {
+                continue;
+            }
+            Set<Integer> set = new HashSet<>();
+            for (TreeNode<Set<Integer>> child : node.children()) {
+                set.addAll(child.object());
+            }
+            node.setObject(set);
+            if (set.isEmpty()) {
+                node.detach();
+            }
+        }
+        return root;
+    }
+
+    /**
+     * Converts the branch decomposition into a tree whose leaves store the vertices of the graph.
+     * @param numbering the numbering of the vertices.
+     * @param graph the incidence graph.
+     * @return the root of the tree (not necessarily binary).
+     * @throws DecompositionParseException if the leaves do not store exactly the vertices of the graph.
+     */
+    private TreeNode<Set<Integer>> fromBranchDecomposition(VertexNumbering numbering, Graph graph)
+        throws DecompositionParseException {
+        Map<Integer, TreeNode<Set<Integer>>> treeNodes = buildTree();
+        Set<Integer> seen = new HashSet<>();
+        for (int node = 1; node <= nodes; node++) {
+            TreeNode<Set<Integer>> treeNode = treeNodes.get(node);
+            if (contents.containsKey(node)) {
+                int external = contents.get(node).get(0);
+                int vertex = numbering.toInternal(external);
+                if (!treeNode.children().isEmpty()) {
+                    throw new DecompositionParseException(path + ": node " + node + " stores vertex " + external
+                        + " but is not a leaf");
+                } else if (!graph.vertices().contains(vertex)) {
+                    throw new DecompositionParseException(path + ": vertex " + external + " is not a vertex of the "
+                        + "incidence graph");
+                } else if (!seen.add(vertex)) {
+                    throw new DecompositionParseException(path + ": vertex " + external + " is stored twice");
+                }
+                treeNode.setObject(Set.of(vertex));
+            } else if (treeNode.children().isEmpty()) {
+                throw new DecompositionParseException(path + ": leaf " + node + " does not store a vertex");
+            }
+        }
+        if (seen.size() != graph.vertices().size()) {
+            throw new DecompositionParseException(path + ": the decomposition stores " + seen.size() + " of "
+                + graph.vertices().size() + " vertices");
+        }
+        TreeNode<Set<Integer>> root = treeNodes.get(1);
+        Iterator<TreeNode<Set<Integer>>> iterator = root.depthIterator();
+        while (iterator.hasNext()) {
+            TreeNode<Set<Integer>> node = iterator.next();
+            if (node.object() == null) {
+                Set<Integer> set = new HashSet<>();
+                for (TreeNode<Set<Integer>> child : node.children()) {
+                    set.addAll(child.object());
+                }
+                node.setObject(set);
+            }
+        }
+        return root;
+    }
+
+    // ----- Helpers ---------------------------------------------------------------------------------------------------
+
+    /**
+     * Computes the nodes in breadth-first order, starting at node 1.
+     * @return the list of nodes reachable from node 1.
+     */
+    private List<Integer> order() {
+        List<Integer> order = new ArrayList<>();
+        Set<Integer> visited = new HashSet<>();
+        Queue<Integer> queue = new LinkedList<>();
+        queue.add(1);
+        visited.add(1);
+        while (!queue.isEmpty()) {
+            int node = queue.remove();
+            order.add(node);
+            for (int neighbor : adjacency.getOrDefault(node, List.of())) {
+                if (visited.add(neighbor)) {
+                    queue.add(neighbor);
+                }
+            }
+        }
+        return order;
+    }
+
+    /**
+     * Builds the tree rooted at node 1, with empty objects.
+     * @return a map from nodes to tree nodes.
+     */
+    private Map<Integer, TreeNode<Set<Integer>>> buildTree() {
+        Map<Integer, TreeNode<Set<Integer>>> treeNodes = new HashMap<>();
+        for (int node : order()) {
+            TreeNode<Set<Integer>> treeNode = new TreeNode<>();
+            for (int neighbor : adjacency.getOrDefault(node, List.of())) {
+                if (treeNodes.containsKey(neighbor)) {
+                    treeNodes.get(neighbor).addChild(treeNode);
+                }
+            }
+            treeNodes.put(node, treeNode);
+        }
+        return treeNodes;
+    }
+
+}
@@ -0,0 +1,131 @@
+package at.ac.tuwien.student.e11843614.decomposition.io;
+
+import at.ac.tuwien.student.e11843614.Logger;
+import at.ac.tuwien.student.e11843614.formula.Formula;
+import at.ac.tuwien.student.e11843614.struct.graph.Edge;
+import at.ac.tuwien.student.e11843614.struct.graph.Graph;
+import at.ac.tuwien.student.e11843614.struct.tree.TreeNode;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A class responsible for writing branch decompositions (psw) to files, in the formats read by
+ * {@link DecompositionReader}.
+ */
+public abstract class DecompositionWriter {
+
+    /**
+     * Writes a branch decomposition to a file. If the path ends with '.td', the decomposition is written as a PACE
+     * tree decomposition, and otherwise in the branch decomposition format.
+     * @param path the path of the file.
+     * @param decomposition the branch decomposition (psw) of the incidence graph.
+     * @param formula the formula.
+     * @param graph the incidence graph of the formula.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void write(String path, TreeNode<Set<Integer>> decomposition, Formula formula, Graph graph)
+        throws IOException {
+        int variables = formula.variableCount();
+        VertexNumbering numbering = new VertexNumbering(variables, formula.clauseCount());
+        // Number the nodes in breadth-first order, the root is 1
+        List<TreeNode<Set<Integer>>> nodes = new ArrayList<>();
+        Map<TreeNode<Set<Integer>>, Integer> ids = new HashMap<>();
+        for (TreeNode<Set<Integer>> node : decomposition) {
+            nodes.add(node);
+            ids.put(node, nodes.size());
+        }
+        try (PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(path)))) {
+            writer.println("c variables x are numbered 1.." + variables + ", clauses j are numbered " + variables
+                + "+j");
+            if (path.endsWith(".td")) {
+                writeTreeDecomposition(writer, nodes, ids, numbering, graph);
+            } else {
+                writeBranchDecomposition(writer, nodes, ids, numbering);
+            }
+        }
+        Logger.debug("Wrote the decomposition to " + path);
+    }
+
+    private static void writeBranchDecomposition(PrintWriter writer, List<TreeNode<Set<Integer>>> nodes,
+                                                 Map<TreeNode<Set<Integer>>, Integer> ids, VertexNumbering numbering) {
+        writer.println("s bd " + nodes.size() + " " + numbering.size());
+        for (TreeNode<Set<Integer>> node : nodes) {
+            if (node.children().isEmpty()) {
+                int vertex = node.object().iterator().next();
+                writer.println("l " + ids.get(node) + " " + numbering.toExternal(vertex));
+            }
+        }
+        for (TreeNode<Set<Integer>> node : nodes) {
+            if (node.parent() != null) {
+                writer.println(ids.get(node.parent()) + " " + ids.get(node));
+            }
+        }
+    }
+
+    /**
+     * Writes a tree decomposition with the same tree as the branch decomposition. Each tree edge separates the
+     * vertices into two sides; its border consists of the vertices with a neighbor on the other side. The bag of a node
+     * is the union of the borders of its incident edges (and, for a leaf, its vertex).
+     */
+    private static void writeTreeDecomposition(PrintWriter writer, List<TreeNode<Set<Integer>>> nodes,
+                                               Map<TreeNode<Set<Integer>>, Integer> ids, VertexNumbering numbering,
+                                               Graph graph) {
+        Map<Integer, List<Integer>> adjacency = new HashMap<>();
+        for (Edge edge : graph.edges()) {
+            int u = edge.endpoints().get(0);
+            int v = edge.endpoints().get(1);
+            adjacency.computeIfAbsent(u, x -> new ArrayList<>()).add(v);
+            adjacency.computeIfAbsent(v, x -> new ArrayList<>()).add(u);
+        }
+        Map<TreeNode<Set<Integer>>, Set<Integer>> bags = new HashMap<>();
+        for (TreeNode<Set<Integer>> node : nodes) {
+            bags.put(node, new HashSet<>());
+            if (node.children().isEmpty()) {
+                bags.get(node).addAll(node.object());
+            }
+        }
+        for (TreeNode<Set<Integer>> node : nodes) {
+            if (node.parent() == null) {
+                continue;
+            }
+            Set<Integer> border = new HashSet<>();
+            for (int vertex : node.object()) {
+                for (int neighbor : adjacency.getOrDefault(vertex, List.of())) {
+                    if (!node.object().contains(neighbor)) {
+                        border.add(vertex);
+                        border.add(neighbor);
+                    }
+                }
+            }
+            bags.get(node).addAll(border);
+            bags.get(node.parent()).addAll(border);
+        }
+        int width = 0;
+        for (Set<Integer> bag : bags.values()) {
+            width = Math.max(width, bag.size());
+        }
+        writer.println("s td " + nodes.size() + " " + width + " " + numbering.size());
+        for (TreeNode<Set<Integer>> node : nodes) {
+            StringBuilder builder = new StringBuilder("b ").append(ids.get(node));
+            for (int vertex : bags.get(node)) {
+                builder.append(' ').append(numbering.toExternal(vertex));
+            }
+            writer.println(builder);
+        }
+        for (TreeNode<Set<Integer>> node : nodes) {
+            if (node.parent() != null) {
+                writer.println(ids.get(node.parent()) + " " + ids.get(node));
+            }
+        }
+    }
+
+}
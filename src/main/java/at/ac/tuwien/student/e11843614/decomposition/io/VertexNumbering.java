@@ -0,0 +1,48 @@
+package at.ac.tuwien.student.e11843614.decomposition.io;
+
+/**
+ * The numbering of the incidence graph's vertices in decomposition files: the variables x are numbered x = 1..n, and
+ * the clauses j are numbered n + j = n+1..n+m.
+ */
+class VertexNumbering {
+
+    private final int variables;
+    private final int clauses;
+
+    /**
+     * Constructs a numbering.
+     * @param variables the amount of variables n.
+     * @param clauses the amount of clauses m.
+     */
+    public VertexNumbering(int variables, int clauses) {
+        this.variables = variables;
+        this.clauses = clauses;
+    }
+
+    /**
+     * Returns the amount of vertices in this numbering.
+     * @return n + m.
+     */
+    public int size() {
+        return variables + clauses;
+    }
+
+    /**
+     * Converts a vertex of the incidence graph into its number in files.
+     * @param vertex a vertex of the incidence graph, ending in 1 (variable) or 2 (clause).
+     * @return the number of the vertex, between 1 and n + m.
+     */
+    public int toExternal(int vertex) {
+        return (vertex % 10 == 1) ? vertex / 10 : variables + vertex / 10;
+    }
+
+    /**
+     * Converts the number of a vertex in files into a vertex of the incidence graph.
+     * @param external the number of the vertex, between 1 and n + m.
+     * @return the vertex of the incidence graph.
+     */
+    public int toInternal(int external) {
+        return (external <= variables) ? 10 * external + 1 : 10 * (external - variables) + 2;
+    }
+
+}
@@ -0,0 +1,145 @@
+package at.ac.tuwien.student.e11843614.decomposition.psw;
+
+import at.ac.tuwien.student.e11843614.Logger;
+import at.ac.tuwien.student.e11843614.struct.graph.Edge;
+import at.ac.tuwien.student.e11843614.struct.graph.Graph;
+import at.ac.tuwien.student.e11843614.struct.tree.TreeNode;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Transforms trees whose leaves store single vertices (such as carving decompositions) into binary trees, i.e. branch
+ * decompositions for ps-width. The children of a node with three or more children are grouped into a binary subtree
+ * greedily: the two groups whose union has the smallest cut are merged first. The size of a cut is a proxy for the
+ * sizes of the PS families at the new node, which can only be computed with the formula.
+ */
+public abstract class Binarization {
+
+    /**
+     * Transforms a tree into a binary tree in place. Nodes with three or more children are replaced by binary
+     * subtrees, and nodes with a single child are contracted.
+     * @param graph the graph. For ps-width applications an incidence graph of the formula.
+     * @param decomposition a tree whose leaves store single vertices of the graph and whose internal nodes store the
+     *                      union of their children's sets.
+     * @return the root of the binary tree; differs from the specified root only if the root had a single child.
+     */
+    public static TreeNode<Set<Integer>> binarize(Graph graph, TreeNode<Set<Integer>> decomposition) {
+        Map<Integer, List<Integer>> adjacency = new HashMap<>();
+        for (Edge edge : graph.edges()) {
+            int u = edge.endpoints().get(0);
+            int v = edge.endpoints().get(1);
+            adjacency.computeIfAbsent(u, x -> new ArrayList<>()).add(v);
+            adjacency.computeIfAbsent(v, x -> new ArrayList<>()).add(u);
+        }
+        // Collect nodes first, the tree is modified below
+        List<TreeNode<Set<Integer>>> nodes = new ArrayList<>();
+        for (TreeNode<Set<Integer>> node : decomposition) {
+            nodes.add(node);
+        }
+        int groupings = 0;
+        for (TreeNode<Set<Integer>> node : nodes) {
+            if (node.children().size() == 1) {
+                if (node.parent() != null) {
+                    node.contract();
+                } else {
+                    decomposition = node.children().iterator().next();
+                    decomposition.detach();
+                }
+            } else if (node.children().size() > 2) {
+                group(node, adjacency);
+                groupings++;
+            }
+        }
+        Logger.debug("Binarized the decomposition, grouped the children of " + groupings + " nodes");
+        return decomposition;
+    }
+
+    /**
+     * Groups the children of a node into a binary subtree, merging the pair of groups with the smallest cut first.
+     * @param node a node with at least three children.
+     * @param adjacency the adjacency lists of the graph (with multiplicities).
+     */
+    private static void group(TreeNode<Set<Integer>> node, Map<Integer, List<Integer>> adjacency) {
+        List<TreeNode<Set<Integer>>> groups = new ArrayList<>(node.children());
+        List<Integer> cuts = new ArrayList<>();
+        for (TreeNode<Set<Integer>> group : groups) {
+            cuts.add(cut(group.object(), adjacency));
+        }
+        while (groups.size() > 2) {
+            int best1 = -1, best2 = -1, bestCut = Integer.MAX_VALUE;
+            for (int i = 0; i < groups.size(); i++) {
+                for (int j = i + 1; j < groups.size(); j++) {
+                    // cut(A u B) = cut(A) + cut(B) - 2 * e(A, B)
+                    int between = edgesBetween(groups.get(i).object(), groups.get(j).object(), adjacency);
+                    int cut = cuts.get(i) + cuts.get(j) - 2 * between;
+                    if (cut < bestCut) {
+                        best1 = i;
+                        best2 = j;
+                        bestCut = cut;
+                    }
+                }
+            }
+            TreeNode<Set<Integer>> group2 = groups.remove(best2);
+            TreeNode<Set<Integer>> group1 = groups.remove(best1);
+            cuts.remove(best2);
+            cuts.remove(best1);
+            Set<Integer> union = new HashSet<>(group1.object());
+            union.addAll(group2.object());
+            TreeNode<Set<Integer>> merged = new TreeNode<>(union);
+            group1.detach();
+            group2.detach();
+            merged.addChild(group1);
+            merged.addChild(group2);
+            node.addChild(merged);
+            groups.add(merged);
+            cuts.add(bestCut);
+        }
+    }
+
+    /**
+     * Computes the amount of edges with exactly one endpoint in a set of vertices.
+     * @param vertices the set of vertices.
+     * @param adjacency the adjacency lists of the graph.
+     * @return the size of the cut.
+     */
+    private static int cut(Set<Integer> vertices, Map<Integer, List<Integer>> adjacency) {
+        int cut = 0;
+        for (int vertex : vertices) {
+            for (int neighbor : adjacency.getOrDefault(vertex, List.of())) {
+                if (!vertices.contains(neighbor)) {
+                    cut++;
+                }
+            }
+        }
+        return cut;
+    }
+
+    /**
+     * Computes the amount of edges between two disjoint sets of vertices.
+     * @param vertices1 a set of vertices.
+     * @param vertices2 a set of vertices.
+     * @param adjacency the adjacency lists of the graph.
+     * @return the amount of edges with one endpoint in each set.
+     */
+    private static int edgesBetween(Set<Integer> vertices1, Set<Integer> vertices2,
+                                    Map<Integer, List<Integer>> adjacency) {
+        if (vertices1.size() > vertices2.size()) {
+            return edgesBetween(vertices2, vertices1, adjacency);
+        }
+        int edges = 0;
+        for (int vertex : vertices1) {
+            for (int neighbor : adjacency.getOrDefault(vertex, List.of())) {
+                if (vertices2.contains(neighbor)) {
+                    edges++;
+                }
+            }
+        }
+        return edges;
+    }
+
+}
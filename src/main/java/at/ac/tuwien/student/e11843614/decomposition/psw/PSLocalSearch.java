@@ -0,0 +1,479 @@
+package at.ac.tuwien.student.e11843614.decomposition.psw;
+
+import at.ac.tuwien.student.e11843614.Cancellation;
+import at.ac.tuwien.student.e11843614.Logger;
+import at.ac.tuwien.student.e11843614.counting.psw.PSWidthEvaluator;
+import at.ac.tuwien.student.e11843614.counting.psw.PSWidthProfile;
+import at.ac.tuwien.student.e11843614.formula.Formula;
+import at.ac.tuwien.student.e11843614.struct.tree.TreeNode;
+import org.apache.commons.lang3.time.StopWatch;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+/**
+ * A local search that improves a branch decomposition (psw) with respect to the sizes of its PS families. Moves
+ * (subtree-prune-and-regraft, swaps of subtrees, and rotations) are applied near the nodes with the largest families,
+ * and each move is re-evaluated incrementally. The nodes are numbered once at the start, and the search visits nodes
+ * and children in the order of these numbers instead of the hash order of the children, so that a run with a bounded
+ * amount of iterations is reproducible.
+ */
+public abstract class PSLocalSearch {
+
+    // Moves are generated between nodes that are at most this far away from the node with the largest families.
+    private static final int SWAP_RADIUS = 2;
+    private static final int REGRAFT_RADIUS = 4;
+
+    /**
+     * Improves a branch decomposition in place until no improving move exists or the budget is exhausted.
+     * @param formula the formula.
+     * @param decomposition a branch decomposition (psw) of the formula, i.e. a binary tree.
+     * @param iterations the maximum amount of evaluated moves. If zero or negative, the amount is unbounded.
+     * @param seconds the time budget in seconds. If zero or negative, the time is unbounded.
+     * @return the improved decomposition (the same root node).
+     */
+    public static TreeNode<Set<Integer>> refine(Formula formula, TreeNode<Set<Integer>> decomposition, int iterations,
+                                                int seconds) {
+        StopWatch stopwatch = StopWatch.createStarted();
+        PSWidthEvaluator evaluator = new PSWidthEvaluator(formula);
+        PSWidthProfile profile = evaluator.evaluate(decomposition);
+        Objective objective = new Objective(decomposition, profile);
+        Map<TreeNode<Set<Integer>>, Integer> order = number(decomposition);
+        List<TreeNode<Set<Integer>>> nodes = new ArrayList<>(order.keySet());
+        nodes.sort(Comparator.comparing(order::get));
+        int initialWidth = objective.width;
+        int moves = 0, accepted = 0;
+        // Nodes around which no improving move was found since the last accepted move.
+        Set<TreeNode<Set<Integer>>> exhausted = new HashSet<>();
+        search: while (true) {
+            TreeNode<Set<Integer>> worst = worstNode(nodes, decomposition, profile, exhausted);
+            if (worst == null) {
+                // Local optimum
+                break;
+            }
+            boolean improved = false;
+            for (Move move : candidates(decomposition, worst, order)) {
+                Cancellation.check();
+                if ((iterations > 0 && moves >= iterations) || (seconds > 0 && stopwatch.getTime() >= seconds * 1000L)) {
+                    break search;
+                }
+                moves++;
+                List<TreeNode<Set<Integer>>> touched = move.apply();
+                Map<TreeNode<Set<Integer>>, Set<Integer>> previousSets = updateSets(touched);
+                evaluator.update(previousSets.keySet(), objective.width);
+                Objective candidate = profile.isAborted() ? null : new Objective(decomposition, profile);
+                if (candidate != null && candidate.isBetterThan(objective)) {
+                    objective = candidate;
+                    exhausted.clear();
+                    improved = true;
+                    accepted++;
+                    break;
+                }
+                // Revert
+                evaluator.revert();
+                move.undo();
+                restoreSets(previousSets);
+            }
+            if (!improved) {
+                exhausted.add(worst);
+            }
+        }
+        stopwatch.stop();
+        Logger.debug("Refined the branch decomposition with " + accepted + " of " + moves + " moves, ps-width "
+            + initialWidth + " -> " + objective.width + ", in time: " + stopwatch.formatTime());
+        return decomposition;
+    }
+
+    // ----- Moves -----------------------------------------------------------------------------------------------------
+
+    // The moves and the updates of the sets are package-private, so that they can be tested on their own.
+
+    /**
+     * A local change of a binary tree that can be undone.
+     */
+    interface Move {
+        /**
+         * Applies the move.
+         * @return the nodes whose children have changed.
+         */
+        List<TreeNode<Set<Integer>>> apply();
+
+        /**
+         * Undoes the move, assuming it was the last one applied.
+         */
+        void undo();
+    }
+
+    /**
+     * Exchanges two subtrees, neither of which contains the other. A rotation is a swap of a node's sibling with one
+     * of the node's children.
+     */
+    static class Swap implements Move {
+
+        private final TreeNode<Set<Integer>> a, b;
+        private TreeNode<Set<Integer>> pa, pb;
+
+        public Swap(TreeNode<Set<Integer>> a, TreeNode<Set<Integer>> b) {
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override
+        public List<TreeNode<Set<Integer>>> apply() {
+            pa = a.parent();
+            pb = b.parent();
+            a.detach();
+            b.detach();
+            pa.addChild(b);
+            pb.addChild(a);
+            return List.of(pa, pb);
+        }
+
+        @Override
+        public void undo() {
+            a.detach();
+            b.detach();
+            pa.addChild(a);
+            pb.addChild(b);
+        }
+
+    }
+
+    /**
+     * Prunes a subtree and regrafts it above another node. The parent of the subtree is reused as the new internal node.
+     */
+    static class Regraft implements Move {
+
+        private final TreeNode<Set<Integer>> s, x;
+        private TreeNode<Set<Integer>> p, g, sibling, xp;
+
+        public Regraft(TreeNode<Set<Integer>> s, TreeNode<Set<Integer>> x) {
+            this.s = s;
+            this.x = x;
+        }
+
+        @Override
+        public List<TreeNode<Set<Integer>>> apply() {
+            p = s.parent();
+            g = p.parent();
+            sibling = sibling(s);
+            // g --- p --- {s, sibling}   =>   g --- sibling
+            s.detach();
+            sibling.detach();
+            p.detach();
+            g.addChild(sibling);
+            // xp --- x   =>   xp --- p --- {x, s}
+            xp = x.parent();
+            x.detach();
+            p.addChild(x);
+            p.addChild(s);
+            xp.addChild(p);
+            return List.of(g, p);
+        }
+
+        @Override
+        public void undo() {
+            p.detach();
+            x.detach();
+            s.detach();
+            xp.addChild(x);
+            sibling.detach();
+            p.addChild(sibling);
+            p.addChild(s);
+            g.addChild(p);
+        }
+
+    }
+
+    /**
+     * Generates moves near a node.
+     * @param root the root of the decomposition.
+     * @param node the node, usually one with the largest families.
+     * @param order the numbers of the nodes.
+     * @return a list of moves, starting with the cheapest ones.
+     */
+    private static List<Move> candidates(TreeNode<Set<Integer>> root, TreeNode<Set<Integer>> node,
+                                         Map<TreeNode<Set<Integer>>, Integer> order) {
+        List<Move> moves = new ArrayList<>();
+        List<TreeNode<Set<Integer>>> region = neighborhood(node, SWAP_RADIUS, order);
+        region.remove(root);
+        // Rotations
+        for (TreeNode<Set<Integer>> v : region) {
+            if (v.parent() != null && !v.children().isEmpty()) {
+                TreeNode<Set<Integer>> s = sibling(v);
+                for (TreeNode<Set<Integer>> child : children(v, order)) {
+                    moves.add(new Swap(child, s));
+                }
+            }
+        }
+        // Swaps
+        for (int i = 0; i < region.size(); i++) {
+            for (int j = i + 1; j < region.size(); j++) {
+                TreeNode<Set<Integer>> a = region.get(i);
+                TreeNode<Set<Integer>> b = region.get(j);
+                if (a.parent() != b.parent() && !isAncestor(a, b) && !isAncestor(b, a)) {
+                    moves.add(new Swap(a, b));
+                }
+            }
+        }
+        // Subtree-prune-and-regraft
+        for (TreeNode<Set<Integer>> s : region) {
+            TreeNode<Set<Integer>> p = s.parent();
+            if (p.parent() == null) {
+                continue;
+            }
+            TreeNode<Set<Integer>> sibling = sibling(s);
+            for (TreeNode<Set<Integer>> x : neighborhood(p, REGRAFT_RADIUS, order)) {
+                if (x != root && x != p && x != sibling && !isAncestor(s, x)) {
+                    moves.add(new Regraft(s, x));
+                }
+            }
+        }
+        return moves;
+    }
+
+    // ----- Objective -------------------------------------------------------------------------------------------------
+
+    /**
+     * The objective of the search: first the ps-width, then the amount of nodes attaining it, and then the sum of the
+     * ps-values of all nodes. Smaller is better.
+     */
+    private static class Objective {
+
+        private final int width;
+        private int worstNodes = 0;
+        private long total = 0;
+
+        public Objective(TreeNode<Set<Integer>> decomposition, PSWidthProfile profile) {
+            this.width = profile.width();
+            for (TreeNode<Set<Integer>> node : decomposition) {
+                int value = profile.get(node);
+                if (value == width) {
+                    worstNodes++;
+                }
+                total += value;
+            }
+        }
+
+        public boolean isBetterThan(Objective other) {
+            if (this.width != other.width) {
+                return this.width < other.width;
+            } else if (this.worstNodes != other.worstNodes) {
+                return this.worstNodes < other.worstNodes;
+            }
+            return this.total < other.total;
+        }
+
+    }
+
+    // ----- Helpers ---------------------------------------------------------------------------------------------------
+
+    /**
+     * Numbers the nodes of a decomposition in pre-order, visiting the children in the order of the smallest vertex
+     * stored in them. The moves only rearrange the nodes, so the numbers stay valid during the search.
+     * @param root the root of the decomposition.
+     * @return a map from the nodes to their numbers.
+     */
+    private static Map<TreeNode<Set<Integer>>, Integer> number(TreeNode<Set<Integer>> root) {
+        Map<TreeNode<Set<Integer>>, Integer> order = new HashMap<>();
+        Deque<TreeNode<Set<Integer>>> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            TreeNode<Set<Integer>> node = stack.pop();
+            order.put(node, order.size());
+            List<TreeNode<Set<Integer>>> children = new ArrayList<>(node.children());
+            children.sort(Comparator.comparing(child -> Collections.min(child.object())));
+            for (int i = children.size() - 1; i >= 0; i--) {
+                stack.push(children.get(i));
+            }
+        }
+        return order;
+    }
+
+    /**
+     * Returns the children of a node in the order of their numbers.
+     * @param node the node.
+     * @param order the numbers of the nodes.
+     * @return the sorted list of children.
+     */
+    private static List<TreeNode<Set<Integer>>> children(TreeNode<Set<Integer>> node,
+                                                         Map<TreeNode<Set<Integer>>, Integer> order) {
+        List<TreeNode<Set<Integer>>> children = new ArrayList<>(node.children());
+        children.sort(Comparator.comparing(order::get));
+        return children;
+    }
+
+    /**
+     * Finds the node with the largest ps-value, the one with the smallest number among equally large ones.
+     * @param nodes the nodes of the decomposition, sorted by their numbers.
+     * @param root the root of the decomposition.
+     * @param profile the profile of the decomposition.
+     * @param excluded nodes that should not be returned.
+     * @return a non-root node with the largest ps-value, or null if all non-root nodes are excluded.
+     */
+    private static TreeNode<Set<Integer>> worstNode(List<TreeNode<Set<Integer>>> nodes, TreeNode<Set<Integer>> root,
+                                                    PSWidthProfile profile, Set<TreeNode<Set<Integer>>> excluded) {
+        TreeNode<Set<Integer>> worst = null;
+        for (TreeNode<Set<Integer>> node : nodes) {
+            if (node != root && !excluded.contains(node) && (worst == null || profile.get(node) > profile.get(worst))) {
+                worst = node;
+            }
+        }
+        return worst;
+    }
+
+    /**
+     * Recomputes the sets of vertices stored in the nodes affected by a move, i.e. the nodes on the paths from the
+     * touched nodes up to their lowest common ancestor. The nodes above the ancestor keep their sets, and so does the
+     * ancestor itself unless it is one of the touched nodes (a subtree regrafted above one of its own ancestors).
+     * @param touched the nodes whose children have changed.
+     * @return a map from the changed nodes to their previous sets.
+     */
+    static Map<TreeNode<Set<Integer>>, Set<Integer>> updateSets(List<TreeNode<Set<Integer>>> touched) {
+        // Paths from each touched node to the root
+        List<List<TreeNode<Set<Integer>>>> paths = new ArrayList<>();
+        for (TreeNode<Set<Integer>> node : touched) {
+            List<TreeNode<Set<Integer>>> path = new ArrayList<>();
+            for (TreeNode<Set<Integer>> current = node; current != null; current = current.parent()) {
+                path.add(current);
+            }
+            paths.add(path);
+        }
+        // The lowest common ancestor is the first node of a path that is contained in all others
+        TreeNode<Set<Integer>> ancestor = null;
+        for (TreeNode<Set<Integer>> node : paths.get(0)) {
+            boolean common = true;
+            for (List<TreeNode<Set<Integer>>> path : paths) {
+                common = common && path.contains(node);
+            }
+            if (common) {
+                ancestor = node;
+                break;
+            }
+        }
+        // Collect the nodes below the ancestor and recompute their sets bottom-up
+        Map<TreeNode<Set<Integer>>, Set<Integer>> previous = new HashMap<>();
+        List<TreeNode<Set<Integer>>> order = new ArrayList<>();
+        for (List<TreeNode<Set<Integer>>> path : paths) {
+            for (TreeNode<Set<Integer>> node : path) {
+                if (node == ancestor && !touched.contains(node)) {
+                    break;
+                }
+                if (!previous.containsKey(node)) {
+                    previous.put(node, node.object());
+                    order.add(node);
+                }
+                if (node == ancestor) {
+                    break;
+                }
+            }
+        }
+        order.sort((node1, node2) -> Integer.compare(depth(node2), depth(node1)));
+        for (TreeNode<Set<Integer>> node : order) {
+            Set<Integer> set = new HashSet<>();
+            for (TreeNode<Set<Integer>> child : node.children()) {
+                set.addAll(child.object());
+            }
+            node.setObject(set);
+        }
+        return previous;
+    }
+
+    /**
+     * Restores the sets of vertices of the nodes changed by a move, after the move was undone.
+     * @param previous a map from the changed nodes to their previous sets, as returned by {@link #updateSets(List)}.
+     */
+    static void restoreSets(Map<TreeNode<Set<Integer>>, Set<Integer>> previous) {
+        for (Map.Entry<TreeNode<Set<Integer>>, Set<Integer>> entry : previous.entrySet()) {
+            entry.getKey().setObject(entry.getValue());
+        }
+    }
+
+    /**
+     * Computes the nodes within a specified distance of a node (in the tree, regardless of direction).
+     * @param node the node.
+     * @param radius the maximum distance.
+     * @param order the numbers of the nodes, which determine the order of the children.
+     * @return the list of nodes in breadth-first order, starting with the node itself.
+     */
+    private static List<TreeNode<Set<Integer>>> neighborhood(TreeNode<Set<Integer>> node, int radius,
+                                                             Map<TreeNode<Set<Integer>>, Integer> order) {
+        List<TreeNode<Set<Integer>>> nodes = new ArrayList<>();
+        Map<TreeNode<Set<Integer>>, Integer> distances = new HashMap<>();
+        Queue<TreeNode<Set<Integer>>> queue = new LinkedList<>();
+        distances.put(node, 0);
+        queue.add(node);
+        while (!queue.isEmpty()) {
+            TreeNode<Set<Integer>> current = queue.remove();
+            nodes.add(current);
+            int distance = distances.get(current);
+            if (distance == radius) {
+                continue;
+            }
+            List<TreeNode<Set<Integer>>> adjacent = children(current, order);
+            if (current.parent() != null) {
+                adjacent.add(current.parent());
+            }
+            for (TreeNode<Set<Integer>> next : adjacent) {
+                if (!distances.containsKey(next)) {
+                    distances.put(next, distance + 1);
+                    queue.add(next);
+                }
+            }
+        }
+        return nodes;
+    }
+
+    /**
+     * Returns the other child of a node's parent.
+     * @param node a node whose parent has two children.
+     * @return the sibling of the node.
+     */
+    private static TreeNode<Set<Integer>> sibling(TreeNode<Set<Integer>> node) {
+        for (TreeNode<Set<Integer>> child : node.parent().children()) {
+            if (child != node) {
+                return child;
+            }
+        }
+        throw new IllegalArgumentException("Node " + node.object() + " has no sibling");
+    }
+
+    /**
+     * Checks if a node is an ancestor of (or equal to) another node.
+     * @param ancestor the potential ancestor.
+     * @param node the node.
+     * @return true, if ancestor lies on the path from node to the root, and false otherwise.
+     */
+    private static boolean isAncestor(TreeNode<Set<Integer>> ancestor, TreeNode<Set<Integer>> node) {
+        for (TreeNode<Set<Integer>> current = node; current != null; current = current.parent()) {
+            if (current == ancestor) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Computes the depth of a node, i.e. the distance to the root.
+     * @param node the node.
+     * @return the depth.
+     */
+    private static int depth(TreeNode<Set<Integer>> node) {
+        int depth = 0;
+        for (TreeNode<Set<Integer>> current = node.parent(); current != null; current = current.parent()) {
+            depth++;
+        }
+        return depth;
+    }
+
+}
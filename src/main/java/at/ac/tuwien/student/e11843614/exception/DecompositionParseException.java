@@ -0,0 +1,13 @@
+package at.ac.tuwien.student.e11843614.exception;
+
+public class DecompositionParseException extends Exception {
+
+    public DecompositionParseException(String message) {
+        super(message);
+    }
+
+    public DecompositionParseException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+}
@@ -9,17 +9,29 @@ import java.util.Objects;
  */
 public class Clause {
 
-    private final List<Integer> literals = new ArrayList<>();
+    private final List<Integer> literals;
     private int position = 0;
 
-    public Clause() {}
+    public Clause() {
+        this.literals = new ArrayList<>();
+    }
+
+    /**
+     * Creates a clause that is backed by a list of literals, e.g. a read-only view of a clause in a {@link ClauseArena}.
+     * @param literals the list of literals.
+     * @param position the position of the clause.
+     */
+    Clause(List<Integer> literals, int position) {
+        this.literals = literals;
+        this.position = position;
+    }
 
     /**
      * Creates a copy of a clause.
      * @param other the clause to be copied.
      */
     public Clause(Clause other) {
-        this.literals.addAll(other.literals);
+        this.literals = new ArrayList<>(other.literals);
         this.position = other.position();
     }
 
@@ -32,7 +44,8 @@ public class Clause {
     }
 
     /**
-     * Retrieves the list of literals in the clause.
+     * Retrieves the list of literals in the clause. The list of a view of a clause in a {@link ClauseArena} is
+     * read-only.
      * @return the list of literals.
      */
     public List<Integer> literals() {
@@ -0,0 +1,303 @@
+package at.ac.tuwien.student.e11843614.formula;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A compact representation of a formula in CNF, in compressed sparse row (CSR) format: the literals of all clauses are
+ * stored consecutively in one array, and the offset of each clause in a second one. Clauses can only be appended, so
+ * the amounts of variables and clauses are kept up to date instead of being recomputed. The occurrence lists of the
+ * literals are built on demand. For callers that work with {@link Clause} objects, the arena provides read-only views
+ * of its clauses that share its arrays.
+ */
+public class ClauseArena {
+
+    private int[] literals = new int[1024];
+    // Clause c consists of literals[offsets[c]], ..., literals[offsets[c + 1] - 1]
+    private int[] offsets = new int[257];
+    private int literalCount = 0;
+    private int clauseCount = 0;
+    private int variableCount = 0;
+    // The occurrences in CSR format, indexed by index(literal), or null if clauses were added since they were built
+    private int[] occurrenceOffsets = null;
+    private int[] occurrences = null;
+
+    /**
+     * Constructs an arena with copies of the clauses of a formula, in the same order.
+     * @param formula the formula.
+     * @return the arena, which can be modified independently of the formula.
+     */
+    public static ClauseArena from(Formula formula) {
+        ClauseArena arena = new ClauseArena();
+        arena.append(formula.arena());
+        return arena;
+    }
+
+    /**
+     * Appends a clause to this arena.
+     * @param clause the literals of the clause, represented by non-zero integers.
+     */
+    public void addClause(int... clause) {
+        for (int literal : clause) {
+            if (literal == 0) {
+                throw new IllegalArgumentException("0 is not a literal");
+            }
+            addLiteral(literal);
+        }
+        endClause();
+    }
+
+    /**
+     * Appends a literal to the open clause, i.e. the literals after the last complete clause.
+     * @param literal the literal, a non-zero integer.
+     */
+    void addLiteral(int literal) {
+        if (literalCount == literals.length) {
+            literals = Arrays.copyOf(literals, 2 * literals.length);
+        }
+        literals[literalCount++] = literal;
+        variableCount = Math.max(variableCount, Math.abs(literal));
+    }
+
+    /**
+     * Completes the open clause, which may be empty.
+     */
+    void endClause() {
+        if (clauseCount + 1 == offsets.length) {
+            offsets = Arrays.copyOf(offsets, 2 * offsets.length);
+        }
+        offsets[++clauseCount] = literalCount;
+        occurrenceOffsets = null;
+        occurrences = null;
+    }
+
+    /**
+     * Returns the amount of literals in the open clause.
+     * @return the amount of literals after the last complete clause.
+     */
+    int openLength() {
+        return literalCount - offsets[clauseCount];
+    }
+
+    /**
+     * Appends the literals and clauses of another arena, as if its literals had been added to this one: the first
+     * clause of the other arena continues the open clause of this one, and the open clause of the other arena remains
+     * open.
+     * @param other the other arena.
+     */
+    void append(ClauseArena other) {
+        if (literalCount + other.literalCount > literals.length) {
+            literals = Arrays.copyOf(literals, Math.max(literalCount + other.literalCount, 2 * literals.length));
+        }
+        if (clauseCount + other.clauseCount + 1 > offsets.length) {
+            offsets = Arrays.copyOf(offsets, Math.max(clauseCount + other.clauseCount + 1, 2 * offsets.length));
+        }
+        System.arraycopy(other.literals, 0, literals, literalCount, other.literalCount);
+        for (int c = 1; c <= other.clauseCount; c++) {
+            offsets[clauseCount + c] = literalCount + other.offsets[c];
+        }
+        literalCount += other.literalCount;
+        clauseCount += other.clauseCount;
+        variableCount = Math.max(variableCount, other.variableCount);
+        occurrenceOffsets = null;
+        occurrences = null;
+    }
+
+    /**
+     * Returns the amount of clauses in this arena.
+     * @return the amount of clauses.
+     */
+    public int clauseCount() {
+        return clauseCount;
+    }
+
+    /**
+     * Returns the amount of variables, i.e. the largest variable that occurs in a clause.
+     * @return the amount of variables.
+     */
+    public int variableCount() {
+        return variableCount;
+    }
+
+    /**
+     * Returns the total amount of literals in all clauses.
+     * @return the amount of literals.
+     */
+    public int literalCount() {
+        return literalCount;
+    }
+
+    // ----- Clauses ---------------------------------------------------------------------------------------------------
+
+    /**
+     * Returns the length of a clause.
+     * @param clause the index of the clause, counted from 0.
+     * @return the amount of literals in the clause.
+     */
+    public int length(int clause) {
+        return offsets[clause + 1] - offsets[clause];
+    }
+
+    /**
+     * Returns a literal of a clause.
+     * @param clause the index of the clause, counted from 0.
+     * @param index the index of the literal in the clause, counted from 0.
+     * @return the literal.
+     */
+    public int literal(int clause, int index) {
+        return literals[offsets[clause] + index];
+    }
+
+    /**
+     * Returns the literals of a clause.
+     * @param clause the index of the clause, counted from 0.
+     * @return a copy of the literals.
+     */
+    public int[] literals(int clause) {
+        return Arrays.copyOfRange(literals, offsets[clause], offsets[clause + 1]);
+    }
+
+    /**
+     * Returns a read-only view of a clause. Its position is its index plus one, as in {@link Formula}.
+     * @param clause the index of the clause, counted from 0.
+     * @return the view.
+     */
+    public Clause clause(int clause) {
+        return new Clause(new LiteralView(literals, offsets[clause], offsets[clause + 1]), clause + 1);
+    }
+
+    /**
+     * Returns a read-only view of the clauses, as returned by {@link Formula#clauses()}. The clauses are created when
+     * they are accessed, and only share the arrays of this arena.
+     * @return the list of clauses.
+     */
+    public List<Clause> clauses() {
+        return new ClauseView();
+    }
+
+    // ----- Occurrences -----------------------------------------------------------------------------------------------
+
+    /**
+     * Returns the clauses in which a literal occurs.
+     * @param literal the literal.
+     * @return the indices of the clauses, counted from 0, in increasing order. A clause that contains the literal more
+     *         than once is listed as often.
+     */
+    public int[] occurrences(int literal) {
+        int variable = Math.abs(literal);
+        if (literal == 0 || variable > variableCount) {
+            return new int[]{};
+        }
+        buildOccurrences();
+        int index = index(literal);
+        return Arrays.copyOfRange(occurrences, occurrenceOffsets[index], occurrenceOffsets[index + 1]);
+    }
+
+    /**
+     * Returns the amount of clauses in which a literal occurs.
+     * @param literal the literal.
+     * @return the amount of occurrences.
+     */
+    public int occurrenceCount(int literal) {
+        int variable = Math.abs(literal);
+        if (literal == 0 || variable > variableCount) {
+            return 0;
+        }
+        buildOccurrences();
+        int index = index(literal);
+        return occurrenceOffsets[index + 1] - occurrenceOffsets[index];
+    }
+
+    /**
+     * Builds the occurrence lists by counting sort of the literals, if they are not up to date.
+     */
+    private void buildOccurrences() {
+        if (occurrenceOffsets != null) {
+            return;
+        }
+        int[] counts = new int[2 * variableCount + 1];
+        for (int i = 0; i < offsets[clauseCount]; i++) {
+            counts[index(literals[i]) + 1]++;
+        }
+        for (int index = 0; index < 2 * variableCount; index++) {
+            counts[index + 1] += counts[index];
+        }
+        int[] fill = Arrays.copyOf(counts, 2 * variableCount);
+        int[] lists = new int[offsets[clauseCount]];
+        for (int c = 0; c < clauseCount; c++) {
+            for (int i = offsets[c]; i < offsets[c + 1]; i++) {
+                lists[fill[index(literals[i])]++] = c;
+            }
+        }
+        occurrences = lists;
+        occurrenceOffsets = counts;
+    }
+
+    /**
+     * Returns the index of a literal in the occurrence lists: 2(x - 1) for x, and 2(x - 1) + 1 for -x.
+     * @param literal the literal.
+     * @return the index.
+     */
+    private static int index(int literal) {
+        return (literal > 0) ? 2 * (literal - 1) : 2 * (-literal - 1) + 1;
+    }
+
+    @Override
+    public String toString() {
+        return clauses().toString();
+    }
+
+    // ----- Views -----------------------------------------------------------------------------------------------------
+
+    /**
+     * A read-only list of the literals of a clause, backed by a range of the literal array.
+     */
+    private static class LiteralView extends AbstractList<Integer> implements RandomAccess {
+
+        private final int[] literals;
+        private final int from, to;
+
+        LiteralView(int[] literals, int from, int to) {
+            this.literals = literals;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public Integer get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return literals[from + index];
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+
+    }
+
+    /**
+     * A read-only list of the clauses of this arena.
+     */
+    private class ClauseView extends AbstractList<Clause> implements RandomAccess {
+
+        @Override
+        public Clause get(int index) {
+            if (index < 0 || index >= clauseCount) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return clause(index);
+        }
+
+        @Override
+        public int size() {
+            return clauseCount;
+        }
+
+    }
+
+}
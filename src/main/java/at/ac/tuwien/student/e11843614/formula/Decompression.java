@@ -0,0 +1,82 @@
+package at.ac.tuwien.student.e11843614.formula;
+
+import at.ac.tuwien.student.e11843614.Logger;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+import org.tukaani.xz.XZInputStream;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Detects compressed input by its magic bytes and decompresses it as a stream, so that compressed formulas can be
+ * parsed without decompressing them to a file first. Supported are gzip, xz and bzip2; other input is passed on as it
+ * is.
+ */
+abstract class Decompression {
+
+    private static final byte[] GZIP = {(byte) 0x1F, (byte) 0x8B};
+    private static final byte[] XZ = {(byte) 0xFD, '7', 'z', 'X', 'Z', 0x00};
+    private static final byte[] BZIP2 = {'B', 'Z', 'h'};
+
+    // The buffer size of the decompressing streams
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Returns the name of the compression format of some input.
+     * @param header the first bytes of the input, at least six if the input is that long.
+     * @param length the amount of bytes in the header.
+     * @return "gzip", "xz" or "bzip2", or null if the input is not compressed in one of these formats.
+     */
+    static String format(byte[] header, int length) {
+        if (startsWith(header, length, GZIP)) {
+            return "gzip";
+        } else if (startsWith(header, length, XZ)) {
+            return "xz";
+        } else if (startsWith(header, length, BZIP2)) {
+            return "bzip2";
+        }
+        return null;
+    }
+
+    /**
+     * Wraps a stream in a decompressing stream if its contents are compressed.
+     * @param in the stream, which is read from its start.
+     * @return a stream of the decompressed contents, or a buffered stream of the contents if they are not compressed.
+     * @throws IOException if the stream cannot be read, or the header of the compressed contents is malformed.
+     */
+    static InputStream decompress(InputStream in) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(in, BUFFER_SIZE);
+        byte[] header = new byte[XZ.length];
+        buffered.mark(header.length);
+        int length = buffered.readNBytes(header, 0, header.length);
+        buffered.reset();
+        String format = format(header, length);
+        if (format == null) {
+            return buffered;
+        }
+        Logger.debug("Decompressing " + format + " input");
+        switch (format) {
+            case "gzip":
+                return new GZIPInputStream(buffered, BUFFER_SIZE);
+            case "xz":
+                return new XZInputStream(buffered);
+            default:
+                return new BZip2CompressorInputStream(buffered, true);
+        }
+    }
+
+    private static boolean startsWith(byte[] header, int length, byte[] magic) {
+        if (length < magic.length) {
+            return false;
+        }
+        for (int i = 0; i < magic.length; i++) {
+            if (header[i] != magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
@@ -3,26 +3,52 @@ package at.ac.tuwien.student.e11843614.formula;
 import at.ac.tuwien.student.e11843614.exception.FormulaParseException;
 
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
 /**
- * An object that represents a propositional formula in conjunctive normal form (CNF).
+ * An object that represents a propositional formula in conjunctive normal form (CNF). As long as its clauses are added
+ * as literals, they are stored in a {@link ClauseArena}: {@link #clauses()} returns read-only views of them, and the
+ * counts are cached. Once a {@link Clause} object is added, which the caller may still edit in place, the formula keeps
+ * its clauses as mutable objects instead, and computes the counts on every call.
  */
 public class Formula {
 
-    private final List<Clause> clauses = new ArrayList<>();
+    // The clauses, or null if the formula keeps mutable clauses
+    private ClauseArena arena = new ClauseArena();
+    // The mutable clauses, or null while the formula is backed by the arena
+    private List<Clause> clauses = null;
+    // Cached results for the arena, or null if clauses were added since they were computed
+    private Set<Integer> variables = null;
+    private Boolean emptyClauses = null;
+
+    /**
+     * Constructs an empty formula.
+     */
+    public Formula() {
+    }
+
+    /**
+     * Constructs a formula that is backed by the given arena, which must not be modified afterwards.
+     * @param arena the clauses of the formula.
+     */
+    Formula(ClauseArena arena) {
+        this.arena = arena;
+    }
 
     /**
      * Constructs a formula from a DIMACS CNF file at the given path.
      * @param path the path to the DIMACS CNF file.
      * @return a Formula object that represents the formula in the file.
      * @throws FileNotFoundException if the file at the specified path cannot be found.
+     * @throws IOException if the file cannot be read.
      * @throws FormulaParseException if an error occurs during parsing the file.
      */
-    public static Formula fromPath(String path) throws FileNotFoundException, FormulaParseException {
+    public static Formula fromPath(String path) throws IOException, FormulaParseException {
         FormulaReader reader = new FormulaReader(path);
         return reader.parseFormula();
     }
@@ -32,40 +58,133 @@ public class Formula {
      * @param literals literals, represented by integers, representing a clause.
      */
     public void addClause(Integer... literals) {
-        Clause clause = new Clause();
-        for (Integer literal : literals) {
-            clause.addLiteral(literal);
+        int[] clause = new int[literals.length];
+        for (int i = 0; i < literals.length; i++) {
+            clause[i] = literals[i];
         }
         addClause(clause);
     }
 
     /**
      * Adds a clause to the formula.
+     * @param literals literals, represented by non-zero integers, representing a clause.
+     */
+    public void addClause(int[] literals) {
+        if (clauses != null) {
+            Clause clause = new Clause();
+            for (int literal : literals) {
+                clause.addLiteral(literal);
+            }
+            addClause(clause);
+            return;
+        }
+        arena.addClause(literals);
+        variables = null;
+        emptyClauses = null;
+    }
+
+    /**
+     * Adds a clause to the formula. The clause itself becomes part of the formula, so that changes of the clause also
+     * change the formula. The formula keeps mutable clauses from then on.
      * @param clause a clause to be added.
      */
     public void addClause(Clause clause) {
+        if (clauses == null) {
+            // Copy the clauses from the arena, which is not needed anymore
+            clauses = new ArrayList<>();
+            for (Clause view : arena.clauses()) {
+                clauses.add(new Clause(view));
+            }
+            arena = null;
+            variables = null;
+            emptyClauses = null;
+        }
         clause.setPosition(clauses.size() + 1);
         clauses.add(clause);
     }
 
     /**
      * Retrieves the list of clauses.
-     * @return the list of clauses.
+     * @return the list of clauses. If the formula is backed by an arena, the list and the clauses are read-only views.
      */
     public List<Clause> clauses() {
-        return clauses;
+        return (clauses != null) ? clauses : arena.clauses();
     }
 
     /**
-     * Computes the set of variables in this formula.
-     * @return the set of variables.
+     * Returns the clauses of this formula in an arena, for callers that read the literals without boxing them.
+     * @return the arena that backs this formula, which must not be modified, or a new arena with copies of the mutable
+     *         clauses.
      */
-    public Set<Integer> getVariables() {
-        Set<Integer> variables = new HashSet<>();
+    public ClauseArena arena() {
+        if (clauses == null) {
+            return arena;
+        }
+        ClauseArena copy = new ClauseArena();
         for (Clause clause : clauses) {
-            for (Integer literal : clause.literals()) {
-                variables.add(Math.abs(literal));
+            int[] literals = new int[clause.literals().size()];
+            for (int i = 0; i < literals.length; i++) {
+                literals[i] = clause.literals().get(i);
             }
+            copy.addClause(literals);
+        }
+        return copy;
+    }
+
+    /**
+     * Returns the amount of clauses in this formula.
+     * @return the amount of clauses.
+     */
+    public int clauseCount() {
+        return (clauses != null) ? clauses.size() : arena.clauseCount();
+    }
+
+    /**
+     * Returns the largest variable in this formula.
+     * @return the largest variable, or 0 if the formula has no literals.
+     */
+    public int variableCount() {
+        if (clauses == null) {
+            return arena.variableCount();
+        }
+        int maximum = 0;
+        for (Clause clause : clauses) {
+            for (int literal : clause.literals()) {
+                maximum = Math.max(maximum, Math.abs(literal));
+            }
+        }
+        return maximum;
+    }
+
+    /**
+     * Computes the set of variables in this formula. If the formula is backed by an arena, the set is computed once
+     * and cached until a clause is added.
+     * @return a read-only set of the variables.
+     */
+    public Set<Integer> getVariables() {
+        if (clauses != null) {
+            Set<Integer> set = new HashSet<>();
+            for (Clause clause : clauses) {
+                for (Integer literal : clause.literals()) {
+                    set.add(Math.abs(literal));
+                }
+            }
+            return Collections.unmodifiableSet(set);
+        }
+        if (variables == null) {
+            boolean[] occurs = new boolean[arena.variableCount() + 1];
+            for (int c = 0; c < arena.clauseCount(); c++) {
+                for (int i = 0; i < arena.length(c); i++) {
+                    occurs[Math.abs(arena.literal(c, i))] = true;
+                }
+            }
+            Set<Integer> set = new HashSet<>();
+            for (int x = 1; x < occurs.length; x++) {
+                if (occurs[x]) {
+                    set.add(x);
+                }
+            }
+            variables = Collections.unmodifiableSet(set);
         }
         return variables;
     }
@@ -75,17 +194,27 @@ public class Formula {
      * @return true if there is an empty clause in the formula, and false otherwise.
      */
     public boolean hasEmptyClauses() {
-        for (Clause clause : clauses) {
-            if (clause.literals().isEmpty()) {
-                return true;
+        if (clauses != null) {
+            for (Clause clause : clauses) {
+                if (clause.literals().isEmpty()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (emptyClauses == null) {
+            boolean empty = false;
+            for (int c = 0; c < arena.clauseCount() && !empty; c++) {
+                empty = arena.length(c) == 0;
             }
+            emptyClauses = empty;
         }
-        return false;
+        return emptyClauses;
     }
 
     @Override
     public String toString() {
-        return clauses.toString();
+        return clauses().toString();
     }
 
 }
@@ -3,127 +3,556 @@ package at.ac.tuwien.student.e11843614.formula;
 import at.ac.tuwien.student.e11843614.Logger;
 import at.ac.tuwien.student.e11843614.exception.FormulaParseException;
 
-import java.io.File;
 import java.io.FileNotFoundException;
-import java.util.Scanner;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
- * An object responsible for parsing a propositional formula in CNF format from a DIMACS CNF file.
+ * An object responsible for parsing a propositional formula in CNF format from a DIMACS CNF file. The file is read
+ * through a large buffer and scanned byte by byte, without creating strings for the literals, and the clauses are
+ * written directly into a {@link ClauseArena}. Tokens may be separated by any whitespace, and clauses may span lines,
+ * as they end with 0. Large files are split into chunks at line breaks, which are memory-mapped and parsed in parallel.
+ * Files compressed with gzip, xz or bzip2, and the standard input (path "-"), are read as streams instead; the stream
+ * is read and decompressed on a separate thread while the formula is parsed.
  */
 public class FormulaReader {
 
-    private final String path;
+    // The path that denotes the standard input
+    public static final String STDIN = "-";
 
-    private boolean hasHeader = false;
-    private int variableBound = Integer.MAX_VALUE;
-    private int clauseBound = Integer.MAX_VALUE;
+    // Files of at least this size are parsed in parallel, if there are several processors
+    private static final long PARALLEL_THRESHOLD = 64L * 1024 * 1024;
+    // The size of the buffer for sequential parsing
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    // The maximum size of a chunk, as a memory mapping is limited to 2 GB
+    private static final long MAX_CHUNK_SIZE = 1024L * 1024 * 1024;
+    // The amount of buffers that are filled by the thread that reads a stream, ahead of the parser
+    private static final int STREAM_BUFFERS = 4;
+    // Marks the end of a stream in the queue of filled buffers
+    private static final ByteBuffer END_OF_STREAM = ByteBuffer.allocate(0);
 
-    private int variables = 0;
-    private int clauses = 0;
+    private final String path;
 
     public FormulaReader(String path) {
         this.path = path;
     }
 
     /**
-     * Reads the DIMACS CNF file and returns the respective Formula object.
+     * Reads the DIMACS CNF file and returns the respective Formula object, which is backed by the parsed arena.
      * @return a formula parsed from the file.
      * @throws FileNotFoundException if the file is not found.
+     * @throws IOException if the file cannot be read.
      * @throws FormulaParseException if an error occurs during parsing.
      */
-    @SuppressWarnings({"StatementWithEmptyBody","IfCanBeSwitch"})
-    public Formula parseFormula() throws FileNotFoundException, FormulaParseException {
-        File file = new File(path);
-        Scanner scanner = new Scanner(file);
-        Formula formula = new Formula();
-        int line = 0;
-        while (scanner.hasNextLine()) {
-            line++;
-            String[] items = scanner.nextLine().split(" ");
-            String prefix = path + ":" + line + ": "; // for error messages
-            if (items[0].equals("")) {
-                // empty line, skip
-            } else if (items[0].equals("c")) {
-                // comment line, skip
-            } else if (items[0].equals("p")) {
-                // header line
-                hasHeader = true;
-                parseHeaderLine(items, prefix);
-            } else {
-                // clause line
-                parseClauseLine(items, prefix, formula);
+    public Formula parseFormula() throws IOException, FormulaParseException {
+        return new Formula(parseArena());
+    }
+
+    /**
+     * Reads the DIMACS CNF file into a clause arena, in parallel if the file is large.
+     * @return the clauses parsed from the file.
+     * @throws FileNotFoundException if the file is not found.
+     * @throws IOException if the file cannot be read.
+     * @throws FormulaParseException if an error occurs during parsing.
+     */
+    public ClauseArena parseArena() throws IOException, FormulaParseException {
+        return parseArena(0);
+    }
+
+    /**
+     * Reads the DIMACS CNF file into a clause arena.
+     * @param chunks the amount of chunks to parse in parallel, 1 to parse sequentially, or 0 to parse in parallel if
+     *               the file is large, with one chunk per processor. Compressed files and the standard input are
+     *               always parsed sequentially.
+     * @return the clauses parsed from the file.
+     * @throws FileNotFoundException if the file is not found.
+     * @throws IOException if the file cannot be read or decompressed.
+     * @throws FormulaParseException if an error occurs during parsing.
+     */
+    public ClauseArena parseArena(int chunks) throws IOException, FormulaParseException {
+        if (path.equals(STDIN)) {
+            // The standard input is not closed, it belongs to the process
+            return parseStream(Decompression.decompress(System.in), false);
+        }
+        try (FileChannel channel = FileChannel.open(Path.of(path), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(8);
+            channel.read(header, 0);
+            if (Decompression.format(header.array(), header.position()) != null) {
+                return parseStream(Decompression.decompress(Channels.newInputStream(channel)), true);
+            }
+            long size = channel.size();
+            if (chunks == 0) {
+                int processors = Runtime.getRuntime().availableProcessors();
+                chunks = (size >= PARALLEL_THRESHOLD) ? processors : 1;
+            }
+            if (chunks > 1) {
+                // Only mapped chunks are limited in size; the sequential parser reads through a buffer
+                chunks = (int) Math.max(chunks, (size + MAX_CHUNK_SIZE - 1) / MAX_CHUNK_SIZE);
+                ClauseArena arena = parseParallel(channel, size, chunks);
+                if (arena != null) {
+                    return arena;
+                }
+                // The chunks were not parsed successfully; parse again to report the error with its line
+            }
+            return parseSequential(channel);
+        } catch (NoSuchFileException exception) {
+            throw new FileNotFoundException(path + " (No such file or directory)");
+        }
+    }
+
+    /**
+     * Parses the file sequentially.
+     * @param channel the channel of the file.
+     * @return the clauses.
+     * @throws IOException if the file cannot be read.
+     * @throws FormulaParseException if an error occurs during parsing.
+     */
+    private ClauseArena parseSequential(FileChannel channel) throws IOException, FormulaParseException {
+        Chunk chunk = new Chunk(path);
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        long position = 0;
+        int read;
+        while ((read = channel.read(buffer, position)) != -1) {
+            position += read;
+            buffer.flip();
+            chunk.consume(buffer);
+            buffer.clear();
+        }
+        return complete(chunk);
+    }
+
+    /**
+     * Parses a stream sequentially, while a separate thread reads it into a few buffers ahead of the parser. Reading
+     * the stream includes its decompression, which thus overlaps with parsing.
+     * @param in the stream.
+     * @param close whether the stream is closed afterwards.
+     * @return the clauses.
+     * @throws IOException if the stream cannot be read or decompressed.
+     * @throws FormulaParseException if an error occurs during parsing.
+     */
+    private ClauseArena parseStream(InputStream in, boolean close) throws IOException, FormulaParseException {
+        BlockingQueue<ByteBuffer> free = new ArrayBlockingQueue<>(STREAM_BUFFERS);
+        BlockingQueue<ByteBuffer> filled = new ArrayBlockingQueue<>(STREAM_BUFFERS + 1);
+        for (int i = 0; i < STREAM_BUFFERS; i++) {
+            free.add(ByteBuffer.allocate(BUFFER_SIZE));
+        }
+        AtomicReference<IOException> failure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            try {
+                while (true) {
+                    ByteBuffer buffer = free.take();
+                    int read = in.readNBytes(buffer.array(), 0, buffer.capacity());
+                    if (read == 0) {
+                        break;
+                    }
+                    buffer.limit(read);
+                    filled.put(buffer);
+                }
+            } catch (IOException exception) {
+                failure.set(exception);
+            } catch (InterruptedException exception) {
+                // The parser has stopped
+                return;
+            }
+            filled.add(END_OF_STREAM);
+        }, "formula-reader");
+        reader.setDaemon(true);
+        reader.start();
+        try {
+            Chunk chunk = new Chunk(path.equals(STDIN) ? "<stdin>" : path);
+            while (true) {
+                ByteBuffer buffer = filled.take();
+                if (buffer == END_OF_STREAM) {
+                    break;
+                }
+                chunk.consume(buffer);
+                buffer.clear();
+                free.add(buffer);
+            }
+            if (failure.get() != null) {
+                throw failure.get();
+            }
+            return complete(chunk);
+        } catch (InterruptedException exception) {
+            throw new RuntimeException(exception);
+        } finally {
+            reader.interrupt();
+            if (close) {
+                in.close();
+            }
+        }
+    }
+
+    /**
+     * Completes parsing the last chunk of the input.
+     * @param chunk the chunk.
+     * @return the clauses.
+     * @throws FormulaParseException if the last token is malformed, or the last clause is not terminated.
+     */
+    private ClauseArena complete(Chunk chunk) throws FormulaParseException {
+        chunk.finish();
+        if (chunk.arena.openLength() > 0) {
+            throw new FormulaParseException(chunk.prefix() + "the last clause does not terminate with zero");
+        }
+        warnIfHeaderDiffers(chunk, chunk.arena);
+        return chunk.arena;
+    }
+
+    /**
+     * Parses the file in chunks that end at line breaks, in parallel, and concatenates the clauses of the chunks. As
+     * clauses may span lines, the open clause at the end of one chunk is continued by the first clause of the next one.
+     * @param channel the channel of the file.
+     * @param size the size of the file.
+     * @param chunks the amount of chunks.
+     * @return the clauses, or null if the file is malformed or the header is not in the first chunk. The file is then
+     *         parsed sequentially, to report errors with their lines.
+     * @throws IOException if the file cannot be read.
+     */
+    private ClauseArena parseParallel(FileChannel channel, long size, int chunks) throws IOException {
+        long[] bounds = new long[chunks + 1];
+        bounds[chunks] = size;
+        for (int i = 1; i < chunks; i++) {
+            bounds[i] = nextLine(channel, Math.max(bounds[i - 1], size / chunks * i), size);
+        }
+        int threads = Math.min(chunks, Runtime.getRuntime().availableProcessors());
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Chunk>> futures = new ArrayList<>();
+            for (int i = 0; i < chunks; i++) {
+                long from = bounds[i];
+                long to = bounds[i + 1];
+                futures.add(executor.submit(() -> {
+                    Chunk chunk = new Chunk(path);
+                    if (to > from) {
+                        chunk.consume(channel.map(FileChannel.MapMode.READ_ONLY, from, to - from));
+                    }
+                    chunk.finish();
+                    return chunk;
+                }));
+            }
+            Chunk first = futures.get(0).get();
+            ClauseArena arena = first.arena;
+            for (int i = 1; i < chunks; i++) {
+                Chunk chunk = futures.get(i).get();
+                if (chunk.hasHeader) {
+                    return null;
+                }
+                arena.append(chunk.arena);
+            }
+            if (arena.openLength() > 0) {
+                return null;
+            }
+            if (first.hasHeader
+                && (arena.variableCount() > first.variableBound || arena.clauseCount() > first.clauseBound)) {
+                return null;
+            }
+            Logger.debug("Parsed the formula in " + chunks + " chunks");
+            warnIfHeaderDiffers(first, arena);
+            return arena;
+        } catch (ExecutionException exception) {
+            if (exception.getCause() instanceof FormulaParseException) {
+                return null;
+            } else if (exception.getCause() instanceof IOException) {
+                throw (IOException) exception.getCause();
+            }
+            throw new RuntimeException(exception.getCause());
+        } catch (InterruptedException exception) {
+            throw new RuntimeException(exception);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Finds the start of the first line that starts at or after a position.
+     * @param channel the channel of the file.
+     * @param position the position.
+     * @param size the size of the file.
+     * @return the position after the first line break at or after position - 1, or the size if there is none.
+     * @throws IOException if the file cannot be read.
+     */
+    private static long nextLine(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        long offset = Math.max(0, position - 1);
+        while (offset < size) {
+            buffer.clear();
+            int read = channel.read(buffer, offset);
+            if (read == -1) {
+                break;
             }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return offset + i + 1;
+                }
+            }
+            offset += read;
         }
-        scanner.close();
-        if (hasHeader && variables != variableBound) {
+        return size;
+    }
+
+    /**
+     * Warns if the amounts of variables and clauses differ from those specified in the header.
+     * @param chunk the chunk that contains the header.
+     * @param arena the clauses.
+     */
+    private static void warnIfHeaderDiffers(Chunk chunk, ClauseArena arena) {
+        if (chunk.hasHeader && arena.variableCount() != chunk.variableBound) {
             Logger.warn(
-                String.format("Header specifies %d variables, parsed: %d", variableBound, variables)
+                String.format("Header specifies %d variables, parsed: %d", chunk.variableBound, arena.variableCount())
             );
         }
-        if (hasHeader && clauses != clauseBound) {
+        if (chunk.hasHeader && arena.clauseCount() != chunk.clauseBound) {
             Logger.warn(
-                String.format("Header specifies %d clauses, parsed: %d", clauseBound, clauses)
+                String.format("Header specifies %d clauses, parsed: %d", chunk.clauseBound, arena.clauseCount())
             );
         }
-        return formula;
     }
 
-    private void parseHeaderLine(String[] items, String prefix) throws FormulaParseException {
-        // p cnf <n> <m>
-        if (!items[1].equals("cnf")) {
-            throw new FormulaParseException(prefix + "expected 'cnf' in header, got \"" + items[1] + "\"");
+    // ----- Scanning --------------------------------------------------------------------------------------------------
+
+    /**
+     * The state of scanning a part of a file that starts at a line break. The bytes are consumed buffer by buffer, so
+     * tokens may be split between buffers.
+     */
+    private static class Chunk {
+
+        // Between tokens
+        private static final int SPACE = 0;
+        // In a literal
+        private static final int NUMBER = 1;
+        // In a comment line, starting with "c"
+        private static final int COMMENT = 2;
+        // In the header line, starting with "p"
+        private static final int HEADER = 3;
+        // In a token that is not a number
+        private static final int INVALID = 4;
+        // After the end marker "%" of some benchmark files
+        private static final int END = 5;
+
+        private final String path;
+        private final ClauseArena arena = new ClauseArena();
+        private final StringBuilder text = new StringBuilder();
+        private int state = SPACE;
+        private boolean lineStart = true;
+        private int line = 1;
+        private boolean negative = false;
+        private boolean digits = false;
+        private long value = 0;
+
+        private boolean hasHeader = false;
+        private int variableBound = Integer.MAX_VALUE;
+        private int clauseBound = Integer.MAX_VALUE;
+
+        Chunk(String path) {
+            this.path = path;
         }
-        // Parse <n> and <m>
-        try {
-            variableBound = Integer.parseInt(items[2]);
-        } catch (NumberFormatException exception) {
-            throw new FormulaParseException(prefix + "expected a number, got \"" + items[2] + "\"", exception);
+
+        /**
+         * Returns the prefix for error messages on the current line.
+         * @return the path and line.
+         */
+        String prefix() {
+            return path + ":" + line + ": ";
         }
-        try {
-            clauseBound = Integer.parseInt(items[3]);
-        } catch (NumberFormatException exception) {
-            throw new FormulaParseException(prefix + "expected a number, got \"" + items[3] + "\"", exception);
+
+        /**
+         * Scans the remaining bytes of a buffer.
+         * @param buffer the buffer.
+         * @throws FormulaParseException if the bytes are malformed.
+         */
+        void consume(ByteBuffer buffer) throws FormulaParseException {
+            int limit = buffer.limit();
+            for (int i = buffer.position(); i < limit; i++) {
+                byte b = buffer.get(i);
+                switch (state) {
+                    case SPACE:
+                        if (b >= '0' && b <= '9') {
+                            negative = false;
+                            digits = true;
+                            value = b - '0';
+                            lineStart = false;
+                            state = NUMBER;
+                        } else if (b == '-') {
+                            negative = true;
+                            digits = false;
+                            value = 0;
+                            lineStart = false;
+                            state = NUMBER;
+                        } else if (b == '\n') {
+                            line++;
+                            lineStart = true;
+                        } else if (!isSpace(b)) {
+                            startToken(b);
+                        }
+                        break;
+                    case NUMBER:
+                        if (b >= '0' && b <= '9') {
+                            value = 10 * value + (b - '0');
+                            digits = true;
+                            if (value > Integer.MAX_VALUE) {
+                                invalidNumber();
+                            }
+                        } else if (b == '\n' || isSpace(b)) {
+                            literal();
+                            state = SPACE;
+                            if (b == '\n') {
+                                line++;
+                                lineStart = true;
+                            }
+                        } else {
+                            invalidNumber();
+                            text.append((char) b);
+                        }
+                        break;
+                    case COMMENT:
+                    case END:
+                        if (b == '\n') {
+                            line++;
+                            if (state == COMMENT) {
+                                lineStart = true;
+                                state = SPACE;
+                            }
+                        }
+                        break;
+                    case HEADER:
+                        if (b == '\n') {
+                            header();
+                            line++;
+                            lineStart = true;
+                            state = SPACE;
+                        } else {
+                            text.append((char) b);
+                        }
+                        break;
+                    case INVALID:
+                        if (b == '\n' || isSpace(b)) {
+                            throw new FormulaParseException(prefix() + "expected a number, got \"" + text + "\"");
+                        }
+                        text.append((char) b);
+                        break;
+                    default:
+                        throw new IllegalStateException("Unknown state " + state);
+                }
+            }
+            buffer.position(limit);
         }
-    }
 
-    private void parseClauseLine(String[] items, String prefix, Formula formula) throws FormulaParseException {
-        // Check if clauses exceeded
-        clauses++;
-        if (clauses > clauseBound) {
-            throw new FormulaParseException(
-                String.format(prefix + "exceeded the amount of clauses (header specifies %d clauses)", clauseBound)
-            );
+        /**
+         * Completes the token at the end of the scanned bytes.
+         * @throws FormulaParseException if the token is malformed.
+         */
+        void finish() throws FormulaParseException {
+            if (state == NUMBER) {
+                literal();
+            } else if (state == HEADER) {
+                header();
+            } else if (state == INVALID) {
+                throw new FormulaParseException(prefix() + "expected a number, got \"" + text + "\"");
+            }
+            state = SPACE;
+        }
+
+        /**
+         * Handles the first byte of a token that is not a number.
+         * @param b the byte.
+         */
+        private void startToken(byte b) {
+            text.setLength(0);
+            text.append((char) b);
+            if (lineStart && b == 'c') {
+                state = COMMENT;
+            } else if (lineStart && b == 'p') {
+                state = HEADER;
+            } else if (lineStart && b == '%') {
+                state = END;
+            } else {
+                state = INVALID;
+            }
+            lineStart = false;
         }
-        // Check for termination with zero
-        if (!items[items.length - 1].equals("0")) {
-            throw new FormulaParseException(prefix + "clause line does not terminate with zero");
+
+        /**
+         * Switches from a number to an invalid token, keeping the scanned part of the number for the error message.
+         */
+        private void invalidNumber() {
+            text.setLength(0);
+            if (negative) {
+                text.append('-');
+            }
+            if (digits) {
+                text.append(value);
+            }
+            state = INVALID;
         }
-        // Build clause
-        Clause clause = new Clause();
-        for (String item : items) {
-            if (item.equals("0")) {
-                break;
+
+        /**
+         * Adds the scanned number to the arena, as a literal or, if it is 0, as the end of a clause.
+         * @throws FormulaParseException if the number is malformed, or exceeds the bounds of the header.
+         */
+        private void literal() throws FormulaParseException {
+            if (!digits) {
+                throw new FormulaParseException(prefix() + "expected a number, got \"-\"");
+            }
+            if (value == 0) {
+                if (arena.clauseCount() >= clauseBound) {
+                    throw new FormulaParseException(String.format(
+                        prefix() + "exceeded the amount of clauses (header specifies %d clauses)", clauseBound
+                    ));
+                }
+                arena.endClause();
             } else {
-                try {
-                    int literal = Integer.parseInt(item);
-                    int variable = Math.abs(literal);
-                    clause.addLiteral(literal);
-                    // Update amount of variables
-                    if (variable > variables) {
-                        variables = variable;
-                    }
-                    // Check if variables exceeded
-                    if (variables > variableBound) {
-                        throw new FormulaParseException(
-                            String.format(prefix + "exceeded the amount of variables (header specifies %d variables)", variableBound)
-                        );
-                    }
-                } catch (NumberFormatException exception) {
-                    throw new FormulaParseException(prefix + "expected a number, got \"" + item + "\"", exception);
+                if (value > variableBound) {
+                    throw new FormulaParseException(String.format(
+                        prefix() + "exceeded the amount of variables (header specifies %d variables)", variableBound
+                    ));
                 }
+                arena.addLiteral(negative ? (int) -value : (int) value);
+            }
+        }
+
+        /**
+         * Parses the header line "p cnf n m".
+         * @throws FormulaParseException if the header is malformed.
+         */
+        private void header() throws FormulaParseException {
+            String[] items = text.toString().trim().split("\\s+");
+            if (items.length < 2 || !items[1].equals("cnf")) {
+                String format = (items.length < 2) ? "" : items[1];
+                throw new FormulaParseException(prefix() + "expected 'cnf' in header, got \"" + format + "\"");
             }
+            variableBound = headerNumber(items, 2);
+            clauseBound = headerNumber(items, 3);
+            hasHeader = true;
         }
-        formula.addClause(clause);
+
+        private int headerNumber(String[] items, int index) throws FormulaParseException {
+            String item = (index < items.length) ? items[index] : "";
+            try {
+                return Integer.parseInt(item);
+            } catch (NumberFormatException exception) {
+                throw new FormulaParseException(prefix() + "expected a number, got \"" + item + "\"", exception);
+            }
+        }
+
+        private static boolean isSpace(byte b) {
+            return b == ' ' || b == '\t' || b == '\r' || b == '\f' || b == 0x0B;
+        }
+
     }
 
 }
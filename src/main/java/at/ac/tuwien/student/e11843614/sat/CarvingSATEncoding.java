@@ -0,0 +1,201 @@
+package at.ac.tuwien.student.e11843614.sat;
+
+import at.ac.tuwien.student.e11843614.struct.graph.Graph;
+
+/**
+ * A SAT encoding for carving-width. Its variables are laid out in dense ranges, so that the integer of each variable is
+ * computed from its arguments in constant time: vertices e, f are numbered 1..n, edges u are numbered 1..m, and levels
+ * i are numbered 1..d. Set, leader and load variables are allocated when the encoding is constructed; the variables of
+ * the optional symmetry-breaking clauses are allocated when they are first used. The variables that count the loads
+ * are allocated by the cardinality encodings. The encoding also indexes the edges incident to each vertex.
+ */
+public class CarvingSATEncoding extends SATEncoding {
+
+    private final int n;
+    private final int m;
+    private final int d;
+
+    private final int sets;
+    private final int leaders;
+    private final int loads;
+    private final int[][] incidentEdges;
+    private final int[][] endpoints;
+    private int losses = 0;
+    private int joins = 0;
+
+    /**
+     * Constructs an encoding that collects its clauses in a formula.
+     * @param graph the graph to be encoded.
+     * @param d the length of derivations.
+     */
+    public CarvingSATEncoding(Graph graph, int d) {
+        super(graph);
+        this.n = graph.vertices().size();
+        this.m = graph.edges().size();
+        this.d = d;
+        this.sets = newVariables(n * (n - 1) / 2 * d);
+        this.leaders = newVariables(n * d);
+        this.loads = newVariables(n * m * d);
+        this.endpoints = endpoints();
+        this.incidentEdges = incidentEdges();
+    }
+
+    /**
+     * Constructs an encoding that streams its clauses into a sink.
+     * @param graph the graph to be encoded.
+     * @param d the length of derivations.
+     * @param sink the sink that consumes the clauses.
+     */
+    public CarvingSATEncoding(Graph graph, int d, ClauseSink sink) {
+        super(graph, sink);
+        this.n = graph.vertices().size();
+        this.m = graph.edges().size();
+        this.d = d;
+        this.sets = newVariables(n * (n - 1) / 2 * d);
+        this.leaders = newVariables(n * d);
+        this.loads = newVariables(n * m * d);
+        this.endpoints = endpoints();
+        this.incidentEdges = incidentEdges();
+    }
+
+    /**
+     * Returns the length of derivations in this encoding.
+     * @return the length d.
+     */
+    public int d() {
+        return d;
+    }
+
+    /**
+     * Returns the edges incident to a vertex.
+     * @param e a vertex.
+     * @return the edges incident to e, in ascending order.
+     */
+    public int[] incidentEdges(int e) {
+        return incidentEdges[e - 1];
+    }
+
+    /**
+     * Returns the endpoints of an edge.
+     * @param u an edge.
+     * @return the distinct endpoints of u, in ascending order.
+     */
+    public int[] endpoints(int u) {
+        return endpoints[u - 1];
+    }
+
+    // ----- Variables -------------------------------------------------------------------------------------------------
+
+    /**
+     * A set variable. Should be true if vertices e, f are in the same set at level i.
+     * @param e a vertex.
+     * @param f a vertex, e < f.
+     * @param i a level of the derivation.
+     * @return the set variable.
+     */
+    public int set(int e, int f, int i) {
+        return sets + pair(e, f) * d + (i - 1);
+    }
+
+    /**
+     * A leader variable. Should be true if e is the smallest vertex in some set at level i.
+     * @param e a vertex.
+     * @param i a level of the derivation.
+     * @return the leader variable.
+     */
+    public int leader(int e, int i) {
+        return leaders + (e - 1) * d + (i - 1);
+    }
+
+    /**
+     * A load variable. Should be true if u is a load edge of the vertex e at level i.
+     * @param e a vertex.
+     * @param u an edge.
+     * @param i a level of the derivation.
+     * @return the load variable.
+     */
+    public int load(int e, int u, int i) {
+        return loads + ((e - 1) * m + (u - 1)) * d + (i - 1);
+    }
+
+    /**
+     * A loss variable. Should be true if e is a leader at level i, but not at level i + 1.
+     * @param e a vertex.
+     * @param i a level of the derivation.
+     * @return the loss variable.
+     */
+    public int loss(int e, int i) {
+        if (losses == 0) {
+            losses = newVariables(n * d);
+        }
+        return losses + (e - 1) * d + (i - 1);
+    }
+
+    /**
+     * A join variable. Should only be true if f is a leader that is lost at level i + 1, and e, f are in the same set
+     * at level i + 2, i.e. the set of e is merged at level i + 1.
+     * @param e a vertex.
+     * @param f a vertex, e != f.
+     * @param i a level of the derivation.
+     * @return the join variable.
+     */
+    public int join(int e, int f, int i) {
+        if (joins == 0) {
+            joins = newVariables(n * n * d);
+        }
+        return joins + ((e - 1) * n + (f - 1)) * d + (i - 1);
+    }
+
+    /**
+     * Computes the index of a pair of vertices e < f in the lexicographic order of pairs (f, e).
+     * @param e a vertex.
+     * @param f a vertex, e < f.
+     * @return the index (>= 0) of the pair.
+     */
+    private static int pair(int e, int f) {
+        return (f - 1) * (f - 2) / 2 + (e - 1);
+    }
+
+    // ----- Index -----------------------------------------------------------------------------------------------------
+
+    /**
+     * Maps the endpoints of each edge to their integers.
+     * @return the endpoints, indexed by the edge - 1.
+     */
+    private int[][] endpoints() {
+        int[][] endpoints = new int[m][];
+        for (int u = 1; u <= m; u++) {
+            endpoints[u - 1] = edgeMap().getFromDomain(u).endpoints().stream()
+                .mapToInt(vertex -> vertexMap().getFromDestination(vertex))
+                .distinct()
+                .sorted()
+                .toArray();
+        }
+        return endpoints;
+    }
+
+    /**
+     * Collects the edges incident to each vertex.
+     * @return the incident edges, indexed by the vertex - 1.
+     */
+    private int[][] incidentEdges() {
+        int[] degrees = new int[n];
+        for (int[] ends : endpoints) {
+            for (int e : ends) {
+                degrees[e - 1]++;
+            }
+        }
+        int[][] incidentEdges = new int[n][];
+        for (int e = 1; e <= n; e++) {
+            incidentEdges[e - 1] = new int[degrees[e - 1]];
+            degrees[e - 1] = 0;
+        }
+        for (int u = 1; u <= m; u++) {
+            for (int e : endpoints[u - 1]) {
+                incidentEdges[e - 1][degrees[e - 1]++] = u;
+            }
+        }
+        return incidentEdges;
+    }
+
+}
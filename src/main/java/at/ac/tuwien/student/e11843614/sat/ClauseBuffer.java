@@ -0,0 +1,63 @@
+package at.ac.tuwien.student.e11843614.sat;
+
+import java.util.Arrays;
+
+/**
+ * A clause sink that stores clauses in primitive arrays, to be replayed into another sink later. The literals of all
+ * clauses are stored consecutively in one array, and the lengths of the clauses in another one. A buffer is meant to
+ * be filled by a single thread, so that clauses can be generated concurrently into separate buffers and merged in a
+ * fixed order afterwards.
+ */
+public class ClauseBuffer implements ClauseSink {
+
+    private int[] literals = new int[1024];
+    private int[] lengths = new int[256];
+    private int literalCount = 0;
+    private int clauseCount = 0;
+
+    @Override
+    public void addClause(int... clause) {
+        if (literalCount + clause.length > literals.length) {
+            literals = Arrays.copyOf(literals, Math.max(literalCount + clause.length, 2 * literals.length));
+        }
+        if (clauseCount == lengths.length) {
+            lengths = Arrays.copyOf(lengths, Math.max(256, 2 * lengths.length));
+        }
+        System.arraycopy(clause, 0, literals, literalCount, clause.length);
+        literalCount += clause.length;
+        lengths[clauseCount++] = clause.length;
+    }
+
+    /**
+     * Returns the amount of clauses in this buffer.
+     * @return the amount of clauses.
+     */
+    public int size() {
+        return clauseCount;
+    }
+
+    /**
+     * Replays the clauses of this buffer into a sink, in the order they were added, and keeps them in the buffer.
+     * @param sink the sink that consumes the clauses.
+     */
+    public void replayTo(ClauseSink sink) {
+        int offset = 0;
+        for (int c = 0; c < clauseCount; c++) {
+            sink.addClause(Arrays.copyOfRange(literals, offset, offset + lengths[c]));
+            offset += lengths[c];
+        }
+    }
+
+    /**
+     * Replays the clauses of this buffer into a sink, in the order they were added, and empties the buffer.
+     * @param sink the sink that consumes the clauses.
+     */
+    public void drainTo(ClauseSink sink) {
+        replayTo(sink);
+        literals = new int[0];
+        lengths = new int[0];
+        literalCount = 0;
+        clauseCount = 0;
+    }
+
+}
@@ -0,0 +1,16 @@
+package at.ac.tuwien.student.e11843614.sat;
+
+/**
+ * A consumer of the clauses of a SAT encoding, e.g. a formula, a SAT solver or a DIMACS file. Encoders emit clauses
+ * as arrays of literals, so that the clauses need not be materialized as objects.
+ */
+@FunctionalInterface
+public interface ClauseSink {
+
+    /**
+     * Consumes a clause. The array must not be modified by the sink, and may be reused by the caller afterwards.
+     * @param literals the literals of the clause (non-zero integers, negative for negated variables).
+     */
+    void addClause(int... literals);
+
+}
@@ -0,0 +1,179 @@
+package at.ac.tuwien.student.e11843614.sat;
+
+import at.ac.tuwien.student.e11843614.struct.graph.Graph;
+
+import java.util.Arrays;
+
+/**
+ * A SAT encoding for clique-width. Its variables are laid out in dense ranges, so that the integer of each variable is
+ * computed from its arguments in constant time: vertices u, v are numbered 1..n and levels i are numbered 0..t (the
+ * component and group variables also have a level -1, which occurs in the clauses for level 0 and is unconstrained).
+ * Component, group and representative variables are allocated when the encoding is constructed; the steps of the
+ * order are allocated when they are first used, since their amount depends on the width, and so are the variables of
+ * the optional symmetry-breaking clauses.
+ */
+public class CliqueSATEncoding extends SATEncoding {
+
+    private final int n;
+    private final int t;
+
+    private final int components;
+    private final int groups;
+    private final int representatives;
+    private int[] orders = new int[0];
+    private int leaders = 0;
+    private int groupLosses = 0;
+    private int componentLosses = 0;
+    private int changes = 0;
+
+    /**
+     * Constructs an encoding that collects its clauses in a formula.
+     * @param graph the graph to be encoded.
+     * @param t the length of derivations.
+     */
+    public CliqueSATEncoding(Graph graph, int t) {
+        super(graph);
+        this.n = graph.vertices().size();
+        this.t = t;
+        this.components = newVariables(n * (n - 1) / 2 * (t + 2));
+        this.groups = newVariables(n * (n - 1) / 2 * (t + 2));
+        this.representatives = newVariables(n * (t + 1));
+    }
+
+    /**
+     * Constructs an encoding that streams its clauses into a sink.
+     * @param graph the graph to be encoded.
+     * @param t the length of derivations.
+     * @param sink the sink that consumes the clauses.
+     */
+    public CliqueSATEncoding(Graph graph, int t, ClauseSink sink) {
+        super(graph, sink);
+        this.n = graph.vertices().size();
+        this.t = t;
+        this.components = newVariables(n * (n - 1) / 2 * (t + 2));
+        this.groups = newVariables(n * (n - 1) / 2 * (t + 2));
+        this.representatives = newVariables(n * (t + 1));
+    }
+
+    /**
+     * Returns the length of derivations in this encoding.
+     * @return the length t.
+     */
+    public int t() {
+        return t;
+    }
+
+    // ----- Variables -------------------------------------------------------------------------------------------------
+
+    /**
+     * A component variable. Should be true if u, v are in the same component at level i.
+     * @param u a vertex.
+     * @param v a vertex, u < v.
+     * @param i a level of the derivation.
+     * @return the component variable.
+     */
+    public int component(int u, int v, int i) {
+        return components + pair(u, v) * (t + 2) + (i + 1);
+    }
+
+    /**
+     * A group variable. Should be true if u, v are in the same group at level i.
+     * @param u a vertex.
+     * @param v a vertex, u < v.
+     * @param i a level of the derivation.
+     * @return the group variable.
+     */
+    public int group(int u, int v, int i) {
+        return groups + pair(u, v) * (t + 2) + (i + 1);
+    }
+
+    /**
+     * A representative variable. Should be true if v is the smallest vertex of its group at level i.
+     * @param v a vertex.
+     * @param i a level of the derivation.
+     * @return the representative variable.
+     */
+    public int representative(int v, int i) {
+        return representatives + (v - 1) * (t + 1) + i;
+    }
+
+    /**
+     * An order variable. Should be true if the representative v has at least position a among the representatives of
+     * its component at level i.
+     * @param v a vertex.
+     * @param a the position (>= 1).
+     * @param i a level of the derivation.
+     * @return the order variable.
+     */
+    public int order(int v, int a, int i) {
+        if (a >= orders.length) {
+            orders = Arrays.copyOf(orders, Math.max(a + 1, 2 * orders.length));
+        }
+        if (orders[a] == 0) {
+            orders[a] = newVariables(n * (t + 1));
+        }
+        return orders[a] + (v - 1) * (t + 1) + i;
+    }
+
+    /**
+     * A leader variable. Should be true if v is the smallest vertex of its component at level i.
+     * @param v a vertex.
+     * @param i a level of the derivation.
+     * @return the leader variable.
+     */
+    public int leader(int v, int i) {
+        if (leaders == 0) {
+            leaders = newVariables(n * (t + 1));
+        }
+        return leaders + (v - 1) * (t + 1) + i;
+    }
+
+    /**
+     * A group loss variable. Should be true if v is a representative at level i, but not at level i + 1.
+     * @param v a vertex.
+     * @param i a level of the derivation, i < t.
+     * @return the group loss variable.
+     */
+    public int groupLoss(int v, int i) {
+        if (groupLosses == 0) {
+            groupLosses = newVariables(n * t);
+        }
+        return groupLosses + (v - 1) * t + i;
+    }
+
+    /**
+     * A component loss variable. Should be true if v is a leader at level i, but not at level i + 1.
+     * @param v a vertex.
+     * @param i a level of the derivation, i < t.
+     * @return the component loss variable.
+     */
+    public int componentLoss(int v, int i) {
+        if (componentLosses == 0) {
+            componentLosses = newVariables(n * t);
+        }
+        return componentLosses + (v - 1) * t + i;
+    }
+
+    /**
+     * A change variable. Should be true if the groups or the components at level i + 1 differ from those at level i.
+     * @param i a level of the derivation, i < t.
+     * @return the change variable.
+     */
+    public int change(int i) {
+        if (changes == 0) {
+            changes = newVariables(t);
+        }
+        return changes + i;
+    }
+
+    /**
+     * Computes the index of a pair of vertices u < v in the lexicographic order of pairs (v, u).
+     * @param u a vertex.
+     * @param v a vertex, u < v.
+     * @return the index (>= 0) of the pair.
+     */
+    private static int pair(int u, int v) {
+        return (v - 1) * (v - 2) / 2 + (u - 1);
+    }
+
+}
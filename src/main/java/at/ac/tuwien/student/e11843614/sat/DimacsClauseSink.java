@@ -0,0 +1,76 @@
+package at.ac.tuwien.student.e11843614.sat;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A clause sink that writes clauses to a file in DIMACS CNF format as they are encoded. The amounts of variables and
+ * clauses are not known until the encoding is complete, so the header is written as a placeholder of fixed width and
+ * overwritten when the sink is closed.
+ */
+public class DimacsClauseSink implements ClauseSink, Closeable {
+
+    // Width of the header line, enough for two numbers of up to 19 digits each
+    private static final int HEADER_WIDTH = 48;
+
+    private final String path;
+    private final BufferedWriter writer;
+    private int variables = 0;
+    private long clauses = 0;
+
+    /**
+     * Opens a DIMACS CNF file for writing.
+     * @param path the path of the file.
+     * @throws IOException if the file cannot be opened.
+     */
+    public DimacsClauseSink(String path) throws IOException {
+        this.path = path;
+        this.writer = new BufferedWriter(new FileWriter(path, StandardCharsets.US_ASCII));
+        writer.write(header());
+    }
+
+    @Override
+    public void addClause(int... literals) {
+        try {
+            for (int literal : literals) {
+                variables = Math.max(variables, Math.abs(literal));
+                writer.write(Integer.toString(literal));
+                writer.write(' ');
+            }
+            writer.write("0\n");
+            clauses++;
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    /**
+     * Flushes the clauses and writes the final header.
+     * @throws IOException if the file cannot be written.
+     */
+    @Override
+    public void close() throws IOException {
+        writer.close();
+        try (RandomAccessFile file = new RandomAccessFile(path, "rw")) {
+            file.write(header().getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+
+    /**
+     * Constructs the header line, padded with spaces to a fixed width.
+     * @return the header line including the line break.
+     */
+    private String header() {
+        StringBuilder header = new StringBuilder("p cnf " + variables + " " + clauses);
+        while (header.length() < HEADER_WIDTH - 1) {
+            header.append(' ');
+        }
+        return header.append('\n').toString();
+    }
+
+}
@@ -0,0 +1,198 @@
+package at.ac.tuwien.student.e11843614.sat;
+
+import at.ac.tuwien.student.e11843614.Cancellation;
+import at.ac.tuwien.student.e11843614.exception.TimeoutException;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Timer;
+import java.util.TimerTask;
+
+/**
+ * The SAT backend that runs an external SAT solver as a separate process. The solver is expected to read a DIMACS CNF
+ * formula from its standard input and to answer in the format of the SAT competitions, i.e. with a line
+ * "s SATISFIABLE", "s UNSATISFIABLE" or "s UNKNOWN", followed by "v" lines listing the model and terminated by 0.
+ * External solvers are not incremental: the clauses are kept in a buffer and streamed to a new process on every call,
+ * and the assumptions are appended as unit clauses.
+ */
+public class ExternalBackend implements SATBackend {
+
+    private final List<String> command;
+    private final ClauseBuffer clauses = new ClauseBuffer();
+    private int variables = 0;
+    private volatile Process process = null;
+    private volatile boolean interrupted = false;
+
+    /**
+     * Constructs an external SAT backend.
+     * @param command the path of the solver followed by its arguments, each taken as is, so that they may contain
+     *                spaces or quotes.
+     */
+    public ExternalBackend(List<String> command) {
+        if (command.isEmpty()) {
+            throw new IllegalArgumentException("The command of the external SAT solver is empty");
+        }
+        this.command = List.copyOf(command);
+    }
+
+    @Override
+    public void addClause(int... literals) {
+        for (int literal : literals) {
+            variables = Math.max(variables, Math.abs(literal));
+        }
+        clauses.addClause(literals);
+    }
+
+    @Override
+    public int[] solve(int... assumptions) throws TimeoutException {
+        interrupted = false;
+        Process process;
+        try {
+            process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.DISCARD).start();
+        } catch (IOException exception) {
+            throw new UncheckedIOException("Could not start SAT solver '" + String.join(" ", command) + "'", exception);
+        }
+        this.process = process;
+        if (interrupted) {
+            process.destroyForcibly();
+        }
+        // The formula is written on a separate thread, so that a solver that answers early cannot block the writer
+        Thread writer = new Thread(() -> write(process, assumptions), "dimacs-writer");
+        writer.setDaemon(true);
+        writer.start();
+        // Kill the solver at the deadline of the count
+        Timer watchdog = null;
+        long remaining = Cancellation.remainingMillis();
+        if (remaining > 0) {
+            watchdog = new Timer("sat-deadline", true);
+            watchdog.schedule(new TimerTask() {
+                @Override
+                public void run() {
+                    interrupt();
+                }
+            }, remaining);
+        }
+        try {
+            return read(process);
+        } finally {
+            if (watchdog != null) {
+                watchdog.cancel();
+            }
+            process.destroyForcibly();
+            this.process = null;
+        }
+    }
+
+    @Override
+    public void interrupt() {
+        interrupted = true;
+        Process process = this.process;
+        if (process != null) {
+            process.destroyForcibly();
+        }
+    }
+
+    @Override
+    public String name() {
+        return "external (" + String.join(" ", command) + ")";
+    }
+
+    /**
+     * Writes the clauses and the assumptions in DIMACS CNF format to the standard input of the solver.
+     * @param process the solver process.
+     * @param assumptions literals assumed to be true.
+     */
+    private void write(Process process, int[] assumptions) {
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(),
+            StandardCharsets.US_ASCII))) {
+            int variableCount = variables;
+            for (int literal : assumptions) {
+                variableCount = Math.max(variableCount, Math.abs(literal));
+            }
+            writer.write("p cnf " + variableCount + " " + (clauses.size() + assumptions.length) + "\n");
+            clauses.replayTo(literals -> writeClause(writer, literals));
+            for (int literal : assumptions) {
+                writeClause(writer, literal);
+            }
+        } catch (IOException | UncheckedIOException exception) {
+            // The solver exited before reading the whole formula; its answer (or the lack of one) is handled by the
+            // reader
+        }
+    }
+
+    /**
+     * Writes a clause in DIMACS CNF format.
+     * @param writer the writer.
+     * @param literals the literals of the clause.
+     */
+    private static void writeClause(Writer writer, int... literals) {
+        try {
+            for (int literal : literals) {
+                writer.write(Integer.toString(literal));
+                writer.write(' ');
+            }
+            writer.write("0\n");
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    /**
+     * Reads the answer of the solver from its standard output.
+     * @param process the solver process.
+     * @return the model, or an empty array if the formula is unsatisfiable.
+     * @throws TimeoutException if the solver answers "UNKNOWN" or is interrupted.
+     */
+    private int[] read(Process process) throws TimeoutException {
+        String status = null;
+        int[] model = new int[variables];
+        int size = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(),
+            StandardCharsets.US_ASCII))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("s ")) {
+                    status = line.substring(2).trim();
+                } else if (line.startsWith("v ")) {
+                    for (String token : line.substring(2).trim().split("\\s+")) {
+                        if (token.isEmpty()) {
+                            continue;
+                        }
+                        int literal = Integer.parseInt(token);
+                        if (literal != 0) {
+                            if (size == model.length) {
+                                model = Arrays.copyOf(model, 2 * size + 1);
+                            }
+                            model[size++] = literal;
+                        }
+                    }
+                }
+            }
+        } catch (IOException exception) {
+            if (!interrupted) {
+                throw new UncheckedIOException(exception);
+            }
+        }
+        if (interrupted) {
+            throw new TimeoutException("The SAT solver was interrupted");
+        }
+        if ("SATISFIABLE".equals(status)) {
+            return Arrays.copyOf(model, size);
+        } else if ("UNSATISFIABLE".equals(status)) {
+            return new int[]{};
+        } else if ("UNKNOWN".equals(status)) {
+            throw new TimeoutException("The SAT solver gave up");
+        } else {
+            throw new IllegalStateException("SAT solver '" + String.join(" ", command) + "' did not answer");
+        }
+    }
+
+}
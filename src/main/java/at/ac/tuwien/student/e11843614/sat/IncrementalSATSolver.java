@@ -0,0 +1,48 @@
+package at.ac.tuwien.student.e11843614.sat;
+
+import at.ac.tuwien.student.e11843614.exception.TimeoutException;
+
+/**
+ * A SAT solver instance that is kept across several queries on a growing SAT encoding. The solver is the clause sink
+ * of the encoding, so clauses are passed on to the SAT backend as they are encoded and never materialized as a
+ * formula. Widths are selected by assumptions, so that incremental backends reuse the clauses learned in earlier
+ * queries.
+ */
+public class IncrementalSATSolver implements ClauseSink {
+
+    private final SATBackend backend;
+
+    /**
+     * Constructs a solver on the SAT backend selected on the command line.
+     */
+    public IncrementalSATSolver() {
+        this(SATBackend.of());
+    }
+
+    /**
+     * Constructs a solver on a SAT backend.
+     * @param backend the SAT backend.
+     */
+    public IncrementalSATSolver(SATBackend backend) {
+        this.backend = backend;
+    }
+
+    @Override
+    public void addClause(int... literals) {
+        backend.addClause(literals);
+    }
+
+    /**
+     * Runs the SAT solver on the clauses added so far, under assumptions, and returns the truth values of the
+     * variables.
+     * @param encoding the SAT encoding whose clauses were added to this solver.
+     * @param assumptions literals assumed to be true, e.g. the selector of a width.
+     * @return an array indexed by the variables of the encoding, true for variables assigned to true; or null if the
+     *         formula is unsatisfiable under the assumptions.
+     * @throws TimeoutException if the SAT solver takes too long.
+     */
+    public boolean[] getSatisfyingAssignment(SATEncoding encoding, int... assumptions) throws TimeoutException {
+        return SATSolver.asAssignment(backend.solve(assumptions), encoding);
+    }
+
+}
@@ -0,0 +1,128 @@
+package at.ac.tuwien.student.e11843614.sat;
+
+import at.ac.tuwien.student.e11843614.Logger;
+import at.ac.tuwien.student.e11843614.exception.TimeoutException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The SAT backend that races several backends on the same clauses. Every clause is added to all members, each call
+ * runs the members in parallel, and the first answer wins; the other members are interrupted before the call returns,
+ * so that none of them is still solving when the next clauses are added. The wins of each member are counted over all
+ * portfolios of a run and logged, to show which configurations pay off on an instance.
+ */
+public class PortfolioBackend implements SATBackend {
+
+    // Interval in which members that have not stopped yet are interrupted again
+    private static final long STOP_INTERVAL_MS = 10;
+
+    // Amount of races won per member name, over all portfolios
+    private static final Map<String, Integer> wins = new ConcurrentHashMap<>();
+
+    private final List<SATBackend> members;
+
+    /**
+     * Constructs a portfolio.
+     * @param members the backends to race, at least one.
+     */
+    public PortfolioBackend(List<SATBackend> members) {
+        if (members.isEmpty()) {
+            throw new IllegalArgumentException("A portfolio requires at least one SAT backend");
+        }
+        this.members = new ArrayList<>(members);
+    }
+
+    @Override
+    public void addClause(int... literals) {
+        for (SATBackend member : members) {
+            member.addClause(literals);
+        }
+    }
+
+    @Override
+    public int[] solve(int... assumptions) throws TimeoutException {
+        ExecutorService executor = Executors.newFixedThreadPool(members.size());
+        CompletionService<int[]> completion = new ExecutorCompletionService<>(executor);
+        Map<Future<int[]>, SATBackend> memberOf = new HashMap<>();
+        try {
+            for (SATBackend member : members) {
+                memberOf.put(completion.submit(() -> member.solve(assumptions)), member);
+            }
+            ExecutionException failure = null;
+            for (int i = 0; i < members.size(); i++) {
+                Future<int[]> future = completion.take();
+                try {
+                    int[] model = future.get();
+                    String winner = memberOf.get(future).name();
+                    wins.merge(winner, 1, Integer::sum);
+                    Logger.debug("[sat] " + winner + " answered first, wins: " + new TreeMap<>(wins));
+                    return model;
+                } catch (ExecutionException exception) {
+                    // The member failed or gave up, the others may still answer
+                    if (failure == null) {
+                        failure = exception;
+                    }
+                }
+            }
+            if (failure.getCause() instanceof TimeoutException) {
+                throw (TimeoutException) failure.getCause();
+            }
+            throw new RuntimeException(failure.getCause());
+        } catch (InterruptedException exception) {
+            throw new RuntimeException(exception);
+        } finally {
+            stop(memberOf);
+            executor.shutdownNow();
+        }
+    }
+
+    @Override
+    public void interrupt() {
+        for (SATBackend member : members) {
+            member.interrupt();
+        }
+    }
+
+    @Override
+    public String name() {
+        List<String> names = new ArrayList<>();
+        for (SATBackend member : members) {
+            names.add(member.name());
+        }
+        return "portfolio " + names;
+    }
+
+    /**
+     * Interrupts the members that are still solving and waits until they have stopped. An interrupt may arrive before
+     * a member has started its search, so it is repeated until the member stops.
+     * @param memberOf the running calls with their members.
+     */
+    private static void stop(Map<Future<int[]>, SATBackend> memberOf) {
+        for (Map.Entry<Future<int[]>, SATBackend> entry : memberOf.entrySet()) {
+            while (!entry.getKey().isDone()) {
+                entry.getValue().interrupt();
+                try {
+                    entry.getKey().get(STOP_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                } catch (ExecutionException | java.util.concurrent.TimeoutException exception) {
+                    // The member has failed, or is still stopping
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,83 @@
+package at.ac.tuwien.student.e11843614.sat;
+
+import at.ac.tuwien.student.e11843614.Arguments;
+import at.ac.tuwien.student.e11843614.exception.TimeoutException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A SAT solver that consumes the clauses of an encoding and decides them under assumptions. Clauses may be added
+ * between two calls of {@link #solve(int...)}, so that one backend serves all widths of an incremental encoding.
+ */
+public interface SATBackend extends ClauseSink {
+
+    /**
+     * The available SAT backends.
+     */
+    enum Type {
+        sat4j, external, portfolio
+    }
+
+    /**
+     * Constructs the SAT backend selected on the command line.
+     * @return the SAT backend.
+     */
+    static SATBackend of() {
+        return of(Arguments.satBackend(), Arguments.satCommand(), Arguments.portfolioSize());
+    }
+
+    /**
+     * Constructs a SAT backend.
+     * @param type the type of the backend.
+     * @param command the path and the arguments of an external SAT solver, or null. Required by the external backend;
+     *                the portfolio races the external solver against the Sat4j configurations if the command is given.
+     * @param portfolioSize the amount of differently configured Sat4j solvers in a portfolio.
+     * @return the SAT backend.
+     */
+    static SATBackend of(Type type, List<String> command, int portfolioSize) {
+        switch (type) {
+            case sat4j:
+                return new Sat4jBackend();
+            case external:
+                if (command == null) {
+                    throw new IllegalArgumentException("The external SAT backend requires a command");
+                }
+                return new ExternalBackend(command);
+            case portfolio:
+                List<SATBackend> members = new ArrayList<>();
+                for (int configuration = 0; configuration < portfolioSize; configuration++) {
+                    members.add(new Sat4jBackend(configuration));
+                }
+                if (command != null) {
+                    members.add(new ExternalBackend(command));
+                }
+                return new PortfolioBackend(members);
+            default:
+                throw new IllegalArgumentException("SAT backend '" + type + "' does not exist");
+        }
+    }
+
+    /**
+     * Decides the clauses added so far under assumptions.
+     * @param assumptions literals assumed to be true.
+     * @return an array of integers, representing a model. Positive integers specify variables set to true, negative
+     *         integers specify variables set to false. If the clauses are unsatisfiable under the assumptions, returns
+     *         an empty array.
+     * @throws TimeoutException if the solver takes too long, gives up, or is interrupted.
+     */
+    int[] solve(int... assumptions) throws TimeoutException;
+
+    /**
+     * Stops a running call of {@link #solve(int...)} from another thread, which then throws a TimeoutException. Does
+     * nothing if the backend is not solving.
+     */
+    void interrupt();
+
+    /**
+     * Returns the name of this backend, for logging.
+     * @return the name.
+     */
+    String name();
+
+}
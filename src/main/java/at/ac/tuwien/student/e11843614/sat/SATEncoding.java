@@ -5,21 +5,49 @@ import at.ac.tuwien.student.e11843614.struct.graph.Edge;
 import at.ac.tuwien.student.e11843614.struct.graph.Graph;
 import at.ac.tuwien.student.e11843614.struct.Bijection;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
- * A class that represents a SAT encoding for graph parameters, i.e. a formula and a mapping of its variables to
- * integers (for DIMACS CNF format).
+ * A class that represents a SAT encoding for graph parameters, i.e. a formula over integer variables (for DIMACS CNF
+ * format). The clauses are either collected in a Formula, or streamed into a ClauseSink (e.g. a SAT solver) without
+ * being materialized. Variables are allocated in contiguous ranges; subclasses compute the variable of each kind
+ * arithmetically from its arguments and a range.
+ *
+ * Encodings may support selecting the width: the clauses that bound the width are then guarded by selector variables,
+ * so that a single formula (and a single solver instance) can be used to check several widths by solving under the
+ * assumption that the selector of a width is true.
  */
 public class SATEncoding {
 
     private int variableCounter = 1;
+    private int clauseCounter = 0;
 
-    private final Formula formula = new Formula();
-    private final Bijection<Variable, Integer> variableMap = new Bijection<>();
+    private final Formula formula;
+    private final ClauseSink sink;
+    private final Map<Integer, Integer> selectors = new HashMap<>();
 
     private final Bijection<Integer, Integer> vertexMap = new Bijection<>();
     private final Bijection<Edge, Integer> edgeMap = new Bijection<>();
 
+    /**
+     * Constructs an encoding that collects its clauses in a formula.
+     * @param graph the graph to be encoded.
+     */
     public SATEncoding(Graph graph) {
+        this.formula = new Formula();
+        this.sink = formula::addClause;
+        encodeGraph(graph);
+    }
+
+    /**
+     * Constructs an encoding that streams its clauses into a sink.
+     * @param graph the graph to be encoded.
+     * @param sink the sink that consumes the clauses.
+     */
+    public SATEncoding(Graph graph, ClauseSink sink) {
+        this.formula = null;
+        this.sink = sink;
         encodeGraph(graph);
     }
 
@@ -27,18 +55,26 @@ public class SATEncoding {
 
     /**
      * Returns the formula in this encoding.
-     * @return a Formula.
+     * @return a Formula, or null if the clauses are streamed into a sink.
      */
     public Formula formula() {
         return formula;
     }
 
     /**
-     * Returns the bijection between the variables and their integer representations in the formula of this encoding.
-     * @return a bijection between variables and integers.
+     * Returns the amount of clauses in this encoding.
+     * @return the amount of clauses.
      */
-    public Bijection<Variable, Integer> variableMap() {
-        return variableMap;
+    public int clauseCount() {
+        return clauseCounter;
+    }
+
+    /**
+     * Returns the amount of variables in this encoding.
+     * @return the amount of variables, the largest variable.
+     */
+    public int variableCount() {
+        return variableCounter - 1;
     }
 
     /**
@@ -60,17 +96,61 @@ public class SATEncoding {
     // ----- Encoding --------------------------------------------------------------------------------------------------
 
     /**
-     * Maps an integer (>= 1) to a variable. If the variable has been mapped already, returns its existing mapping.
-     * @param variable the variable to be encoded.
-     * @return the integer (>= 1) this variable is mapped to.
+     * Allocates a contiguous range of new variables.
+     * @param amount the amount of variables.
+     * @return the first variable (>= 1) of the range.
+     */
+    public int newVariables(int amount) {
+        int first = variableCounter;
+        variableCounter += amount;
+        return first;
+    }
+
+    /**
+     * Adds a clause to this encoding.
+     * @param literals the literals of the clause, represented by the integers of their variables (negative if the
+     *                 literal is negated).
      */
-    public int encodeVariable(Variable variable) {
-        Integer value = variableMap.getFromDestination(variable);
-        if (value != null) {
-            return value;
+    public void addClause(int... literals) {
+        sink.addClause(literals);
+        clauseCounter++;
+    }
+
+    /**
+     * Returns the selector of a width, i.e. the literal that has to be assumed to restrict the formula to derivations
+     * of at most this width. The clauses of a width are added to the formula the first time its selector is requested.
+     * @param width the width.
+     * @return the selector literal (> 0).
+     */
+    public int selector(int width) {
+        Integer selector = selectors.get(width);
+        if (selector == null) {
+            selector = newVariables(1);
+            encodeWidth(width, selector);
+            selectors.put(width, selector);
         }
-        variableMap.put(variable, variableCounter);
-        return variableCounter++;
+        return selector;
+    }
+
+    /**
+     * Adds the clauses that bound the width of derivations to the formula. Encodings that support selecting the width
+     * override this method; by default, widths cannot be selected.
+     * @param width the width.
+     * @param selector the selector literal, each clause that depends on the width has to contain its negation.
+     */
+    protected void encodeWidth(int width, int selector) {
+        throw new UnsupportedOperationException("The width of this encoding cannot be selected");
+    }
+
+    /**
+     * Adds the clauses that were left out of the encoding and are violated by an assignment, so that the assignment is
+     * no longer a model. Encodings that add constraints lazily override this method; by default, all constraints are
+     * encoded eagerly and every model of the formula is a model of the encoding.
+     * @param assignment a satisfying assignment of the clauses added so far, indexed by the variables.
+     * @return the amount of clauses added; zero if the assignment satisfies all constraints of the encoding.
+     */
+    public int refine(boolean[] assignment) {
+        return 0;
     }
 
     /**
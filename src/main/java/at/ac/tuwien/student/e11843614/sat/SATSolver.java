@@ -3,33 +3,42 @@ package at.ac.tuwien.student.e11843614.sat;
 import at.ac.tuwien.student.e11843614.exception.TimeoutException;
 import at.ac.tuwien.student.e11843614.formula.Clause;
 import at.ac.tuwien.student.e11843614.formula.Formula;
-import org.sat4j.core.VecInt;
-import org.sat4j.minisat.SolverFactory;
-import org.sat4j.specs.ContradictionException;
-import org.sat4j.specs.ISolver;
 
-import java.util.HashSet;
-import java.util.Set;
 
 /**
- * A class that is responsible for communication with the SAT solver.
+ * A class that is responsible for communication with the SAT solver, through the SAT backend selected on the command
+ * line.
  */
 public abstract class SATSolver {
 
     /**
-     * Runs a SAT solver on a SAT encoding and returns the set of variables assigned to true.
-     * @return a set of true variables.
+     * Runs a SAT solver on a SAT encoding (that collects its clauses in a formula) and returns the truth values of the
+     * variables.
+     * @return an array indexed by the variables of the encoding, true for variables assigned to true; or null if the
+     *         formula is unsatisfiable.
      * @throws TimeoutException if the SAT solver takes too long.
      */
-    public static Set<Variable> getSatisfyingAssignment(SATEncoding satEncoding) throws TimeoutException {
-        int[] assignments = SATSolver.getModel(satEncoding.formula());
-        Set<Variable> truth = new HashSet<>();
-        for (int assignment : assignments) {
-            if (assignment > 0) {
-                truth.add(satEncoding.variableMap().getFromDomain(assignment));
+    public static boolean[] getSatisfyingAssignment(SATEncoding satEncoding) throws TimeoutException {
+        return asAssignment(SATSolver.getModel(satEncoding.formula()), satEncoding);
+    }
+
+    /**
+     * Converts a model to an array of truth values.
+     * @param model a model, or an empty array if there is none.
+     * @param satEncoding the SAT encoding.
+     * @return an array indexed by the variables of the encoding, or null if the model is empty.
+     */
+    static boolean[] asAssignment(int[] model, SATEncoding satEncoding) {
+        if (model.length == 0) {
+            return null;
+        }
+        boolean[] assignment = new boolean[satEncoding.variableCount() + 1];
+        for (int literal : model) {
+            if (literal > 0 && literal < assignment.length) {
+                assignment[literal] = true;
             }
         }
-        return truth;
+        return assignment;
     }
 
     /**
@@ -40,35 +49,15 @@ public abstract class SATSolver {
      * @throws TimeoutException if the SAT solver takes too long.
      */
     public static int[] getModel(Formula formula) throws TimeoutException {
-        ISolver solver = SolverFactory.newDefault();
-        solver.setExpectedNumberOfClauses(formula.clauses().size());
-        try {
-            for (Clause clause : formula.clauses()) {
-                solver.addClause(asVecInt(clause));
-            }
-            if (solver.isSatisfiable()) {
-                return solver.findModel();
-            } else {
-                return new int[]{};
+        SATBackend backend = SATBackend.of();
+        for (Clause clause : formula.clauses()) {
+            int[] literals = new int[clause.literals().size()];
+            for (int i = 0; i < literals.length; i++) {
+                literals[i] = clause.literals().get(i);
             }
-        } catch (ContradictionException exception) {
-            return new int[]{};
-        } catch (org.sat4j.specs.TimeoutException exception) {
-            throw new TimeoutException(exception);
-        }
-    }
-
-    /**
-     * Converts this project's Clause object to Sat4j's VecInt.
-     * @param clause the clause to be converted to VecInt.
-     * @return a VecInt equivalent to clause.
-     */
-    private static VecInt asVecInt(Clause clause) {
-        int[] array = new int[clause.literals().size()];
-        for (int i = 0; i < array.length; i++) {
-            array[i] = clause.literals().get(i);
+            backend.addClause(literals);
         }
-        return new VecInt(array);
+        return backend.solve();
     }
 
 }
@@ -0,0 +1,178 @@
+package at.ac.tuwien.student.e11843614.sat;
+
+import at.ac.tuwien.student.e11843614.Cancellation;
+import at.ac.tuwien.student.e11843614.exception.TimeoutException;
+import org.sat4j.core.LiteralsUtils;
+import org.sat4j.core.VecInt;
+import org.sat4j.minisat.SolverFactory;
+import org.sat4j.minisat.core.ICDCL;
+import org.sat4j.minisat.core.IPhaseSelectionStrategy;
+import org.sat4j.minisat.orders.NegativeLiteralSelectionStrategy;
+import org.sat4j.minisat.orders.PositiveLiteralSelectionStrategy;
+import org.sat4j.minisat.orders.RSATPhaseSelectionStrategy;
+import org.sat4j.minisat.restarts.MiniSATRestarts;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.ISolver;
+
+import java.util.Random;
+
+/**
+ * The SAT backend that runs Sat4j in the same process. Clauses are passed on to Sat4j as they are added, and the
+ * clauses learned in one call are reused in the next ones. Configurations other than Sat4j's default differ in their
+ * restarts and phase selection, so that a portfolio of them covers encodings on which the default behaves badly.
+ */
+public class Sat4jBackend implements SATBackend {
+
+    // Names of the fixed configurations; configurations beyond these use random initial phases
+    private static final String[] CONFIGURATIONS = {"default", "luby", "minisat-positive", "glucose-negative"};
+
+    private final ISolver solver;
+    private final int configuration;
+    private boolean contradiction = false;
+
+    /**
+     * Constructs a backend with Sat4j's default configuration.
+     */
+    public Sat4jBackend() {
+        this(0);
+    }
+
+    /**
+     * Constructs a backend with a configuration of Sat4j.
+     * @param configuration the number of the configuration. 0 is Sat4j's default (Glucose restarts, phase saving), 1
+     *                      uses Luby restarts, 2 MiniSAT restarts and positive phases, 3 Glucose restarts and negative
+     *                      phases. Higher numbers use Sat4j's default with random initial phases, seeded by the number.
+     */
+    public Sat4jBackend(int configuration) {
+        this.configuration = configuration;
+        switch (configuration) {
+            case 0:
+                solver = SolverFactory.newDefault();
+                break;
+            case 1:
+                solver = SolverFactory.newMiniLearningHeapRsatExpSimpLuby();
+                break;
+            case 2: {
+                ICDCL<?> cdcl = SolverFactory.newMiniLearningHeapRsatExpSimp();
+                cdcl.setRestartStrategy(new MiniSATRestarts());
+                cdcl.getOrder().setPhaseSelectionStrategy(new PositiveLiteralSelectionStrategy());
+                solver = cdcl;
+                break;
+            }
+            case 3: {
+                ICDCL<?> cdcl = SolverFactory.newGlucose21();
+                cdcl.getOrder().setPhaseSelectionStrategy(new NegativeLiteralSelectionStrategy());
+                solver = cdcl;
+                break;
+            }
+            default: {
+                ICDCL<?> cdcl = SolverFactory.newGlucose21();
+                cdcl.getOrder().setPhaseSelectionStrategy(new RandomInitialPhases(configuration));
+                solver = cdcl;
+                break;
+            }
+        }
+    }
+
+    @Override
+    public void addClause(int... literals) {
+        if (contradiction) {
+            return;
+        }
+        try {
+            // Sat4j copies the literals into its own data structures
+            solver.addClause(new VecInt(literals));
+        } catch (ContradictionException exception) {
+            // The formula is unsatisfiable regardless of the assumptions, and stays so if clauses are added
+            contradiction = true;
+        }
+    }
+
+    @Override
+    public int[] solve(int... assumptions) throws TimeoutException {
+        if (contradiction) {
+            return new int[]{};
+        }
+        // Stop at the deadline of the count instead of searching on after it has timed out
+        long remaining = Cancellation.remainingMillis();
+        if (remaining > 0) {
+            solver.setTimeoutMs(remaining);
+        }
+        try {
+            if (solver.isSatisfiable(new VecInt(assumptions))) {
+                return solver.model();
+            } else {
+                return new int[]{};
+            }
+        } catch (org.sat4j.specs.TimeoutException exception) {
+            throw new TimeoutException(exception);
+        }
+    }
+
+    @Override
+    public void interrupt() {
+        solver.expireTimeout();
+    }
+
+    @Override
+    public String name() {
+        if (configuration == 0) {
+            return "sat4j";
+        } else if (configuration < CONFIGURATIONS.length) {
+            return "sat4j (" + CONFIGURATIONS[configuration] + ")";
+        } else {
+            return "sat4j (seed " + configuration + ")";
+        }
+    }
+
+    // ----- Phase selection -------------------------------------------------------------------------------------------
+
+    /**
+     * Phase saving whose initial phases are drawn at random instead of being negative. Sat4j initializes the phases at
+     * the start of every search, so each call of a solver starts from fresh random phases.
+     */
+    private static class RandomInitialPhases implements IPhaseSelectionStrategy {
+
+        private final IPhaseSelectionStrategy phaseSaving = new RSATPhaseSelectionStrategy();
+        private final Random random;
+
+        RandomInitialPhases(long seed) {
+            this.random = new Random(seed);
+        }
+
+        @Override
+        public void init(int nlength) {
+            phaseSaving.init(nlength);
+            for (int var = 1; var < nlength; var++) {
+                phaseSaving.init(var, random.nextBoolean() ? LiteralsUtils.posLit(var) : LiteralsUtils.negLit(var));
+            }
+        }
+
+        @Override
+        public void init(int var, int p) {
+            phaseSaving.init(var, p);
+        }
+
+        @Override
+        public void updateVar(int p) {
+            phaseSaving.updateVar(p);
+        }
+
+        @Override
+        public void assignLiteral(int p) {
+            phaseSaving.assignLiteral(p);
+        }
+
+        @Override
+        public int select(int var) {
+            return phaseSaving.select(var);
+        }
+
+        @Override
+        public void updateVarAtDecisionLevel(int q) {
+            phaseSaving.updateVarAtDecisionLevel(q);
+        }
+
+    }
+
+}
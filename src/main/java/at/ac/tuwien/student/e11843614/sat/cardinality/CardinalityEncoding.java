@@ -0,0 +1,108 @@
+package at.ac.tuwien.student.e11843614.sat.cardinality;
+
+import at.ac.tuwien.student.e11843614.sat.SATEncoding;
+
+/**
+ * An encoding of cardinality constraints over a fixed set of literals into the clauses of a SAT encoding, i.e. of
+ * constraints that at most a certain amount of the literals are true. The encodings count the true literals with
+ * auxiliary variables, which are forced to be true by the literals; bounding the count only adds a few clauses, so that
+ * several bounds can be imposed (each guarded by a selector) on the same count.
+ */
+public abstract class CardinalityEncoding {
+
+    /**
+     * The available cardinality encodings.
+     */
+    public enum Type {
+        seq, totalizer, modulo, network
+    }
+
+    protected final SATEncoding sat;
+    protected final int[] literals;
+
+    /**
+     * Constructs a cardinality encoding.
+     * @param sat the SAT encoding that receives the variables and clauses.
+     * @param literals the literals to be counted.
+     */
+    protected CardinalityEncoding(SATEncoding sat, int[] literals) {
+        this.sat = sat;
+        this.literals = literals;
+    }
+
+    /**
+     * Constructs a cardinality encoding of a type.
+     * @param type the type of the encoding.
+     * @param sat the SAT encoding that receives the variables and clauses.
+     * @param literals the literals to be counted.
+     * @param maxBound the largest bound that will be imposed. Some encodings only count up to this bound.
+     * @return the cardinality encoding.
+     */
+    public static CardinalityEncoding of(Type type, SATEncoding sat, int[] literals, int maxBound) {
+        switch (type) {
+            case seq:
+                return new SequentialCounter(sat, literals);
+            case totalizer:
+                return new Totalizer(sat, literals, maxBound);
+            case modulo:
+                return new ModuloTotalizer(sat, literals, maxBound);
+            case network:
+                return new CardinalityNetwork(sat, literals, maxBound);
+            default:
+                throw new IllegalArgumentException("Cardinality encoding '" + type + "' does not exist");
+        }
+    }
+
+    /**
+     * Adds the clauses that allow at most a bound of the literals to be true.
+     * @param bound the bound (>= 0).
+     * @param selector the selector literal that guards the clauses, or null if the clauses are unconditional.
+     */
+    public void atMost(int bound, Integer selector) {
+        if (bound >= literals.length) {
+            return;
+        }
+        if (bound == 0) {
+            for (int literal : literals) {
+                addClause(selector, -literal);
+            }
+            return;
+        }
+        encodeAtMost(bound, selector);
+    }
+
+    /**
+     * Adds the clauses that allow at most a bound of the literals to be true, where 0 < bound < amount of literals.
+     * @param bound the bound.
+     * @param selector the selector literal that guards the clauses, or null if the clauses are unconditional.
+     */
+    protected abstract void encodeAtMost(int bound, Integer selector);
+
+    /**
+     * Adds a clause to the SAT encoding, guarded by a selector.
+     * @param selector the selector literal, whose negation is added to the clause; or null.
+     * @param clause the literals of the clause.
+     */
+    protected void addClause(Integer selector, int... clause) {
+        if (selector == null) {
+            sat.addClause(clause);
+        } else {
+            int[] guarded = new int[clause.length + 1];
+            guarded[0] = -selector;
+            System.arraycopy(clause, 0, guarded, 1, clause.length);
+            sat.addClause(guarded);
+        }
+    }
+
+    /**
+     * Checks that a bound can be imposed on an encoding that only counts up to a maximum bound.
+     * @param bound the bound.
+     * @param maxBound the maximum bound of the encoding.
+     */
+    protected static void checkBound(int bound, int maxBound) {
+        if (bound > maxBound) {
+            throw new IllegalArgumentException("Bound " + bound + " exceeds the maximum bound " + maxBound);
+        }
+    }
+
+}
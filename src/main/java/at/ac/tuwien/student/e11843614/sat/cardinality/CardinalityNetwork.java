@@ -0,0 +1,163 @@
+package at.ac.tuwien.student.e11843614.sat.cardinality;
+
+import at.ac.tuwien.student.e11843614.sat.SATEncoding;
+
+import java.util.Arrays;
+
+/**
+ * The cardinality network (Asín et al. 2011). The literals are split into blocks of k literals, where k is the
+ * smallest power of two above the maximum bound; each block is sorted by an odd-even merge sorter, and the blocks are
+ * combined by simplified merges that only keep the k largest outputs. The outputs o_1..o_k are sorted, and o_s is true
+ * if at least s literals are true. Only the clauses that propagate from the inputs to the outputs are needed for
+ * at-most constraints. Inputs are padded with the constant false, which is represented by 0 and simplified away.
+ */
+public class CardinalityNetwork extends CardinalityEncoding {
+
+    private final int maxBound;
+    private final int[] outputs;
+
+    /**
+     * Constructs a cardinality network.
+     * @param sat the SAT encoding that receives the variables and clauses.
+     * @param literals the literals to be counted.
+     * @param maxBound the largest bound that will be imposed.
+     */
+    public CardinalityNetwork(SATEncoding sat, int[] literals, int maxBound) {
+        super(sat, literals);
+        this.maxBound = maxBound;
+        int k = Integer.highestOneBit(maxBound + 1);
+        if (k < maxBound + 1) {
+            k *= 2;
+        }
+        int blocks = Math.max(1, (literals.length + k - 1) / k);
+        this.outputs = card(Arrays.copyOf(literals, blocks * k), k);
+    }
+
+    @Override
+    protected void encodeAtMost(int bound, Integer selector) {
+        checkBound(bound, maxBound);
+        if (outputs[bound] != 0) {
+            addClause(selector, -outputs[bound]);
+        }
+    }
+
+    /**
+     * Constructs a k-cardinality network, whose outputs are the k largest of its sorted inputs.
+     * @param inputs the inputs, a multiple of k.
+     * @param k the amount of outputs, a power of two.
+     * @return the outputs in descending order.
+     */
+    private int[] card(int[] inputs, int k) {
+        if (inputs.length == k) {
+            return sort(inputs);
+        }
+        int[] first = card(Arrays.copyOfRange(inputs, 0, k), k);
+        int[] rest = card(Arrays.copyOfRange(inputs, k, inputs.length), k);
+        return Arrays.copyOf(simplifiedMerge(first, rest), k);
+    }
+
+    /**
+     * Constructs an odd-even merge sorter.
+     * @param inputs the inputs, a power of two.
+     * @return the outputs in descending order.
+     */
+    private int[] sort(int[] inputs) {
+        if (inputs.length == 1) {
+            return inputs;
+        }
+        int half = inputs.length / 2;
+        return merge(sort(Arrays.copyOfRange(inputs, 0, half)), sort(Arrays.copyOfRange(inputs, half, inputs.length)));
+    }
+
+    /**
+     * Constructs an odd-even merger of two sorted sequences.
+     * @param a a sorted sequence, a power of two.
+     * @param b a sorted sequence of the same length.
+     * @return the merged sequence in descending order.
+     */
+    private int[] merge(int[] a, int[] b) {
+        int n = a.length;
+        if (n == 1) {
+            return comparator(a[0], b[0]);
+        }
+        int[] d = merge(odd(a), odd(b));
+        int[] e = merge(even(a), even(b));
+        int[] c = new int[2 * n];
+        c[0] = d[0];
+        for (int i = 1; i < n; i++) {
+            int[] pair = comparator(d[i], e[i - 1]);
+            c[2 * i - 1] = pair[0];
+            c[2 * i] = pair[1];
+        }
+        c[2 * n - 1] = e[n - 1];
+        return c;
+    }
+
+    /**
+     * Constructs a simplified merger of two sorted sequences, which only outputs the n + 1 largest elements.
+     * @param a a sorted sequence, a power of two.
+     * @param b a sorted sequence of the same length n.
+     * @return the n + 1 largest elements of the merged sequence in descending order.
+     */
+    private int[] simplifiedMerge(int[] a, int[] b) {
+        int n = a.length;
+        if (n == 1) {
+            return comparator(a[0], b[0]);
+        }
+        int[] d = simplifiedMerge(odd(a), odd(b));
+        int[] e = simplifiedMerge(even(a), even(b));
+        int[] c = new int[n + 1];
+        c[0] = d[0];
+        for (int i = 1; i <= n / 2; i++) {
+            int[] pair = comparator(d[i], e[i - 1]);
+            c[2 * i - 1] = pair[0];
+            c[2 * i] = pair[1];
+        }
+        return c;
+    }
+
+    /**
+     * Constructs a 2-comparator: its first output is true if x or y is true, its second one if x and y are true.
+     * @param x a literal, or 0 for false.
+     * @param y a literal, or 0 for false.
+     * @return the outputs, 0 if they are false.
+     */
+    private int[] comparator(int x, int y) {
+        if (x == 0 || y == 0) {
+            return new int[]{x == 0 ? y : x, 0};
+        }
+        int max = sat.newVariables(2);
+        int min = max + 1;
+        sat.addClause(-x, max);
+        sat.addClause(-y, max);
+        sat.addClause(-x, -y, min);
+        return new int[]{max, min};
+    }
+
+    /**
+     * Returns the elements at odd positions (counting from 1) of a sequence.
+     * @param a the sequence.
+     * @return the elements a_1, a_3, ...
+     */
+    private static int[] odd(int[] a) {
+        int[] odd = new int[a.length / 2];
+        for (int i = 0; i < odd.length; i++) {
+            odd[i] = a[2 * i];
+        }
+        return odd;
+    }
+
+    /**
+     * Returns the elements at even positions (counting from 1) of a sequence.
+     * @param a the sequence.
+     * @return the elements a_2, a_4, ...
+     */
+    private static int[] even(int[] a) {
+        int[] even = new int[a.length / 2];
+        for (int i = 0; i < even.length; i++) {
+            even[i] = a[2 * i + 1];
+        }
+        return even;
+    }
+
+}
@@ -0,0 +1,166 @@
+package at.ac.tuwien.student.e11843614.sat.cardinality;
+
+import at.ac.tuwien.student.e11843614.sat.SATEncoding;
+
+/**
+ * The modulo totalizer (Ogawa et al. 2013). Like the totalizer, the literals are counted in a balanced binary tree, but
+ * each node represents its count c by two unary numbers, the upper digit c / p and the lower digit c mod p, where p is
+ * about the square root of the maximum bound. A node has a carry variable that is true if the lower digits of its
+ * children add up to at least p. This needs about k^1.5 instead of k^2 clauses per node for a maximum bound k.
+ */
+public class ModuloTotalizer extends CardinalityEncoding {
+
+    private final int maxBound;
+    private final int p;
+    private final int maxUpper;
+    private final Node root;
+
+    /**
+     * Constructs a modulo totalizer.
+     * @param sat the SAT encoding that receives the variables and clauses.
+     * @param literals the literals to be counted.
+     * @param maxBound the largest bound that will be imposed.
+     */
+    public ModuloTotalizer(SATEncoding sat, int[] literals, int maxBound) {
+        super(sat, literals);
+        this.maxBound = maxBound;
+        this.p = Math.max(2, (int) Math.ceil(Math.sqrt(maxBound + 1)));
+        // Upper digits beyond (maxBound + 1) / p + 1 need not be distinguished
+        this.maxUpper = (maxBound + 1) / p + 1;
+        this.root = literals.length > 0 ? node(0, literals.length) : null;
+    }
+
+    @Override
+    protected void encodeAtMost(int bound, Integer selector) {
+        checkBound(bound, maxBound);
+        // Forbid counts >= bound + 1 = q * p + r
+        int q = (bound + 1) / p;
+        int r = (bound + 1) % p;
+        if (q + 1 < root.upper.length) {
+            addClause(selector, -root.upper[q + 1]);
+        }
+        if (r == 0) {
+            addClause(selector, -root.upper[q]);
+        } else if (q == 0) {
+            addClause(selector, -root.lower[r]);
+        } else {
+            addClause(selector, -root.upper[q], -root.lower[r]);
+        }
+    }
+
+    /**
+     * Constructs the node of the tree that counts a range of literals.
+     * @param from the index of the first literal (inclusive).
+     * @param to the index of the last literal (exclusive).
+     * @return the node.
+     */
+    private Node node(int from, int to) {
+        if (to - from == 1) {
+            return new Node(new int[]{0}, new int[]{0, literals[from]});
+        }
+        int middle = (from + to) / 2;
+        Node a = node(from, middle);
+        Node b = node(middle, to);
+        // The carry may be set even if the lower digits do not overflow, which increases the upper digit instead (so
+        // the node still counts at least the true literals); the upper digit can thus reach (to - from - 1)
+        Node node = new Node(
+            variables(Math.min(to - from - 1, maxUpper)),
+            variables(Math.min(to - from, p - 1))
+        );
+        int carry = 0;
+        if ((a.lower.length - 1) + (b.lower.length - 1) >= p) {
+            carry = sat.newVariables(1);
+        }
+        // Lower digits, the carry is set if they overflow
+        for (int alpha = 0; alpha < a.lower.length; alpha++) {
+            for (int beta = 0; beta < b.lower.length; beta++) {
+                int sigma = alpha + beta;
+                if (sigma == 0) {
+                    continue;
+                }
+                if (sigma < p) {
+                    addImplication(a.lower[alpha], b.lower[beta], carry, node.lower[sigma]);
+                } else {
+                    addImplication(a.lower[alpha], b.lower[beta], 0, carry);
+                    if (sigma > p) {
+                        addImplication(a.lower[alpha], b.lower[beta], 0, node.lower[sigma - p]);
+                    }
+                }
+            }
+        }
+        // Upper digits, incremented by the carry
+        int size = node.upper.length - 1;
+        for (int alpha = 0; alpha < a.upper.length; alpha++) {
+            for (int beta = 0; beta < b.upper.length; beta++) {
+                int tau = alpha + beta;
+                if (tau > 0) {
+                    addImplication(a.upper[alpha], b.upper[beta], 0, node.upper[Math.min(tau, size)]);
+                }
+                if (carry != 0) {
+                    sat.addClause(clause(-a.upper[alpha], -b.upper[beta], -carry, node.upper[Math.min(tau + 1, size)]));
+                }
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Allocates unary digits.
+     * @param size the amount of digits.
+     * @return the digits, indexed from 1; the digit 0 is the constant true, represented by 0.
+     */
+    private int[] variables(int size) {
+        int[] digits = new int[size + 1];
+        if (size > 0) {
+            int first = sat.newVariables(size);
+            for (int s = 1; s <= size; s++) {
+                digits[s] = first + s - 1;
+            }
+        }
+        return digits;
+    }
+
+    /**
+     * Adds the clause a and b imply (c or d), where 0 stands for true in a, b and for false in c.
+     * @param a a literal or 0.
+     * @param b a literal or 0.
+     * @param c a literal or 0.
+     * @param d a literal.
+     */
+    private void addImplication(int a, int b, int c, int d) {
+        sat.addClause(clause(-a, -b, c, d));
+    }
+
+    /**
+     * Constructs a clause from literals, omitting zeros.
+     * @param literals the literals, 0 for the constant false.
+     * @return the clause.
+     */
+    private static int[] clause(int... literals) {
+        int size = 0;
+        for (int literal : literals) {
+            if (literal != 0) {
+                literals[size++] = literal;
+            }
+        }
+        int[] clause = new int[size];
+        System.arraycopy(literals, 0, clause, 0, size);
+        return clause;
+    }
+
+    /**
+     * A node of the tree, with its upper and lower digits indexed from 1.
+     */
+    private static class Node {
+
+        private final int[] upper;
+        private final int[] lower;
+
+        private Node(int[] upper, int[] lower) {
+            this.upper = upper;
+            this.lower = lower;
+        }
+
+    }
+
+}
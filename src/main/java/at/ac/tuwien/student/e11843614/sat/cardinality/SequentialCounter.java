@@ -0,0 +1,64 @@
+package at.ac.tuwien.student.e11843614.sat.cardinality;
+
+import at.ac.tuwien.student.e11843614.sat.SATEncoding;
+
+import java.util.Arrays;
+
+/**
+ * The sequential counter (Sinz 2005). The counter variable s(u, j) is true if at least j of the literals 0..u are true.
+ * The layers j of the counter are added when a bound needs them, so the counter has no maximum bound.
+ */
+public class SequentialCounter extends CardinalityEncoding {
+
+    private int[] layers = new int[1];
+
+    /**
+     * Constructs a sequential counter.
+     * @param sat the SAT encoding that receives the variables and clauses.
+     * @param literals the literals to be counted.
+     */
+    public SequentialCounter(SATEncoding sat, int[] literals) {
+        super(sat, literals);
+    }
+
+    @Override
+    protected void encodeAtMost(int bound, Integer selector) {
+        for (int u = 1; u < literals.length; u++) {
+            addClause(selector, -literals[u], -counter(u - 1, bound));
+        }
+    }
+
+    /**
+     * Returns a counter variable, adding the layers of the counter up to j if they do not exist yet.
+     * @param u the index of a literal.
+     * @param j the count (>= 1).
+     * @return the counter variable.
+     */
+    private int counter(int u, int j) {
+        while (layers.length <= j) {
+            addLayer(layers.length);
+        }
+        return layers[j] + u;
+    }
+
+    /**
+     * Adds the j-th layer of the counter.
+     * @param j the layer (>= 1).
+     */
+    private void addLayer(int j) {
+        layers = Arrays.copyOf(layers, j + 1);
+        layers[j] = sat.newVariables(literals.length);
+        for (int u = 0; u < literals.length; u++) {
+            if (j == 1) {
+                sat.addClause(-literals[u], counter(u, 1));
+            }
+            if (u > 0) {
+                sat.addClause(-counter(u - 1, j), counter(u, j));
+                if (j > 1) {
+                    sat.addClause(-literals[u], -counter(u - 1, j - 1), counter(u, j));
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,71 @@
+package at.ac.tuwien.student.e11843614.sat.cardinality;
+
+import at.ac.tuwien.student.e11843614.sat.SATEncoding;
+
+/**
+ * The totalizer (Bailleux and Boufkhad 2003). The literals are counted in a balanced binary tree; each node has unary
+ * outputs o_s that are true if at least s literals below the node are true. Outputs are only kept up to maxBound + 1,
+ * since larger counts need not be distinguished.
+ */
+public class Totalizer extends CardinalityEncoding {
+
+    private final int maxBound;
+    private final int[] outputs;
+
+    /**
+     * Constructs a totalizer.
+     * @param sat the SAT encoding that receives the variables and clauses.
+     * @param literals the literals to be counted.
+     * @param maxBound the largest bound that will be imposed.
+     */
+    public Totalizer(SATEncoding sat, int[] literals, int maxBound) {
+        super(sat, literals);
+        this.maxBound = maxBound;
+        this.outputs = literals.length > 0 ? node(0, literals.length) : new int[1];
+    }
+
+    @Override
+    protected void encodeAtMost(int bound, Integer selector) {
+        checkBound(bound, maxBound);
+        addClause(selector, -outputs[bound + 1]);
+    }
+
+    /**
+     * Constructs the node of the tree that counts a range of literals.
+     * @param from the index of the first literal (inclusive).
+     * @param to the index of the last literal (exclusive).
+     * @return the outputs of the node, indexed from 1.
+     */
+    private int[] node(int from, int to) {
+        if (to - from == 1) {
+            return new int[]{0, literals[from]};
+        }
+        int middle = (from + to) / 2;
+        int[] a = node(from, middle);
+        int[] b = node(middle, to);
+        int size = Math.min(to - from, maxBound + 1);
+        int first = sat.newVariables(size);
+        int[] outputs = new int[size + 1];
+        for (int s = 1; s <= size; s++) {
+            outputs[s] = first + s - 1;
+        }
+        // o_min(alpha + beta, size) is true if a_alpha and b_beta are true (a_0 and b_0 are true)
+        for (int alpha = 0; alpha < a.length; alpha++) {
+            for (int beta = 0; beta < b.length; beta++) {
+                if (alpha + beta == 0) {
+                    continue;
+                }
+                int output = outputs[Math.min(alpha + beta, size)];
+                if (alpha == 0) {
+                    sat.addClause(-b[beta], output);
+                } else if (beta == 0) {
+                    sat.addClause(-a[alpha], output);
+                } else {
+                    sat.addClause(-a[alpha], -b[beta], output);
+                }
+            }
+        }
+        return outputs;
+    }
+
+}
@@ -1,10 +1,15 @@
 package at.ac.tuwien.student.e11843614.sat.factory;
 
+import at.ac.tuwien.student.e11843614.Arguments;
+import at.ac.tuwien.student.e11843614.sat.CarvingSATEncoding;
+import at.ac.tuwien.student.e11843614.sat.ClauseSink;
+import at.ac.tuwien.student.e11843614.sat.CliqueSATEncoding;
+import at.ac.tuwien.student.e11843614.sat.cardinality.CardinalityEncoding;
 import at.ac.tuwien.student.e11843614.struct.graph.Graph;
-import at.ac.tuwien.student.e11843614.sat.SATEncoding;
 
 /**
- * A class that is responsible for constructing a SAT encoding of a graph.
+ * A class that is responsible for constructing a SAT encoding of a graph. Unless given explicitly, the loads of the
+ * carving-width encodings are bounded by the cardinality encoding selected with --cardinality.
  */
 public abstract class SATEncodingFactory {
 
@@ -14,8 +19,20 @@ public abstract class SATEncodingFactory {
      * @param w the target carving-width.
      * @return a SAT encoding for this graph that contains a formula which is satisfiable if crw(graph) <= w.
      */
-    public static SATEncoding forCarvingWidth(Graph graph, int w) {
-        return SATEncodingFactoryForCarvingWidth.of(graph, w);
+    public static CarvingSATEncoding forCarvingWidth(Graph graph, int w) {
+        return SATEncodingFactoryForCarvingWidth.of(graph, w, Arguments.cardinality());
+    }
+
+    /**
+     * Constructs a SAT encoding of a graph with a formula that is satisfiable iff carving-width of the graph is <= w,
+     * bounding the loads with a given cardinality encoding.
+     * @param graph the graph.
+     * @param w the target carving-width.
+     * @param cardinality the encoding of the constraints that bound the loads.
+     * @return a SAT encoding for this graph that contains a formula which is satisfiable if crw(graph) <= w.
+     */
+    public static CarvingSATEncoding forCarvingWidth(Graph graph, int w, CardinalityEncoding.Type cardinality) {
+        return SATEncodingFactoryForCarvingWidth.of(graph, w, cardinality);
     }
 
     /**
@@ -24,8 +41,108 @@ public abstract class SATEncodingFactory {
      * @param k the target clique-width.
      * @return a SAT encoding for this graph that contains a formula which is satisfiable if cw(graph) <= k.
      */
-    public static SATEncoding forCliqueWidth(Graph graph, int k) {
+    public static CliqueSATEncoding forCliqueWidth(Graph graph, int k) {
         return SATEncodingFactoryForCliqueWidth.of(graph, k);
     }
 
+    /**
+     * Constructs a SAT encoding of a graph whose clauses are streamed into a sink (e.g. a SAT solver or a DIMACS file)
+     * instead of a formula. The clauses are satisfiable iff carving-width of the graph is <= w.
+     * @param graph the graph.
+     * @param w the target carving-width.
+     * @param sink the sink that consumes the clauses.
+     * @return a SAT encoding for this graph, without a formula.
+     */
+    public static CarvingSATEncoding forCarvingWidth(Graph graph, int w, ClauseSink sink) {
+        return SATEncodingFactoryForCarvingWidth.of(graph, w, sink, Arguments.cardinality());
+    }
+
+    /**
+     * Constructs a SAT encoding of a graph whose clauses are streamed into a sink (e.g. a SAT solver or a DIMACS file)
+     * instead of a formula. The clauses are satisfiable iff clique-width of the graph is <= k.
+     * @param graph the graph.
+     * @param k the target clique-width.
+     * @param sink the sink that consumes the clauses.
+     * @return a SAT encoding for this graph, without a formula.
+     */
+    public static CliqueSATEncoding forCliqueWidth(Graph graph, int k, ClauseSink sink) {
+        return SATEncodingFactoryForCliqueWidth.of(graph, k, sink);
+    }
+
+    /**
+     * Constructs an incremental SAT encoding of a graph for carving-widths in a range, i.e. a formula that is
+     * satisfiable under the selector of w iff carving-width of the graph is <= w.
+     * @param graph the graph.
+     * @param wMin the smallest carving-width that will be selected.
+     * @param wMax the largest carving-width that will be selected.
+     * @param sink the sink that consumes the clauses, usually an IncrementalSATSolver.
+     * @return an incremental SAT encoding for this graph.
+     */
+    public static CarvingSATEncoding forCarvingWidth(Graph graph, int wMin, int wMax, ClauseSink sink) {
+        return SATEncodingFactoryForCarvingWidth.incremental(graph, wMin, wMax, sink, false, false,
+            Arguments.cardinality());
+    }
+
+    /**
+     * Constructs an incremental SAT encoding of a graph for carving-widths in a range, optionally with lazy transitivity
+     * constraints and symmetry breaking. A lazy encoding leaves out the transitivity clauses; they are added by
+     * refining the encoding with models that violate them, until a model satisfies all of them.
+     * @param graph the graph.
+     * @param wMin the smallest carving-width that will be selected.
+     * @param wMax the largest carving-width that will be selected.
+     * @param sink the sink that consumes the clauses, usually an IncrementalSATSolver.
+     * @param lazy whether the transitivity clauses are added lazily.
+     * @param symmetryBreaking whether clauses that break the symmetry between derivations are added.
+     * @return an incremental SAT encoding for this graph.
+     */
+    public static CarvingSATEncoding forCarvingWidth(Graph graph, int wMin, int wMax, ClauseSink sink, boolean lazy,
+                                                     boolean symmetryBreaking) {
+        return SATEncodingFactoryForCarvingWidth.incremental(graph, wMin, wMax, sink, lazy, symmetryBreaking,
+            Arguments.cardinality());
+    }
+
+    /**
+     * Constructs an incremental SAT encoding of a graph for carving-widths in a range, bounding the loads with a given
+     * cardinality encoding.
+     * @param graph the graph.
+     * @param wMin the smallest carving-width that will be selected.
+     * @param wMax the largest carving-width that will be selected.
+     * @param sink the sink that consumes the clauses, usually an IncrementalSATSolver.
+     * @param lazy whether the transitivity clauses are added lazily.
+     * @param symmetryBreaking whether clauses that break the symmetry between derivations are added.
+     * @param cardinality the encoding of the constraints that bound the loads.
+     * @return an incremental SAT encoding for this graph.
+     */
+    public static CarvingSATEncoding forCarvingWidth(Graph graph, int wMin, int wMax, ClauseSink sink, boolean lazy,
+                                                     boolean symmetryBreaking, CardinalityEncoding.Type cardinality) {
+        return SATEncodingFactoryForCarvingWidth.incremental(graph, wMin, wMax, sink, lazy, symmetryBreaking,
+            cardinality);
+    }
+
+    /**
+     * Constructs an incremental SAT encoding of a graph for clique-widths of at least kMin, i.e. a formula that is
+     * satisfiable under the selector of k iff clique-width of the graph is <= k.
+     * @param graph the graph.
+     * @param kMin the smallest clique-width that will be selected.
+     * @param sink the sink that consumes the clauses, usually an IncrementalSATSolver.
+     * @return an incremental SAT encoding for this graph.
+     */
+    public static CliqueSATEncoding forCliqueWidthFrom(Graph graph, int kMin, ClauseSink sink) {
+        return SATEncodingFactoryForCliqueWidth.incremental(graph, kMin, sink, false);
+    }
+
+    /**
+     * Constructs an incremental SAT encoding of a graph for clique-widths of at least kMin, optionally with symmetry
+     * breaking.
+     * @param graph the graph.
+     * @param kMin the smallest clique-width that will be selected.
+     * @param sink the sink that consumes the clauses, usually an IncrementalSATSolver.
+     * @param symmetryBreaking whether clauses that break the symmetry between derivations are added.
+     * @return an incremental SAT encoding for this graph.
+     */
+    public static CliqueSATEncoding forCliqueWidthFrom(Graph graph, int kMin, ClauseSink sink,
+                                                       boolean symmetryBreaking) {
+        return SATEncodingFactoryForCliqueWidth.incremental(graph, kMin, sink, symmetryBreaking);
+    }
+
 }
@@ -1,11 +1,19 @@
 package at.ac.tuwien.student.e11843614.sat.factory;
 
+import at.ac.tuwien.student.e11843614.Cancellation;
 import at.ac.tuwien.student.e11843614.Logger;
-import at.ac.tuwien.student.e11843614.formula.Clause;
-import at.ac.tuwien.student.e11843614.struct.graph.Edge;
 import at.ac.tuwien.student.e11843614.struct.graph.Graph;
+import at.ac.tuwien.student.e11843614.sat.CarvingSATEncoding;
+import at.ac.tuwien.student.e11843614.sat.ClauseBuffer;
+import at.ac.tuwien.student.e11843614.sat.ClauseSink;
 import at.ac.tuwien.student.e11843614.sat.SATEncoding;
-import at.ac.tuwien.student.e11843614.sat.Variable;
+import at.ac.tuwien.student.e11843614.sat.cardinality.CardinalityEncoding;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 public abstract class SATEncodingFactoryForCarvingWidth {
 
@@ -13,182 +21,344 @@ public abstract class SATEncodingFactoryForCarvingWidth {
      * Constructs a SAT encoding of a graph with a formula that is satisfiable iff carving-width of the graph is <= w.
      * @param graph the graph.
      * @param w the target carving-width.
+     * @param cardinality the encoding of the constraints that bound the loads.
      * @return a SAT encoding for this graph that contains a formula which is satisfiable if crw(graph) <= w.
      */
-    public static SATEncoding of(Graph graph, int w) {
-        double deg = maximumDegree(graph);
-        int d = (int) Math.floor(graph.vertices().size() / 2.0)
-            - (int) Math.ceil(w / deg)
-            + (int) Math.max(0, Math.ceil(Math.log(Math.floor(w / deg)) / Math.log(2))); // prevent overflow
-        // Impose lower bound on d
-        int min = 2 + (int) Math.ceil(Math.log(1.0/3.0 * graph.vertices().size()) / Math.log(2));
-        d = Math.max(min, d);
-        Logger.debug("Constructing a SAT encoding for carving-width, w = " + w + ", d = " + d);
-        SATEncoding sat = new SATEncoding(graph);
-        clause1(sat, d);
-        clause2(sat, d);
-        clause3(sat, d);
-        clause4(sat, d);
-        clause5(sat, d);
-        clause6(sat, d);
-        clause7(sat, d);
-        clause8(sat, d);
-        clause9(sat, d);
-        clause10(sat, d, w);
-        clause11(sat, d);
-        Logger.debug("Constructed a SAT encoding for carving-width; formula has " + sat.variableMap().size()
-            + " variables and " + sat.formula().clauses().size() + " clauses");
+    public static CarvingSATEncoding of(Graph graph, int w, CardinalityEncoding.Type cardinality) {
+        return encode(new CarvingSATEncoding(graph, depth(graph)), w, cardinality);
+    }
+
+    /**
+     * Constructs a SAT encoding of a graph whose clauses are streamed into a sink. The clauses are satisfiable iff
+     * carving-width of the graph is <= w.
+     * @param graph the graph.
+     * @param w the target carving-width.
+     * @param sink the sink that consumes the clauses.
+     * @param cardinality the encoding of the constraints that bound the loads.
+     * @return a SAT encoding for this graph, without a formula.
+     */
+    public static CarvingSATEncoding of(Graph graph, int w, ClauseSink sink, CardinalityEncoding.Type cardinality) {
+        return encode(new CarvingSATEncoding(graph, depth(graph), sink), w, cardinality);
+    }
+
+    private static CarvingSATEncoding encode(CarvingSATEncoding sat, int w, CardinalityEncoding.Type cardinality) {
+        int d = sat.d();
+        Logger.debug("Constructing a SAT encoding for carving-width, w = " + w + ", d = " + d + ", cardinality = "
+            + cardinality);
+        encodeDerivation(sat, d, false);
+        atMost(loadCounts(sat, d, cardinality, w), w, null);
+        Logger.debug("Constructed a SAT encoding for carving-width; formula has " + sat.variableCount()
+            + " variables and " + sat.clauseCount() + " clauses");
         return sat;
     }
 
-    private static int maximumDegree(Graph graph) {
-        int degree = 0;
-        for (int vertex : graph.vertices()) {
-            degree = Math.max(degree, graph.getNeighbors(vertex).size());
+    /**
+     * Constructs an incremental SAT encoding of a graph for carving-widths in a range. The length of derivations does
+     * not depend on the width, so that the clauses that do not depend on the width are only constructed once. The
+     * cardinality encodings that count the loads are constructed for the largest width when the
+     * first width is selected; the clauses that bound the loads are added for each selected width.
+     * @param graph the graph.
+     * @param wMin the smallest carving-width that will be selected.
+     * @param wMax the largest carving-width that will be selected.
+     * @param sink the sink that consumes the clauses.
+     * @param lazy whether the transitivity clauses (clause 2) are left out and only added when a model violates them,
+     *             see {@link SATEncoding#refine(boolean[])}.
+     * @param symmetryBreaking whether clauses that break the symmetry between derivations are added.
+     * @param cardinality the encoding of the constraints that bound the loads.
+     * @return an incremental SAT encoding for this graph; under the selector of w, its formula is satisfiable iff
+     *         crw(graph) <= w (for a lazy encoding: iff it is satisfiable after refining until no clause is added).
+     */
+    public static CarvingSATEncoding incremental(Graph graph, int wMin, int wMax, ClauseSink sink, boolean lazy,
+                                                 boolean symmetryBreaking, CardinalityEncoding.Type cardinality) {
+        int d = depth(graph);
+        Logger.debug("Constructing an incremental SAT encoding for carving-width, " + wMin + " <= w <= " + wMax
+            + ", d = " + d + ", cardinality = " + cardinality + (lazy ? ", lazy transitivity" : "")
+            + (symmetryBreaking ? ", symmetry breaking" : ""));
+        CarvingSATEncoding sat = new CarvingSATEncoding(graph, d, sink) {
+            private CardinalityEncoding[] loadCounts = null;
+
+            @Override
+            protected void encodeWidth(int width, int selector) {
+                // The counts are shared by all widths, only the bounds depend on the width
+                if (loadCounts == null) {
+                    loadCounts = loadCounts(this, d, cardinality, wMax);
+                }
+                atMost(loadCounts, width, selector);
+                Logger.debug("Added the clauses for carving-width " + width + "; formula has "
+                    + variableCount() + " variables and " + clauseCount() + " clauses");
+            }
+
+            @Override
+            public int refine(boolean[] assignment) {
+                if (!lazy) {
+                    return 0;
+                }
+                int clauses = violatedTransitivity(this, assignment);
+                Logger.debug("Added " + clauses + " violated transitivity clauses; formula has "
+                    + variableCount() + " variables and " + clauseCount() + " clauses");
+                return clauses;
+            }
+        };
+        encodeDerivation(sat, d, lazy);
+        if (symmetryBreaking) {
+            symmetryBreaking(sat, d);
         }
-        return degree;
+        Logger.debug("Constructed an incremental SAT encoding for carving-width; formula has "
+            + sat.variableCount() + " variables and " + sat.clauseCount() + " clauses");
+        return sat;
     }
 
-    private static void clause1(SATEncoding sat, int d) {
-        for (Integer e : sat.vertexMap().destinationSet()) {
-            for (Integer f : sat.vertexMap().destinationSet()) {
-                if (e < f) {
-                    for (int i = 1; i < d; i++) {
-                        int[] var = new int[]{
-                            sat.encodeVariable(Variable.set(e, f, 1)),
-                            sat.encodeVariable(Variable.set(e, f, d)),
-                            sat.encodeVariable(Variable.set(e, f, i)),
-                            sat.encodeVariable(Variable.set(e, f, i + 1))
-                        };
-                        sat.formula().addClause(-var[0]);
-                        sat.formula().addClause(var[1]);
-                        sat.formula().addClause(-var[2], var[3]);
-                    }
+    /**
+     * Computes a length of derivations that suffices for every carving-width. A derivation of length d corresponds to a
+     * carving decomposition that is rooted at an internal node whose leaves have depth at most d - 1. Every carving
+     * decomposition has an internal node whose leaves have depth at most ceil((n - 1) / 2), the radius of a path
+     * through all n - 2 internal nodes, so d = floor(n / 2) + 1 suffices. (A shorter length, derived from the ratio of
+     * the width to the maximum degree, rules out all optimal decompositions of some graphs, e.g. of small blocks.)
+     * @param graph the graph.
+     * @return the length d.
+     */
+    private static int depth(Graph graph) {
+        return graph.vertices().size() / 2 + 1;
+    }
+
+    /**
+     * Adds the clauses that do not depend on the width to the formula, i.e. all but the cardinality constraints (clause
+     * 10). Clauses 1 to 9
+     * only read the variables of the encoding, which are computed arithmetically, so they are generated concurrently:
+     * each family is split by its outermost vertex e, the clauses of each part are collected in a separate buffer, and
+     * the buffers are merged in the order of (family, e). Thus the formula does not depend on the scheduling of the
+     * threads. The parts are generated in windows of a few parts per thread, and each window is drained before the
+     * next one starts, so that only the buffers of one window are held at once.
+     * @param sat the SAT encoding.
+     * @param d the length of derivations.
+     * @param lazy whether the transitivity clauses (clause 2) are left out.
+     */
+    private static void encodeDerivation(CarvingSATEncoding sat, int d, boolean lazy) {
+        List<ClauseFamily> families = new ArrayList<>();
+        families.add(SATEncodingFactoryForCarvingWidth::clause1);
+        if (!lazy) {
+            families.add(SATEncodingFactoryForCarvingWidth::clause2);
+        }
+        families.addAll(Arrays.asList(
+            SATEncodingFactoryForCarvingWidth::clause3,
+            SATEncodingFactoryForCarvingWidth::clause4,
+            SATEncodingFactoryForCarvingWidth::clause5,
+            SATEncodingFactoryForCarvingWidth::clause6,
+            SATEncodingFactoryForCarvingWidth::clause7,
+            SATEncodingFactoryForCarvingWidth::clause8,
+            SATEncodingFactoryForCarvingWidth::clause9
+        ));
+        int n = sat.vertexMap().size();
+        // The tasks run on the common pool, which does not inherit the cancellation token of this thread
+        Cancellation cancellation = Cancellation.current();
+        int tasks = families.size() * n;
+        int window = 4 * Runtime.getRuntime().availableProcessors();
+        for (int start = 0; start < tasks; start += window) {
+            List<ClauseBuffer> buffers = IntStream.range(start, Math.min(start + window, tasks)).parallel()
+                .mapToObj(task -> {
+                    cancellation.throwIfCancelled();
+                    ClauseBuffer buffer = new ClauseBuffer();
+                    families.get(task / n).addClauses(sat, buffer, d, task % n + 1);
+                    return buffer;
+                })
+                .collect(Collectors.toList());
+            for (ClauseBuffer buffer : buffers) {
+                buffer.drainTo(sat::addClause);
+            }
+        }
+        ternaryRoot(sat, d);
+    }
+
+    /**
+     * A family of clauses that is generated for one vertex at a time.
+     */
+    @FunctionalInterface
+    private interface ClauseFamily {
+
+        /**
+         * Generates the clauses of this family whose outermost vertex is e.
+         * @param sat the SAT encoding, whose variables are used.
+         * @param sink the sink that consumes the clauses.
+         * @param d the length of derivations.
+         * @param e the outermost vertex.
+         */
+        void addClauses(CarvingSATEncoding sat, ClauseSink sink, int d, int e);
+
+    }
+
+    private static void clause1(CarvingSATEncoding sat, ClauseSink sink, int d, int e) {
+        for (Integer f : sat.vertexMap().destinationSet()) {
+            if (e < f) {
+                for (int i = 1; i < d; i++) {
+                    int[] var = new int[]{
+                        sat.set(e, f, 1),
+                        sat.set(e, f, d),
+                        sat.set(e, f, i),
+                        sat.set(e, f, i + 1)
+                    };
+                    sink.addClause(-var[0]);
+                    sink.addClause(var[1]);
+                    sink.addClause(-var[2], var[3]);
                 }
             }
         }
     }
 
-    private static void clause2(SATEncoding sat, int d) {
-        for (Integer e : sat.vertexMap().destinationSet()) {
-            for (Integer f : sat.vertexMap().destinationSet()) {
-                for (Integer g : sat.vertexMap().destinationSet()) {
-                    if (e < f && f < g) {
-                        for (int i = 1; i <= d; i++) {
-                            int[] var = new int[]{
-                                sat.encodeVariable(Variable.set(e, f, i)),
-                                sat.encodeVariable(Variable.set(e, g, i)),
-                                sat.encodeVariable(Variable.set(f, g, i))
-                            };
-                            sat.formula().addClause(-var[0], -var[1], var[2]);
-                            sat.formula().addClause(-var[0], -var[2], var[1]);
-                            sat.formula().addClause(-var[1], -var[2], var[0]);
-                        }
+    private static void clause2(CarvingSATEncoding sat, ClauseSink sink, int d, int e) {
+        for (Integer f : sat.vertexMap().destinationSet()) {
+            for (Integer g : sat.vertexMap().destinationSet()) {
+                if (e < f && f < g) {
+                    for (int i = 1; i <= d; i++) {
+                        transitivity(sat, sink, e, f, g, i);
                     }
                 }
             }
         }
     }
 
-    private static void clause3(SATEncoding sat, int d) {
-        for (Integer e : sat.vertexMap().destinationSet()) {
-            for (int i = 1; i <= d; i++) {
-                int var1 = sat.encodeVariable(Variable.leader(e, i));
-                // Part A
-                Clause clause = new Clause();
-                clause.addLiteral(var1);
-                for (Integer f : sat.vertexMap().destinationSet()) {
-                    if (f < e) {
-                        int var2 = sat.encodeVariable(Variable.set(f, e, i));
-                        clause.addLiteral(var2);
+    /**
+     * Adds the transitivity clauses of clause 2 for one triple of vertices at one level.
+     * @param sat the SAT encoding.
+     * @param sink the sink that consumes the clauses.
+     * @param e a vertex.
+     * @param f a vertex, e < f.
+     * @param g a vertex, f < g.
+     * @param i a level of the derivation.
+     */
+    private static void transitivity(CarvingSATEncoding sat, ClauseSink sink, int e, int f, int g, int i) {
+        int[] var = new int[]{
+            sat.set(e, f, i),
+            sat.set(e, g, i),
+            sat.set(f, g, i)
+        };
+        sink.addClause(-var[0], -var[1], var[2]);
+        sink.addClause(-var[0], -var[2], var[1]);
+        sink.addClause(-var[1], -var[2], var[0]);
+    }
+
+    /**
+     * Adds the transitivity clauses of all triples of vertices that violate transitivity under an assignment, i.e.
+     * triples in which exactly two of the three pairs are in the same set. Such a triple has exactly one vertex that
+     * belongs to both of these pairs, so each triple is found once by enumerating the pairs of vertices that are in
+     * the same set as a vertex e.
+     * @param sat the SAT encoding, without the transitivity clauses.
+     * @param assignment a satisfying assignment of the clauses added so far.
+     * @return the amount of clauses added.
+     */
+    private static int violatedTransitivity(CarvingSATEncoding sat, boolean[] assignment) {
+        int n = sat.vertexMap().size();
+        int clauses = sat.clauseCount();
+        int[] same = new int[n];
+        for (int i = 1; i <= sat.d(); i++) {
+            for (int e = 1; e <= n; e++) {
+                int size = 0;
+                for (int f = 1; f <= n; f++) {
+                    if (f != e && assignment[sat.set(Math.min(e, f), Math.max(e, f), i)]) {
+                        same[size++] = f;
                     }
                 }
-                sat.formula().addClause(clause);
-                // Part B
-                for (Integer f : sat.vertexMap().destinationSet()) {
-                    if (f < e) {
-                        int var2 = sat.encodeVariable(Variable.set(f, e, i));
-                        sat.formula().addClause(-var1, -var2);
+                for (int a = 0; a < size; a++) {
+                    for (int b = a + 1; b < size; b++) {
+                        // same[] is sorted, so f < g
+                        int f = same[a];
+                        int g = same[b];
+                        if (!assignment[sat.set(f, g, i)]) {
+                            int[] triple = new int[]{e, f, g};
+                            Arrays.sort(triple);
+                            transitivity(sat, sat::addClause, triple[0], triple[1], triple[2], i);
+                        }
                     }
                 }
             }
         }
+        return sat.clauseCount() - clauses;
     }
 
-    private static void clause4(SATEncoding sat, int d) {
-        for (Integer e : sat.vertexMap().destinationSet()) {
+    private static void clause3(CarvingSATEncoding sat, ClauseSink sink, int d, int e) {
+        for (int i = 1; i <= d; i++) {
+            int var1 = sat.leader(e, i);
+            // Part A
+            int[] clause = new int[e];
+            int size = 0;
+            clause[size++] = var1;
             for (Integer f : sat.vertexMap().destinationSet()) {
-                if (e < f) {
-                    for (int i = 1; i < d - 1; i++) {
-                        int[] var = new int[]{
-                            sat.encodeVariable(Variable.leader(e, i)),
-                            sat.encodeVariable(Variable.leader(f, i)),
-                            sat.encodeVariable(Variable.set(e, f, i + 1)),
-                            sat.encodeVariable(Variable.leader(e, i + 1)),
-                            sat.encodeVariable(Variable.leader(f, i + 1))
-                        };
-                        sat.formula().addClause(-var[0], -var[1], -var[2], var[3], var[4]);
-                    }
+                if (f < e) {
+                    int var2 = sat.set(f, e, i);
+                    clause[size++] = var2;
+                }
+            }
+            sink.addClause(Arrays.copyOf(clause, size));
+            // Part B
+            for (Integer f : sat.vertexMap().destinationSet()) {
+                if (f < e) {
+                    int var2 = sat.set(f, e, i);
+                    sink.addClause(-var1, -var2);
                 }
             }
         }
     }
 
-    private static void clause5(SATEncoding sat, int d) {
-        for (Integer e : sat.vertexMap().destinationSet()) {
-            for (Integer f : sat.vertexMap().destinationSet()) {
-                for (Integer g : sat.vertexMap().destinationSet()) {
-                    if (e < f && f < g) {
-                        int[] var = new int[]{
-                            sat.encodeVariable(Variable.leader(e, d - 1)),
-                            sat.encodeVariable(Variable.leader(f, d - 1)),
-                            sat.encodeVariable(Variable.leader(g, d - 1)),
-                            sat.encodeVariable(Variable.set(e, f, d)),
-                            sat.encodeVariable(Variable.set(e, g, d)),
-                            sat.encodeVariable(Variable.leader(e, d)),
-                            sat.encodeVariable(Variable.leader(f, d)),
-                            sat.encodeVariable(Variable.leader(g, d))
-                        };
-                        sat.formula().addClause(-var[0], -var[1], -var[2], -var[3], -var[4], var[5], var[6], var[7]);
-                    }
+    private static void clause4(CarvingSATEncoding sat, ClauseSink sink, int d, int e) {
+        for (Integer f : sat.vertexMap().destinationSet()) {
+            if (e < f) {
+                for (int i = 1; i < d - 1; i++) {
+                    int[] var = new int[]{
+                        sat.leader(e, i),
+                        sat.leader(f, i),
+                        sat.set(e, f, i + 1),
+                        sat.leader(e, i + 1),
+                        sat.leader(f, i + 1)
+                    };
+                    sink.addClause(-var[0], -var[1], -var[2], var[3], var[4]);
                 }
             }
         }
     }
 
-    private static void clause6(SATEncoding sat, int d) {
-        for (Integer e : sat.vertexMap().destinationSet()) {
-            for (int i = 1; i < d; i++) {
-                int[] var = new int[]{
-                    sat.encodeVariable(Variable.leader(e, i)),
-                    sat.encodeVariable(Variable.leader(e, i + 1))
-                };
-                sat.formula().addClause(var[0], -var[1]);
+    private static void clause5(CarvingSATEncoding sat, ClauseSink sink, int d, int e) {
+        for (Integer f : sat.vertexMap().destinationSet()) {
+            for (Integer g : sat.vertexMap().destinationSet()) {
+                if (e < f && f < g) {
+                    int[] var = new int[]{
+                        sat.leader(e, d - 1),
+                        sat.leader(f, d - 1),
+                        sat.leader(g, d - 1),
+                        sat.set(e, f, d),
+                        sat.set(e, g, d),
+                        sat.leader(e, d),
+                        sat.leader(f, d),
+                        sat.leader(g, d)
+                    };
+                    sink.addClause(-var[0], -var[1], -var[2], -var[3], -var[4], var[5], var[6], var[7]);
+                }
             }
         }
     }
 
-    private static void clause7(SATEncoding sat, int d) {
-        for (Integer e : sat.vertexMap().destinationSet()) {
-            for (Integer f : sat.vertexMap().destinationSet()) {
-                for (Integer g : sat.vertexMap().destinationSet()) {
-                    if (!e.equals(f) && !e.equals(g)) {
-                        Integer fVertex = sat.vertexMap().getFromDomain(f); // change to vertex
-                        Integer gVertex = sat.vertexMap().getFromDomain(g); //
-                        for (Integer u : sat.edgeMap().destinationSet()) {
-                            // Unmap u to check edge endpoints
-                            Edge uEdge = sat.edgeMap().getFromDomain(u);
-                            if (uEdge.endpoints().contains(fVertex) && uEdge.endpoints().contains(gVertex)) {
-                                for (int i = 1; i <= d; i++) {
-                                    int[] var = new int[]{
-                                        sat.encodeVariable(Variable.leader(e, i)),
-                                        sat.encodeVariable(Variable.load(e, u, i)),
-                                        sat.encodeVariable(Variable.set(Math.min(e, f), Math.max(e, f), i)),
-                                        sat.encodeVariable(Variable.set(Math.min(e, g), Math.max(e, g), i))
-                                    };
-                                    sat.formula().addClause(-var[0], var[1], var[2], -var[3]);
-                                }
-                            }
+    private static void clause6(CarvingSATEncoding sat, ClauseSink sink, int d, int e) {
+        for (int i = 1; i < d; i++) {
+            int[] var = new int[]{
+                sat.leader(e, i),
+                sat.leader(e, i + 1)
+            };
+            sink.addClause(var[0], -var[1]);
+        }
+    }
+
+    private static void clause7(CarvingSATEncoding sat, ClauseSink sink, int d, int e) {
+        // The set of a leader e only contains vertices g > e, so only the edges between such g and some f are loads
+        for (int g = e + 1; g <= sat.vertexMap().size(); g++) {
+            for (int u : sat.incidentEdges(g)) {
+                for (int f : sat.endpoints(u)) {
+                    if (f != e && f != g) {
+                        for (int i = 1; i <= d; i++) {
+                            int[] var = new int[]{
+                                sat.leader(e, i),
+                                sat.load(e, u, i),
+                                sat.set(Math.min(e, f), Math.max(e, f), i),
+                                sat.set(e, g, i)
+                            };
+                            sink.addClause(-var[0], var[1], var[2], -var[3]);
                         }
                     }
                 }
@@ -196,84 +366,160 @@ public abstract class SATEncodingFactoryForCarvingWidth {
         }
     }
 
-    private static void clause8(SATEncoding sat, int d) {
-        for (Integer e : sat.vertexMap().destinationSet()) {
-            for (Integer f : sat.vertexMap().destinationSet()) {
-                if (!e.equals(f)) {
-                    Integer eVertex = sat.vertexMap().getFromDomain(e);
-                    Integer fVertex = sat.vertexMap().getFromDomain(f);
-                    for (Integer u : sat.edgeMap().destinationSet()) {
-                        // Unmap u to check edge endpoints
-                        Edge uEdge = sat.edgeMap().getFromDomain(u);
-                        if (uEdge.endpoints().contains(eVertex) && uEdge.endpoints().contains(fVertex)) {
-                            for (int i = 1; i <= d; i++) {
-                                int[] var = new int[]{
-                                    sat.encodeVariable(Variable.leader(e, i)),
-                                    sat.encodeVariable(Variable.set(Math.min(e, f), Math.max(e, f), i)),
-                                    sat.encodeVariable(Variable.load(e, u, i))
-                                };
-                                sat.formula().addClause(-var[0], var[1], var[2]);
-                            }
-                        }
+    private static void clause8(CarvingSATEncoding sat, ClauseSink sink, int d, int e) {
+        for (int u : sat.incidentEdges(e)) {
+            for (int f : sat.endpoints(u)) {
+                if (f != e) {
+                    for (int i = 1; i <= d; i++) {
+                        int[] var = new int[]{
+                            sat.leader(e, i),
+                            sat.set(Math.min(e, f), Math.max(e, f), i),
+                            sat.load(e, u, i)
+                        };
+                        sink.addClause(-var[0], var[1], var[2]);
                     }
                 }
             }
         }
     }
 
-    private static void clause9(SATEncoding sat, int d) {
-        for (Integer e : sat.vertexMap().destinationSet()) {
-            for (Integer u : sat.edgeMap().destinationSet()) {
-                for (int i = 1; i <= d - 2; i++) {
-                    int[] var = new int[]{
-                        sat.encodeVariable(Variable.leader(e, i)),
-                        sat.encodeVariable(Variable.leader(e, i + 1)),
-                        sat.encodeVariable(Variable.leader(e, i + 2)),
-                        sat.encodeVariable(Variable.load(e, u, i)),
-                        sat.encodeVariable(Variable.load(e, u, i + 2)),
-                        sat.encodeVariable(Variable.load(e, u, i + 1))
-                    };
-                    sat.formula().addClause(-var[0], -var[1], -var[2], -var[3], -var[4], var[5]);
-                }
+    private static void clause9(CarvingSATEncoding sat, ClauseSink sink, int d, int e) {
+        for (int u : relevantEdges(sat, e)) {
+            for (int i = 1; i <= d - 2; i++) {
+                int[] var = new int[]{
+                    sat.leader(e, i),
+                    sat.leader(e, i + 1),
+                    sat.leader(e, i + 2),
+                    sat.load(e, u, i),
+                    sat.load(e, u, i + 2),
+                    sat.load(e, u, i + 1)
+                };
+                sink.addClause(-var[0], -var[1], -var[2], -var[3], -var[4], var[5]);
             }
         }
     }
 
-    private static void clause10(SATEncoding sat, int d, int w) {
-        for (Integer e : sat.vertexMap().destinationSet()) {
-            for (int u = 2; u <= sat.edgeMap().size(); u++) {
-                for (int i = 1; i <= d; i++) {
-                    for (int j = 1; j <= w; j++) {
+    /**
+     * Returns the edges that can be loads of a set whose leader is e. Since the leader is the smallest vertex of its
+     * set, these are the edges with an endpoint >= e; clauses 7 and 8 never force the load of any other edge.
+     * @param sat the SAT encoding.
+     * @param e a vertex.
+     * @return the relevant edges of e, in ascending order.
+     */
+    private static int[] relevantEdges(CarvingSATEncoding sat, int e) {
+        return IntStream.rangeClosed(1, sat.edgeMap().size())
+            .filter(u -> {
+                int[] endpoints = sat.endpoints(u);
+                return endpoints[endpoints.length - 1] >= e;
+            })
+            .toArray();
+    }
+
+    /**
+     * Adds the clauses that require at least three sets at level d - 1, so that the root of the carving decomposition
+     * has three children. Since the derivations may be longer than necessary, the last merges could otherwise be
+     * binary. Vertex 1 is always a leader, so at least two of the vertices 2..n must be leaders as well.
+     * @param sat the SAT encoding.
+     * @param d the length of derivations.
+     */
+    private static void ternaryRoot(CarvingSATEncoding sat, int d) {
+        int n = sat.vertexMap().size();
+        if (n < 3) {
+            return;
+        }
+        int[] leaders = new int[n - 1];
+        for (int e = 2; e <= n; e++) {
+            leaders[e - 2] = sat.leader(e, d - 1);
+        }
+        sat.addClause(leaders.clone());
+        for (int k = 0; k < leaders.length; k++) {
+            int[] clause = leaders.clone();
+            clause[k] = -leaders[k];
+            sat.addClause(clause);
+        }
+    }
+
+    /**
+     * Adds clauses that break the symmetry between derivations that perform the same merges at different levels. A set
+     * that is formed at level i + 1 could as well be formed at level i + 2, unless it is merged again at level i + 2.
+     * Postponing merges in this way turns every derivation into one of the same width in which every set that is
+     * formed below level d - 1 is merged again at the next level (so, in particular, levels without merges come
+     * first); the clauses only admit such derivations. A merge of two sets is recognized by the loss of the larger one
+     * of their leaders.
+     * @param sat the SAT encoding.
+     * @param d the length of derivations.
+     */
+    private static void symmetryBreaking(CarvingSATEncoding sat, int d) {
+        int n = sat.vertexMap().size();
+        for (int e = 1; e <= n; e++) {
+            for (int i = 1; i < d; i++) {
+                int[] var = new int[]{
+                    sat.loss(e, i),
+                    sat.leader(e, i),
+                    sat.leader(e, i + 1)
+                };
+                sat.addClause(-var[0], var[1]);
+                sat.addClause(-var[0], -var[2]);
+                sat.addClause(var[0], -var[1], var[2]);
+            }
+            // Merges that form a set at level i + 1 <= d - 2 are followed by a merge of that set
+            for (int i = 1; i <= d - 3; i++) {
+                int[] clause = new int[n];
+                int size = 0;
+                clause[size++] = -sat.loss(e, i);
+                for (int f = 1; f <= n; f++) {
+                    if (f != e) {
                         int[] var = new int[]{
-                            sat.encodeVariable(Variable.counter(e, u - 1, i, j)),
-                            sat.encodeVariable(Variable.counter(e, u, i, j)),
-                            sat.encodeVariable(Variable.load(e, u, i)),
-                            sat.encodeVariable(Variable.counter(e, u - 1, i, j - 1)),
-                            sat.encodeVariable(Variable.counter(e, u, i, j)),
-                            sat.encodeVariable(Variable.load(e, u, i)),
-                            sat.encodeVariable(Variable.counter(e, u - 1, i, w))
+                            sat.join(e, f, i),
+                            sat.loss(f, i + 1),
+                            sat.set(Math.min(e, f), Math.max(e, f), i + 2)
                         };
-                        sat.formula().addClause(-var[0], var[1]);
-                        sat.formula().addClause(-var[2], -var[3], var[4]);
-                        sat.formula().addClause(-var[5], -var[6]);
+                        sat.addClause(-var[0], var[1]);
+                        sat.addClause(-var[0], var[2]);
+                        clause[size++] = var[0];
                     }
                 }
+                sat.addClause(clause);
             }
         }
     }
 
-    private static void clause11(SATEncoding sat, int d) {
-        for (Integer e : sat.vertexMap().destinationSet()) {
-            for (int u = 1; u <= sat.edgeMap().size(); u++) {
-                for (int i = 1; i <= d; i++) {
-                    int[] var = new int[]{
-                        sat.encodeVariable(Variable.load(e, u, i)),
-                        sat.encodeVariable(Variable.counter(e, u, i, 1))
-                    };
-                    sat.formula().addClause(-var[0], var[1]);
+    /**
+     * Constructs the cardinality encodings that count the loads of each leader e at each level i (first part of clause
+     * 10). Only the relevant edges of e are counted, since the loads of the other edges are never forced to be true.
+     * @param sat the SAT encoding.
+     * @param d the length of derivations.
+     * @param cardinality the type of the cardinality encodings.
+     * @param maxBound the largest carving-width that will be imposed.
+     * @return the cardinality encodings, indexed by (e - 1) * d + (i - 1).
+     */
+    private static CardinalityEncoding[] loadCounts(CarvingSATEncoding sat, int d, CardinalityEncoding.Type cardinality,
+                                                    int maxBound) {
+        int n = sat.vertexMap().size();
+        CardinalityEncoding[] loadCounts = new CardinalityEncoding[n * d];
+        for (int e = 1; e <= n; e++) {
+            int[] edges = relevantEdges(sat, e);
+            for (int i = 1; i <= d; i++) {
+                int[] loads = new int[edges.length];
+                for (int k = 0; k < edges.length; k++) {
+                    loads[k] = sat.load(e, edges[k], i);
                 }
+                loadCounts[(e - 1) * d + (i - 1)] = CardinalityEncoding.of(cardinality, sat, loads, maxBound);
             }
         }
+        return loadCounts;
+    }
+
+    /**
+     * Adds the clauses that prevent the loads from exceeding w (second part of clause 10).
+     * @param loadCounts the cardinality encodings that count the loads.
+     * @param w the target carving-width.
+     * @param selector the selector literal that guards the clauses, or null if the clauses are unconditional.
+     */
+    private static void atMost(CardinalityEncoding[] loadCounts, int w, Integer selector) {
+        for (CardinalityEncoding loadCount : loadCounts) {
+            loadCount.atMost(w, selector);
+        }
     }
 
 }
@@ -1,10 +1,11 @@
 package at.ac.tuwien.student.e11843614.sat.factory;
 
 import at.ac.tuwien.student.e11843614.Logger;
-import at.ac.tuwien.student.e11843614.formula.Clause;
 import at.ac.tuwien.student.e11843614.struct.graph.Graph;
-import at.ac.tuwien.student.e11843614.sat.SATEncoding;
-import at.ac.tuwien.student.e11843614.sat.Variable;
+import at.ac.tuwien.student.e11843614.sat.ClauseSink;
+import at.ac.tuwien.student.e11843614.sat.CliqueSATEncoding;
+
+import java.util.Arrays;
 
 public abstract class SATEncodingFactoryForCliqueWidth {
 
@@ -14,70 +15,137 @@ public abstract class SATEncodingFactoryForCliqueWidth {
      * @param k the target clique-width.
      * @return a SAT encoding for this graph that contains a formula which is satisfiable if cw(graph) <= k.
      */
-    public static SATEncoding of(Graph graph, int k) {
-        int t = graph.vertices().size() - k + 1;
+    public static CliqueSATEncoding of(Graph graph, int k) {
+        return encode(new CliqueSATEncoding(graph, graph.vertices().size() - k + 1), graph, k);
+    }
+
+    /**
+     * Constructs a SAT encoding of a graph whose clauses are streamed into a sink. The clauses are satisfiable iff
+     * clique-width of the graph is <= k.
+     * @param graph the graph.
+     * @param k the target clique-width.
+     * @param sink the sink that consumes the clauses.
+     * @return a SAT encoding for this graph, without a formula.
+     */
+    public static CliqueSATEncoding of(Graph graph, int k, ClauseSink sink) {
+        return encode(new CliqueSATEncoding(graph, graph.vertices().size() - k + 1, sink), graph, k);
+    }
+
+    private static CliqueSATEncoding encode(CliqueSATEncoding sat, Graph graph, int k) {
+        int t = sat.t();
         Logger.debug("Constructing a SAT encoding for clique-width, k = " + k + ", t = " + t);
-        SATEncoding sat = new SATEncoding(graph);
+        encodeDerivation(sat, graph, t);
+        for (int a = 1; a < k - 1; a++) {
+            orderStep(sat, t, a);
+        }
+        orderBound(sat, t, k, null);
+        Logger.debug("Constructed a SAT encoding for clique-width; formula has " + sat.variableCount()
+            + " variables and " + sat.clauseCount() + " clauses");
+        return sat;
+    }
+
+    /**
+     * Constructs an incremental SAT encoding of a graph for clique-widths of at least kMin. The length of derivations
+     * is chosen for kMin, which suffices for larger widths as well, so that the clauses that do not depend on the width
+     * are only constructed once. The ordering of representatives is extended when a width is selected.
+     * @param graph the graph.
+     * @param kMin the smallest clique-width that will be selected.
+     * @param sink the sink that consumes the clauses.
+     * @param symmetryBreaking whether clauses that break the symmetry between derivations are added.
+     * @return an incremental SAT encoding for this graph; under the selector of k, its formula is satisfiable iff
+     *         cw(graph) <= k.
+     */
+    public static CliqueSATEncoding incremental(Graph graph, int kMin, ClauseSink sink, boolean symmetryBreaking) {
+        int t = graph.vertices().size() - kMin + 1;
+        Logger.debug("Constructing an incremental SAT encoding for clique-width, k >= " + kMin + ", t = " + t
+            + (symmetryBreaking ? ", symmetry breaking" : ""));
+        CliqueSATEncoding sat = new CliqueSATEncoding(graph, t, sink) {
+            private int steps = 0;
+
+            @Override
+            protected void encodeWidth(int width, int selector) {
+                // Ordering steps are shared by all widths, only the bound depends on the width
+                for (; steps < width - 2; steps++) {
+                    orderStep(this, t, steps + 1);
+                }
+                orderBound(this, t, width, selector);
+                Logger.debug("Added the clauses for clique-width " + width + "; formula has "
+                    + variableCount() + " variables and " + clauseCount() + " clauses");
+            }
+        };
+        encodeDerivation(sat, graph, t);
+        if (symmetryBreaking) {
+            symmetryBreaking(sat, t);
+        }
+        Logger.debug("Constructed an incremental SAT encoding for clique-width; formula has "
+            + sat.variableCount() + " variables and " + sat.clauseCount() + " clauses");
+        return sat;
+    }
+
+    /**
+     * Adds the clauses that do not depend on the width to the formula.
+     * @param sat the SAT encoding.
+     * @param graph the graph.
+     * @param t the length of derivations.
+     */
+    private static void encodeDerivation(CliqueSATEncoding sat, Graph graph, int t) {
         clause1(sat, t);
         clause2(sat, t);
         clause3(sat, graph, t);
         clause4(sat, graph, t);
         clause5(sat, graph, t);
         clause6(sat, t);
-        clause7(sat, t, k);
-        Logger.debug("Constructed a SAT encoding for clique-width; formula has " + sat.variableMap().size()
-            + " variables and " + sat.formula().clauses().size() + " clauses");
-        return sat;
+        clause7(sat, t);
     }
 
-    private static void clause1(SATEncoding sat, int t) {
+    private static void clause1(CliqueSATEncoding sat, int t) {
         for (Integer u : sat.vertexMap().destinationSet()) {
             for (Integer v : sat.vertexMap().destinationSet()) {
                 if (u < v) {
                     for (int i = 0; i <= t; i++) {
                         int[] var = new int[]{
-                            sat.encodeVariable(Variable.component(u, v, 0)),
-                            sat.encodeVariable(Variable.component(u, v, t)),
-                            sat.encodeVariable(Variable.component(u, v, i)),
-                            sat.encodeVariable(Variable.group(u, v, i)),
-                            sat.encodeVariable(Variable.component(u, v, i - 1)),
-                            sat.encodeVariable(Variable.component(u, v, i)),
-                            sat.encodeVariable(Variable.group(u, v, i - 1)),
-                            sat.encodeVariable(Variable.group(u, v, i))
+                            sat.component(u, v, 0),
+                            sat.component(u, v, t),
+                            sat.component(u, v, i),
+                            sat.group(u, v, i),
+                            sat.component(u, v, i - 1),
+                            sat.component(u, v, i),
+                            sat.group(u, v, i - 1),
+                            sat.group(u, v, i)
                         };
-                        sat.formula().addClause(-var[0]);
-                        sat.formula().addClause(var[1]);
-                        sat.formula().addClause(var[2], -var[3]);
-                        sat.formula().addClause(-var[4], var[5]);
-                        sat.formula().addClause(-var[6], var[7]);
+                        sat.addClause(-var[0]);
+                        sat.addClause(var[1]);
+                        sat.addClause(var[2], -var[3]);
+                        sat.addClause(-var[4], var[5]);
+                        sat.addClause(-var[6], var[7]);
                     }
                 }
             }
         }
     }
 
-    private static void clause2(SATEncoding sat, int t) {
+    private static void clause2(CliqueSATEncoding sat, int t) {
         for (Integer u : sat.vertexMap().destinationSet()) {
             for (Integer v : sat.vertexMap().destinationSet()) {
                 for (Integer w : sat.vertexMap().destinationSet()) {
                     if (u < v && v < w) {
                         for (int i = 0; i <= t; i++) {
                             int[] varc = new int[]{
-                                sat.encodeVariable(Variable.component(u, v, i)),
-                                sat.encodeVariable(Variable.component(v, w, i)),
-                                sat.encodeVariable(Variable.component(u, w, i)),
+                                sat.component(u, v, i),
+                                sat.component(v, w, i),
+                                sat.component(u, w, i),
                             };
-                            sat.formula().addClause(-varc[0], -varc[1], varc[2]);
-                            sat.formula().addClause(-varc[0], -varc[2], varc[1]);
-                            sat.formula().addClause(-varc[2], -varc[1], varc[0]);
+                            sat.addClause(-varc[0], -varc[1], varc[2]);
+                            sat.addClause(-varc[0], -varc[2], varc[1]);
+                            sat.addClause(-varc[2], -varc[1], varc[0]);
                             int[] varg = new int[]{
-                                sat.encodeVariable(Variable.group(u, v, i)),
-                                sat.encodeVariable(Variable.group(v, w, i)),
-                                sat.encodeVariable(Variable.group(u, w, i))
+                                sat.group(u, v, i),
+                                sat.group(v, w, i),
+                                sat.group(u, w, i)
                             };
-                            sat.formula().addClause(-varg[0], -varg[1], varg[2]);
-                            sat.formula().addClause(-varg[0], -varg[2], varg[1]);
-                            sat.formula().addClause(-varg[2], -varg[1], varg[0]);
+                            sat.addClause(-varg[0], -varg[1], varg[2]);
+                            sat.addClause(-varg[0], -varg[2], varg[1]);
+                            sat.addClause(-varg[2], -varg[1], varg[0]);
                         }
                     }
                 }
@@ -85,7 +153,7 @@ public abstract class SATEncodingFactoryForCliqueWidth {
         }
     }
 
-    private static void clause3(SATEncoding sat, Graph graph, int t) {
+    private static void clause3(CliqueSATEncoding sat, Graph graph, int t) {
         for (Integer u : sat.vertexMap().destinationSet()) {
             for (Integer v : sat.vertexMap().destinationSet()) {
                 if (u < v) {
@@ -95,10 +163,10 @@ public abstract class SATEncodingFactoryForCliqueWidth {
                     if (graph.hasEdgeWithEndpoints(uVertex, vVertex)) {
                         for (int i = 1; i <= t; i++) {
                             int[] var = new int[]{
-                                sat.encodeVariable(Variable.component(u, v, i - 1)),
-                                sat.encodeVariable(Variable.group(u, v, i))
+                                sat.component(u, v, i - 1),
+                                sat.group(u, v, i)
                             };
-                            sat.formula().addClause(var[0], -var[1]);
+                            sat.addClause(var[0], -var[1]);
                         }
                     }
                 }
@@ -106,7 +174,7 @@ public abstract class SATEncodingFactoryForCliqueWidth {
         }
     }
 
-    private static void clause4(SATEncoding sat, Graph graph, int t) {
+    private static void clause4(CliqueSATEncoding sat, Graph graph, int t) {
         for (Integer u : sat.vertexMap().destinationSet()) {
             for (Integer v : sat.vertexMap().destinationSet()) {
                 for (Integer w : sat.vertexMap().destinationSet()) {
@@ -114,13 +182,16 @@ public abstract class SATEncodingFactoryForCliqueWidth {
                     Integer uVertex = sat.vertexMap().getFromDomain(u);
                     Integer vVertex = sat.vertexMap().getFromDomain(v);
                     Integer wVertex = sat.vertexMap().getFromDomain(w);
-                    if (graph.hasEdgeWithEndpoints(uVertex, vVertex) && !graph.hasEdgeWithEndpoints(uVertex, wVertex)) {
+                    // Skip u = v, whose clauses are trivially satisfiable (hasEdgeWithEndpoints(u, u) holds for every
+                    // vertex with an edge, but u, u is not a pair of vertices)
+                    if (!u.equals(v) && graph.hasEdgeWithEndpoints(uVertex, vVertex)
+                        && !graph.hasEdgeWithEndpoints(uVertex, wVertex)) {
                         for (int i = 1; i <= t; i++) {
                             int[] var = new int[]{
-                                sat.encodeVariable(Variable.component(Math.min(u, v), Math.max(u, v), i - 1)),
-                                sat.encodeVariable(Variable.group(Math.min(v, w), Math.max(v, w), i))
+                                sat.component(Math.min(u, v), Math.max(u, v), i - 1),
+                                sat.group(Math.min(v, w), Math.max(v, w), i)
                             };
-                            sat.formula().addClause(var[0], -var[1]);
+                            sat.addClause(var[0], -var[1]);
                         }
                     }
                 }
@@ -128,7 +199,7 @@ public abstract class SATEncodingFactoryForCliqueWidth {
         }
     }
 
-    private static void clause5(SATEncoding sat, Graph graph, int t) {
+    private static void clause5(CliqueSATEncoding sat, Graph graph, int t) {
         for (Integer u : sat.vertexMap().destinationSet()) {
             for (Integer v : sat.vertexMap().destinationSet()) {
                 if (u < v) {
@@ -143,11 +214,11 @@ public abstract class SATEncodingFactoryForCliqueWidth {
                                 && graph.hasEdgeWithEndpoints(vVertex, xVertex) && !graph.hasEdgeWithEndpoints(wVertex, xVertex)) {
                                 for (int i = 1; i <= t; i++) {
                                     int[] var = new int[]{
-                                        sat.encodeVariable(Variable.component(u, v, i - 1)),
-                                        sat.encodeVariable(Variable.group(Math.min(u, x), Math.max(u, x), i)),
-                                        sat.encodeVariable(Variable.group(Math.min(v, w), Math.max(v, w), i))
+                                        sat.component(u, v, i - 1),
+                                        sat.group(Math.min(u, x), Math.max(u, x), i),
+                                        sat.group(Math.min(v, w), Math.max(v, w), i)
                                     };
-                                    sat.formula().addClause(var[0], -var[1], -var[2]);
+                                    sat.addClause(var[0], -var[1], -var[2]);
                                 }
                             }
                         }
@@ -157,49 +228,153 @@ public abstract class SATEncodingFactoryForCliqueWidth {
         }
     }
 
-    private static void clause6(SATEncoding sat, int t) {
+    private static void clause6(CliqueSATEncoding sat, int t) {
         for (Integer v : sat.vertexMap().destinationSet()) {
             for (int i = 0; i <= t; i++) {
-                int var1 = sat.encodeVariable(Variable.representative(v, i));
+                int var1 = sat.representative(v, i);
                 // Left part
-                Clause clause = new Clause();
-                clause.addLiteral(var1);
+                int[] clause = new int[v];
+                int size = 0;
+                clause[size++] = var1;
                 for (Integer u : sat.vertexMap().destinationSet()) {
                     if (u < v) {
-                        int var2 = sat.encodeVariable(Variable.group(u, v, i));
-                        clause.addLiteral(var2);
+                        int var2 = sat.group(u, v, i);
+                        clause[size++] = var2;
                     }
                 }
-                sat.formula().addClause(clause);
+                sat.addClause(Arrays.copyOf(clause, size));
                 // Right part
                 for (Integer u : sat.vertexMap().destinationSet()) {
                     if (u < v) {
-                        int var2 = sat.encodeVariable(Variable.group(u, v, i));
-                        sat.formula().addClause(-var1, -var2);
+                        int var2 = sat.group(u, v, i);
+                        sat.addClause(-var1, -var2);
                     }
                 }
             }
         }
     }
 
-    private static void clause7(SATEncoding sat, int t, int k) {
+    private static void clause7(CliqueSATEncoding sat, int t) {
+        for (Integer u : sat.vertexMap().destinationSet()) {
+            for (Integer v : sat.vertexMap().destinationSet()) {
+                if (u < v) {
+                    for (int i = 0; i <= t; i++) {
+                        int[] var = new int[]{
+                            sat.component(u, v, i),
+                            sat.representative(u, i),
+                            sat.representative(v, i),
+                            sat.order(v, 1, i)
+                        };
+                        sat.addClause(-var[0], -var[1], -var[2], var[3]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds clauses that break the symmetry between derivations that differ only in the position of repeated levels. A
+     * level that equals the next one can be removed, and a copy of level 0 inserted instead, without changing the
+     * width; so the clauses require all repeated levels to come first. A level differs from the next one iff a
+     * representative or the smallest vertex of a component (a leader) is lost, since groups and components only grow.
+     * @param sat the SAT encoding.
+     * @param t the length of derivations.
+     */
+    private static void symmetryBreaking(CliqueSATEncoding sat, int t) {
+        int n = sat.vertexMap().size();
+        // Leaders, defined as the representatives are in clause 6
+        for (int v = 1; v <= n; v++) {
+            for (int i = 0; i <= t; i++) {
+                int[] clause = new int[v];
+                int size = 0;
+                clause[size++] = sat.leader(v, i);
+                for (int u = 1; u < v; u++) {
+                    clause[size++] = sat.component(u, v, i);
+                    sat.addClause(-sat.leader(v, i), -sat.component(u, v, i));
+                }
+                sat.addClause(clause);
+            }
+        }
+        for (int i = 0; i < t; i++) {
+            int[] clause = new int[2 * n + 1];
+            int size = 0;
+            clause[size++] = -sat.change(i);
+            for (int v = 1; v <= n; v++) {
+                int[] var = new int[]{
+                    sat.groupLoss(v, i),
+                    sat.representative(v, i),
+                    sat.representative(v, i + 1),
+                    sat.componentLoss(v, i),
+                    sat.leader(v, i),
+                    sat.leader(v, i + 1),
+                    sat.change(i)
+                };
+                sat.addClause(-var[0], var[1]);
+                sat.addClause(-var[0], -var[2]);
+                sat.addClause(var[0], -var[1], var[2]);
+                sat.addClause(-var[3], var[4]);
+                sat.addClause(-var[3], -var[5]);
+                sat.addClause(var[3], -var[4], var[5]);
+                sat.addClause(-var[0], var[6]);
+                sat.addClause(-var[3], var[6]);
+                clause[size++] = var[0];
+                clause[size++] = var[3];
+            }
+            sat.addClause(clause);
+            // Once a level differs from the next one, so do all subsequent levels
+            if (i > 0) {
+                sat.addClause(-sat.change(i - 1), sat.change(i));
+            }
+        }
+    }
+
+    /**
+     * Adds the clauses of the a-th step of the ordering of representatives in the same component (part of clause 7).
+     * @param sat the SAT encoding.
+     * @param t the length of derivations.
+     * @param a the step.
+     */
+    private static void orderStep(CliqueSATEncoding sat, int t, int a) {
+        for (Integer u : sat.vertexMap().destinationSet()) {
+            for (Integer v : sat.vertexMap().destinationSet()) {
+                if (u < v) {
+                    for (int i = 0; i <= t; i++) {
+                        int[] var = new int[]{
+                            sat.component(u, v, i),
+                            sat.representative(u, i),
+                            sat.representative(v, i),
+                            sat.order(u, a, i),
+                            sat.order(v, a + 1, i)
+                        };
+                        sat.addClause(-var[0], -var[1], -var[2], -var[3], var[4]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the clauses that bound the ordering of representatives in the same component by k - 1 (part of clause 7).
+     * @param sat the SAT encoding.
+     * @param t the length of derivations.
+     * @param k the target clique-width.
+     * @param selector the selector literal that guards the clauses, or null if the clauses are unconditional.
+     */
+    private static void orderBound(CliqueSATEncoding sat, int t, int k, Integer selector) {
         for (Integer u : sat.vertexMap().destinationSet()) {
             for (Integer v : sat.vertexMap().destinationSet()) {
                 if (u < v) {
                     for (int i = 0; i <= t; i++) {
                         int[] var = new int[]{
-                            sat.encodeVariable(Variable.component(u, v, i)),
-                            sat.encodeVariable(Variable.representative(u, i)),
-                            sat.encodeVariable(Variable.representative(v, i)),
-                            sat.encodeVariable(Variable.order(u, k - 1, i)),
-                            sat.encodeVariable(Variable.order(v, 1, i))
+                            sat.component(u, v, i),
+                            sat.representative(u, i),
+                            sat.representative(v, i),
+                            sat.order(u, k - 1, i)
                         };
-                        sat.formula().addClause(-var[0], -var[1], -var[2], -var[3]);
-                        sat.formula().addClause(-var[0], -var[1], -var[2], var[4]);
-                        for (int a = 1; a < k - 1; a++) {
-                            int o1 = sat.encodeVariable(Variable.order(u, a, i));
-                            int o2 = sat.encodeVariable(Variable.order(v, a + 1, i));
-                            sat.formula().addClause(-var[0], -var[1], -var[2], -o1, o2);
+                        if (selector == null) {
+                            sat.addClause(-var[0], -var[1], -var[2], -var[3]);
+                        } else {
+                            sat.addClause(-selector, -var[0], -var[1], -var[2], -var[3]);
                         }
                     }
                 }
@@ -0,0 +1,111 @@
+package at.ac.tuwien.student.e11843614.struct;
+
+import java.util.Arrays;
+
+/**
+ * A partition of int elements, such as the vertices in the levels of a derivation. The elements are stored in an int
+ * array and found through an open-addressing hash table of their ids, so that adding them with {@link #add(int)} and
+ * {@link #add(int, int)} does not box them. Boxed elements are created only when the equivalence classes are
+ * materialized.
+ */
+public class IntPartition extends Partition<Integer> {
+
+    private int[] elements = new int[8];
+    // The ids plus one of the elements, at the slots given by linear probing from their hashes; 0 marks empty slots
+    private int[] table = new int[16];
+    private int count = 0;
+
+    /**
+     * Adds an element to this partition. If the element was not present in any equivalence class, creates a new
+     * equivalence class. Otherwise, does nothing.
+     * @param a the element to be added.
+     */
+    public void add(int a) {
+        id(a);
+    }
+
+    /**
+     * Adds elements to this partition. If there is an equivalence class that contains one element, adds the other to
+     * that equivalence class. Otherwise, creates a new equivalence class. If the elements are in different equivalence
+     * classes, merges them.
+     * @param a an element.
+     * @param b an element.
+     */
+    public void add(int a, int b) {
+        union(id(a), id(b));
+    }
+
+    // ----- Helpers ---------------------------------------------------------------------------------------------------
+
+    /**
+     * Returns the id of an element, and adds the element as a new equivalence class if it is not present yet.
+     * @param a the element.
+     * @return the id of the element.
+     */
+    private int id(int a) {
+        int slot = slot(a);
+        if (table[slot] != 0) {
+            return table[slot] - 1;
+        }
+        int id = newId();
+        insert(a, id, slot);
+        return id;
+    }
+
+    /**
+     * Returns the slot of an element in the table: the slot that holds its id, or the empty slot where it would be
+     * inserted.
+     * @param a the element.
+     * @return the slot.
+     */
+    private int slot(int a) {
+        int mask = table.length - 1;
+        int hash = a * 0x9E3779B9;
+        int slot = (hash ^ hash >>> 16) & mask;
+        while (table[slot] != 0 && elements[table[slot] - 1] != a) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Inserts a new element, and grows the table once it is half full.
+     * @param a the element.
+     * @param id the id of the element.
+     * @param slot the empty slot of the element.
+     */
+    private void insert(int a, int id, int slot) {
+        if (id == elements.length) {
+            elements = Arrays.copyOf(elements, 2 * id);
+        }
+        elements[id] = a;
+        table[slot] = id + 1;
+        count++;
+        if (2 * count > table.length) {
+            table = new int[2 * table.length];
+            for (int i = 0; i < count; i++) {
+                table[slot(elements[i])] = i + 1;
+            }
+        }
+    }
+
+    @Override
+    int lookup(Object a) {
+        if (!(a instanceof Integer)) {
+            return -1;
+        }
+        int slot = slot((Integer) a);
+        return table[slot] - 1;
+    }
+
+    @Override
+    void store(Integer a, int id) {
+        insert(a, id, slot(a));
+    }
+
+    @Override
+    Integer element(int id) {
+        return elements[id];
+    }
+
+}
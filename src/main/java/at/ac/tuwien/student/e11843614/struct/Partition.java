@@ -1,17 +1,35 @@
 package at.ac.tuwien.student.e11843614.struct;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.Objects;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
- * An object that represents a partition, i.e. a set of disjoint sets called equivalence classes.
+ * An object that represents a partition, i.e. a set of disjoint sets called equivalence classes. The elements are
+ * numbered densely in the order they are added and kept in a union-find structure (with path compression and union by
+ * rank), so that adding an element or merging two classes takes nearly constant time. The equivalence classes are
+ * materialized as sets only when they are requested, and kept until the partition changes. The elements are stored
+ * in a hash map; {@link IntPartition} stores int elements without boxing them.
  * @param <T> the class of the objects stored in the equivalence classes.
  */
 public class Partition<T> implements Iterable<Set<T>> {
 
-    private final Set<Set<T>> equivalenceClasses = new HashSet<>();
+    private final Map<T, Integer> ids = new HashMap<>();
+    private final List<T> elements = new ArrayList<>();
+    private int[] parent = new int[8];
+    private byte[] rank = new byte[8];
+    private int elementCount = 0;
+    private int classCount = 0;
+    // The materialized equivalence classes, or null if the partition changed since they were materialized
+    private Set<Set<T>> equivalenceClasses = null;
 
     /**
      * Adds an element to this partition. If the element was not present in any equivalence class, creates a new
@@ -19,55 +37,60 @@ public class Partition<T> implements Iterable<Set<T>> {
      * @param a the element to be added.
      */
     public void add(T a) {
-        for (Set<T> equivalenceClass : equivalenceClasses) {
-            if (equivalenceClass.contains(a)) {
-                return;
-            }
-        }
-        Set<T> newEc = new HashSet<>();
-        newEc.add(a);
-        equivalenceClasses.add(newEc);
+        id(a);
     }
 
     /**
      * Adds elements to this partition. If there is an equivalence class that contains one element, adds the other to
-     * that equivalence class. Otherwise, creates a new equivalence class. Also ensures that all equivalence classes are
-     * disjoint.
+     * that equivalence class. Otherwise, creates a new equivalence class. If the elements are in different equivalence
+     * classes, merges them.
      * @param a an element.
      * @param b an element.
      */
     public void add(T a, T b) {
-        boolean added = false;
-        for (Set<T> equivalenceClass : equivalenceClasses) {
-            // When adding new elements, hashCode change in the inner set causes bugs in the outer set. Therefore, we
-            // have to create new sets all the time, unfortunately.
-            if (equivalenceClass.contains(b)) {
-                extendEquivalenceClassWith(equivalenceClass, a);
-                added = true;
-                break;
-            } else if (equivalenceClass.contains(a)) {
-                extendEquivalenceClassWith(equivalenceClass, b);
-                added = true;
-                break;
-            }
+        union(id(a), id(b));
+    }
+
+    /**
+     * Merges the equivalence classes of two ids, if they are different.
+     * @param a the id of an element.
+     * @param b the id of an element.
+     */
+    void union(int a, int b) {
+        int rootA = find(a);
+        int rootB = find(b);
+        if (rootA == rootB) {
+            return;
         }
-        // If element was not added, create a new equivalence class.
-        if (!added) {
-            Set<T> newEquivalenceClass = new HashSet<>();
-            newEquivalenceClass.add(a);
-            newEquivalenceClass.add(b);
-            equivalenceClasses.add(newEquivalenceClass);
+        if (rank[rootA] < rank[rootB]) {
+            parent[rootA] = rootB;
+        } else if (rank[rootA] > rank[rootB]) {
+            parent[rootB] = rootA;
+        } else {
+            parent[rootB] = rootA;
+            rank[rootA]++;
         }
-        // If duplicates appeared, merge the equivalence classes.
-        mergeDuplicates(a);
-        mergeDuplicates(b);
+        classCount--;
+        equivalenceClasses = null;
     }
 
     /**
-     * Returns the set of equivalence classes in this partition.
+     * Returns the set of equivalence classes in this partition. The sets are unmodifiable; they stay the same objects
+     * until the partition changes.
      * @return the set of equivalence classes.
      */
     public Set<Set<T>> equivalenceClasses() {
+        if (equivalenceClasses == null) {
+            Map<Integer, Set<T>> classes = new LinkedHashMap<>();
+            for (int id = 0; id < elementCount; id++) {
+                classes.computeIfAbsent(find(id), root -> new HashSet<>()).add(element(id));
+            }
+            Set<Set<T>> materialized = new LinkedHashSet<>();
+            for (Set<T> equivalenceClass : classes.values()) {
+                materialized.add(Collections.unmodifiableSet(equivalenceClass));
+            }
+            equivalenceClasses = Collections.unmodifiableSet(materialized);
+        }
         return equivalenceClasses;
     }
 
@@ -76,71 +99,144 @@ public class Partition<T> implements Iterable<Set<T>> {
      * @return the size of this partition.
      */
     public int size() {
-        return equivalenceClasses.size();
+        return classCount;
     }
 
     // ----- Helpers ---------------------------------------------------------------------------------------------------
 
     /**
-     * Replaces the specified equivalence class with a new one that contains all elements from the specified one plus
-     * one element.
-     * @param ec the equivalence class to be replaced.
-     * @param a the new element.
+     * Returns the id of an element, and adds the element as a new equivalence class if it is not present yet.
+     * @param a the element.
+     * @return the id of the element.
      */
-    private void extendEquivalenceClassWith(Set<T> ec, T a) {
-        Set<T> newEc = new HashSet<>(ec);
-        newEc.add(a);
-        equivalenceClasses.remove(ec);
-        equivalenceClasses.add(newEc);
+    private int id(T a) {
+        int id = lookup(a);
+        if (id < 0) {
+            id = newId();
+            store(a, id);
+        }
+        return id;
     }
 
     /**
-     * Merges equivalence classes that contain a specified element together.
-     * @param element the element to check equivalence classes against.
+     * Creates the id of a new element, as a new equivalence class. The element must be stored with the id.
+     * @return the id, the amount of elements before.
      */
-    private void mergeDuplicates(T element) {
-        // Store equivalence classes with duplicates
-        Set<Set<T>> ecWithElement = new HashSet<>();
-        for (Set<T> ec : equivalenceClasses) {
-            if (ec.contains(element))
-                ecWithElement.add(ec);
+    int newId() {
+        int id = elementCount++;
+        if (id == parent.length) {
+            parent = Arrays.copyOf(parent, 2 * id);
+            rank = Arrays.copyOf(rank, 2 * id);
         }
-        if (ecWithElement.size() > 1) {
-            // Create the merged equivalence class
-            Set<T> newEc = new HashSet<>();
-            for (Set<T> ec : ecWithElement) {
-                newEc.addAll(ec);
-            }
-            // Remove equivalence classes with duplicates
-            for (Set<T> ec : ecWithElement) {
-                equivalenceClasses.remove(ec);
-            }
-            // Add the new equivalence class
-            equivalenceClasses.add(newEc);
+        parent[id] = id;
+        classCount++;
+        equivalenceClasses = null;
+        return id;
+    }
+
+    /**
+     * Returns the id of an element.
+     * @param a the element, which may be of any class.
+     * @return the id, or -1 if the element is not present.
+     */
+    int lookup(Object a) {
+        Integer id = ids.get(a);
+        return (id != null) ? id : -1;
+    }
+
+    /**
+     * Stores a new element with its id.
+     * @param a the element.
+     * @param id the id, as returned by {@link #newId()}.
+     */
+    void store(T a, int id) {
+        ids.put(a, id);
+        elements.add(a);
+    }
+
+    /**
+     * Returns the element with an id.
+     * @param id the id.
+     * @return the element.
+     */
+    T element(int id) {
+        return elements.get(id);
+    }
+
+    /**
+     * Returns the root of the tree that contains an id, the label of its equivalence class, and compresses the path.
+     * @param id the id.
+     * @return the root.
+     */
+    private int find(int id) {
+        int root = id;
+        while (parent[root] != root) {
+            root = parent[root];
+        }
+        while (parent[id] != root) {
+            int next = parent[id];
+            parent[id] = root;
+            id = next;
         }
+        return root;
     }
 
     @Override
     public String toString() {
-        return equivalenceClasses.toString();
+        return equivalenceClasses().toString();
     }
 
+    /**
+     * Compares the partitions without materializing their classes: they are equal if they contain the same elements
+     * and the labels of the classes in one partition map one-to-one to the labels in the other.
+     */
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
+        if (!(o instanceof Partition)) return false;
         Partition<?> other = (Partition<?>) o;
-        return this.equivalenceClasses.equals(other.equivalenceClasses);
+        if (elementCount != other.elementCount || classCount != other.classCount) {
+            return false;
+        }
+        // The map from the labels of this partition to the labels of the other is a function onto the other's
+        // labels; with equally many classes, it is one-to-one if it is well-defined.
+        int[] label = new int[elementCount];
+        Arrays.fill(label, -1);
+        for (int id = 0; id < elementCount; id++) {
+            int otherId = other.lookup(element(id));
+            if (otherId < 0) {
+                return false;
+            }
+            int root = find(id);
+            int otherRoot = other.find(otherId);
+            if (label[root] == -1) {
+                label[root] = otherRoot;
+            } else if (label[root] != otherRoot) {
+                return false;
+            }
+        }
+        return true;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(equivalenceClasses);
+        // Independent of the ids: the hashes of the elements are summed per class, and the sums are mixed and summed
+        int[] sums = new int[elementCount];
+        for (int id = 0; id < elementCount; id++) {
+            sums[find(id)] += element(id).hashCode();
+        }
+        int hash = 0;
+        for (int id = 0; id < elementCount; id++) {
+            if (parent[id] == id) {
+                hash += 31 * sums[id] ^ (sums[id] >>> 16);
+            }
+        }
+        return hash;
     }
 
     @Override
     public Iterator<Set<T>> iterator() {
-        return equivalenceClasses.iterator();
+        return equivalenceClasses().iterator();
     }
 
 }
@@ -0,0 +1,65 @@
+package at.ac.tuwien.student.e11843614.struct;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * An unmodifiable set that is a view of a contiguous range of an array of distinct elements. Sets over ranges of the
+ * same array share the array and the map of positions, so each of them only takes constant memory.
+ * @param <T> the type of elements in the set.
+ */
+public class RangeSet<T> extends AbstractSet<T> {
+
+    private final T[] elements;
+    private final Map<T, Integer> positions;
+    private final int from, to;
+
+    /**
+     * Constructs a view of a range of an array.
+     * @param elements the array of distinct elements.
+     * @param positions a map from each element of the array to its index.
+     * @param from the first index of the range (inclusive).
+     * @param to the last index of the range (exclusive).
+     */
+    public RangeSet(T[] elements, Map<T, Integer> positions, int from, int to) {
+        this.elements = elements;
+        this.positions = positions;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    @SuppressWarnings("SuspiciousMethodCalls")
+    public boolean contains(Object object) {
+        Integer position = positions.get(object);
+        return position != null && from <= position && position < to;
+    }
+
+    @Override
+    public int size() {
+        return to - from;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<>() {
+            private int index = from;
+
+            @Override
+            public boolean hasNext() {
+                return index < to;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return elements[index++];
+            }
+        };
+    }
+
+}
@@ -1,6 +1,5 @@
 package at.ac.tuwien.student.e11843614.struct.graph;
 
-import java.util.LinkedList;
 import java.util.List;
 
 /**
@@ -11,9 +10,7 @@ public class Edge {
     private final List<Integer> endpoints;
 
     public Edge (int u, int v) {
-        this.endpoints = new LinkedList<>();
-        this.endpoints.add(u);
-        this.endpoints.add(v);
+        this.endpoints = List.of(u, v);
     }
 
     public List<Integer> endpoints() {
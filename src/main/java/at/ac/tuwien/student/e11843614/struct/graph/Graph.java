@@ -1,16 +1,23 @@
 package at.ac.tuwien.student.e11843614.struct.graph;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
- * An object that represents a graph.
+ * An object that represents a graph, possibly with parallel edges. The sets of neighbors of the vertices are built
+ * from the edges when they are first needed, and are kept up to date afterwards, so that neighbors and edges can be
+ * looked up without scanning all edges, while graphs that are only built and iterated do not pay for them.
  */
 public class Graph {
 
     private final Set<Edge> edges = new HashSet<>();
     private final Set<Integer> vertices = new HashSet<>();
+    // vertex -> neighbors, or null if not built yet. Volatile, so that threads that only read a complete graph may
+    // build the map concurrently: each of them then sees either null or a complete map.
+    private volatile Map<Integer, Set<Integer>> neighbors = null;
 
     /**
      * Returns the set of vertices in this graph.
@@ -34,15 +41,19 @@ public class Graph {
      * @return the set of neighbors/adjacent vertices.
      */
     public Set<Integer> getNeighbors(int vertex) {
-        Set<Integer> neighbors = new HashSet<>();
-        for (Edge edge : edges) {
-            if (edge.endpoints().get(0) == vertex) {
-                neighbors.add(edge.endpoints().get(1));
-            } else if (edge.endpoints().get(1) == vertex) {
-                neighbors.add(edge.endpoints().get(0));
-            }
+        return Collections.unmodifiableSet(neighbors().getOrDefault(vertex, Collections.emptySet()));
+    }
+
+    /**
+     * Returns the maximum amount of neighbors of a vertex in this graph (parallel edges count once).
+     * @return the maximum degree, or 0 if the graph has no edges.
+     */
+    public int maximumDegree() {
+        int maximum = 0;
+        for (Set<Integer> adjacent : neighbors().values()) {
+            maximum = Math.max(maximum, adjacent.size());
         }
-        return neighbors;
+        return maximum;
     }
 
     /**
@@ -61,6 +72,10 @@ public class Graph {
         edges.add(edge);
         vertices.add(edge.endpoints().get(0));
         vertices.add(edge.endpoints().get(1));
+        Map<Integer, Set<Integer>> map = neighbors;
+        if (map != null) {
+            addNeighbors(map, edge);
+        }
     }
 
     /**
@@ -79,13 +94,34 @@ public class Graph {
      * @return true, if this graph has an edge uv or vu, and false otherwise.
      */
     public boolean hasEdgeWithEndpoints(int u, int v) {
-        for (Edge edge : edges) {
-            List<Integer> endpoints = edge.endpoints();
-            if (endpoints.contains(u) && endpoints.contains(v)) {
-                return true;
+        if (u == v) {
+            // As before the neighbors were kept: every edge at u has the endpoints u and u
+            return neighbors().containsKey(u);
+        }
+        return neighbors().getOrDefault(u, Collections.emptySet()).contains(v);
+    }
+
+    /**
+     * Returns the sets of neighbors, building them from the edges if they are not built yet.
+     * @return a map from the vertices with edges to their neighbors.
+     */
+    private Map<Integer, Set<Integer>> neighbors() {
+        Map<Integer, Set<Integer>> map = neighbors;
+        if (map == null) {
+            map = new HashMap<>();
+            for (Edge edge : edges) {
+                addNeighbors(map, edge);
             }
+            neighbors = map;
         }
-        return false;
+        return map;
+    }
+
+    private static void addNeighbors(Map<Integer, Set<Integer>> map, Edge edge) {
+        int u = edge.endpoints().get(0);
+        int v = edge.endpoints().get(1);
+        map.computeIfAbsent(u, vertex -> new HashSet<>()).add(v);
+        map.computeIfAbsent(v, vertex -> new HashSet<>()).add(u);
     }
 
     @Override
@@ -1,23 +1,39 @@
 package at.ac.tuwien.student.e11843614.struct.graph;
 
+import at.ac.tuwien.student.e11843614.formula.ClauseArena;
 import at.ac.tuwien.student.e11843614.formula.Formula;
 
+import java.util.Arrays;
+
 public abstract class GraphFactory {
 
     /**
-     * Constructs the incidence graph of the formula.
+     * Constructs the incidence graph of the formula in one pass over its clauses. A variable that occurs more than
+     * once in a clause (also with different signs) yields a single edge.
      * @param formula the formula to construct the incidence graph for.
      * @return an incidence graph, where vertices representing variables of the formula end in 1, and vertices
      *         representing clauses end in 2.
+     * @throws ArithmeticException if a variable or clause is too large to be encoded in such a vertex.
      */
     public static Graph incidenceGraph(Formula formula) {
         // Encode as follows: variable vertices end with 1, clause vertices end with 2
         Graph graph = new Graph();
-        for (int i = 1; i <= formula.clauses().size(); i++) {
-            for (Integer literal : formula.clauses().get(i - 1).literals()) {
-                int variableVertex = 10*Math.abs(literal) + 1;
-                int clauseVertex = 10*i + 2;
-                graph.addEdge(variableVertex, clauseVertex);
+        ClauseArena clauses = formula.arena();
+        int[] variables = new int[16];
+        for (int i = 1; i <= clauses.clauseCount(); i++) {
+            int length = clauses.length(i - 1);
+            if (variables.length < length) {
+                variables = new int[length];
+            }
+            for (int k = 0; k < length; k++) {
+                variables[k] = Math.abs(clauses.literal(i - 1, k));
+            }
+            Arrays.sort(variables, 0, length);
+            int clauseVertex = Math.addExact(Math.multiplyExact(10, i), 2);
+            for (int k = 0; k < length; k++) {
+                if (k == 0 || variables[k] != variables[k - 1]) {
+                    graph.addEdge(Math.addExact(Math.multiplyExact(10, variables[k]), 1), clauseVertex);
+                }
             }
         }
         return graph;
@@ -0,0 +1,54 @@
+package at.ac.tuwien.student.e11843614;
+
+import at.ac.tuwien.student.e11843614.exception.TimeoutException;
+import at.ac.tuwien.student.e11843614.sat.IncrementalSATSolver;
+import at.ac.tuwien.student.e11843614.sat.SATEncoding;
+import at.ac.tuwien.student.e11843614.sat.cardinality.CardinalityEncoding;
+import at.ac.tuwien.student.e11843614.struct.graph.Graph;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DisplayName("Cardinality encodings")
+public class CardinalityTests {
+
+    @Test
+    @DisplayName("At-most constraints hold exactly for all assignments")
+    public void atMost() throws TimeoutException {
+        for (CardinalityEncoding.Type type : CardinalityEncoding.Type.values()) {
+            atMost(type);
+        }
+    }
+
+    private void atMost(CardinalityEncoding.Type type) throws TimeoutException {
+        for (int n = 1; n <= 6; n++) {
+            for (int maxBound = 0; maxBound < n; maxBound++) {
+                IncrementalSATSolver solver = new IncrementalSATSolver();
+                SATEncoding sat = new SATEncoding(new Graph(), solver);
+                int first = sat.newVariables(n);
+                int[] literals = new int[n];
+                for (int x = 0; x < n; x++) {
+                    literals[x] = first + x;
+                }
+                CardinalityEncoding encoding = CardinalityEncoding.of(type, sat, literals, maxBound);
+                for (int bound = maxBound; bound >= 0; bound--) {
+                    int selector = sat.newVariables(1);
+                    encoding.atMost(bound, selector);
+                    for (int truths = 0; truths < (1 << n); truths++) {
+                        int[] assumptions = new int[n + 1];
+                        assumptions[0] = selector;
+                        for (int x = 0; x < n; x++) {
+                            assumptions[x + 1] = ((truths >> x) & 1) == 1 ? literals[x] : -literals[x];
+                        }
+                        boolean expected = Integer.bitCount(truths) <= bound;
+                        boolean satisfiable = solver.getSatisfyingAssignment(sat, assumptions) != null;
+                        assertEquals(expected, satisfiable, type + ": n = " + n + ", max. bound = " + maxBound + ", bound = "
+                            + bound + ", assignment = " + Integer.toBinaryString(truths));
+                    }
+                }
+            }
+        }
+    }
+
+}
@@ -2,10 +2,22 @@ package at.ac.tuwien.student.e11843614;
 
 import at.ac.tuwien.student.e11843614.decomposition.DecompositionFactory;
 import at.ac.tuwien.student.e11843614.decomposition.DerivationFactory;
+import at.ac.tuwien.student.e11843614.decomposition.WidthBounds;
+import at.ac.tuwien.student.e11843614.decomposition.carving.CarvingDecompositionFactory;
 import at.ac.tuwien.student.e11843614.decomposition.carving.CarvingDerivation;
+import at.ac.tuwien.student.e11843614.exception.FormulaParseException;
 import at.ac.tuwien.student.e11843614.exception.TimeoutException;
+import at.ac.tuwien.student.e11843614.formula.Formula;
 import at.ac.tuwien.student.e11843614.misc.GraphExamples;
 import at.ac.tuwien.student.e11843614.misc.PartitionChecks;
+import at.ac.tuwien.student.e11843614.sat.CarvingSATEncoding;
+import at.ac.tuwien.student.e11843614.sat.DimacsClauseSink;
+import at.ac.tuwien.student.e11843614.sat.IncrementalSATSolver;
+import at.ac.tuwien.student.e11843614.sat.SATEncoding;
+import at.ac.tuwien.student.e11843614.sat.SATSolver;
+import at.ac.tuwien.student.e11843614.sat.cardinality.CardinalityEncoding;
+import at.ac.tuwien.student.e11843614.sat.factory.SATEncodingFactory;
+import at.ac.tuwien.student.e11843614.struct.graph.Edge;
 import at.ac.tuwien.student.e11843614.struct.graph.Graph;
 import at.ac.tuwien.student.e11843614.struct.tree.TreeNode;
 import org.junit.jupiter.api.AfterEach;
@@ -13,13 +25,19 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.Queue;
 import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @DisplayName("Carving")
@@ -110,6 +128,49 @@ public class CarvingTests {
             checkIfValidCarvingDecomposition(exact, graph);
         }
 
+        @Test
+        @DisplayName("Derivation with lazy transitivity and symmetry breaking to valid decomposition")
+        public void lazy() throws TimeoutException {
+            CarvingDerivation derivation = DerivationFactory.carving(graph, true, true);
+            assert derivation != null;
+            checkIfValidCarvingDecomposition(CarvingDecompositionFactory.from(derivation), graph);
+        }
+
+        @Test
+        @DisplayName("Local improvement to valid decomposition")
+        public void anytime() throws TimeoutException {
+            checkIfValidCarvingDecomposition(DecompositionFactory.carving(graph, 10), graph);
+            Graph petersen = GraphExamples.petersen();
+            checkIfValidCarvingDecomposition(DecompositionFactory.carving(petersen, 10), petersen);
+        }
+
+        @Test
+        @DisplayName("Reductions to valid optimal decomposition")
+        public void reductions() throws TimeoutException {
+            Graph reducible = GraphExamples.reducible();
+            TreeNode<Set<Integer>> reduced = DecompositionFactory.carving(reducible);
+            checkIfValidCarvingDecomposition(reduced, reducible);
+            CarvingDerivation derivation = DerivationFactory.carving(reducible);
+            assert derivation != null;
+            assertEquals(width(CarvingDecompositionFactory.from(derivation), reducible), width(reduced, reducible),
+                "Reduced decomposition is not optimal");
+        }
+
+        private int width(TreeNode<Set<Integer>> decomposition, Graph graph) {
+            int width = 0;
+            for (TreeNode<Set<Integer>> node : decomposition) {
+                int crossing = 0;
+                for (Edge edge : graph.edges()) {
+                    if (node.object().contains(edge.endpoints().get(0))
+                        != node.object().contains(edge.endpoints().get(1))) {
+                        crossing++;
+                    }
+                }
+                width = Math.max(width, crossing);
+            }
+            return width;
+        }
+
         private void checkIfValidCarvingDecomposition(TreeNode<Set<Integer>> decomposition, Graph graph) {
             Queue<TreeNode<Set<Integer>>> queue = new LinkedList<>();
             Set<Integer> vertices = new HashSet<>();
@@ -132,4 +193,147 @@ public class CarvingTests {
 
     }
 
+    @Nested
+    @DisplayName("Encodings")
+    public class CarvingEncodingTests {
+
+        @Test
+        @DisplayName("Encoding for a fixed width admits optimal decompositions of small blocks")
+        public void depth() throws TimeoutException {
+            // Triangles 1 5 6 and 2 3 4, joined by the edge 1 4: the carving-width is 3
+            Graph graph = new Graph();
+            graph.addEdge(1, 5);
+            graph.addEdge(5, 6);
+            graph.addEdge(6, 1);
+            graph.addEdge(2, 3);
+            graph.addEdge(3, 4);
+            graph.addEdge(4, 2);
+            graph.addEdge(1, 4);
+            assertNotNull(SATSolver.getSatisfyingAssignment(SATEncodingFactory.forCarvingWidth(graph, 3)),
+                "Encoding for w = 3 is unsatisfiable");
+            assertNull(SATSolver.getSatisfyingAssignment(SATEncodingFactory.forCarvingWidth(graph, 2)),
+                "Encoding for w = 2 is satisfiable");
+        }
+
+        @Test
+        @DisplayName("Incremental encoding agrees with encodings for fixed widths")
+        public void incremental() throws TimeoutException {
+            Graph graph = GraphExamples.triangularPrism();
+            int m = graph.edges().size();
+            IncrementalSATSolver solver = new IncrementalSATSolver();
+            CarvingSATEncoding encoding = SATEncodingFactory.forCarvingWidth(graph, 1, m, solver);
+            for (int w = 1; w <= m; w++) {
+                boolean fixed = SATSolver.getSatisfyingAssignment(SATEncodingFactory.forCarvingWidth(graph, w)) != null;
+                boolean incremental = solver.getSatisfyingAssignment(encoding, encoding.selector(w)) != null;
+                assertEquals(fixed, incremental, "Encodings disagree for w = " + w);
+            }
+        }
+
+        @Test
+        @DisplayName("Lazy transitivity agrees with encodings for fixed widths")
+        public void lazy() throws TimeoutException {
+            Graph graph = GraphExamples.triangularPrism();
+            int m = graph.edges().size();
+            IncrementalSATSolver solver = new IncrementalSATSolver();
+            CarvingSATEncoding encoding = SATEncodingFactory.forCarvingWidth(graph, 1, m, solver, true, false);
+            for (int w = 1; w <= m; w++) {
+                boolean fixed = SATSolver.getSatisfyingAssignment(SATEncodingFactory.forCarvingWidth(graph, w)) != null;
+                int selector = encoding.selector(w);
+                boolean[] assignment = solver.getSatisfyingAssignment(encoding, selector);
+                while (assignment != null && encoding.refine(assignment) > 0) {
+                    assignment = solver.getSatisfyingAssignment(encoding, selector);
+                }
+                assertEquals(fixed, assignment != null, "Encodings disagree for w = " + w);
+            }
+        }
+
+        @Test
+        @DisplayName("Symmetry breaking agrees with encodings for fixed widths")
+        public void symmetryBreaking() throws TimeoutException {
+            for (Graph graph : new Graph[]{GraphExamples.triangularPrism(), GraphExamples.petersen()}) {
+                int m = graph.edges().size();
+                IncrementalSATSolver solver = new IncrementalSATSolver();
+                CarvingSATEncoding encoding = SATEncodingFactory.forCarvingWidth(graph, 1, m, solver, false, true);
+                for (int w = 1; w <= m; w++) {
+                    boolean fixed = SATSolver.getSatisfyingAssignment(SATEncodingFactory.forCarvingWidth(graph, w)) != null;
+                    boolean broken = solver.getSatisfyingAssignment(encoding, encoding.selector(w)) != null;
+                    assertEquals(fixed, broken, "Encodings disagree for w = " + w);
+                }
+            }
+        }
+
+        @Test
+        @DisplayName("Cardinality encodings agree with each other")
+        public void cardinality() throws TimeoutException {
+            for (Graph graph : new Graph[]{GraphExamples.triangularPrism(), GraphExamples.petersen()}) {
+                int m = graph.edges().size();
+                for (int w = 1; w <= m; w++) {
+                    boolean seq = SATSolver.getSatisfyingAssignment(
+                        SATEncodingFactory.forCarvingWidth(graph, w, CardinalityEncoding.Type.seq)) != null;
+                    for (CardinalityEncoding.Type type : CardinalityEncoding.Type.values()) {
+                        boolean fixed = SATSolver.getSatisfyingAssignment(
+                            SATEncodingFactory.forCarvingWidth(graph, w, type)) != null;
+                        assertEquals(seq, fixed, type + " disagrees for w = " + w);
+                    }
+                }
+                for (CardinalityEncoding.Type type : CardinalityEncoding.Type.values()) {
+                    IncrementalSATSolver solver = new IncrementalSATSolver();
+                    CarvingSATEncoding encoding = SATEncodingFactory.forCarvingWidth(graph, 1, m, solver, false, false,
+                        type);
+                    for (int w = 1; w <= m; w++) {
+                        boolean fixed = SATSolver.getSatisfyingAssignment(
+                            SATEncodingFactory.forCarvingWidth(graph, w, type)) != null;
+                        boolean incremental = solver.getSatisfyingAssignment(encoding, encoding.selector(w)) != null;
+                        assertEquals(fixed, incremental, type + " (incremental) disagrees for w = " + w);
+                    }
+                }
+            }
+        }
+
+        @Test
+        @DisplayName("DIMACS sink writes the encoding")
+        public void dimacs(@TempDir Path directory) throws IOException, FormulaParseException, TimeoutException {
+            Graph graph = GraphExamples.triangularPrism();
+            String path = directory.resolve("prism.cnf").toString();
+            SATEncoding encoding;
+            try (DimacsClauseSink sink = new DimacsClauseSink(path)) {
+                encoding = SATEncodingFactory.forCarvingWidth(graph, 3, sink);
+            }
+            Formula formula = Formula.fromPath(path);
+            assertEquals(encoding.clauseCount(), formula.clauses().size(), "Amount of clauses differs");
+            boolean written = SATSolver.getModel(formula).length > 0;
+            boolean collected = SATSolver.getSatisfyingAssignment(SATEncodingFactory.forCarvingWidth(graph, 3)) != null;
+            assertEquals(collected, written, "Written formula is not equisatisfiable");
+        }
+
+        @Test
+        @DisplayName("Concurrently generated encoding is reproducible")
+        public void reproducible(@TempDir Path directory) throws IOException {
+            Graph graph = GraphExamples.petersen();
+            Path first = directory.resolve("first.cnf");
+            Path second = directory.resolve("second.cnf");
+            try (DimacsClauseSink sink = new DimacsClauseSink(first.toString())) {
+                SATEncodingFactory.forCarvingWidth(graph, 4, sink);
+            }
+            try (DimacsClauseSink sink = new DimacsClauseSink(second.toString())) {
+                SATEncodingFactory.forCarvingWidth(graph, 4, sink);
+            }
+            assertEquals(Files.readAllLines(first), Files.readAllLines(second), "Encodings differ");
+        }
+
+        @Test
+        @DisplayName("Width bounds enclose carving-width")
+        public void bounds() throws TimeoutException {
+            Graph graph = GraphExamples.petersen();
+            int lower = WidthBounds.carvingLower(graph);
+            int upper = WidthBounds.carvingUpper(graph);
+            assertEquals(3, lower, "Lower bound is not the maximum degree");
+            assertNull(SATSolver.getSatisfyingAssignment(SATEncodingFactory.forCarvingWidth(graph, lower - 1)),
+                "Carving-width is below the lower bound");
+            assertNotNull(SATSolver.getSatisfyingAssignment(SATEncodingFactory.forCarvingWidth(graph, upper)),
+                "Carving-width is above the upper bound");
+        }
+
+    }
+
 }
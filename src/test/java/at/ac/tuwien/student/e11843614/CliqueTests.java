@@ -1,6 +1,7 @@
 package at.ac.tuwien.student.e11843614;
 
 import at.ac.tuwien.student.e11843614.decomposition.DecompositionFactory;
+import at.ac.tuwien.student.e11843614.decomposition.WidthBounds;
 import at.ac.tuwien.student.e11843614.decomposition.clique.CliqueDerivation;
 import at.ac.tuwien.student.e11843614.decomposition.clique.operation.CliqueEdgeCreation;
 import at.ac.tuwien.student.e11843614.decomposition.clique.operation.CliqueOperation;
@@ -10,9 +11,9 @@ import at.ac.tuwien.student.e11843614.decomposition.clique.operation.CliqueUnion
 import at.ac.tuwien.student.e11843614.exception.TimeoutException;
 import at.ac.tuwien.student.e11843614.misc.GraphExamples;
 import at.ac.tuwien.student.e11843614.misc.PartitionChecks;
-import at.ac.tuwien.student.e11843614.sat.SATEncoding;
+import at.ac.tuwien.student.e11843614.sat.CliqueSATEncoding;
+import at.ac.tuwien.student.e11843614.sat.IncrementalSATSolver;
 import at.ac.tuwien.student.e11843614.sat.SATSolver;
-import at.ac.tuwien.student.e11843614.sat.Variable;
 import at.ac.tuwien.student.e11843614.sat.factory.SATEncodingFactory;
 import at.ac.tuwien.student.e11843614.struct.graph.Edge;
 import at.ac.tuwien.student.e11843614.struct.graph.Graph;
@@ -34,6 +35,7 @@ import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @DisplayName("Clique")
@@ -49,8 +51,8 @@ public class CliqueTests {
         @BeforeEach
         public void beforeEach() throws TimeoutException {
             graph = GraphExamples.example();
-            SATEncoding encoding = SATEncodingFactory.forCliqueWidth(graph, 5);
-            Set<Variable> model = SATSolver.getSatisfyingAssignment(encoding);
+            CliqueSATEncoding encoding = SATEncodingFactory.forCliqueWidth(graph, 5);
+            boolean[] model = SATSolver.getSatisfyingAssignment(encoding);
             derivation = new CliqueDerivation(model, encoding);
         }
 
@@ -216,6 +218,47 @@ public class CliqueTests {
 
     }
 
+    @Nested
+    @DisplayName("Encodings")
+    public class CliqueEncodingTests {
+
+        @Test
+        @DisplayName("Symmetry breaking agrees with encodings for fixed widths")
+        public void symmetryBreaking() throws TimeoutException {
+            Graph graph = GraphExamples.triangularPrism();
+            int n = graph.vertices().size();
+            IncrementalSATSolver solver = new IncrementalSATSolver();
+            CliqueSATEncoding encoding = SATEncodingFactory.forCliqueWidthFrom(graph, 2, solver, true);
+            for (int k = 2; k <= n; k++) {
+                boolean fixed = SATSolver.getSatisfyingAssignment(SATEncodingFactory.forCliqueWidth(graph, k)) != null;
+                boolean broken = solver.getSatisfyingAssignment(encoding, encoding.selector(k)) != null;
+                assertEquals(fixed, broken, "Encodings disagree for k = " + k);
+            }
+        }
+
+        @Test
+        @DisplayName("Width bounds enclose clique-width")
+        public void bounds() throws TimeoutException {
+            Graph graph = GraphExamples.triangularPrism();
+            int lower = WidthBounds.cliqueLower(graph);
+            int upper = WidthBounds.cliqueUpper(graph);
+            assertTrue(upper < graph.vertices().size(), "Upper bound is the trivial one");
+            assertNull(SATSolver.getSatisfyingAssignment(SATEncodingFactory.forCliqueWidth(graph, lower - 1)),
+                "Clique-width is below the lower bound");
+            assertNotNull(SATSolver.getSatisfyingAssignment(SATEncodingFactory.forCliqueWidth(graph, upper)),
+                "Clique-width is above the upper bound");
+            // All vertices of a complete graph have the same neighbors outside of any set
+            Graph complete = new Graph();
+            for (int u = 1; u <= 6; u++) {
+                for (int v = u + 1; v <= 6; v++) {
+                    complete.addEdge(u, v);
+                }
+            }
+            assertEquals(2, WidthBounds.cliqueUpper(complete), "Upper bound is not tight for a complete graph");
+        }
+
+    }
+
     @Nested
     @DisplayName("Decompositions")
     public class CliqueDecompositionTests {
@@ -0,0 +1,218 @@
+package at.ac.tuwien.student.e11843614;
+
+import at.ac.tuwien.student.e11843614.exception.FormulaParseException;
+import at.ac.tuwien.student.e11843614.formula.Clause;
+import at.ac.tuwien.student.e11843614.formula.ClauseArena;
+import at.ac.tuwien.student.e11843614.formula.Formula;
+import at.ac.tuwien.student.e11843614.formula.FormulaReader;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.tukaani.xz.LZMA2Options;
+import org.tukaani.xz.XZOutputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("Formulas")
+public class FormulaTests {
+
+    @Test
+    @DisplayName("Clause arena")
+    public void clauseArena_shouldStoreClausesAndOccurrences() {
+        Formula formula = new Formula();
+        formula.addClause(1, -3);
+        formula.addClause(3, 2, -3);
+        formula.addClause();
+        formula.addClause(-1, 5);
+        ClauseArena arena = ClauseArena.from(formula);
+        assertEquals(4, arena.clauseCount());
+        assertEquals(5, arena.variableCount());
+        assertEquals(7, arena.literalCount());
+        assertArrayEquals(new int[]{3, 2, -3}, arena.literals(1));
+        assertEquals(0, arena.length(2));
+        assertArrayEquals(new int[]{0, 1}, arena.occurrences(-3));
+        assertArrayEquals(new int[]{3}, arena.occurrences(-1));
+        assertEquals(0, arena.occurrenceCount(4));
+        // Occurrences are rebuilt after clauses are added
+        arena.addClause(4, -3);
+        assertArrayEquals(new int[]{0, 1, 4}, arena.occurrences(-3));
+        // Views of the clauses
+        List<Clause> clauses = arena.clauses();
+        assertEquals(formula.clauses(), clauses.subList(0, 4));
+        assertEquals(2, clauses.get(1).position());
+        assertThrows(UnsupportedOperationException.class, () -> clauses.get(0).addLiteral(2));
+        Clause copy = new Clause(clauses.get(0));
+        copy.addLiteral(2);
+        assertEquals(List.of(1, -3, 2), copy.literals());
+        assertEquals(1, copy.position());
+        // The arena is a copy of the formula
+        assertEquals(4, formula.clauseCount());
+    }
+
+    @Test
+    @DisplayName("Formula backed by a clause arena")
+    public void formula_shouldCacheCountsUntilClausesAreAdded() {
+        Formula formula = new Formula();
+        formula.addClause(1, -4);
+        formula.addClause(new int[]{4, 2});
+        Set<Integer> variables = formula.getVariables();
+        assertEquals(Set.of(1, 2, 4), variables);
+        assertSame(variables, formula.getVariables());
+        assertEquals(4, formula.variableCount());
+        assertFalse(formula.hasEmptyClauses());
+        assertThrows(UnsupportedOperationException.class, () -> formula.getVariables().add(7));
+        assertThrows(UnsupportedOperationException.class, () -> formula.clauses().get(0).literals().set(0, 3));
+        formula.addClause();
+        assertTrue(formula.hasEmptyClauses());
+        assertEquals(3, formula.clauseCount());
+        assertArrayEquals(new int[]{4, 2}, formula.arena().literals(1));
+    }
+
+    @Test
+    @DisplayName("Formula with mutable clauses")
+    public void formula_shouldReflectChangesOfAddedClauses() {
+        Formula formula = new Formula();
+        formula.addClause(1, -4);
+        Clause clause = new Clause();
+        formula.addClause(clause);
+        assertEquals(2, clause.position());
+        assertTrue(formula.hasEmptyClauses());
+        // The clause is part of the formula, also the ones that were added as literals before
+        clause.addLiteral(-5);
+        formula.clauses().get(0).addLiteral(6);
+        assertFalse(formula.hasEmptyClauses());
+        assertEquals(Set.of(1, 4, 5, 6), formula.getVariables());
+        assertEquals(6, formula.variableCount());
+        formula.addClause(2);
+        assertEquals(3, formula.clauseCount());
+        assertEquals(3, formula.clauses().get(2).position());
+        assertArrayEquals(new int[]{1, -4, 6}, formula.arena().literals(0));
+    }
+
+    @Test
+    @DisplayName("Parsed formula shares the parsed arena")
+    public void parseFormula_shouldBeBackedByArena(@TempDir Path directory) throws IOException, FormulaParseException {
+        Path path = directory.resolve("formula.cnf");
+        Files.writeString(path, "p cnf 3 2\n1 -2 0\n3 0\n");
+        Formula formula = new FormulaReader(path.toString()).parseFormula();
+        assertEquals(2, formula.arena().clauseCount());
+        assertEquals(List.of(1, -2), formula.clauses().get(0).literals());
+        assertEquals(2, formula.clauses().get(1).position());
+        assertEquals(Set.of(1, 2, 3), formula.getVariables());
+    }
+
+    @Test
+    @DisplayName("DIMACS with arbitrary whitespace")
+    public void parse_shouldAcceptWhitespaceAndClausesSpanningLines(@TempDir Path directory)
+        throws IOException, FormulaParseException {
+        Path path = directory.resolve("formula.cnf");
+        Files.writeString(path, "c a comment\r\np  cnf 4\t3\n1\t -3  0 2\n-4\n\n 0\r\n0\n%\n0\n");
+        ClauseArena arena = new FormulaReader(path.toString()).parseArena();
+        assertEquals(3, arena.clauseCount());
+        assertArrayEquals(new int[]{1, -3}, arena.literals(0));
+        assertArrayEquals(new int[]{2, -4}, arena.literals(1));
+        assertEquals(0, arena.length(2));
+    }
+
+    @Test
+    @DisplayName("DIMACS errors")
+    public void parse_shouldReportErrorsWithLines(@TempDir Path directory) throws IOException {
+        Path path = directory.resolve("formula.cnf");
+        Files.writeString(path, "p cnf 2 2\n1 2 0\n-1 x2 0\n");
+        FormulaParseException exception = assertThrows(FormulaParseException.class,
+            () -> new FormulaReader(path.toString()).parseArena());
+        assertTrue(exception.getMessage().endsWith(":3: expected a number, got \"x2\""), exception.getMessage());
+        Files.writeString(path, "p cnf 2 1\n1 2 0\n-1\n2 0\n");
+        exception = assertThrows(FormulaParseException.class, () -> new FormulaReader(path.toString()).parseArena(4));
+        assertTrue(exception.getMessage().contains(":4: exceeded the amount of clauses"), exception.getMessage());
+        Files.writeString(path, "p cnf 2 1\n1 2\n");
+        assertThrows(FormulaParseException.class, () -> new FormulaReader(path.toString()).parseArena());
+    }
+
+    @Test
+    @DisplayName("DIMACS in parallel chunks")
+    public void parse_shouldParseChunksLikeSequentially(@TempDir Path directory)
+        throws IOException, FormulaParseException {
+        // Clauses that span several lines, so that chunks end within clauses
+        Random random = new Random(42);
+        StringBuilder builder = new StringBuilder("c random\np cnf 100 2000\n");
+        for (int c = 0; c < 2000; c++) {
+            int length = random.nextInt(6);
+            for (int i = 0; i < length; i++) {
+                builder.append(random.nextBoolean() ? "-" : "").append(1 + random.nextInt(100));
+                builder.append(random.nextInt(3) == 0 ? "\n" : " ");
+            }
+            builder.append("0\n");
+        }
+        Path path = directory.resolve("formula.cnf");
+        Files.writeString(path, builder.toString());
+        FormulaReader reader = new FormulaReader(path.toString());
+        ClauseArena sequential = reader.parseArena(1);
+        ClauseArena parallel = reader.parseArena(7);
+        assertEquals(2000, parallel.clauseCount());
+        assertEquals(sequential.literalCount(), parallel.literalCount());
+        assertEquals(sequential.clauses(), parallel.clauses());
+    }
+
+    @Test
+    @DisplayName("Compressed DIMACS")
+    public void parse_shouldDecompressGzipXzAndBzip2(@TempDir Path directory)
+        throws IOException, FormulaParseException {
+        byte[] dimacs = "p cnf 3 2\n1 -2 0\n2 3 0\n".getBytes(StandardCharsets.US_ASCII);
+        Path gzip = directory.resolve("formula.cnf.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(gzip))) {
+            out.write(dimacs);
+        }
+        Path xz = directory.resolve("formula.cnf.xz");
+        try (OutputStream out = new XZOutputStream(Files.newOutputStream(xz), new LZMA2Options())) {
+            out.write(dimacs);
+        }
+        // Without the usual extension, as the format is detected by the magic bytes
+        Path bzip2 = directory.resolve("formula.cnf");
+        try (OutputStream out = new BZip2CompressorOutputStream(Files.newOutputStream(bzip2))) {
+            out.write(dimacs);
+        }
+        for (Path path : List.of(gzip, xz, bzip2)) {
+            ClauseArena arena = new FormulaReader(path.toString()).parseArena();
+            assertEquals(2, arena.clauseCount(), path.toString());
+            assertArrayEquals(new int[]{2, 3}, arena.literals(1), path.toString());
+        }
+    }
+
+    @Test
+    @DisplayName("DIMACS from the standard input")
+    public void parse_shouldReadStandardInput() throws IOException, FormulaParseException {
+        InputStream stdin = System.in;
+        try {
+            System.setIn(new ByteArrayInputStream("1 -2 0\n2 3 0\n".getBytes(StandardCharsets.US_ASCII)));
+            ClauseArena arena = new FormulaReader(FormulaReader.STDIN).parseArena();
+            assertEquals(2, arena.clauseCount());
+            assertEquals(3, arena.variableCount());
+            System.setIn(new ByteArrayInputStream("1 x 0\n".getBytes(StandardCharsets.US_ASCII)));
+            FormulaParseException exception = assertThrows(FormulaParseException.class,
+                () -> new FormulaReader(FormulaReader.STDIN).parseArena());
+            assertTrue(exception.getMessage().startsWith("<stdin>:1: "), exception.getMessage());
+        } finally {
+            System.setIn(stdin);
+        }
+    }
+
+}
@@ -0,0 +1,53 @@
+package at.ac.tuwien.student.e11843614;
+
+import at.ac.tuwien.student.e11843614.formula.Formula;
+import at.ac.tuwien.student.e11843614.struct.graph.Graph;
+import at.ac.tuwien.student.e11843614.struct.graph.GraphFactory;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("Graphs")
+public class GraphTests {
+
+    private static Formula formula() {
+        Formula formula = new Formula();
+        formula.addClause(1, -3);
+        formula.addClause(3, 2, -3, 1);
+        formula.addClause(4);
+        return formula;
+    }
+
+    @Test
+    @DisplayName("Incidence graph")
+    public void incidenceGraph_shouldEncodeVariablesAndClauses() {
+        Graph graph = GraphFactory.incidenceGraph(formula());
+        assertEquals(Set.of(11, 21, 31, 41, 12, 22, 32), graph.vertices());
+        // Variable 3 occurs twice in the second clause, but yields one edge
+        assertEquals(6, graph.edges().size());
+        assertEquals(Set.of(11, 21, 31), graph.getNeighbors(22));
+        assertTrue(graph.hasEdgeWithEndpoints(22, 31));
+        assertFalse(graph.hasEdgeWithEndpoints(32, 31));
+        assertEquals(3, graph.maximumDegree());
+        // Edges added after the neighbors were looked up
+        graph.addEdge(41, 22);
+        assertEquals(Set.of(11, 21, 31, 41), graph.getNeighbors(22));
+        assertTrue(graph.hasEdgeWithEndpoints(41, 22));
+        assertEquals(4, graph.maximumDegree());
+    }
+
+    @Test
+    @DisplayName("Incidence graph of too large variables")
+    public void incidenceGraph_shouldThrow_ifVertexOverflows() {
+        Formula formula = new Formula();
+        formula.addClause(Integer.MAX_VALUE / 10 + 1);
+        assertThrows(ArithmeticException.class, () -> GraphFactory.incidenceGraph(formula));
+    }
+
+}
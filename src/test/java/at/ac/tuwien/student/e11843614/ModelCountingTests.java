@@ -1,13 +1,22 @@
 package at.ac.tuwien.student.e11843614;
 
+import at.ac.tuwien.student.e11843614.counting.psw.PSDynamicModelCounting;
+import at.ac.tuwien.student.e11843614.decomposition.DecompositionFactory;
 import at.ac.tuwien.student.e11843614.exception.OverflowException;
 import at.ac.tuwien.student.e11843614.formula.Clause;
 import at.ac.tuwien.student.e11843614.formula.Formula;
 import at.ac.tuwien.student.e11843614.counting.ModelCounting;
+import at.ac.tuwien.student.e11843614.struct.graph.Graph;
+import at.ac.tuwien.student.e11843614.struct.graph.GraphFactory;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 @DisplayName("Model counting")
@@ -92,6 +101,31 @@ public class ModelCountingTests {
         assertThrows(OverflowException.class, () -> ModelCounting.count(formula, algorithm, 0));
     }
 
+    @Test
+    @DisplayName("Cancelled count stops in the dynamic algorithm and in threads it creates")
+    public void cancelledCount_shouldStop() throws Exception {
+        Formula formula = new Formula();
+        formula.addClause(1, -2, 3);
+        formula.addClause(-1, 2, 4);
+        Cancellation cancellation = new Cancellation(0);
+        cancellation.cancel();
+        FutureTask<Long> count = new FutureTask<>(() -> {
+            Cancellation.install(cancellation);
+            FutureTask<Long> child = new FutureTask<>(() -> {
+                Cancellation.check();
+                return 0L;
+            });
+            new Thread(child).start();
+            ExecutionException exception = assertThrows(ExecutionException.class, child::get);
+            assertInstanceOf(CancellationException.class, exception.getCause());
+            Graph graph = GraphFactory.incidenceGraph(formula);
+            return PSDynamicModelCounting.count(formula, DecompositionFactory.pswBranch(graph));
+        });
+        new Thread(count).start();
+        ExecutionException exception = assertThrows(ExecutionException.class, count::get);
+        assertInstanceOf(CancellationException.class, exception.getCause());
+    }
+
     // ----- Regular cases ---------------------------------------------------------------------------------------------
     // Checked against the exact model counter sharpSAT (https://github.com/marcthurley/sharpSAT)
 
@@ -0,0 +1,269 @@
+package at.ac.tuwien.student.e11843614;
+
+import at.ac.tuwien.student.e11843614.counting.psw.PSDynamicModelCounting;
+import at.ac.tuwien.student.e11843614.counting.psw.PSWidthEvaluator;
+import at.ac.tuwien.student.e11843614.counting.psw.PSWidthProfile;
+import at.ac.tuwien.student.e11843614.decomposition.DecompositionFactory;
+import at.ac.tuwien.student.e11843614.decomposition.io.DecompositionCache;
+import at.ac.tuwien.student.e11843614.decomposition.io.DecompositionReader;
+import at.ac.tuwien.student.e11843614.decomposition.io.DecompositionWriter;
+import at.ac.tuwien.student.e11843614.decomposition.psw.Binarization;
+import at.ac.tuwien.student.e11843614.decomposition.psw.PSLocalSearch;
+import at.ac.tuwien.student.e11843614.exception.DecompositionParseException;
+import at.ac.tuwien.student.e11843614.exception.TimeoutException;
+import at.ac.tuwien.student.e11843614.formula.Clause;
+import at.ac.tuwien.student.e11843614.formula.Formula;
+import at.ac.tuwien.student.e11843614.misc.GraphExamples;
+import at.ac.tuwien.student.e11843614.struct.graph.Graph;
+import at.ac.tuwien.student.e11843614.struct.graph.GraphFactory;
+import at.ac.tuwien.student.e11843614.struct.tree.TreeNode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("PS-width")
+public class PSWidthTests {
+
+    public static Formula formula() {
+        Formula formula = new Formula();
+        formula.addClause(1, 2, 3, -4, -5);
+        formula.addClause(-2, -3, 5, 6);
+        formula.addClause(3, -5, 6, 7, 8);
+        formula.addClause(1, 2, -6);
+        formula.addClause(-3, 5, 6, -9);
+        formula.addClause(6, -7, -8, -9, -10, -11);
+        formula.addClause(10, -11, 12, 13, -14);
+        return formula;
+    }
+
+    @Nested
+    @DisplayName("Evaluator")
+    public class PSWidthEvaluatorTests {
+
+        private PSWidthEvaluator evaluator;
+        private TreeNode<Set<Integer>> decomposition;
+
+        @BeforeEach
+        public void beforeEach() {
+            Formula formula = formula();
+            evaluator = new PSWidthEvaluator(formula);
+            decomposition = DecompositionFactory.pswBranch(GraphFactory.incidenceGraph(formula));
+        }
+
+        @Test
+        @DisplayName("Complete evaluation covers every node")
+        public void evaluate_shouldComputeFamiliesOfEveryNode() {
+            PSWidthProfile profile = evaluator.evaluate(decomposition);
+            assertFalse(profile.isAborted(), "Evaluation without threshold was aborted");
+            for (TreeNode<Set<Integer>> node : decomposition) {
+                assertTrue(profile.getPositive(node) >= 1, "PS(F_v) of " + node.object() + " is empty");
+                assertTrue(profile.getNegative(node) >= 1, "PS(F_-v) of " + node.object() + " is empty");
+                assertTrue(profile.get(node) <= profile.width(), "Node exceeds the ps-width");
+            }
+        }
+
+        @Test
+        @DisplayName("Evaluation aborts above threshold")
+        public void evaluate_shouldAbort_ifThresholdExceeded() {
+            int width = evaluator.evaluate(decomposition).width();
+            PSWidthProfile profile = evaluator.evaluate(decomposition, width - 1);
+            assertTrue(profile.isAborted(), "Evaluation was not aborted");
+            assertNotNull(profile.abortedAt());
+            assertTrue(profile.get(profile.abortedAt()) > width - 1, "Aborting node does not exceed the threshold");
+        }
+
+        @Test
+        @DisplayName("Evaluation does not abort at threshold")
+        public void evaluate_shouldNotAbort_ifThresholdEqualsWidth() {
+            int width = evaluator.evaluate(decomposition).width();
+            PSWidthProfile profile = evaluator.evaluate(decomposition, width);
+            assertFalse(profile.isAborted(), "Evaluation was aborted");
+        }
+
+    }
+
+    @Nested
+    @DisplayName("Local search")
+    public class PSLocalSearchTests {
+
+        @Test
+        @DisplayName("Refined decomposition is valid and not worse")
+        public void refine_shouldNotIncreaseWidth() {
+            Formula formula = formula();
+            Graph graph = GraphFactory.incidenceGraph(formula);
+            TreeNode<Set<Integer>> decomposition = DecompositionFactory.pswBranch(graph);
+            long models = PSDynamicModelCounting.count(formula, decomposition);
+            int width = new PSWidthEvaluator(formula).evaluate(decomposition).width();
+            PSLocalSearch.refine(formula, decomposition, 500, 0);
+            checkIfValidBranchDecomposition(decomposition, graph);
+            int refinedWidth = new PSWidthEvaluator(formula).evaluate(decomposition).width();
+            assertTrue(refinedWidth <= width, "ps-width increased from " + width + " to " + refinedWidth);
+            assertEquals(models, PSDynamicModelCounting.count(formula, decomposition), "Amount of models changed");
+        }
+
+        @Test
+        @DisplayName("Bounded refinement is reproducible")
+        public void refine_shouldBeDeterministic() {
+            Formula formula = formula();
+            Graph graph = GraphFactory.incidenceGraph(formula);
+            Set<Set<Integer>> first = null;
+            for (int run = 0; run < 3; run++) {
+                TreeNode<Set<Integer>> decomposition = DecompositionFactory.pswBranch(graph);
+                PSLocalSearch.refine(formula, decomposition, 20, 0);
+                Set<Set<Integer>> sets = new HashSet<>();
+                for (TreeNode<Set<Integer>> node : decomposition) {
+                    sets.add(node.object());
+                }
+                if (first == null) {
+                    first = sets;
+                }
+                assertEquals(first, sets, "Run " + run + " refined to a different decomposition");
+            }
+        }
+
+    }
+
+    @Nested
+    @DisplayName("Quick decompositions")
+    public class QuickDecompositionTests {
+
+        @Test
+        @DisplayName("Balanced shape is valid and shallow")
+        public void pswBranch_shouldBeBalanced() {
+            Graph graph = GraphFactory.incidenceGraph(formula());
+            TreeNode<Set<Integer>> decomposition =
+                DecompositionFactory.pswBranch(graph, DecompositionFactory.Shape.BALANCED);
+            checkIfValidBranchDecomposition(decomposition, graph);
+            int maxHeight = 1 + (int) Math.ceil(Math.log(graph.vertices().size()) / Math.log(2));
+            assertTrue(decomposition.getHeight() <= maxHeight, "Height is " + decomposition.getHeight());
+        }
+
+        @Test
+        @DisplayName("Linear shape is valid")
+        public void pswBranch_shouldBeLinear() {
+            Graph graph = GraphFactory.incidenceGraph(formula());
+            TreeNode<Set<Integer>> decomposition =
+                DecompositionFactory.pswBranch(graph, DecompositionFactory.Shape.LINEAR);
+            checkIfValidBranchDecomposition(decomposition, graph);
+            assertEquals(graph.vertices().size(), decomposition.getHeight(), "Tree is not a caterpillar");
+        }
+
+    }
+
+    @Nested
+    @DisplayName("Binarization")
+    public class BinarizationTests {
+
+        @Test
+        @DisplayName("Star to valid branch decomposition")
+        public void binarize_shouldGroupChildrenOfStar() {
+            Graph graph = GraphExamples.example();
+            TreeNode<Set<Integer>> star = new TreeNode<>(new HashSet<>(graph.vertices()));
+            for (int vertex : graph.vertices()) {
+                star.addChild(new TreeNode<>(Set.of(vertex)));
+            }
+            checkIfValidBranchDecomposition(Binarization.binarize(graph, star), graph);
+        }
+
+        @Test
+        @DisplayName("Carving to valid branch decomposition")
+        public void pswBranchFromCarving_shouldBeBinary() throws TimeoutException {
+            Graph graph = GraphExamples.example();
+            checkIfValidBranchDecomposition(DecompositionFactory.pswBranchFromCarving(graph), graph);
+        }
+
+    }
+
+    @Nested
+    @DisplayName("Decomposition files")
+    public class DecompositionFileTests {
+
+        @TempDir
+        public Path directory;
+
+        @Test
+        @DisplayName("Written decompositions are read back")
+        public void write_shouldBeReadBack() throws Exception {
+            Formula formula = formula();
+            Graph graph = GraphFactory.incidenceGraph(formula);
+            TreeNode<Set<Integer>> decomposition = DecompositionFactory.pswBranch(graph);
+            long models = PSDynamicModelCounting.count(formula, decomposition);
+            for (String name : List.of("decomposition.bd", "decomposition.td")) {
+                String path = directory.resolve(name).toString();
+                DecompositionWriter.write(path, decomposition, formula, graph);
+                TreeNode<Set<Integer>> read = new DecompositionReader(path).parseDecomposition(formula, graph);
+                checkIfValidBranchDecomposition(read, graph);
+                assertEquals(models, PSDynamicModelCounting.count(formula, read), "Amount of models changed");
+            }
+        }
+
+        @Test
+        @DisplayName("Cache ignores literal signs")
+        public void cache_shouldHit_ifOnlySignsDiffer() throws Exception {
+            Formula formula = formula();
+            Formula flipped = new Formula();
+            for (Clause clause : formula.clauses()) {
+                flipped.addClause(clause.literals().stream().map(literal -> -literal).toArray(Integer[]::new));
+            }
+            Graph graph = GraphFactory.incidenceGraph(formula);
+            DecompositionCache cache = new DecompositionCache(directory.toString(), 1024 * 1024);
+            assertNull(cache.get(formula, graph, "quick"), "Empty cache returned a decomposition");
+            cache.put(formula, graph, "quick", DecompositionFactory.pswBranch(graph));
+            Graph flippedGraph = GraphFactory.incidenceGraph(flipped);
+            TreeNode<Set<Integer>> cached = cache.get(flipped, flippedGraph, "quick");
+            assertNotNull(cached, "Formula with flipped signs missed the cache");
+            checkIfValidBranchDecomposition(cached, flippedGraph);
+            assertNull(cache.get(formula, graph, "carving"), "Cache ignored the method");
+        }
+
+        @Test
+        @DisplayName("Invalid tree decompositions are rejected")
+        public void read_shouldReject_ifEdgeNotCovered() throws Exception {
+            // Clause 1 -2 0: the edge between vertices 2 and 3 is not contained in any bag
+            Formula formula = new Formula();
+            formula.addClause(1, -2);
+            Path path = directory.resolve("invalid.td");
+            Files.write(path, List.of("s td 2 2 3", "b 1 1 3", "b 2 2", "1 2"));
+            DecompositionReader reader = new DecompositionReader(path.toString());
+            assertThrows(
+                DecompositionParseException.class,
+                () -> reader.parseDecomposition(formula, GraphFactory.incidenceGraph(formula))
+            );
+        }
+
+    }
+
+    public static void checkIfValidBranchDecomposition(TreeNode<Set<Integer>> decomposition, Graph graph) {
+        Set<Integer> vertices = new HashSet<>();
+        for (TreeNode<Set<Integer>> node : decomposition) {
+            if (node.children().isEmpty()) {
+                assertEquals(1, node.object().size(), "Leaf stores " + node.object().size() + " vertices");
+                vertices.addAll(node.object());
+            } else {
+                assertEquals(2, node.children().size(), "Internal node has " + node.children().size() + " children");
+                Set<Integer> union = new HashSet<>();
+                for (TreeNode<Set<Integer>> child : node.children()) {
+                    union.addAll(child.object());
+                }
+                assertEquals(union, node.object(), "Internal node does not store the union of its children");
+            }
+        }
+        assertEquals(graph.vertices(), vertices, "Decomposition does not contain all vertices of the graph");
+    }
+
+}
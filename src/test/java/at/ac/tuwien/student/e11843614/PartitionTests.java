@@ -1,10 +1,16 @@
 package at.ac.tuwien.student.e11843614;
 
+import at.ac.tuwien.student.e11843614.struct.IntPartition;
 import at.ac.tuwien.student.e11843614.struct.Partition;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.util.Set;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @DisplayName("Partitions")
 public class PartitionTests {
@@ -31,4 +37,65 @@ public class PartitionTests {
         assertEquals(1, partition.equivalenceClasses().size());
     }
 
+    @Test
+    @DisplayName("Equality does not depend on the order of additions")
+    public void equals_shouldCompareClasses_regardlessOfInsertionOrder() {
+        Partition<Integer> partition1 = new Partition<>();
+        partition1.add(1, 2);
+        partition1.add(3);
+        partition1.add(2, 4);
+        Partition<Integer> partition2 = new Partition<>();
+        partition2.add(3);
+        partition2.add(4, 1);
+        partition2.add(2, 4);
+        assertEquals(partition1, partition2);
+        assertEquals(partition1.hashCode(), partition2.hashCode());
+        partition2.add(3, 4);
+        assertNotEquals(partition1, partition2);
+        Partition<Integer> partition3 = new Partition<>();
+        partition3.add(1, 3);
+        partition3.add(2, 4);
+        assertNotEquals(partition1, partition3);
+    }
+
+    @Test
+    @DisplayName("Many merges")
+    public void shouldKeepClasses_ifManyElemsAreMerged() {
+        Partition<Integer> partition = new Partition<>();
+        for (int i = 0; i < 10000; i++) {
+            partition.add(i, i + 2);
+        }
+        assertEquals(2, partition.size());
+        Set<Set<Integer>> equivalenceClasses = partition.equivalenceClasses();
+        for (Set<Integer> equivalenceClass : equivalenceClasses) {
+            assertEquals(5001, equivalenceClass.size());
+        }
+        assertSame(equivalenceClasses, partition.equivalenceClasses());
+        partition.add(0, 1);
+        assertEquals(1, partition.equivalenceClasses().size());
+    }
+
+    @Test
+    @DisplayName("Partition of ints agrees with the generic partition")
+    public void intPartition_shouldEqualGenericPartition_withSameClasses() {
+        IntPartition ints = new IntPartition();
+        Partition<Integer> objects = new Partition<>();
+        // Large and negative vertices, and enough of them to grow the table
+        for (int i = 0; i < 1000; i++) {
+            int vertex = 10 * i * (i % 2 == 0 ? 1 : -1) + 100000;
+            ints.add(vertex, vertex + 30);
+            objects.add(vertex, vertex + 30);
+        }
+        ints.add(Integer.MIN_VALUE);
+        objects.add(Integer.MIN_VALUE);
+        assertEquals(objects.size(), ints.size());
+        assertEquals(objects.equivalenceClasses(), ints.equivalenceClasses());
+        assertEquals(objects, ints);
+        assertEquals(ints, objects);
+        assertEquals(objects.hashCode(), ints.hashCode());
+        assertTrue(ints.equivalenceClasses().contains(Set.of(Integer.MIN_VALUE)));
+        ints.add(100000, 100010);
+        assertNotEquals(objects, ints);
+    }
+
 }
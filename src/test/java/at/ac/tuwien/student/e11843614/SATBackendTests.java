@@ -0,0 +1,130 @@
+package at.ac.tuwien.student.e11843614;
+
+import at.ac.tuwien.student.e11843614.decomposition.carving.CarvingDerivation;
+import at.ac.tuwien.student.e11843614.exception.TimeoutException;
+import at.ac.tuwien.student.e11843614.misc.GraphExamples;
+import at.ac.tuwien.student.e11843614.misc.PartitionChecks;
+import at.ac.tuwien.student.e11843614.sat.CarvingSATEncoding;
+import at.ac.tuwien.student.e11843614.sat.IncrementalSATSolver;
+import at.ac.tuwien.student.e11843614.sat.SATBackend;
+import at.ac.tuwien.student.e11843614.sat.Sat4jBackend;
+import at.ac.tuwien.student.e11843614.sat.factory.SATEncodingFactory;
+import at.ac.tuwien.student.e11843614.struct.graph.Graph;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("SAT backends")
+@DisabledOnOs(OS.WINDOWS)
+public class SATBackendTests {
+
+    @Test
+    @DisplayName("External solver agrees with Sat4j")
+    public void external(@TempDir Path directory) throws IOException, TimeoutException {
+        String command = standIn(directory);
+        agree(SATBackend.of(SATBackend.Type.external, List.of(command), 0));
+    }
+
+    @Test
+    @DisplayName("External solver path and arguments may contain spaces")
+    public void externalWithSpaces(@TempDir Path directory) throws IOException, TimeoutException {
+        Path subdirectory = Files.createDirectory(directory.resolve("sat solver"));
+        String command = script(subdirectory, "checked sat4j.sh", "[ \"$1\" = \"two words\" ] || exit 1\nexec \""
+            + standIn(directory) + "\"");
+        agree(SATBackend.of(SATBackend.Type.external, List.of(command, "two words"), 0));
+    }
+
+    @Test
+    @DisplayName("Portfolio agrees with Sat4j")
+    public void portfolio(@TempDir Path directory) throws IOException, TimeoutException {
+        String command = standIn(directory);
+        agree(SATBackend.of(SATBackend.Type.portfolio, List.of(command), 2));
+    }
+
+    @Test
+    @DisplayName("Sat4j configurations agree with the default")
+    public void configurations() throws TimeoutException {
+        for (int configuration = 1; configuration <= 5; configuration++) {
+            agree(new Sat4jBackend(configuration));
+        }
+        agree(SATBackend.of(SATBackend.Type.portfolio, null, 6));
+    }
+
+    @Test
+    @DisplayName("Unknown answer of an external solver is a timeout")
+    public void unknown(@TempDir Path directory) throws IOException {
+        String command = script(directory, "unknown.sh", "cat > /dev/null\necho \"s UNKNOWN\"");
+        SATBackend backend = SATBackend.of(SATBackend.Type.external, List.of(command), 0);
+        backend.addClause(1, 2);
+        assertThrows(TimeoutException.class, backend::solve);
+    }
+
+    /**
+     * Checks that a backend decides the incremental carving-width encoding of the triangular prism like Sat4j.
+     * @param backend the backend.
+     * @throws TimeoutException if a SAT solver takes too long.
+     */
+    private static void agree(SATBackend backend) throws TimeoutException {
+        Graph graph = GraphExamples.triangularPrism();
+        int m = graph.edges().size();
+        IncrementalSATSolver expected = new IncrementalSATSolver(new Sat4jBackend());
+        IncrementalSATSolver actual = new IncrementalSATSolver(backend);
+        CarvingSATEncoding expectedEncoding = SATEncodingFactory.forCarvingWidth(graph, 1, m, expected);
+        CarvingSATEncoding actualEncoding = SATEncodingFactory.forCarvingWidth(graph, 1, m, actual);
+        for (int w = 1; w <= m; w++) {
+            boolean sat4j = expected.getSatisfyingAssignment(expectedEncoding, expectedEncoding.selector(w)) != null;
+            boolean[] assignment = actual.getSatisfyingAssignment(actualEncoding, actualEncoding.selector(w));
+            assertEquals(sat4j, assignment != null, backend.name() + " disagrees for w = " + w);
+            if (assignment != null) {
+                // The model has to decode into a derivation
+                CarvingDerivation derivation = new CarvingDerivation(assignment, actualEncoding);
+                for (int i = 1; i < derivation.size(); i++) {
+                    assertTrue(PartitionChecks.isRefinement(derivation.getLevel(i), derivation.getLevel(i + 1)),
+                        backend.name() + " returned no derivation for w = " + w);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes a stand-in for an external SAT solver that runs Sat4j's command line launcher on its standard input.
+     * @param directory the directory of the script.
+     * @return the command that runs the script.
+     * @throws IOException if the script cannot be written.
+     */
+    private static String standIn(Path directory) throws IOException {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        return script(directory, "sat4j.sh", "exec \"" + java + "\" -cp \"" + System.getProperty("java.class.path")
+            + "\" org.sat4j.BasicLauncher /dev/stdin");
+    }
+
+    /**
+     * Writes an executable shell script.
+     * @param directory the directory of the script.
+     * @param name the file name of the script.
+     * @param body the commands of the script.
+     * @return the command that runs the script.
+     * @throws IOException if the script cannot be written.
+     */
+    private static String script(Path directory, String name, String body) throws IOException {
+        Path path = directory.resolve(name);
+        Files.writeString(path, "#!/bin/sh\n" + body + "\n");
+        if (!path.toFile().setExecutable(true)) {
+            throw new IOException("Could not make " + path + " executable");
+        }
+        return path.toString();
+    }
+
+}
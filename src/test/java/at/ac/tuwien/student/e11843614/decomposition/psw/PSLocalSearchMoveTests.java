@@ -0,0 +1,143 @@
+package at.ac.tuwien.student.e11843614.decomposition.psw;
+
+import at.ac.tuwien.student.e11843614.PSWidthTests;
+import at.ac.tuwien.student.e11843614.counting.psw.PSWidthEvaluator;
+import at.ac.tuwien.student.e11843614.counting.psw.PSWidthProfile;
+import at.ac.tuwien.student.e11843614.decomposition.DecompositionFactory;
+import at.ac.tuwien.student.e11843614.formula.Formula;
+import at.ac.tuwien.student.e11843614.struct.graph.GraphFactory;
+import at.ac.tuwien.student.e11843614.struct.tree.TreeNode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+@DisplayName("Local search moves")
+public class PSLocalSearchMoveTests {
+
+    private Formula formula;
+    private PSWidthEvaluator evaluator;
+    private TreeNode<Set<Integer>> decomposition;
+    private List<TreeNode<Set<Integer>>> leaves;
+
+    @BeforeEach
+    public void beforeEach() {
+        formula = PSWidthTests.formula();
+        evaluator = new PSWidthEvaluator(formula);
+        decomposition = DecompositionFactory.pswBranch(GraphFactory.incidenceGraph(formula));
+        evaluator.evaluate(decomposition);
+        leaves = new ArrayList<>();
+        for (TreeNode<Set<Integer>> node : decomposition) {
+            if (node.children().isEmpty()) {
+                leaves.add(node);
+            }
+        }
+        leaves.sort(Comparator.comparing(leaf -> leaf.object().iterator().next()));
+    }
+
+    @Test
+    @DisplayName("Swap updates the families like a complete evaluation")
+    public void swap_shouldUpdateFamilies() {
+        PSLocalSearch.Move swap = swap();
+        TreeNode<Set<Integer>> a = leaves.get(0);
+        TreeNode<Set<Integer>> parent = a.parent();
+        apply(swap);
+        assertNotSame(parent, a.parent(), "Swap did not move the subtree");
+        assertFamilies();
+    }
+
+    @Test
+    @DisplayName("Regraft updates the families like a complete evaluation")
+    public void regraft_shouldUpdateFamilies() {
+        TreeNode<Set<Integer>> s = regraftedLeaf();
+        TreeNode<Set<Integer>> x = regraftTarget(s);
+        apply(new PSLocalSearch.Regraft(s, x));
+        assertSame(s.parent(), x.parent(), "Subtree was not regrafted above the target");
+        assertFamilies();
+    }
+
+    @Test
+    @DisplayName("Undone moves restore the decomposition and its families")
+    public void undo_shouldRestoreDecomposition() {
+        Map<TreeNode<Set<Integer>>, TreeNode<Set<Integer>>> parents = new HashMap<>();
+        Map<TreeNode<Set<Integer>>, Set<Integer>> sets = new HashMap<>();
+        for (TreeNode<Set<Integer>> node : decomposition) {
+            parents.put(node, node.parent());
+            sets.put(node, Set.copyOf(node.object()));
+        }
+        TreeNode<Set<Integer>> s = regraftedLeaf();
+        for (PSLocalSearch.Move move : List.of(swap(), new PSLocalSearch.Regraft(s, regraftTarget(s)))) {
+            // Rejected as in the search: revert the evaluator, undo the move and restore the sets
+            Map<TreeNode<Set<Integer>>, Set<Integer>> previous = apply(move);
+            evaluator.revert();
+            move.undo();
+            PSLocalSearch.restoreSets(previous);
+            for (TreeNode<Set<Integer>> node : decomposition) {
+                assertSame(parents.get(node), node.parent(), "Parent of " + node.object() + " was not restored");
+                assertEquals(sets.get(node), node.object(), "Set of a node was not restored");
+            }
+            assertFamilies();
+        }
+    }
+
+    /**
+     * Creates a swap of the first leaf with the first leaf that has another parent.
+     */
+    private PSLocalSearch.Move swap() {
+        TreeNode<Set<Integer>> a = leaves.get(0);
+        TreeNode<Set<Integer>> b = leaves.stream().filter(leaf -> leaf.parent() != a.parent()).findFirst().get();
+        return new PSLocalSearch.Swap(a, b);
+    }
+
+    /**
+     * Returns the last leaf whose parent is not the root, which can be regrafted.
+     */
+    private TreeNode<Set<Integer>> regraftedLeaf() {
+        return leaves.stream().filter(leaf -> leaf.parent().parent() != null).reduce((first, second) -> second).get();
+    }
+
+    /**
+     * Returns the first leaf outside of the subtree of the parent of a leaf, above which the leaf can be regrafted.
+     */
+    private TreeNode<Set<Integer>> regraftTarget(TreeNode<Set<Integer>> s) {
+        return leaves.stream().filter(leaf -> !s.parent().object().containsAll(leaf.object())).findFirst().get();
+    }
+
+    /**
+     * Applies a move, updates the sets of the nodes and the families of the evaluator, as the search does.
+     * @return the previous sets of the changed nodes.
+     */
+    private Map<TreeNode<Set<Integer>>, Set<Integer>> apply(PSLocalSearch.Move move) {
+        Map<TreeNode<Set<Integer>>, Set<Integer>> previous = PSLocalSearch.updateSets(move.apply());
+        evaluator.update(previous.keySet(), Integer.MAX_VALUE);
+        return previous;
+    }
+
+    /**
+     * Asserts that the decomposition is valid and that the families of every node equal those of a complete
+     * evaluation by a new evaluator.
+     */
+    private void assertFamilies() {
+        PSWidthTests.checkIfValidBranchDecomposition(decomposition, GraphFactory.incidenceGraph(formula));
+        PSWidthEvaluator fresh = new PSWidthEvaluator(formula);
+        PSWidthProfile expected = fresh.evaluate(decomposition);
+        for (TreeNode<Set<Integer>> node : decomposition) {
+            assertEquals(fresh.families().getPositive(node), evaluator.families().getPositive(node),
+                "PS(F_v) of " + node.object() + " differs");
+            assertEquals(fresh.families().getNegative(node), evaluator.families().getNegative(node),
+                "PS(F_-v) of " + node.object() + " differs");
+        }
+        assertEquals(expected.width(), evaluator.profile().width(), "ps-width differs");
+    }
+
+}
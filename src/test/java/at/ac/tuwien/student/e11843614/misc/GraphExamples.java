@@ -63,4 +63,35 @@ public abstract class GraphExamples {
         return petersen;
     }
 
+    public static Graph reducible() {
+        // K4 and a triangular prism that share the cut vertex 4
+        Graph graph = new Graph();
+        graph.addEdge(1, 2);
+        graph.addEdge(1, 3);
+        graph.addEdge(1, 4);
+        graph.addEdge(2, 3);
+        graph.addEdge(2, 4);
+        graph.addEdge(3, 4);
+        graph.addEdge(4, 5);
+        graph.addEdge(4, 6);
+        graph.addEdge(4, 7);
+        graph.addEdge(5, 6);
+        graph.addEdge(5, 8);
+        graph.addEdge(6, 9);
+        graph.addEdge(7, 8);
+        graph.addEdge(8, 9);
+        graph.addEdge(9, 7);
+        // a path that is contracted, parallel to the edge 13
+        graph.addEdge(1, 10);
+        graph.addEdge(10, 11);
+        graph.addEdge(11, 3);
+        // a pendant tree
+        graph.addEdge(9, 12);
+        graph.addEdge(12, 13);
+        graph.addEdge(12, 14);
+        // an isolated vertex
+        graph.addVertex(15);
+        return graph;
+    }
+
 }